@@ -1,9 +1,11 @@
 package jasper.client;
 
 import feign.HeaderMap;
+import feign.Headers;
 import feign.Param;
 import feign.QueryMap;
 import feign.RequestLine;
+import feign.Response;
 import jasper.domain.Ext;
 import jasper.domain.Plugin;
 import jasper.domain.Ref;
@@ -38,6 +40,12 @@ public interface JasperClient {
 	List<Ref> refPull(URI baseUri, @QueryMap Map<String, Object> params);
 	@RequestLine("GET /pub/api/v1/repl/ref")
 	List<Ref> refPull(URI baseUri, @HeaderMap Map<String, Object> headers, @QueryMap Map<String, Object> params);
+	@RequestLine("GET /pub/api/v1/repl/ref")
+	@Headers("Accept: application/x-ndjson")
+	Response refStream(URI baseUri, @QueryMap Map<String, Object> params);
+	@RequestLine("GET /pub/api/v1/repl/ref")
+	@Headers("Accept: application/x-ndjson")
+	Response refStream(URI baseUri, @HeaderMap Map<String, Object> headers, @QueryMap Map<String, Object> params);
 	@RequestLine("GET /pub/api/v1/repl/ref/cursor?origin={origin}")
 	Instant refCursor(URI baseUri, @Param("origin") String origin);
 	@RequestLine("GET /pub/api/v1/repl/ref/cursor?origin={origin}")
@@ -51,6 +59,12 @@ public interface JasperClient {
 	List<Ext> extPull(URI baseUri, @QueryMap Map<String, Object> params);
 	@RequestLine("GET /pub/api/v1/repl/ext")
 	List<Ext> extPull(URI baseUri, @HeaderMap Map<String, Object> headers, @QueryMap Map<String, Object> params);
+	@RequestLine("GET /pub/api/v1/repl/ext")
+	@Headers("Accept: application/x-ndjson")
+	Response extStream(URI baseUri, @QueryMap Map<String, Object> params);
+	@RequestLine("GET /pub/api/v1/repl/ext")
+	@Headers("Accept: application/x-ndjson")
+	Response extStream(URI baseUri, @HeaderMap Map<String, Object> headers, @QueryMap Map<String, Object> params);
 	@RequestLine("GET /pub/api/v1/repl/ext/cursor?origin={origin}")
 	Instant extCursor(URI baseUri, @Param("origin") String origin);
 	@RequestLine("GET /pub/api/v1/repl/ext/cursor?origin={origin}")
@@ -64,6 +78,12 @@ public interface JasperClient {
 	List<User> userPull(URI baseUri, @QueryMap Map<String, Object> params);
 	@RequestLine("GET /pub/api/v1/repl/user")
 	List<User> userPull(URI baseUri, @HeaderMap Map<String, Object> headers, @QueryMap Map<String, Object> params);
+	@RequestLine("GET /pub/api/v1/repl/user")
+	@Headers("Accept: application/x-ndjson")
+	Response userStream(URI baseUri, @QueryMap Map<String, Object> params);
+	@RequestLine("GET /pub/api/v1/repl/user")
+	@Headers("Accept: application/x-ndjson")
+	Response userStream(URI baseUri, @HeaderMap Map<String, Object> headers, @QueryMap Map<String, Object> params);
 	@RequestLine("GET /pub/api/v1/repl/user/cursor?origin={origin}")
 	Instant userCursor(URI baseUri, @Param("origin") String origin);
 	@RequestLine("GET /pub/api/v1/repl/user/cursor?origin={origin}")
@@ -77,6 +97,12 @@ public interface JasperClient {
 	List<Plugin> pluginPull(URI baseUri, @QueryMap Map<String, Object> params);
 	@RequestLine("GET /pub/api/v1/repl/plugin")
 	List<Plugin> pluginPull(URI baseUri, @HeaderMap Map<String, Object> headers, @QueryMap Map<String, Object> params);
+	@RequestLine("GET /pub/api/v1/repl/plugin")
+	@Headers("Accept: application/x-ndjson")
+	Response pluginStream(URI baseUri, @QueryMap Map<String, Object> params);
+	@RequestLine("GET /pub/api/v1/repl/plugin")
+	@Headers("Accept: application/x-ndjson")
+	Response pluginStream(URI baseUri, @HeaderMap Map<String, Object> headers, @QueryMap Map<String, Object> params);
 	@RequestLine("GET /pub/api/v1/repl/plugin/cursor?origin={origin}")
 	Instant pluginCursor(URI baseUri, @Param("origin") String origin);
 	@RequestLine("GET /pub/api/v1/repl/plugin/cursor?origin={origin}")
@@ -90,6 +116,12 @@ public interface JasperClient {
 	List<Template> templatePull(URI baseUri, @QueryMap Map<String, Object> params);
 	@RequestLine("GET /pub/api/v1/repl/template")
 	List<Template> templatePull(URI baseUri, @HeaderMap Map<String, Object> headers, @QueryMap Map<String, Object> params);
+	@RequestLine("GET /pub/api/v1/repl/template")
+	@Headers("Accept: application/x-ndjson")
+	Response templateStream(URI baseUri, @QueryMap Map<String, Object> params);
+	@RequestLine("GET /pub/api/v1/repl/template")
+	@Headers("Accept: application/x-ndjson")
+	Response templateStream(URI baseUri, @HeaderMap Map<String, Object> headers, @QueryMap Map<String, Object> params);
 	@RequestLine("GET /pub/api/v1/repl/template/cursor?origin={origin}")
 	Instant templateCursor(URI baseUri, @Param("origin") String origin);
 	@RequestLine("GET /pub/api/v1/repl/template/cursor?origin={origin}")
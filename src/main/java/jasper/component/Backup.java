@@ -2,10 +2,14 @@ package jasper.component;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.micrometer.core.annotation.Counted;
 import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityManager;
 import jasper.component.Storage.Zipped;
+import jasper.component.channel.Index;
 import jasper.config.Props;
 import jasper.domain.Ext;
 import jasper.domain.Plugin;
@@ -15,7 +19,9 @@ import jasper.domain.User;
 import jasper.domain.proj.Cursor;
 import jasper.repository.BackfillRepository;
 import jasper.repository.ExtRepository;
+import jasper.repository.IndexRepository;
 import jasper.repository.PluginRepository;
+import jasper.repository.RefPushRepository;
 import jasper.repository.RefRepository;
 import jasper.repository.StreamMixin;
 import jasper.repository.TemplateRepository;
@@ -29,27 +35,38 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
-import org.springframework.util.StreamUtils;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static jasper.component.FileCache.CACHE;
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static org.hibernate.jpa.AvailableHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.AvailableHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.AvailableHints.HINT_READ_ONLY;
 
 @Component
 public class Backup {
 	private final Logger logger = LoggerFactory.getLogger(Backup.class);
 	private static final String BACKUPS = "backups";
+	private static final int PROGRESS_BATCH = 500;
 
 	@Autowired
 	Props props;
@@ -60,6 +77,15 @@ public class Backup {
 	@Autowired
 	BackfillRepository backfillRepository;
 
+	@Autowired
+	RefPushRepository refPushRepository;
+
+	@Autowired
+	IndexRepository indexRepository;
+
+	@Autowired
+	Index index;
+
 	@Autowired
 	ExtRepository extRepository;
 
@@ -81,13 +107,18 @@ public class Backup {
 	@Autowired
 	PlatformTransactionManager transactionManager;
 
+	@Autowired
+	ExecutorService taskExecutor;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
 	@Autowired
 	Optional<Storage> storage;
 
 	public record BackupStream(InputStream inputStream, long size) {}
 
 	@Async
-	@Transactional(readOnly = true)
 	@Counted(value = "jasper.backup")
 	public void createBackup(String origin, String id, BackupOptionsDto options) throws IOException {
 		if (storage.isEmpty()) {
@@ -97,67 +128,144 @@ public class Backup {
 		var start = Instant.now();
 		logger.info("{} Creating Backup", origin);
 		try (var zipped = storage.get().zipAt(origin, BACKUPS, id + ".zip")) {
+			var newerThan = options.getNewerThan();
+			var permits = new Semaphore(Math.max(1, props.getBackupThreads()));
+			var tasks = new ArrayList<CompletableFuture<Void>>();
+			if (options.isCache()) {
+				// Copy files while the database is being read
+				tasks.add(runAsync(() -> backupCache(origin, newerThan, zipped), taskExecutor));
+			}
 			if (options.isRef()) {
-				backupRepo(refRepository, origin, options.getNewerThan(), zipped.out("ref.json"), false);
+				// Chunks are read in separate transactions, so stop at the start of the backup.
+				// A Ref modified while backing up could otherwise move into a chunk already read or still to be read.
+				var chunks = refChunks(origin, newerThan, start);
+				for (var i = 0; i < chunks.size(); i++) {
+					var chunk = chunks.get(i);
+					var filename = chunks.size() == 1 ? "ref.json" : "ref-" + i + ".json";
+					tasks.add(backupAsync(permits, origin, "ref", zipped, filename, () -> streamRefs(origin, chunk), false));
+				}
 			}
 			if (options.isExt()) {
-				backupRepo(extRepository, origin, options.getNewerThan(), zipped.out("ext.json"));
+				tasks.add(backupAsync(permits, origin, "ext", zipped, "ext.json", () -> stream(extRepository, origin, newerThan), true));
 			}
 			if (options.isUser()) {
-				backupRepo(userRepository, origin, options.getNewerThan(), zipped.out("user.json"));
+				tasks.add(backupAsync(permits, origin, "user", zipped, "user.json", () -> stream(userRepository, origin, newerThan), true));
 			}
 			if (options.isPlugin()) {
-				backupRepo(pluginRepository, origin, options.getNewerThan(), zipped.out("plugin.json"));
+				tasks.add(backupAsync(permits, origin, "plugin", zipped, "plugin.json", () -> stream(pluginRepository, origin, newerThan), true));
 			}
 			if (options.isTemplate()) {
-				backupRepo(templateRepository, origin, options.getNewerThan(), zipped.out("template.json"));
-			}
-			if (options.isCache()) {
-				backupCache(origin, options.getNewerThan(), zipped);
+				tasks.add(backupAsync(permits, origin, "template", zipped, "template.json", () -> stream(templateRepository, origin, newerThan), true));
 			}
+			CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
 		}
 		logger.info("{} Finished Backup in {}", origin, Duration.between(start, Instant.now()));
 	}
 
-	void backupRepo(StreamMixin<?> repo, String origin, Instant newerThan, OutputStream out) throws IOException {
-		backupRepo(repo, origin, newerThan, out, true);
+	/**
+	 * Write one file of the backup in its own read-only transaction.
+	 */
+	private CompletableFuture<Void> backupAsync(Semaphore permits, String origin, String type, Zipped zipped, String filename, Supplier<Stream<?>> query, boolean evict) {
+		return runAsync(() -> {
+			permits.acquireUninterruptibly();
+			try {
+				var start = Instant.now();
+				var tx = new TransactionTemplate(transactionManager);
+				tx.setReadOnly(true);
+				var progress = meterRegistry.counter("jasper.backup.entities", "type", type, "origin", origin);
+				var count = tx.execute(status -> {
+					try (var stream = query.get()) {
+						return backupRepo(stream, zipped.out(filename), evict, progress);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+				var duration = Duration.between(start, Instant.now());
+				meterRegistry.timer("jasper.backup.file", "type", type, "origin", origin).record(duration);
+				logger.info("{} Backed up {} {} in {}", origin, count, filename, duration);
+			} finally {
+				permits.release();
+			}
+		}, taskExecutor);
+	}
+
+	private Stream<?> stream(StreamMixin<?> repo, String origin, Instant newerThan) {
+		if (newerThan != null) return repo.streamAllByOriginAndModifiedGreaterThanEqualOrderByModifiedDesc(origin, newerThan);
+		return repo.streamAllByOriginOrderByModifiedDesc(origin);
 	}
 
-	void backupRepo(StreamMixin<?> repo, String origin, Instant newerThan, OutputStream out, boolean evict) throws IOException {
-		try (out) {
-			var firstElementProcessed = new AtomicBoolean(false);
-			var buf = new StringBuilder();
-			buf.append("[");
-			var buffSize = props.getBackupBufferSize();
-			Stream<?> stream;
-			if (newerThan != null) {
-				stream = repo.streamAllByOriginAndModifiedGreaterThanEqualOrderByModifiedDesc(origin, newerThan);
-			} else {
-				stream = repo.streamAllByOriginOrderByModifiedDesc(origin);
+	/**
+	 * Range of Refs modified in [from, to). Null bounds are open.
+	 */
+	record Chunk(Instant from, Instant to) { }
+
+	/**
+	 * Split Refs modified before the given time into chunks of {@link Props#getBackupChunkSize()}
+	 * by walking the modified index, so each chunk can be read with a keyset query.
+	 */
+	List<Chunk> refChunks(String origin, Instant newerThan, Instant until) {
+		var result = new ArrayList<Chunk>();
+		var size = Math.max(1, props.getBackupChunkSize());
+		var before = until;
+		while (true) {
+			var jpql = "SELECT r.modified FROM Ref r WHERE r.origin = :origin"
+				+ (newerThan != null ? " AND r.modified >= :from" : "")
+				+ (before != null ? " AND r.modified < :to" : "")
+				+ " ORDER BY r.modified DESC";
+			var query = entityManager.createQuery(jpql, Instant.class)
+				.setParameter("origin", origin)
+				.setFirstResult(size - 1)
+				.setMaxResults(1);
+			if (newerThan != null) query.setParameter("from", newerThan);
+			if (before != null) query.setParameter("to", before);
+			var last = query.getResultStream().findFirst().orElse(null);
+			if (last == null) {
+				result.add(new Chunk(newerThan, before));
+				return result;
 			}
-			stream.forEach(entity -> {
-				try {
-					if (firstElementProcessed.getAndSet(true)) {
-						buf.append(",\n");
-					}
-					buf.append(objectMapper.writeValueAsString(entity));
-					if (buf.length() > buffSize) {
-						logger.debug("Flushing buffer {} bytes", buf.length());
-						StreamUtils.copy(buf.toString().getBytes(), out);
-						buf.setLength(0);
-						entityManager.clear();
-					}
-				} catch (IOException e) {
-					throw new RuntimeException(e);
-				}
+			result.add(new Chunk(last, before));
+			before = last;
+		}
+	}
+
+	private Stream<Ref> streamRefs(String origin, Chunk chunk) {
+		var jpql = "FROM Ref r WHERE r.origin = :origin"
+			+ (chunk.from() != null ? " AND r.modified >= :from" : "")
+			+ (chunk.to() != null ? " AND r.modified < :to" : "")
+			+ " ORDER BY r.modified DESC";
+		var query = entityManager.createQuery(jpql, Ref.class)
+			.setParameter("origin", origin)
+			.setHint(HINT_FETCH_SIZE, 500)
+			.setHint(HINT_CACHEABLE, false)
+			.setHint(HINT_READ_ONLY, true);
+		if (chunk.from() != null) query.setParameter("from", chunk.from());
+		if (chunk.to() != null) query.setParameter("to", chunk.to());
+		return query.getResultStream();
+	}
+
+	/**
+	 * Serialize entities straight into the zip entry as a JSON array.
+	 * Progress is counted every {@link #PROGRESS_BATCH} entities.
+	 */
+	int backupRepo(Stream<?> stream, OutputStream out, boolean evict, Counter progress) throws IOException {
+		var count = 0;
+		try (var values = objectMapper.writer()
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+				.writeValuesAsArray(new BufferedOutputStream(out, props.getBackupBufferSize()))) {
+			for (var it = stream.iterator(); it.hasNext(); ) {
+				var entity = it.next();
+				values.write(entity);
+				count++;
 				if (evict) {
 					entityManager.detach(entity);
+				} else if (count % PROGRESS_BATCH == 0) {
+					entityManager.clear();
 				}
-			});
-			buf.append("]");
-			logger.debug("Flushing buffer {} bytes", buf.length());
-			StreamUtils.copy(buf.toString().getBytes(), out);
+				if (count % PROGRESS_BATCH == 0) progress.increment(PROGRESS_BATCH);
+			}
 		}
+		progress.increment(count % PROGRESS_BATCH);
+		return count;
 	}
 
 	void backupCache(String origin, Instant newerThan, Zipped backup) {
@@ -208,7 +316,7 @@ public class Backup {
 		logger.info("{} Restoring Backup", origin);
 		try (var zipped = storage.get().streamZip(origin, BACKUPS, id + ".zip")) {
 			if (options == null || options.isRef()) {
-				restoreRepo(refRepository, origin, zipped.list("ref.*\\.json"), Ref.class);
+				restoreRefs(origin, zipped.list("ref.*\\.json"));
 			}
 			if (options == null || options.isExt()) {
 				restoreRepo(extRepository, origin, zipped.list("ext.*\\.json"), Ext.class);
@@ -231,6 +339,110 @@ public class Backup {
 		logger.info("{} Finished Restore in {}", origin, Duration.between(start, Instant.now()));
 	}
 
+	/**
+	 * Restore ref files in parallel with JDBC batch upserts. Batches that fail
+	 * are retried one entity at a time so a single bad Ref is skipped.
+	 * Response edges are not part of the backup, so they are rebuilt afterwards
+	 * from the restored sources. The restored metadata is kept as is.
+	 */
+	void restoreRefs(String origin, Iterator<InputStream> files) {
+		var start = Instant.now();
+		var dropIndices = props.isRestoreDropIndices();
+		if (dropIndices) dropIndices(origin);
+		var count = new AtomicLong();
+		try {
+			var permits = new Semaphore(Math.max(1, props.getRestoreThreads()));
+			var tasks = new ArrayList<CompletableFuture<Void>>();
+			while (true) {
+				// Only open as many files as can be read at once
+				permits.acquireUninterruptibly();
+				if (!files.hasNext()) {
+					permits.release();
+					break;
+				}
+				var file = files.next();
+				tasks.add(runAsync(() -> {
+					try (file) {
+						count.addAndGet(restoreRefs(origin, file));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					} finally {
+						permits.release();
+					}
+				}, taskExecutor));
+			}
+			CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+		} finally {
+			if (dropIndices) {
+				logger.info("{} Rebuilding indices", origin);
+				index.updateIndex();
+			}
+		}
+		logger.info("{} Rebuilding responses", origin);
+		backfillRepository.rebuildResponses(origin);
+		var duration = Duration.between(start, Instant.now());
+		meterRegistry.counter("jasper.restore.entities", "type", "ref", "origin", origin).increment(count.get());
+		meterRegistry.timer("jasper.restore.file", "type", "ref", "origin", origin).record(duration);
+		logger.info("{} Ref {} restored in {} ({} rows/s)", origin, count.get(), duration,
+			count.get() * 1000 / Math.max(1, duration.toMillis()));
+	}
+
+	private int restoreRefs(String origin, InputStream file) {
+		var it = new JsonArrayStreamDataSupplier<>(file, Ref.class, objectMapper);
+		var batch = new ArrayList<Ref>(props.getRestoreBatchSize());
+		var count = 0;
+		while (it.hasNext()) {
+			var ref = it.next();
+			ref.setOrigin(origin);
+			batch.add(ref);
+			if (batch.size() >= props.getRestoreBatchSize()) {
+				count += pushRefs(origin, batch);
+				logger.debug("{} Ref {} restored...", origin, count);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) count += pushRefs(origin, batch);
+		return count;
+	}
+
+	private int pushRefs(String origin, List<Ref> batch) {
+		try {
+			refPushRepository.restoreAll(batch);
+			return batch.size();
+		} catch (Exception e) {
+			logger.warn("{} Batch restore failed, retrying {} Refs one at a time", origin, batch.size(), e);
+			return saveEach(refRepository, origin, batch, Ref.class);
+		}
+	}
+
+	private <T extends Cursor> int saveEach(JpaRepository<T, ?> repo, String origin, List<T> batch, Class<T> type) {
+		var count = 0;
+		for (var t : batch) {
+			try {
+				new TransactionTemplate(transactionManager).executeWithoutResult(status -> repo.save(t));
+				count++;
+			} catch (Exception e) {
+				try {
+					logger.error("{} Skipping {} {} due to constraint violation", origin, type.getSimpleName(), objectMapper.writeValueAsString(t), e);
+				} catch (JsonProcessingException ex) {
+					logger.error("{} Skipping {} {} due to constraint violation", origin, type.getSimpleName(), type, e);
+				}
+			}
+		}
+		return count;
+	}
+
+	private void dropIndices(String origin) {
+		logger.info("{} Dropping indices for restore", origin);
+		indexRepository.dropTags();
+		indexRepository.dropExpandedTags();
+		indexRepository.dropSources();
+		indexRepository.dropAlts();
+		indexRepository.dropFulltext();
+		indexRepository.dropPublished();
+		indexRepository.dropModified();
+	}
+
 	<T extends Cursor> void restoreRepo(JpaRepository<T, ?> repo, String origin, Iterator<InputStream> files, Class<T> type) {
 		files.forEachRemaining(file -> {
 			restoreRepo(repo, origin, file, type);
@@ -303,12 +515,20 @@ public class Backup {
 		logger.info("{} Starting Backfill", origin);
 		refRepository.dropMetadata(origin);
 		logger.info("{} Cleared old metadata", origin);
+		backfill(origin);
+		logger.info("{} Finished Backfill in {}", origin, Duration.between(start, Instant.now()));
+	}
+
+	private void backfill(String origin) {
 		int count = 0;
-		while (props.getBackfillBatchSize() == backfillRepository.backfillMetadata(origin, props.getBackfillBatchSize())) {
-			count += props.getBackfillBatchSize();
+		Instant cursor = null;
+		while (true) {
+			var batch = backfillRepository.backfillMetadata(origin, cursor, props.getBackfillBatchSize());
+			if (batch.cursor() == null) break;
+			cursor = batch.cursor();
+			count += batch.count();
 			logger.info("{} Generating metadata... {} done", origin, count);
 		}
-		logger.info("{} Finished Backfill in {}", origin, Duration.between(start, Instant.now()));
 	}
 
 	@Timed(value = "jasper.backup", histogram = true)
@@ -1,7 +1,9 @@
 package jasper.component;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.jsontypedef.jtd.Schema;
 import jakarta.annotation.PostConstruct;
 import jasper.component.dto.ComponentDtoMapper;
 import jasper.config.Config.SecurityConfig;
@@ -137,6 +139,8 @@ public class ConfigCache {
 
 	@CacheEvict(value = {
 		"plugin-cache",
+		"plugin-schema-cache",
+		"plugin-defaults-cache",
 		"plugin-config-cache",
 		"plugin-dto-cache",
 		"plugin-dto-page-cache",
@@ -250,6 +254,25 @@ public class ConfigCache {
 		return pluginRepository.findByTagAndOrigin(tag, origin);
 	}
 
+	/**
+	 * Schema converted for the JTD validator, keyed by plugin version.
+	 */
+	@Cacheable(value = "plugin-schema-cache", key = "#plugin.tag + #plugin.origin + '@' + #plugin.modified")
+	public Schema getPluginSchema(Plugin plugin) {
+		return objectMapper.convertValue(plugin.getSchema(), Schema.class);
+	}
+
+	/**
+	 * Non-empty defaults, keyed by plugin version. Shared between Refs, so callers
+	 * must copy before modifying.
+	 */
+	@Cacheable(value = "plugin-defaults-cache", key = "#plugin.tag + #plugin.origin + '@' + #plugin.modified")
+	public JsonNode getPluginDefaults(Plugin plugin) {
+		var defaults = plugin.getDefaults();
+		if (defaults == null || !defaults.isValueNode() && defaults.isEmpty()) return null;
+		return defaults.deepCopy();
+	}
+
 	@Cacheable(value = "template-config-cache", key = "#template + #origin")
 	public <T> Optional<T> getTemplateConfig(String template, String origin, Class<T> toValueType) {
 		return templateRepository.findByTemplateAndOrigin(template, origin)
@@ -1,5 +1,7 @@
 package jasper.component;
 
+import jasper.plugin.Cache;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -8,8 +10,31 @@ public interface Fetch {
 
 	FileRequest doScrape(String url, String origin) throws IOException;
 
+	/**
+	 * Conditional fetch using the validators stored in the cache plugin.
+	 * @param validators cache of the copy already in storage, or null
+	 */
+	default FileRequest doScrape(String url, String origin, Cache validators) throws IOException {
+		return doScrape(url, origin);
+	}
+
 	interface FileRequest extends Closeable {
 		String getMimeType();
 		InputStream getInputStream() throws IOException;
+
+		/**
+		 * The copy in storage is still current and there is no body.
+		 */
+		default boolean isNotModified() {
+			return false;
+		}
+
+		default String getEtag() {
+			return null;
+		}
+
+		default String getLastModified() {
+			return null;
+		}
 	}
 }
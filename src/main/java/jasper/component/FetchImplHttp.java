@@ -3,6 +3,7 @@ package jasper.component;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import jasper.errors.NotFoundException;
 import jasper.errors.ScrapeProtocolException;
+import jasper.plugin.Cache;
 import jasper.security.HostCheck;
 import org.apache.http.HttpHeaders;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -20,12 +21,14 @@ import java.io.InputStream;
 
 import static jasper.domain.proj.HasTags.hasMatchingTag;
 import static jasper.plugin.Pull.getPull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.http.util.EntityUtils.consumeQuietly;
 
 @Profile("proxy")
 @Component
 public class FetchImplHttp implements Fetch {
 	private static final Logger logger = LoggerFactory.getLogger(FetchImplHttp.class);
+	private static final int MAX_REDIRECTS = 10;
 
 	@Autowired
 	HostCheck hostCheck;
@@ -36,11 +39,23 @@ public class FetchImplHttp implements Fetch {
 	@Autowired
 	HttpClientFactory httpClientFactory;
 
+	@Autowired
+	FetchScheduler fetchScheduler;
+
 	@Autowired
 	Replicator replicator;
 
 	@Bulkhead(name = "fetch")
 	public FileRequest doScrape(String url, String origin) throws IOException {
+		return scrape(url, origin, null);
+	}
+
+	@Bulkhead(name = "fetch")
+	public FileRequest doScrape(String url, String origin, Cache validators) throws IOException {
+		return scrape(url, origin, validators);
+	}
+
+	private FileRequest scrape(String url, String origin, Cache validators) throws IOException {
 		var remote = configs.getRemote(origin);
 		var pull = getPull(remote);
 		if (url.startsWith("cache:") || pull.isCacheProxy()) {
@@ -52,12 +67,12 @@ public class FetchImplHttp implements Fetch {
 			return replicator.fetch(url, remote);
 		}
 		if (url.startsWith("http:") || url.startsWith("https:")) {
-			return wrap(doWebScrape(url));
+			return wrap(doWebScrape(url, validators, 0));
 		}
 		throw new ScrapeProtocolException(url.contains(":") ? url.substring(0, url.indexOf(":")) : "unknown");
 	}
 
-	private CloseableHttpResponse doWebScrape(String url) throws IOException {
+	private FetchScheduler.Request doWebScrape(String url, Cache validators, int redirects) throws IOException {
 		logger.debug("Starting request to {}", url);
 		HttpUriRequest request = new HttpGet(url);
 		if (!hostCheck.validHost(request.getURI())) {
@@ -65,27 +80,53 @@ public class FetchImplHttp implements Fetch {
 			throw new NotFoundException("Invalid host.");
 		}
 		request.setHeader(HttpHeaders.USER_AGENT, "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/100.0.4896.75 Safari/537.36");
-		var http = httpClientFactory.getClient();
-		var res = http.execute(request);
-		if (res == null) return null;
-		if (res.getStatusLine().getStatusCode() == 301 || res.getStatusLine().getStatusCode() == 304) {
+		var conditional = validators != null && (isNotBlank(validators.getEtag()) || isNotBlank(validators.getLastModified()));
+		if (conditional) {
+			if (isNotBlank(validators.getEtag())) request.setHeader(HttpHeaders.IF_NONE_MATCH, validators.getEtag());
+			if (isNotBlank(validators.getLastModified())) request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, validators.getLastModified());
+		}
+		var scheduled = fetchScheduler.acquire(request);
+		CloseableHttpResponse res;
+		try {
+			res = scheduled.execute(httpClientFactory.getClient());
+		} catch (IOException | RuntimeException e) {
+			scheduled.close();
+			throw e;
+		}
+		if (res == null) {
+			scheduled.close();
+			return null;
+		}
+		var status = res.getStatusLine().getStatusCode();
+		if (status == 304 && conditional) {
+			logger.debug("Not modified {}", url);
+			return scheduled;
+		}
+		if (status == 301 || status == 304) {
+			String location;
+			// Release the host before following, since redirects are often to the same host
+			try (scheduled) {
+				if (redirects >= MAX_REDIRECTS) throw new IOException("Too many redirects");
+				location = res.getFirstHeader(HttpHeaders.LOCATION).getValue();
+			} catch (Exception e) {
+				logger.error("Error forwarding request from {}", url, e);
+				return null;
+			}
 			try {
-				var location = res.getFirstHeader("Location").getElements()[0].getValue();
 				logger.debug("Forwarding request to {} -> {}", url, location);
-				return doWebScrape(location);
+				return doWebScrape(location, validators, redirects + 1);
 			} catch (Exception e) {
 				logger.error("Error forwarding request from {}", url, e);
 				return null;
-			} finally {
-				res.close();
 			}
 		}
 		logger.debug("Request completed {}", url);
-		return res;
+		return scheduled;
 	}
 
-	private FileRequest wrap(CloseableHttpResponse res) {
-		if (res == null) return null;
+	private FileRequest wrap(FetchScheduler.Request scheduled) {
+		if (scheduled == null) return null;
+		var res = scheduled.getResponse();
 		return new FileRequest() {
 			@Override
 			public String getMimeType() {
@@ -101,16 +142,33 @@ public class FetchImplHttp implements Fetch {
 						try {
 							super.close();
 						} finally {
-							res.close();
+							scheduled.close();
 						}
 					}
 				};
 			}
 
+			@Override
+			public boolean isNotModified() {
+				return res.getStatusLine().getStatusCode() == 304;
+			}
+
+			@Override
+			public String getEtag() {
+				var header = res.getFirstHeader(HttpHeaders.ETAG);
+				return header == null ? null : header.getValue();
+			}
+
+			@Override
+			public String getLastModified() {
+				var header = res.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+				return header == null ? null : header.getValue();
+			}
+
 			@Override
 			public void close() throws IOException {
 				consumeQuietly(res.getEntity());
-				res.close();
+				scheduled.close();
 			}
 		};
 	}
@@ -0,0 +1,166 @@
+package jasper.component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jasper.config.Props;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Limits requests to external hosts. Each host gets a number of concurrent
+ * requests and a delay between starting requests, so scraping many URLs from
+ * the same site does not hammer it.
+ */
+@Component
+public class FetchScheduler {
+	private static final Logger logger = LoggerFactory.getLogger(FetchScheduler.class);
+
+	@Autowired
+	Props props;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	private record Host(Semaphore permits, AtomicLong next) {}
+	private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+
+	/**
+	 * Forget hosts with no requests in flight or waiting on the crawl delay.
+	 * Their meters are removed too, since hosts come from user supplied URLs.
+	 */
+	@Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+	public void evictIdleHosts() {
+		var now = System.currentTimeMillis();
+		hosts.entrySet().removeIf(e -> {
+			if (e.getValue().next.get() >= now || e.getValue().permits.availablePermits() != props.getFetchHostConcurrency()) return false;
+			meterRegistry.getMeters().stream()
+				.filter(m -> m.getId().getName().startsWith("jasper.fetch.") && e.getKey().equals(m.getId().getTag("host")))
+				.forEach(meterRegistry::remove);
+			return true;
+		});
+	}
+
+	/**
+	 * Wait for a turn to send a request to the host of this URL.
+	 * The returned request must be closed to let the next one through.
+	 */
+	public Request acquire(HttpUriRequest request) throws IOException {
+		var name = Objects.toString(request.getURI().getHost(), "");
+		var host = hosts.computeIfAbsent(name, h -> new Host(new Semaphore(props.getFetchHostConcurrency(), true), new AtomicLong()));
+		try {
+			// Same as the connection request timeout in HttpClientFactory
+			if (!host.permits.tryAcquire(30, TimeUnit.SECONDS)) {
+				throw new ConnectionPoolTimeoutException("Timeout waiting for " + name);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		var result = new Request(name, host, request);
+		var now = System.currentTimeMillis();
+		var start = Math.max(now, host.next.getAndAccumulate(now, (next, n) -> Math.max(next, n) + props.getFetchCrawlDelayMs()));
+		if (start > now) {
+			logger.trace("Waiting {}ms before requesting {}", start - now, name);
+			try {
+				Thread.sleep(start - now);
+			} catch (InterruptedException e) {
+				result.close();
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+		return result;
+	}
+
+	public class Request implements Closeable {
+		private final String name;
+		private final Host host;
+		private final HttpUriRequest request;
+		private final AtomicBoolean closed = new AtomicBoolean();
+		private final AtomicLong bytes = new AtomicLong();
+		private CloseableHttpResponse response;
+
+		private Request(String name, Host host, HttpUriRequest request) {
+			this.name = name;
+			this.host = host;
+			this.request = request;
+		}
+
+		public CloseableHttpResponse getResponse() {
+			return response;
+		}
+
+		public CloseableHttpResponse execute(CloseableHttpClient client) throws IOException {
+			var sample = Timer.start(meterRegistry);
+			try {
+				response = client.execute(request);
+			} finally {
+				sample.stop(Timer.builder("jasper.fetch.latency")
+					.description("Time until response headers are received from an external host")
+					.tag("host", name)
+					.register(meterRegistry));
+			}
+			if (response == null) return null;
+			Counter.builder("jasper.fetch.responses")
+				.description("Responses from external hosts by status code")
+				.tag("host", name)
+				.tag("status", String.valueOf(response.getStatusLine().getStatusCode()))
+				.register(meterRegistry)
+				.increment();
+			if (response.getEntity() != null) {
+				response.setEntity(new HttpEntityWrapper(response.getEntity()) {
+					@Override
+					public InputStream getContent() throws IOException {
+						return new ProxyInputStream(super.getContent()) {
+							@Override
+							protected void afterRead(int n) {
+								if (n > 0) bytes.addAndGet(n);
+							}
+						};
+					}
+				});
+			}
+			return response;
+		}
+
+		@Override
+		public void close() {
+			if (!closed.compareAndSet(false, true)) return;
+			closeQuietly(response);
+			host.permits.release();
+			if (response != null) {
+				DistributionSummary.builder("jasper.fetch.bytes")
+					.description("Response body bytes read from an external host")
+					.baseUnit("bytes")
+					.tag("host", name)
+					.register(meterRegistry)
+					.record(bytes.get());
+			}
+		}
+	}
+}
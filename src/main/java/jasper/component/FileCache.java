@@ -4,6 +4,7 @@ import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.micrometer.core.annotation.Timed;
 import jasper.domain.Ref;
 import jasper.errors.NotFoundException;
+import jasper.errors.NotReadyException;
 import jasper.errors.ScrapeProtocolException;
 import jasper.plugin.Cache;
 import jasper.repository.RefRepository;
@@ -14,7 +15,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -25,12 +25,14 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static jasper.domain.proj.HasTags.hasMatchingTag;
 import static jasper.plugin.Cache.bannedOrBroken;
 import static jasper.plugin.Cache.getCache;
 import static jasper.plugin.Pull.getPull;
 import static jasper.util.Logging.getMessage;
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
@@ -59,28 +61,51 @@ public class FileCache {
 	@Autowired
 	Tagger tagger;
 
+	@Autowired
+	ThumbnailQueue thumbnailQueue;
+
 	@Timed(value = "jasper.cache")
 	@Bulkhead(name = "recycler")
 	public void clearDeleted(String origin) {
 		logger.info("{} Purging file cache", origin);
 		var start = Instant.now();
+		var count = new AtomicInteger();
 		storage.visitStorage(origin, CACHE, id -> {
 			if (!refRepository.cacheExists(id)) {
 				try {
 					storage.delete(origin, CACHE, id);
+					count.incrementAndGet();
 				} catch (IOException e) {
 					logger.error("Cannot delete file", e);
 				}
 			}
 		});
-		logger.info("{} Finished purging file cache in {}", origin, Duration.between(start, Instant.now()));
+		logger.info("{} Finished purging {} files from file cache in {}", origin, count.get(), Duration.between(start, Instant.now()));
+	}
+
+	@Timed(value = "jasper.cache")
+	@Bulkhead(name = "recycler")
+	public void collectGarbage() {
+		logger.info("Collecting garbage from storage");
+		var start = Instant.now();
+		try {
+			var reclaimed = storage.collectGarbage();
+			logger.info("Finished collecting garbage from storage in {}, reclaimed {}",
+				Duration.between(start, Instant.now()), byteCountToDisplaySize(reclaimed));
+		} catch (IOException e) {
+			logger.error("Cannot collect garbage from storage", e);
+		}
 	}
 
 	@Timed(value = "jasper.cache", histogram = true)
 	public void preFetch(String url, String origin, boolean thumbnail) {
 		if (exists(url, origin)) return;
 		if (thumbnail) {
-			fetchThumbnail(url, origin);
+			try {
+				closeQuietly(fetchThumbnail(url, origin));
+			} catch (NotReadyException e) {
+				// Thumbnail queued
+			}
 		} else {
 			fetch(url, origin, true);
 		}
@@ -135,9 +160,17 @@ public class FileCache {
 			}
 		}
 		if (hasMatchingTag(stat(url, origin), "+plugin/error")) return null;
+		// Only revalidate if the complete copy in storage can be served on 304 Not Modified
+		var validators = existingCache != null
+			&& isNotBlank(existingCache.getId())
+			&& !existingCache.isNoStore()
+			&& storage.exists(origin, CACHE, existingCache.getId())
+			&& (existingCache.getContentLength() == null || existingCache.getContentLength() == storage.size(origin, CACHE, existingCache.getId()))
+			? existingCache
+			: null;
 		String mimeType;
 		String id;
-		try (var res = fetch.doScrape(url, origin)) {
+		try (var res = fetch.doScrape(url, origin, validators)) {
 			if (res == null) return null;
 			var remote = configs.getRemote(origin);
 			var pull = getPull(remote);
@@ -150,6 +183,10 @@ public class FileCache {
 				if (storage.exists(origin, CACHE, id)) return storage.stream(origin, CACHE, id);
 				return null;
 			}
+			if (validators != null && res.isNotModified()) {
+				logger.debug("{} Not modified {}", origin, url);
+				return storage.stream(origin, CACHE, validators.getId());
+			}
 			mimeType = res.getMimeType();
 			try (var is = res.getInputStream()) {
 				if (existingCache != null && isNotBlank(existingCache.getId()) && !storage.exists(origin, CACHE, existingCache.getId())) {
@@ -163,8 +200,11 @@ public class FileCache {
 				.id(id)
 				.mimeType(mimeType)
 				.contentLength(storage.size(origin, CACHE, id))
+				.etag(res.getEtag())
+				.lastModified(res.getLastModified())
 				.build();
 			tagger.plugin(url, origin, "_plugin/cache", cache, "-_plugin/delta/cache");
+			if (isImage(mimeType)) queueThumbnail(url, origin);
 			return storage.stream(origin, CACHE, id);
 		} catch (ScrapeProtocolException e) {
 			throw e;
@@ -218,39 +258,54 @@ public class FileCache {
 		}
 		if (storage.exists(origin, CACHE, thumbnailId)) {
 			return fetch(thumbnailUrl, origin);
-		} else {
-			var is = fetch(url, origin);
-			if (is == null) return null;
-			var data = images.thumbnail(is);
-			if (data == null) {
-				// Returning null means the full size image is already small enough to be a thumbnail
-				// Set this as a thumbnail to disable future attempts
-				if (fullSize != null) fullSize.setThumbnail(true);
-				tagger.plugin(url, origin, "_plugin/cache", fullSize, "-_plugin/delta/cache");
-				return storage.stream(origin, CACHE, id);
-			}
-			try {
-				if (storage.exists(origin, CACHE, thumbnailId)) {
-					storage.delete(origin, CACHE, thumbnailId);
-				}
-				storage.storeAt(origin, CACHE, thumbnailId, data);
-				var cache = Cache.builder()
-					.id(thumbnailId)
-					.thumbnail(true)
-					.mimeType("image/png")
-					.contentLength((long) data.length)
-					.build();
-				tagger.plugin(thumbnailUrl, origin, "_plugin/cache", cache, "plugin/thumbnail");
-				return new ByteArrayInputStream(data);
-			} catch (Exception e) {
-				var err = tagger.plugin(thumbnailUrl, origin, "_plugin/cache", Cache.builder().thumbnail(true).build());
-				tagger.attachError(origin, err, "Error creating thumbnail", getMessage(e));
-				if (configs.getRemote(origin) != null) {
-					var cache = existingCache != null ? existingCache : Cache.builder().build();
-					cache.setBan(true);
-					tagger.plugin(url, origin, "_plugin/cache", cache);
-				}
-				return null;
+		}
+		queueThumbnail(url, origin);
+		throw new NotReadyException();
+	}
+
+	private void queueThumbnail(String url, String origin) {
+		thumbnailQueue.submit(origin + " " + url, () -> generateThumbnail(url, origin));
+	}
+
+	private void generateThumbnail(String url, String origin) {
+		var id = "";
+		if (url.startsWith("cache:")) {
+			id = url.substring("cache:".length());
+		}
+		var fullSize = cache(url, origin);
+		if (fullSize != null) id = fullSize.getId();
+		if (isBlank(id)) return;
+		if (fullSize != null && fullSize.isThumbnail()) return;
+		var thumbnailId = "t_" + id;
+		var thumbnailUrl = "cache:" + thumbnailId;
+		var existingCache = cache(thumbnailUrl, origin);
+		if (storage.exists(origin, CACHE, thumbnailId)) return;
+		var is = fetch(url, origin);
+		if (is == null) return;
+		var data = images.thumbnail(is);
+		if (data == null) {
+			// Returning null means the full size image is already small enough to be a thumbnail
+			// Set this as a thumbnail to disable future attempts
+			if (fullSize != null) fullSize.setThumbnail(true);
+			tagger.plugin(url, origin, "_plugin/cache", fullSize, "-_plugin/delta/cache");
+			return;
+		}
+		try {
+			storage.storeAt(origin, CACHE, thumbnailId, data.data());
+			var cache = Cache.builder()
+				.id(thumbnailId)
+				.thumbnail(true)
+				.mimeType(data.mimeType())
+				.contentLength((long) data.data().length)
+				.build();
+			tagger.plugin(thumbnailUrl, origin, "_plugin/cache", cache, "plugin/thumbnail");
+		} catch (Exception e) {
+			var err = tagger.plugin(thumbnailUrl, origin, "_plugin/cache", Cache.builder().thumbnail(true).build());
+			tagger.attachError(origin, err, "Error creating thumbnail", getMessage(e));
+			if (configs.getRemote(origin) != null) {
+				var cache = existingCache != null ? existingCache : Cache.builder().build();
+				cache.setBan(true);
+				tagger.plugin(url, origin, "_plugin/cache", cache);
 			}
 		}
 	}
@@ -263,7 +318,9 @@ public class FileCache {
 			.mimeType(mimeType)
 			.contentLength(storage.size(origin, CACHE, id))
 			.build();
-		return tagger.newPlugin("cache:" + id, title, origin, "_plugin/cache", cache, tags);
+		var ref = tagger.newPlugin("cache:" + id, title, origin, "_plugin/cache", cache, tags);
+		if (isImage(mimeType)) queueThumbnail(ref.getUrl(), origin);
+		return ref;
 	}
 
 	@Timed(value = "jasper.cache")
@@ -349,6 +406,10 @@ public class FileCache {
 		return moreScrape;
 	}
 
+	private boolean isImage(String mimeType) {
+		return isNotBlank(mimeType) && mimeType.startsWith("image/");
+	}
+
 	private void cacheLater(String url, String origin) {
 		if (isBlank(url)) return;
 		url = fixUrl(url);
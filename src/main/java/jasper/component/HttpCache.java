@@ -1,13 +1,47 @@
 package jasper.component;
 
+import jasper.domain.Ext;
+import jasper.domain.Plugin;
+import jasper.domain.Ref;
+import jasper.domain.Template;
+import jasper.domain.User;
 import jasper.domain.proj.Cursor;
-import org.springframework.data.domain.Page;
+import jasper.repository.ExtRepository;
+import jasper.repository.ModifiedCursor;
+import jasper.repository.PluginRepository;
+import jasper.repository.RefRepository;
+import jasper.repository.TemplateRepository;
+import jasper.repository.UserRepository;
+import jasper.repository.filter.RefFilter;
+import jasper.security.Auth;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+import static org.apache.commons.codec.digest.DigestUtils.sha1Hex;
+
+/**
+ * Conditional GET support. Weak ETags are derived from the request, the
+ * read access of the user and the current version of the data.
+ *
+ * The version combines the latest modified date and the row count of the
+ * table, which every node reads the same, with a count of change
+ * notifications for metadata updates that move neither. Pages are answered
+ * with 304 Not Modified before running the query, but only if the user
+ * passes the same check as the service, so a denied request still gets a 403.
+ */
 @Component
 public class HttpCache {
 	public static CacheControl ifNotModifiedCacheControl = CacheControl
@@ -15,18 +49,134 @@ public class HttpCache {
 			.mustRevalidate()
 			.cachePrivate();
 
+	@Autowired
+	Auth auth;
+
+	@Autowired
+	RefRepository refRepository;
+
+	@Autowired
+	ExtRepository extRepository;
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Autowired
+	PluginRepository pluginRepository;
+
+	@Autowired
+	TemplateRepository templateRepository;
+
+	/**
+	 * Distinguishes change counts from before a restart.
+	 */
+	private final String epoch = Long.toHexString(Instant.now().toEpochMilli());
+	private final AtomicLong changes = new AtomicLong();
+
+	@ServiceActivator(inputChannel = "refRxChannel")
+	public void handleRefUpdate(Message<?> message) {
+		changes.incrementAndGet();
+	}
+
+	@ServiceActivator(inputChannel = "extRxChannel")
+	public void handleExtUpdate(Message<?> message) {
+		changes.incrementAndGet();
+	}
+
+	@ServiceActivator(inputChannel = "userRxChannel")
+	public void handleUserUpdate(Message<?> message) {
+		changes.incrementAndGet();
+	}
+
+	@ServiceActivator(inputChannel = "pluginRxChannel")
+	public void handlePluginUpdate(Message<?> message) {
+		changes.incrementAndGet();
+	}
+
+	@ServiceActivator(inputChannel = "templateRxChannel")
+	public void handleTemplateUpdate(Message<?> message) {
+		changes.incrementAndGet();
+	}
 
 	public <T extends Cursor> ResponseEntity<List<T>> ifNotModifiedList(List<T> result) {
-		return ifNotModified(result);
+		var version = new StringBuilder(changes());
+		for (var c : result) version.append(c == null ? "-" : c.getModified());
+		return respond(etag(version.toString()), result);
+	}
+
+	/**
+	 * Answer from the table cursor before running the page query.
+	 * @param type entity type of the page
+	 */
+	public <T> ResponseEntity<T> ifNotModifiedPage(Class<?> type, Supplier<T> page) {
+		return ifNotModifiedPage(type, auth.minRole(), page);
+	}
+
+	/**
+	 * Answer from the Ref cursor before running the page query.
+	 * @param filter query the page will be authorized against
+	 */
+	public <T> ResponseEntity<T> ifNotModifiedRefPage(RefFilter filter, Supplier<T> page) {
+		return ifNotModifiedPage(Ref.class, auth.canReadQuery(filter), page);
 	}
 
-	public <T extends Cursor> ResponseEntity<Page<T>> ifNotModifiedPage(Page<T> result) {
-		return ifNotModified(result);
+	private <T> ResponseEntity<T> ifNotModifiedPage(Class<?> type, boolean authorized, Supplier<T> page) {
+		var cursor = cursor(type);
+		var etag = etag(changes() + cursor.getCursor() + ":" + cursor.count());
+		var request = request();
+		if (authorized && request != null && request.checkNotModified(etag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+				.eTag(etag)
+				.cacheControl(ifNotModifiedCacheControl)
+				.build();
+		}
+		return respond(etag, page.get());
 	}
 
 	public <T> ResponseEntity<T> ifNotModified(T result) {
+		if (result instanceof Cursor c && c.getModified() != null) {
+			return respond(etag(changes() + c.getOrigin() + c.getModified()), result);
+		}
 		return ResponseEntity.ok()
 			.cacheControl(ifNotModifiedCacheControl)
 			.body(result);
 	}
+
+	private <T> ResponseEntity<T> respond(String etag, T result) {
+		// Spring answers 304 if the ETag matches If-None-Match
+		return ResponseEntity.ok()
+			.eTag(etag)
+			.cacheControl(ifNotModifiedCacheControl)
+			.body(result);
+	}
+
+	private String changes() {
+		return epoch + ":" + changes.get() + ":";
+	}
+
+	private String etag(String version) {
+		var request = RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes a ? a.getRequest() : null;
+		var key = request == null ? "" : request.getRequestURI() + "?" + request.getQueryString();
+		return "W/\"" + sha1Hex(key + "\n" + readAccess() + "\n" + version) + "\"";
+	}
+
+	private String readAccess() {
+		return auth.getOrigin() + " " + auth.getPrincipal() + " " + auth.getAuthoritySet() + " " + auth.getReadAccess() + " " + auth.getTagReadAccess();
+	}
+
+	private ServletWebRequest request() {
+		if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes a) {
+			return new ServletWebRequest(a.getRequest(), a.getResponse());
+		}
+		return null;
+	}
+
+	private ModifiedCursor cursor(Class<?> type) {
+		if (type == Ref.class) return refRepository;
+		if (type == Ext.class) return extRepository;
+		if (type == User.class) return userRepository;
+		if (type == Plugin.class) return pluginRepository;
+		if (type == Template.class) return templateRepository;
+		throw new IllegalArgumentException(type.getName());
+	}
 }
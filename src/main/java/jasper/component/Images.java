@@ -7,7 +7,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
@@ -19,9 +21,12 @@ import java.io.InputStream;
 public class Images {
 	private static final Logger logger = LoggerFactory.getLogger(Images.class);
 	private static final int THUMBNAIL_SIZE = 192;
+	private static final float JPEG_QUALITY = 0.85f;
+
+	public record Scaled(byte[] data, String mimeType) {}
 
 	@Timed(value = "jasper.images")
-	public byte[] thumbnail(InputStream image) {
+	public Scaled thumbnail(InputStream image) {
 		try (image) {
 			return thumbnail(image.readAllBytes());
 		} catch (IOException e) {
@@ -29,8 +34,13 @@ public class Images {
 		}
 	}
 
+	/**
+	 * Scale an image down to a thumbnail. Opaque images are encoded as JPEG
+	 * and images with transparency as PNG.
+	 * @return null if the image could not be read or is already small enough
+	 */
 	@Timed(value = "jasper.images")
-	public byte[] thumbnail(byte[] imageData) {
+	public Scaled thumbnail(byte[] imageData) {
 		try {
 			// Read orientation from metadata
 			var orientation = 1;
@@ -45,41 +55,101 @@ public class Images {
 			}
 
 			// Read and process the image
-			var bi = ImageIO.read(new ByteArrayInputStream(imageData));
+			var bi = read(imageData);
 			if (bi == null) {
-				logger.debug("Could not read image");
+				logger.debug("Could not read image or already small enough");
 				return null;
 			}
 
 			// Apply orientation if needed
 			bi = rotateImageIfNeeded(bi, orientation);
 
-			var bo = new ByteArrayOutputStream();
 			var width = bi.getWidth();
 			var height = bi.getHeight();
-
-			if (width > THUMBNAIL_SIZE || height > THUMBNAIL_SIZE) {
-				var ar = (double) width / height;
-				if (width > height) {
-					width = THUMBNAIL_SIZE;
-					height = (int) Math.floor(THUMBNAIL_SIZE / ar);
-				} else {
-					height = THUMBNAIL_SIZE;
-					width = (int) Math.floor(THUMBNAIL_SIZE * ar);
-				}
-				var scaled = bi.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-				ImageIO.write(buffer(scaled, width, height), "png", bo);
+			var ar = (double) width / height;
+			if (width > height) {
+				width = THUMBNAIL_SIZE;
+				height = Math.max(1, (int) Math.floor(THUMBNAIL_SIZE / ar));
 			} else {
-				return null;
+				height = THUMBNAIL_SIZE;
+				width = Math.max(1, (int) Math.floor(THUMBNAIL_SIZE * ar));
 			}
-
-			return bo.toByteArray();
+			var scaled = scale(bi, width, height);
+			if (scaled.getColorModel().hasAlpha()) {
+				var bo = new ByteArrayOutputStream();
+				ImageIO.write(scaled, "png", bo);
+				return new Scaled(bo.toByteArray(), "image/png");
+			}
+			return new Scaled(jpeg(scaled), "image/jpeg");
 		} catch (Exception e) {
 			logger.debug("Error resizing thumbnail", e);
 			return null;
 		}
 	}
 
+	/**
+	 * Decode the image, skipping pixels while decoding large images.
+	 * Keeps at least twice the thumbnail size so the final scale stays smooth.
+	 * @return null if the image could not be read or is already small enough
+	 */
+	private BufferedImage read(byte[] imageData) throws IOException {
+		try (var iis = ImageIO.createImageInputStream(new ByteArrayInputStream(imageData))) {
+			if (iis == null) return null;
+			var readers = ImageIO.getImageReaders(iis);
+			if (!readers.hasNext()) return null;
+			var reader = readers.next();
+			try {
+				reader.setInput(iis, true, true);
+				var width = reader.getWidth(0);
+				var height = reader.getHeight(0);
+				if (width <= THUMBNAIL_SIZE && height <= THUMBNAIL_SIZE) return null;
+				var param = reader.getDefaultReadParam();
+				var subsampling = Math.max(1, Math.max(width, height) / (THUMBNAIL_SIZE * 2));
+				if (subsampling > 1) param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				return reader.read(0, param);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Halve the image with bilinear filtering until it reaches the target size.
+	 * Much faster than an area average, and does not alias like a single bilinear step.
+	 */
+	private BufferedImage scale(BufferedImage image, int width, int height) {
+		var type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+		var current = image;
+		var w = image.getWidth();
+		var h = image.getHeight();
+		do {
+			w = Math.max(width, w / 2);
+			h = Math.max(height, h / 2);
+			var next = new BufferedImage(w, h, type);
+			var g = next.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(current, 0, 0, w, h, null);
+			g.dispose();
+			current = next;
+		} while (w != width || h != height);
+		return current;
+	}
+
+	private byte[] jpeg(BufferedImage image) throws IOException {
+		var writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		var bo = new ByteArrayOutputStream();
+		try (var ios = ImageIO.createImageOutputStream(bo)) {
+			writer.setOutput(ios);
+			var param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(JPEG_QUALITY);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+		return bo.toByteArray();
+	}
+
 	private BufferedImage rotateImageIfNeeded(BufferedImage image, int orientation) {
 		return switch (orientation) {
 			case 1 -> image; // Normal
@@ -5,22 +5,29 @@ import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceException;
 import jakarta.persistence.RollbackException;
+import jakarta.validation.Validator;
 import jasper.config.Props;
 import jasper.domain.Metadata;
 import jasper.domain.Ref;
+import jasper.domain.RefId;
+import jasper.domain.RefResponse;
 import jasper.errors.AlreadyExistsException;
 import jasper.errors.DuplicateModifiedDateException;
 import jasper.errors.InvalidPushException;
 import jasper.errors.ModifiedException;
 import jasper.errors.NotFoundException;
+import jasper.repository.RefPushRepository;
 import jasper.repository.RefRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.orm.jpa.JpaSystemException;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
@@ -28,10 +35,19 @@ import org.springframework.transaction.support.TransactionTemplate;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 import static jasper.component.Meta.expandTags;
 import static jasper.util.DbConstraint.isPkViolation;
 import static jasper.util.DbConstraint.isUniqueModifiedOriginViolation;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toSet;
 
 @Component
 public class Ingest {
@@ -61,6 +77,14 @@ public class Ingest {
 	@Autowired
 	PlatformTransactionManager transactionManager;
 
+	@Autowired
+	RefPushRepository refPushRepository;
+
+	@Autowired
+	Validator beanValidator;
+
+	public record PushError(Ref ref, RuntimeException error) {}
+
 	// Exposed for testing
 	Clock ensureUniqueModifiedClock = Clock.systemUTC();
 
@@ -69,8 +93,8 @@ public class Ingest {
 		ref.setCreated(Instant.now());
 		validate.ref(rootOrigin, ref);
 		rng.update(rootOrigin, ref, null);
-		meta.ref(rootOrigin, ref);
-		ensureCreateUniqueModified(ref);
+		var edges = meta.ref(rootOrigin, ref);
+		ensureCreateUniqueModified(ref, edges);
 		meta.sources(rootOrigin, ref, null);
 		messages.updateRef(ref);
 	}
@@ -81,8 +105,8 @@ public class Ingest {
 		if (maybeExisting.isEmpty()) throw new NotFoundException("Ref");
 		validate.ref(rootOrigin, ref);
 		rng.update(rootOrigin, ref, maybeExisting.get());
-		meta.ref(rootOrigin, ref);
-		ensureUpdateUniqueModified(ref);
+		var edges = meta.ref(rootOrigin, ref, maybeExisting.get());
+		ensureUpdateUniqueModified(ref, edges);
 		meta.sources(rootOrigin, ref, maybeExisting.get());
 		messages.updateRef(ref);
 	}
@@ -94,7 +118,7 @@ public class Ingest {
 		validate.response(rootOrigin, ref);
 		rng.update(rootOrigin, ref, maybeExisting.get());
 		meta.response(rootOrigin, ref);
-		ensureUpdateUniqueModified(ref);
+		ensureUpdateUniqueModified(ref, null);
 		meta.responseSource(rootOrigin, ref, maybeExisting.get());
 		messages.updateRef(ref);
 	}
@@ -102,8 +126,8 @@ public class Ingest {
 	@Timed(value = "jasper.ref", histogram = true)
 	public void silent(String rootOrigin, Ref ref) {
 		var maybeExisting = refRepository.findOneByUrlAndOrigin(ref.getUrl(), ref.getOrigin());
-		meta.ref(rootOrigin, ref);
-		ensureSilentUniqueModified(ref);
+		var edges = meta.ref(rootOrigin, ref, maybeExisting.orElse(null));
+		ensureSilentUniqueModified(ref, edges);
 		meta.sources(rootOrigin, ref, maybeExisting.orElse(null));
 		messages.updateSilentRef(ref);
 	}
@@ -113,10 +137,11 @@ public class Ingest {
 		var generateMetadata = ref.getModified() == null || ref.getModified().isAfter(Instant.now().minus(5, ChronoUnit.MINUTES));
 		if (validation) validate.ref(rootOrigin, ref, stripInvalidPlugins);
 		Ref maybeExisting = null;
+		List<RefResponse> edges = null;
 		if (generateMetadata) {
 			maybeExisting = refRepository.findOneByUrlAndOrigin(ref.getUrl(), ref.getOrigin()).orElse(null);
 			rng.update(rootOrigin, ref, maybeExisting);
-			meta.ref(rootOrigin, ref);
+			edges = meta.ref(rootOrigin, ref, maybeExisting);
 		} else {
 			ref.setMetadata(Metadata
 				.builder()
@@ -125,11 +150,91 @@ public class Ingest {
 				.expandedTags(expandTags(ref.getTags()))
 				.build());
 		}
-		pushUniqueModified(ref);
+		pushUniqueModified(ref, edges);
 		if (generateMetadata) meta.sources(rootOrigin, ref, maybeExisting);
 		messages.updateRef(ref);
 	}
 
+	/**
+	 * Batch version of {@link #push(String, Ref, boolean, boolean)}. Existing refs are
+	 * loaded with one query per origin and the batch is upserted with JDBC batching.
+	 * If the batch upsert fails refs are pushed one at a time to isolate the error.
+	 * Returns the refs that were skipped along with the reason.
+	 */
+	@Timed(value = "jasper.ref.batch", histogram = true)
+	public List<PushError> pushAll(String rootOrigin, List<Ref> refs, boolean validation, boolean stripInvalidPlugins) {
+		var errors = new ArrayList<PushError>();
+		var batch = new ArrayList<Ref>();
+		var generate = new HashSet<Ref>();
+		var cutoff = Instant.now().minus(5, ChronoUnit.MINUTES);
+		var sourcesPublished = validation ? validate.sourcesPublished(rootOrigin, refs) : null;
+		for (var ref : refs) {
+			try {
+				if (validation) validate.ref(rootOrigin, ref, stripInvalidPlugins, sourcesPublished);
+				if (!beanValidator.validate(ref).isEmpty()) throw new InvalidPushException();
+				batch.add(ref);
+				if (ref.getModified() == null || ref.getModified().isAfter(cutoff)) generate.add(ref);
+			} catch (RuntimeException e) {
+				errors.add(new PushError(ref, e));
+			}
+		}
+		if (batch.isEmpty()) return errors;
+		var existing = findExisting(generate);
+		var edges = new HashMap<Ref, List<RefResponse>>();
+		for (var ref : batch) {
+			if (generate.contains(ref)) {
+				var maybeExisting = existing.get(new RefId(ref.getUrl(), ref.getOrigin()));
+				rng.update(rootOrigin, ref, maybeExisting);
+				var rebuilt = meta.ref(rootOrigin, ref, maybeExisting);
+				if (rebuilt != null) edges.put(ref, rebuilt);
+			} else {
+				ref.setMetadata(Metadata
+					.builder()
+					.modified(null)
+					.regen(true)
+					.expandedTags(expandTags(ref.getTags()))
+					.build());
+			}
+		}
+		var pushed = batch;
+		// Savepoint, or a transaction of its own, so a failed batch does not mark
+		// the caller's transaction rollback-only before the refs are retried one at a time
+		var tx = new TransactionTemplate(transactionManager);
+		tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+		try {
+			tx.executeWithoutResult(status -> {
+				refPushRepository.pushAll(batch);
+				edges.forEach(meta::saveEdges);
+				em.flush();
+			});
+		} catch (DataAccessException | PersistenceException | TransactionException e) {
+			logger.warn("{} Batch push of {} refs failed, pushing individually", rootOrigin, batch.size());
+			pushed = new ArrayList<>();
+			for (var ref : batch) {
+				try {
+					tx.executeWithoutResult(status -> pushUniqueModified(ref, edges.get(ref)));
+					pushed.add(ref);
+				} catch (RuntimeException ex) {
+					errors.add(new PushError(ref, ex));
+				}
+			}
+		}
+		meta.sources(rootOrigin, pushed.stream().filter(generate::contains).toList(), existing);
+		messages.updateRefs(pushed);
+		return errors;
+	}
+
+	private Map<RefId, Ref> findExisting(Collection<Ref> refs) {
+		var result = new HashMap<RefId, Ref>();
+		var byOrigin = refs.stream().collect(groupingBy(Ref::getOrigin, mapping(Ref::getUrl, toSet())));
+		for (var e : byOrigin.entrySet()) {
+			for (var ref : refRepository.findAllByOriginAndUrlIn(e.getKey(), e.getValue())) {
+				result.put(new RefId(ref.getUrl(), ref.getOrigin()), ref);
+			}
+		}
+		return result;
+	}
+
 	@Transactional
 	@Timed(value = "jasper.ref", histogram = true)
 	public void delete(String rootOrigin, String url, String origin) {
@@ -140,7 +245,7 @@ public class Ingest {
 		meta.sources(rootOrigin, null, maybeExisting.get());
 	}
 
-	void ensureCreateUniqueModified(Ref ref) {
+	void ensureCreateUniqueModified(Ref ref, List<RefResponse> edges) {
 		var count = 0;
 		while (true) {
 			try {
@@ -149,6 +254,7 @@ public class Ingest {
 					ref.setModified(Instant.now(ensureUniqueModifiedClock));
 					em.persist(ref);
 					em.flush();
+					meta.saveEdges(ref, edges);
 					return null;
 				});
 				break;
@@ -164,7 +270,7 @@ public class Ingest {
 		}
 	}
 
-	void ensureSilentUniqueModified(Ref ref) {
+	void ensureSilentUniqueModified(Ref ref, List<RefResponse> edges) {
 		var cursor = ref.getModified();
 		var count = 0;
 		while (true) {
@@ -172,6 +278,7 @@ public class Ingest {
 				count++;
 				new TransactionTemplate(transactionManager).execute(status -> {
 					refRepository.saveAndFlush(ref);
+					meta.saveEdges(ref, edges);
 					return null;
 				});
 				break;
@@ -188,7 +295,7 @@ public class Ingest {
 		}
 	}
 
-	void ensureUpdateUniqueModified(Ref ref) {
+	void ensureUpdateUniqueModified(Ref ref, List<RefResponse> edges) {
 		var cursor = ref.getModified();
 		var count = 0;
 		while (true) {
@@ -212,6 +319,7 @@ public class Ingest {
 					if (updated == 0) {
 						throw new ModifiedException("Ref");
 					}
+					meta.saveEdges(ref, edges);
 					return null;
 				});
 				break;
@@ -225,7 +333,7 @@ public class Ingest {
 		}
 	}
 
-	void pushUniqueModified(Ref ref) {
+	void pushUniqueModified(Ref ref, List<RefResponse> edges) {
 		try {
 			var updated = refRepository.pushAsyncMetadata(
 				ref.getUrl(),
@@ -242,6 +350,7 @@ public class Ingest {
 			if (updated == 0) {
 				refRepository.save(ref);
 			}
+			meta.saveEdges(ref, edges);
 		} catch (DataIntegrityViolationException | PersistenceException | JpaSystemException e) {
 			if (e instanceof EntityExistsException) throw new AlreadyExistsException();
 			if (isPkViolation(e, "ref")) throw new AlreadyExistsException();
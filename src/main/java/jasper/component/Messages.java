@@ -1,14 +1,20 @@
 package jasper.component;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jasper.component.dto.ComponentDtoMapper;
+import jasper.config.Props;
 import jasper.domain.Ext;
 import jasper.domain.Plugin;
 import jasper.domain.Ref;
+import jasper.domain.RefId;
 import jasper.domain.Template;
 import jasper.domain.User;
 import jasper.domain.proj.HasTags;
 import jasper.service.dto.PluginDto;
+import jasper.service.dto.RefDto;
 import jasper.service.dto.TemplateDto;
 import jasper.service.dto.UserDto;
 import org.slf4j.Logger;
@@ -19,12 +25,18 @@ import org.springframework.context.event.EventListener;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageDeliveryException;
 import org.springframework.messaging.MessageHeaders;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static jasper.component.Replicator.deletorTag;
 import static jasper.domain.proj.HasOrigin.formatOrigin;
@@ -71,8 +83,33 @@ public class Messages {
 	@Autowired
 	ObjectMapper objectMapper;
 
+	@Autowired
+	TaskScheduler taskScheduler;
+
+	@Autowired
+	Props props;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
 	boolean ready = false;
 
+	private record TagNotice(String origin, String path, String tag) {}
+	private record ResponseNotice(String origin, String source, String url) {}
+	private final Map<RefId, RefDto> pendingRefs = new ConcurrentHashMap<>();
+	private final Set<TagNotice> pendingTags = ConcurrentHashMap.newKeySet();
+	private final Set<ResponseNotice> pendingResponses = ConcurrentHashMap.newKeySet();
+	private final Map<String, Instant> pendingCursors = new ConcurrentHashMap<>();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private Counter refsIn;
+	private Counter refsOut;
+
+	@PostConstruct
+	public void meters() {
+		refsIn = meterRegistry.counter("jasper.messages.ref", "direction", "in");
+		refsOut = meterRegistry.counter("jasper.messages.ref", "direction", "out");
+	}
+
 	@EventListener(ApplicationReadyEvent.class)
 	public void init() {
 		ready = true;
@@ -80,40 +117,25 @@ public class Messages {
 
 	@Async
 	public void updateRef(Ref ref) {
-		// TODO: Debounce
-		var update = mapper.domainToDto(ref);
-		sendAndRetry(() -> refTxChannel.send(createMessage(update, refHeaders(ref.getOrigin(), update))));
-		if (update.getTags() != null) {
-			for (var path : ref.getExpandedTags()) {
-				var headers = tagHeaders(ref.getOrigin(), path);
-				for (var tag : update.getTags()) {
-					if (matchesTag(path, tag)) {
-						sendAndRetry(() -> tagTxChannel.send(createMessage(tag, headers)));
-					}
-				}
-			}
-		}
-		if (ref.getSources() != null) {
-			for (var source : ref.getSources()) {
-				if (source.equals(ref.getUrl())) continue;
-				sendAndRetry(() -> responseTxChannel.send(createMessage(ref.getUrl(), responseHeaders(ref.getOrigin(), source))));
-			}
-		}
-		sendAndRetry(() -> cursorTxChannel.send(createMessage(ref.getModified(), originHeaders(ref.getOrigin()))));
+		queueRef(ref, true);
+	}
+
+	/**
+	 * Send updates for a batch of refs with a single cursor update per origin.
+	 */
+	@Async
+	public void updateRefs(List<Ref> refs) {
+		for (var ref : refs) queueRef(ref, true);
 	}
 
 	@Async
 	public void updateSilentRef(Ref ref) {
-		// TODO: Debounce
-		var update = mapper.domainToDto(ref);
-		sendAndRetry(() -> refTxChannel.send(createMessage(update, refHeaders(ref.getOrigin(), update))));
+		queueRef(ref, false);
 	}
 
 	@Async
 	public void updateMetadata(Ref ref) {
-		// TODO: Debounce
-		var update = mapper.domainToDto(ref);
-		sendAndRetry(() -> refTxChannel.send(createMessage(update, refHeaders(ref.getOrigin(), update))));
+		queueRef(ref, false);
 	}
 
 	@Async
@@ -170,6 +192,94 @@ public class Messages {
 		sendAndRetry(() -> templateTxChannel.send(createMessage(deleteNotice(tag, origin, TemplateDto.class), tagHeaders(origin, tag))));
 	}
 
+	/**
+	 * Coalesce ref updates for the debounce window. Only the newest state of
+	 * each (origin, url) is sent, tag and response notifications are
+	 * deduplicated, and cursors are sent once per origin.
+	 * Refs are mapped when queued, so later changes to the entity are not
+	 * published by an earlier event.
+	 */
+	private void queueRef(Ref ref, boolean fanout) {
+		refsIn.increment();
+		var update = mapper.domainToDto(ref);
+		if (props.getMessageDebounceMs() <= 0) {
+			sendRef(update);
+			if (fanout) {
+				fanout(ref, this::sendTag, this::sendResponse);
+				if (ref.getModified() != null) sendCursor(ref.getOrigin(), ref.getModified());
+			}
+			return;
+		}
+		pendingRefs.merge(new RefId(ref.getUrl(), ref.getOrigin()), update, Messages::newest);
+		if (fanout) {
+			fanout(ref, pendingTags::add, pendingResponses::add);
+			if (ref.getModified() != null) pendingCursors.merge(ref.getOrigin(), ref.getModified(), (a, b) -> a.isAfter(b) ? a : b);
+		}
+		if (flushScheduled.compareAndSet(false, true)) {
+			taskScheduler.schedule(this::flush, Instant.now().plusMillis(props.getMessageDebounceMs()));
+		}
+	}
+
+	private void flush() {
+		flushScheduled.set(false);
+		for (var id : pendingRefs.keySet()) {
+			var update = pendingRefs.remove(id);
+			if (update != null) sendRef(update);
+		}
+		for (var tag : pendingTags) {
+			if (pendingTags.remove(tag)) sendTag(tag);
+		}
+		for (var response : pendingResponses) {
+			if (pendingResponses.remove(response)) sendResponse(response);
+		}
+		for (var origin : pendingCursors.keySet()) {
+			var modified = pendingCursors.remove(origin);
+			if (modified != null) sendCursor(origin, modified);
+		}
+	}
+
+	private void sendRef(RefDto update) {
+		refsOut.increment();
+		sendAndRetry(() -> refTxChannel.send(createMessage(update, refHeaders(update.getOrigin(), update))));
+	}
+
+	/**
+	 * Keep the queued update unless the incoming one is at least as new.
+	 * Delete notices have no modified date and always replace.
+	 */
+	static RefDto newest(RefDto queued, RefDto incoming) {
+		if (queued.getModified() == null || incoming.getModified() == null) return incoming;
+		return incoming.getModified().isBefore(queued.getModified()) ? queued : incoming;
+	}
+
+	private void fanout(Ref ref, Consumer<TagNotice> tags, Consumer<ResponseNotice> responses) {
+		if (ref.getTags() != null && ref.getExpandedTags() != null) {
+			for (var path : ref.getExpandedTags()) {
+				for (var tag : ref.getTags()) {
+					if (matchesTag(path, tag)) tags.accept(new TagNotice(ref.getOrigin(), path, tag));
+				}
+			}
+		}
+		if (ref.getSources() != null) {
+			for (var source : ref.getSources()) {
+				if (source.equals(ref.getUrl())) continue;
+				responses.accept(new ResponseNotice(ref.getOrigin(), source, ref.getUrl()));
+			}
+		}
+	}
+
+	private void sendTag(TagNotice tag) {
+		sendAndRetry(() -> tagTxChannel.send(createMessage(tag.tag, tagHeaders(tag.origin, tag.path))));
+	}
+
+	private void sendResponse(ResponseNotice response) {
+		sendAndRetry(() -> responseTxChannel.send(createMessage(response.url, responseHeaders(response.origin, response.source))));
+	}
+
+	private void sendCursor(String origin, Instant modified) {
+		sendAndRetry(() -> cursorTxChannel.send(createMessage(modified, originHeaders(origin))));
+	}
+
 	private <T> T deleteNotice(String tag, String origin, Class<T> type) {
 		return objectMapper.convertValue(Map.of(
 			"tag", deletorTag(tag),
@@ -3,10 +3,12 @@ package jasper.component;
 import io.micrometer.core.annotation.Timed;
 import jasper.domain.Metadata;
 import jasper.domain.Ref;
+import jasper.domain.RefId;
+import jasper.domain.RefResponse;
+import jasper.domain.RefResponseId;
 import jasper.domain.Ref_;
 import jasper.repository.RefRepository;
-import jasper.repository.RefRepositoryCustom;
-import jasper.repository.spec.OriginSpec;
+import jasper.repository.RefResponseRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,16 +18,15 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
-import static jasper.domain.proj.Tag.matchesTemplate;
 import static jasper.repository.spec.OriginSpec.isUnderOrigin;
-import static jasper.repository.spec.RefSpec.hasInternalResponse;
-import static jasper.repository.spec.RefSpec.hasResponse;
 import static jasper.repository.spec.RefSpec.isUrl;
 import static jasper.repository.spec.RefSpec.isUrls;
-import static java.time.Instant.now;
-import static java.util.stream.Collectors.toMap;
 import static org.springframework.data.domain.Sort.Order.desc;
 import static org.springframework.data.domain.Sort.by;
 
@@ -37,33 +38,63 @@ public class Meta {
 	RefRepository refRepository;
 
 	@Autowired
-	RefRepositoryCustom refRepositoryCustom;
+	RefResponseRepository refResponseRepository;
 
 	@Autowired
 	Messages messages;
 
-	private record UserUrlResponse(String tag, List<String> responses) { }
+	/**
+	 * Rebuild the response counts of the Ref from the sources of its responses.
+	 * Returns the response edges, which must be written with {@link #saveEdges(Ref, List)}
+	 * in the same transaction that saves the Ref.
+	 */
+	@Timed(value = "jasper.meta", histogram = true)
+	public List<RefResponse> ref(String rootOrigin, Ref ref) {
+		if (ref == null) return null;
+		var metadata = Metadata
+			.builder()
+			.expandedTags(expandTags(ref.getTags()))
+			.plugins(new HashMap<>())
+			.build();
+		var edges = new LinkedHashMap<String, RefResponse>();
+		for (var response : refRepository.findAllResponseTags(ref.getUrl(), rootOrigin)) {
+			edges.merge(response.getUrl(), RefResponse.from(ref, response), Meta::mergeEdges);
+		}
+		for (var edge : edges.values()) metadata.addResponse(edge);
+		ref.setMetadata(metadata);
+		return new ArrayList<>(edges.values());
+	}
 
+	/**
+	 * Carry over the response metadata already maintained by {@link #sources(String, Ref, Ref)}
+	 * instead of re-scanning every response. Only a missing or regen flagged
+	 * metadata will cause a full rebuild, which returns the edges as in {@link #ref(String, Ref)}.
+	 */
 	@Timed(value = "jasper.meta", histogram = true)
-	public void ref(String rootOrigin, Ref ref) {
-		if (ref == null) return;
+	public List<RefResponse> ref(String rootOrigin, Ref ref, Ref existing) {
+		if (ref == null) return null;
+		var previous = existing == null ? null : existing.getMetadata();
+		if (previous == null || previous.isRegen() || previous.getModified() == null) {
+			return ref(rootOrigin, ref);
+		}
 		ref.setMetadata(Metadata
 			.builder()
 			.expandedTags(expandTags(ref.getTags()))
-			.responses(refRepository.findAllResponsesWithoutTag(ref.getUrl(), rootOrigin, "internal"))
-			.internalResponses(refRepository.findAllResponsesWithTag(ref.getUrl(), rootOrigin, "internal"))
-			.userUrls(refRepositoryCustom.findAllUserPluginTagsInResponses(ref.getUrl(), rootOrigin)
-				.stream()
-				.map(tag -> new UserUrlResponse(
-					tag,
-					refRepository.findAllResponsesWithTag(ref.getUrl(), rootOrigin, tag)))
-				.filter(p -> !p.responses.isEmpty())
-				.collect(toMap(UserUrlResponse::tag, UserUrlResponse::responses)))
-			.plugins(refRepositoryCustom.countPluginTagsInResponses(ref.getUrl(), rootOrigin)
-				.stream()
-				.collect(toMap(r -> (String) r[0], r -> ((Number) r[1]).longValue())))
+			.responses(previous.getResponses())
+			.internalResponses(previous.getInternalResponses())
+			.plugins(previous.getPlugins() == null ? new HashMap<>() : new HashMap<>(previous.getPlugins()))
 			.build()
 		);
+		return null;
+	}
+
+	/**
+	 * Replace the response edges of the Ref with those rebuilt by {@link #ref(String, Ref)}.
+	 */
+	public void saveEdges(Ref ref, List<RefResponse> edges) {
+		if (edges == null) return;
+		refResponseRepository.deleteAllBySource(ref.getUrl(), ref.getOrigin());
+		refResponseRepository.saveAll(edges);
 	}
 
 	@Timed(value = "jasper.meta", histogram = true)
@@ -82,6 +113,18 @@ public class Meta {
 		sources(rootOrigin, ref, existing);
 	}
 
+	/**
+	 * The same response in multiple origins is one edge, internal only
+	 * if every copy is internal.
+	 */
+	private static RefResponse mergeEdges(RefResponse a, RefResponse b) {
+		a.setInternal(a.isInternal() && b.isInternal());
+		var tags = new LinkedHashSet<>(a.getTags());
+		tags.addAll(b.getTags());
+		a.setTags(new ArrayList<>(tags));
+		return a;
+	}
+
 	public static List<String> expandTags(List<String> tags) {
 		if (tags == null) return new ArrayList<>();
 		var result = new ArrayList<>(tags);
@@ -97,25 +140,6 @@ public class Meta {
 		return result;
 	}
 
-	@Timed(value = "jasper.meta", histogram = true)
-	public void regen(String rootOrigin, Ref ref) {
-		var originalDate = ref.getMetadata() == null ? now().toString() : ref.getMetadata().getModified();
-		ref(rootOrigin, ref);
-		ref.getMetadata().setModified(originalDate);
-		ref.getMetadata().setObsolete(refRepository.newerExists(ref.getUrl(), rootOrigin, ref.getModified()));
-		if (ref.getMetadata().isObsolete()) return;
-		refRepository.updateObsolete(ref.getUrl(), rootOrigin);
-		var cleanupSources = refRepository.findAll(OriginSpec.<Ref>isUnderOrigin(rootOrigin)
-			.and(hasResponse(ref.getUrl()).or(hasInternalResponse(ref.getUrl()))));
-		for (var source : cleanupSources) {
-			if (ref.getSources() != null && ref.getSources().contains(source.getUrl())) {
-				ref(rootOrigin, source);
-			} else {
-				removeSource(rootOrigin, source, ref);
-			}
-		}
-	}
-
 	@Timed(value = "jasper.meta", histogram = true)
 	public void sources(String rootOrigin, Ref ref, Ref existing) {
 		if (ref != null) {
@@ -126,32 +150,7 @@ public class Meta {
 			List<Ref> sources = refRepository.findAll(isUrls(ref.getSources()).and(isUnderOrigin(rootOrigin)));
 			for (var source : sources) {
 				if (source.getUrl().equals(ref.getUrl())) continue;
-				var metadata = source.getMetadata();
-				if (metadata == null) {
-					logger.debug("Ref missing metadata: {}", ref.getUrl());
-					metadata = Metadata
-						.builder()
-						.responses(new ArrayList<>())
-						.internalResponses(new ArrayList<>())
-						.plugins(new HashMap<>())
-						.build();
-				}
-				if (ref.hasTag("internal")) {
-					metadata.addInternalResponse(ref.getUrl());
-				} else {
-					metadata.addResponse(ref.getUrl());
-				}
-				if (existing != null) {
-					metadata.removePlugins(existing.getExpandedTags().stream()
-							.filter(tag -> matchesTemplate("plugin", tag))
-							.toList(),
-						ref.getUrl());
-				}
-				metadata.addPlugins(ref.getExpandedTags().stream()
-					.filter(tag -> matchesTemplate("plugin", tag))
-					.toList(),
-					ref.getUrl());
-				source.setMetadata(metadata);
+				addResponse(source, ref);
 				try {
 					refRepository.save(source);
 					messages.updateMetadata(source);
@@ -161,6 +160,7 @@ public class Meta {
 			}
 		} else {
 			// Deleting
+			refResponseRepository.deleteAllBySource(existing.getUrl(), existing.getOrigin());
 			var maybeLatest = refRepository.findAll(isUrl(existing.getUrl()).and(isUnderOrigin(rootOrigin)), PageRequest.of(0, 1, by(desc(Ref_.MODIFIED))));
 			if (!maybeLatest.isEmpty()) {
 				var latest = maybeLatest.getContent().get(0);
@@ -174,12 +174,7 @@ public class Meta {
 
 		if (existing != null && existing.getSources() != null) {
 			// Updating or deleting (not new)
-			var removedSources = ref == null
-				? existing.getSources()
-				: existing.getSources().stream()
-					.filter(s -> ref.getSources() == null || !ref.getSources().contains(s))
-					.toList();
-			List<Ref> removed = refRepository.findAll(isUrls(removedSources).and(isUnderOrigin(rootOrigin)));
+			List<Ref> removed = refRepository.findAll(isUrls(removedSources(ref, existing)).and(isUnderOrigin(rootOrigin)));
 			for (var source : removed) {
 				if (source.getUrl().equals(existing.getUrl())) continue;
 				removeSource(rootOrigin, source, existing);
@@ -188,15 +183,93 @@ public class Meta {
 		}
 	}
 
-	private void removeSource(String rootOrigin, Ref source, Ref existing) {
+	/**
+	 * Batch version of {@link #sources(String, Ref, Ref)} for created or updated refs.
+	 * Each distinct source is loaded, updated and saved once for the whole batch.
+	 */
+	@Timed(value = "jasper.meta", histogram = true)
+	public void sources(String rootOrigin, List<Ref> refs, Map<RefId, Ref> existing) {
+		if (refs.isEmpty()) return;
+		var added = new LinkedHashSet<String>();
+		var removed = new LinkedHashSet<String>();
+		for (var ref : refs) {
+			refRepository.updateObsolete(ref.getUrl(), rootOrigin);
+			if (ref.getSources() != null) added.addAll(ref.getSources());
+			var prev = existing.get(new RefId(ref.getUrl(), ref.getOrigin()));
+			if (prev != null && prev.getSources() != null) removed.addAll(removedSources(ref, prev));
+		}
+		var changed = new LinkedHashMap<RefId, Ref>();
+		if (!added.isEmpty()) {
+			for (var source : refRepository.findAll(isUrls(new ArrayList<>(added)).and(isUnderOrigin(rootOrigin)))) {
+				for (var ref : refs) {
+					if (source.getUrl().equals(ref.getUrl())) continue;
+					if (!isSource(source, ref.getSources())) continue;
+					addResponse(source, ref);
+					changed.put(new RefId(source.getUrl(), source.getOrigin()), source);
+				}
+			}
+		}
+		if (!removed.isEmpty()) {
+			for (var loaded : refRepository.findAll(isUrls(new ArrayList<>(removed)).and(isUnderOrigin(rootOrigin)))) {
+				var id = new RefId(loaded.getUrl(), loaded.getOrigin());
+				// Use the copy already updated above, if any
+				var source = changed.getOrDefault(id, loaded);
+				for (var ref : refs) {
+					var prev = existing.get(new RefId(ref.getUrl(), ref.getOrigin()));
+					if (prev == null || source.getUrl().equals(prev.getUrl())) continue;
+					if (!isSource(source, removedSources(ref, prev))) continue;
+					if (removeResponse(source, prev)) changed.put(id, source);
+				}
+			}
+		}
+		for (var source : changed.values()) {
+			try {
+				refRepository.save(source);
+				messages.updateMetadata(source);
+			} catch (DataAccessException e) {
+				logger.error("{} Error updating source metadata for {} {}",
+					rootOrigin, source.getOrigin(), source.getUrl(), e);
+			}
+		}
+	}
+
+	private static List<String> removedSources(Ref ref, Ref existing) {
+		if (existing.getSources() == null) return List.of();
+		return ref == null
+			? existing.getSources()
+			: existing.getSources().stream()
+				.filter(s -> ref.getSources() == null || !ref.getSources().contains(s))
+				.toList();
+	}
+
+	private static boolean isSource(Ref source, List<String> sources) {
+		if (sources == null || sources.isEmpty()) return false;
+		if (sources.contains(source.getUrl())) return true;
+		return source.getAlternateUrls() != null && source.getAlternateUrls().stream().anyMatch(sources::contains);
+	}
+
+	private void addResponse(Ref source, Ref ref) {
 		var metadata = source.getMetadata();
-		if (metadata == null) return;
-		metadata.remove(existing.getUrl());
-		metadata.removePlugins(existing.getExpandedTags().stream()
-				.filter(tag -> matchesTemplate("plugin", tag))
-				.toList(),
-			existing.getUrl());
+		if (metadata == null) {
+			logger.debug("Ref missing metadata: {}", ref.getUrl());
+			metadata = Metadata
+				.builder()
+				.plugins(new HashMap<>())
+				.build();
+		}
+		var edge = RefResponse.from(source, ref);
+		var previous = refResponseRepository.findById(new RefResponseId(source.getUrl(), source.getOrigin(), ref.getUrl()));
+		if (previous.isPresent()) {
+			if (previous.get().isInternal() == edge.isInternal() && Objects.equals(previous.get().getTags(), edge.getTags())) return;
+			metadata.removeResponse(previous.get());
+		}
+		metadata.addResponse(edge);
+		refResponseRepository.save(edge);
 		source.setMetadata(metadata);
+	}
+
+	private void removeSource(String rootOrigin, Ref source, Ref existing) {
+		if (!removeResponse(source, existing)) return;
 		try {
 			refRepository.save(source);
 		} catch (DataAccessException e) {
@@ -204,4 +277,15 @@ public class Meta {
 				rootOrigin, source.getOrigin(), source.getUrl(), e);
 		}
 	}
+
+	/**
+	 * @return true if there was a response edge to remove
+	 */
+	private boolean removeResponse(Ref source, Ref existing) {
+		var edge = refResponseRepository.findById(new RefResponseId(source.getUrl(), source.getOrigin(), existing.getUrl()));
+		if (edge.isEmpty()) return false;
+		refResponseRepository.delete(edge.get());
+		if (source.getMetadata() != null) source.getMetadata().removeResponse(edge.get());
+		return true;
+	}
 }
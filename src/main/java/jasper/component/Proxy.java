@@ -103,7 +103,7 @@ public class Proxy {
 				tagger.plugin(url, origin, "_plugin/cache", fullSize, "-_plugin/delta/cache");
 				return fetch(url, origin);
 			}
-			return new ByteArrayInputStream(data);
+			return new ByteArrayInputStream(data.data());
 		} catch (Exception e) {
 			tagger.attachError(origin,
 				refRepository.findOneByUrlAndOrigin(url, origin).orElseThrow(),
@@ -1,13 +1,20 @@
 package jasper.component;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import feign.FeignException;
+import feign.Response;
 import feign.RetryableException;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.micrometer.core.annotation.Timed;
 import jasper.client.JasperClient;
 import jasper.client.dto.JasperMapper;
+import jasper.domain.Ext;
+import jasper.domain.Plugin;
 import jasper.domain.Ref;
 import jasper.domain.Ref_;
+import jasper.domain.Template;
+import jasper.domain.User;
 import jasper.domain.proj.HasTags;
 import jasper.errors.AlreadyExistsException;
 import jasper.errors.DuplicateModifiedDateException;
@@ -28,15 +35,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 
 import javax.net.ssl.SSLHandshakeException;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static jasper.client.JasperClient.params;
 import static jasper.domain.proj.HasOrigin.origin;
@@ -51,6 +66,7 @@ import static jasper.util.Logging.getMessage;
 import static java.io.InputStream.nullInputStream;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
+import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.springframework.data.domain.Sort.by;
 
@@ -94,6 +110,9 @@ public class Replicator {
 	@Autowired
 	JasperMapper mapper;
 
+	@Autowired
+	ObjectMapper objectMapper;
+
 	@Autowired
 	TunnelClient tunnel;
 
@@ -186,12 +205,15 @@ public class Replicator {
 		var defaultBatchSize = pull.getBatchSize() == 0 ? root.getMaxReplEntityBatch() : min(pull.getBatchSize(), root.getMaxPullEntityBatch());
 		var logs = new ArrayList<Log>();
 		tunnel.proxy(remote, baseUri -> {
+			var streams = new PullStreams(remote.getOrigin(), pull.isStream());
 			try {
 				logs.addAll(expBackoff(remote.getOrigin(), defaultBatchSize, pluginRepository.getCursor(localOrigin), (skip, size, after) -> {
-					var pluginList = client.pluginPull(baseUri, params(
+					var pluginList = streams.next(Plugin.class, size, () -> client.pluginStream(baseUri, params(
+						"origin", remoteOrigin,
+						"modifiedAfter", after)), () -> client.pluginPull(baseUri, params(
 						"size", size,
 						"origin", remoteOrigin,
-						"modifiedAfter", after));
+						"modifiedAfter", after)));
 					for (var plugin : pluginList) {
 						plugin.setOrigin(localOrigin);
 						logger.trace("{} Ingesting pulled plugin {}: {}",
@@ -222,10 +244,12 @@ public class Replicator {
 					return pluginList.size() == size ? pluginList.getLast().getModified() : null;
 				}));
 				logs.addAll(expBackoff(remote.getOrigin(), defaultBatchSize, templateRepository.getCursor(localOrigin), (skip, size, after) -> {
-					var templateList = client.templatePull(baseUri, params(
+					var templateList = streams.next(Template.class, size, () -> client.templateStream(baseUri, params(
+						"origin", remoteOrigin,
+						"modifiedAfter", after)), () -> client.templatePull(baseUri, params(
 						"size", size,
 						"origin", remoteOrigin,
-						"modifiedAfter", after));
+						"modifiedAfter", after)));
 					for (var template : templateList) {
 						template.setOrigin(localOrigin);
 						logger.trace("{} Ingesting pulled template {}: {}",
@@ -257,11 +281,14 @@ public class Replicator {
 				}));
 				logs.addAll(expBackoff(remote.getOrigin(), defaultBatchSize, refRepository.getCursor(localOrigin), (skip, size, after) -> {
 					logger.trace("{} Pulling batch {}", localOrigin, size);
-					var refList = client.refPull(baseUri, params(
+					var refList = streams.next(Ref.class, size, () -> client.refStream(baseUri, params(
+						"query", pull.getQuery(),
+						"origin", remoteOrigin,
+						"modifiedAfter", after)), () -> client.refPull(baseUri, params(
 						"query", pull.getQuery(),
 						"size", size,
 						"origin", remoteOrigin,
-						"modifiedAfter", after));
+						"modifiedAfter", after)));
 					for (var ref : refList) {
 						ref.setOrigin(localOrigin);
 						pull.migrate(ref, config);
@@ -271,42 +298,47 @@ public class Replicator {
 						}
 						logger.trace("{} Ingesting pulled ref {}: {}",
 							remote.getOrigin(), ref.getTitle(), ref.getUrl());
-						try {
-							ingestRef.push(rootOrigin, ref, pull.isValidatePlugins(), pull.isStripInvalidPlugins());
-						} catch (AlreadyExistsException e) {
+					}
+					for (var error : ingestRef.pushAll(rootOrigin, refList, pull.isValidatePlugins(), pull.isStripInvalidPlugins())) {
+						var ref = error.ref();
+						if (error.error() instanceof AlreadyExistsException) {
 							// Indicates a double pull
 							logger.warn("{} Pulling batch skipped (double pull detected) {}: {}",
 								remote.getOrigin(), remote.getTitle(), remote.getUrl());
 							return null;
-						} catch (DuplicateModifiedDateException e) {
+						} else if (error.error() instanceof DuplicateModifiedDateException) {
 							// Should not be possible
 							logger.error("{} Pulling Ref skipped with duplicate modified date {} {}: {}",
 								remote.getOrigin(), ref.getModified(), remote.getTitle(), remote.getUrl());
 							logs.add(new Log(
 								"Pulling Ref skipped with duplicate modified date (%s): %s".formatted(
 									remote.getTitle(), remote.getUrl()), ""+ref.getModified()));
-						} catch (InvalidPushException e) {
+						} else if (error.error() instanceof InvalidPushException) {
 							// Should not be possible
 							logger.error("{} Pulling Ref skipped with invalid data {} {}: {}",
 								remote.getOrigin(), ref.getModified(), remote.getTitle(), remote.getUrl());
 							logs.add(new Log(
 								"Pulling Ref skipped with invalid data (%s): %s".formatted(
 									remote.getTitle(), remote.getUrl()), ""+ref.getModified()));
-						} catch (InvalidPluginException e) {
+						} else if (error.error() instanceof InvalidPluginException e) {
 							logger.warn("{} Failed Plugin Validation! Skipping replication of Ref ({}) {}: {}",
 								remote.getOrigin(), localOrigin, remote.getTitle(), remote.getUrl());
 							logs.add(new Log(
 								"Failed Plugin Validation! Skipping replication of Ref (%s) %s: %s".formatted(
 									localOrigin, remote.getTitle(), remote.getUrl()), getMessage(e)));
+						} else {
+							throw error.error();
 						}
 					}
 					return refList.size() == size ? refList.getLast().getModified() : null;
 				}));
 				logs.addAll(expBackoff(remote.getOrigin(), defaultBatchSize, extRepository.getCursor(localOrigin), (skip, size, after) -> {
-					var extList = client.extPull(baseUri, params(
+					var extList = streams.next(Ext.class, size, () -> client.extStream(baseUri, params(
+						"origin", remoteOrigin,
+						"modifiedAfter", after)), () -> client.extPull(baseUri, params(
 						"size", size,
 						"origin", remoteOrigin,
-						"modifiedAfter", after));
+						"modifiedAfter", after)));
 					for (var ext : extList) {
 						ext.setOrigin(localOrigin);
 						logger.trace("{} Ingesting pulled ext {}: {}",
@@ -336,10 +368,12 @@ public class Replicator {
 					return extList.size() == size ? extList.getLast().getModified() : null;
 				}));
 				logs.addAll(expBackoff(remote.getOrigin(), defaultBatchSize, userRepository.getCursor(localOrigin), (skip, size, after) -> {
-					var userList = client.userPull(baseUri, params(
+					var userList = streams.next(User.class, size, () -> client.userStream(baseUri, params(
+						"origin", remoteOrigin,
+						"modifiedAfter", after)), () -> client.userPull(baseUri, params(
 						"size", size,
 						"origin", remoteOrigin,
-						"modifiedAfter", after));
+						"modifiedAfter", after)));
 					for (var user : userList) {
 						user.setOrigin(localOrigin);
 						user.setKey(null);
@@ -382,6 +416,7 @@ public class Replicator {
 					"Fatal error pulling %s from origin (%s) %s: %s".formatted(
 						localOrigin, remoteOrigin, remote.getTitle(), remote.getUrl()), getMessage(e));
 			} finally {
+				streams.close();
 				for (var log : logs) tagger.attachLogs(remote.getOrigin(), remote, log.title, log.message);
 			}
 		});
@@ -579,4 +614,64 @@ public class Replicator {
 		Instant fetch(int skip, int size, Instant after) throws FeignException;
 	}
 
+	/**
+	 * Reads pulled entities from NDJSON streams, one per entity type. Each stream
+	 * is opened on the first batch and read until it ends. If it can't be opened,
+	 * or fails partway, the batch falls back to paging from the last ingested
+	 * cursor, so items already read from the stream are neither repeated nor
+	 * skipped. The streamed batches never go through the 413 retry path, since
+	 * that would re-issue a request the stream has already moved past.
+	 */
+	private class PullStreams implements Closeable {
+		private final String origin;
+		private final boolean enabled;
+		private final Map<Class<?>, MappingIterator<?>> values = new HashMap<>();
+		private final List<Closeable> open = new ArrayList<>();
+		private final Set<Class<?>> paging = new HashSet<>();
+
+		PullStreams(String origin, boolean enabled) {
+			this.origin = origin;
+			this.enabled = enabled;
+		}
+
+		<T> List<T> next(Class<T> type, int size, Supplier<Response> stream, Supplier<List<T>> page) {
+			if (!enabled || paging.contains(type)) return page.get();
+			try {
+				var it = values(type, stream);
+				if (it == null) return page.get();
+				var result = new ArrayList<T>(size);
+				while (result.size() < size && it.hasNextValue()) result.add(it.nextValue());
+				return result;
+			} catch (IOException | RuntimeException e) {
+				logger.warn("{} Error streaming {}, resuming by paging: {}",
+					origin, type.getSimpleName(), getMessage(e));
+				paging.add(type);
+				return page.get();
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private <T> MappingIterator<T> values(Class<T> type, Supplier<Response> stream) throws IOException {
+			if (values.containsKey(type)) return (MappingIterator<T>) values.get(type);
+			paging.add(type);
+			var response = stream.get();
+			open.add(response);
+			var contentType = response.headers().getOrDefault(HttpHeaders.CONTENT_TYPE, List.of());
+			if (response.status() != 200 || response.body() == null || contentType.stream().noneMatch(t -> t.startsWith(MediaType.APPLICATION_NDJSON_VALUE))) {
+				// Remote does not support streaming, fall back to paging
+				return null;
+			}
+			MappingIterator<T> it = objectMapper.readerFor(type).readValues(response.body().asInputStream());
+			open.add(it);
+			values.put(type, it);
+			paging.remove(type);
+			return it;
+		}
+
+		@Override
+		public void close() {
+			for (var c : open.reversed()) closeQuietly(c);
+		}
+	}
+
 }
@@ -8,8 +8,14 @@ import jasper.component.dto.ComponentDtoMapper;
 import jasper.component.script.ScriptDefaults;
 import jasper.component.vm.JavaScript;
 import jasper.component.vm.Python;
+import jasper.component.vm.RunProcess.OutputHandler;
 import jasper.component.vm.Shell;
+import jasper.config.Props;
+import jasper.domain.Ext;
+import jasper.domain.Plugin;
 import jasper.domain.Ref;
+import jasper.domain.Template;
+import jasper.domain.User;
 import jasper.errors.ScriptException;
 import jasper.errors.UntrustedScriptException;
 import jasper.plugin.config.Script;
@@ -19,8 +25,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import static jasper.util.Logging.getMessage;
 import static java.security.MessageDigest.getInstance;
@@ -32,6 +42,9 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 public class ScriptRunner {
 	private static final Logger logger = LoggerFactory.getLogger(ScriptRunner.class);
 
+	@Autowired
+	Props props;
+
 	@Autowired
 	ConfigCache configs;
 
@@ -94,6 +107,7 @@ public class ScriptRunner {
 		try {
 			switch (config.getFormat().toLowerCase()) {
 			case "json":
+			case "ndjson":
 				input = objectMapper.writeValueAsString(mapper.domainToDto(ref));
 				break;
 			case "yaml":
@@ -109,11 +123,15 @@ public class ScriptRunner {
 			tagger.attachError(ref.getUrl(), ref.getOrigin(), "Error serializing script " + scriptTag + " input");
 			return;
 		}
+		if (config.getFormat().equalsIgnoreCase("ndjson")) {
+			streamScript(ref, scriptTag, config, input);
+			return;
+		}
 		String output;
 		try {
 			switch (config.getLanguage().toLowerCase()) {
 			case "javascript":
-				output = jsVm.runJavaScript(config.getScript(), input, config.getTimeoutMs());
+				output = jsVm.runJavaScript(ref.getOrigin(), config.getScript(), input, config.getTimeoutMs());
 				break;
 			case "python":
 				output = pythonVm.runPython(config.getRequirements(), config.getScript(), input, config.getTimeoutMs());
@@ -157,4 +175,90 @@ public class ScriptRunner {
 		ingest.createOrUpdate(bundle, ref.getOrigin(), ref.getUrl());
 	}
 
+	/**
+	 * Ingest newline delimited Bundles in batches while the script is still running.
+	 */
+	private void streamScript(Ref ref, String scriptTag, Script config, String input) {
+		var batch = new Batch();
+		OutputHandler handler = output -> {
+			try (var bundles = objectMapper.readerFor(Bundle.class).<Bundle>readValues(output)) {
+				while (bundles.hasNextValue()) {
+					batch.add(bundles.nextValue());
+					if (batch.size >= props.getScriptBatchSize()) {
+						ingest.createOrUpdate(batch.drain(), ref.getOrigin(), ref.getUrl());
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				// Keep everything parsed before an error
+				try {
+					if (batch.size > 0) ingest.createOrUpdate(batch.drain(), ref.getOrigin(), ref.getUrl());
+				} catch (RuntimeException ex) {
+					e.addSuppressed(ex);
+				}
+				throw e;
+			}
+			if (batch.size > 0) ingest.createOrUpdate(batch.drain(), ref.getOrigin(), ref.getUrl());
+		};
+		try {
+			switch (config.getLanguage().toLowerCase()) {
+			case "javascript":
+				jsVm.streamJavaScript(config.getScript(), input, config.getTimeoutMs(), handler);
+				break;
+			case "python":
+				pythonVm.streamPython(config.getRequirements(), config.getScript(), input, config.getTimeoutMs(), handler);
+				break;
+			case "shell":
+				shell.streamShellScript(config.getScript(), input, config.getTimeoutMs(), handler);
+				break;
+			default:
+				logger.error("{} Script {} runtime not supported {}", ref.getOrigin(), scriptTag, config.getLanguage());
+				tagger.attachError(ref.getOrigin(), ref, "Script " + scriptTag + " runtime not supported: " + config.getLanguage());
+			}
+		} catch (ScriptException e) {
+			logger.error("{} Error running script {} on {} ({}): {}", ref.getOrigin(), scriptTag, ref.getTitle(), ref.getUrl(), getMessage(e));
+			tagger.attachError(ref.getUrl(), ref.getOrigin(), getMessage(e), e.getLogs());
+		} catch (Exception e) {
+			logger.error("{} Error running script {} on {} ({}): {}", ref.getOrigin(), scriptTag, ref.getTitle(), ref.getUrl(), getMessage(e));
+			tagger.attachError(ref.getUrl(), ref.getOrigin(), getMessage(e));
+		}
+	}
+
+	private static class Batch {
+		final List<Ref> ref = new ArrayList<>();
+		final List<Ext> ext = new ArrayList<>();
+		final List<Plugin> plugin = new ArrayList<>();
+		final List<Template> template = new ArrayList<>();
+		final List<User> user = new ArrayList<>();
+		int size = 0;
+
+		void add(Bundle bundle) {
+			if (bundle.getRef() != null) size += addAll(ref, bundle.getRef());
+			if (bundle.getExt() != null) size += addAll(ext, bundle.getExt());
+			if (bundle.getPlugin() != null) size += addAll(plugin, bundle.getPlugin());
+			if (bundle.getTemplate() != null) size += addAll(template, bundle.getTemplate());
+			if (bundle.getUser() != null) size += addAll(user, bundle.getUser());
+		}
+
+		Bundle drain() {
+			var bundle = new Bundle();
+			bundle.setRef(ref.toArray(Ref[]::new));
+			bundle.setExt(ext.toArray(Ext[]::new));
+			bundle.setPlugin(plugin.toArray(Plugin[]::new));
+			bundle.setTemplate(template.toArray(Template[]::new));
+			bundle.setUser(user.toArray(User[]::new));
+			ref.clear();
+			ext.clear();
+			plugin.clear();
+			template.clear();
+			user.clear();
+			size = 0;
+			return bundle;
+		}
+
+		private static <T> int addAll(List<T> list, T[] entities) {
+			Collections.addAll(list, entities);
+			return entities.length;
+		}
+	}
+
 }
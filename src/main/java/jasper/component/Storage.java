@@ -37,6 +37,11 @@ public interface Storage {
 	void delete(String origin, String namespace, String id) throws IOException;
 	void backup(String origin, String namespace, Zipped backup, Instant modifiedAfter) throws IOException;
 	void restore(String origin, String namespace, Zipped backup) throws IOException;
+	/**
+	 * Delete stored content no longer referenced by any id.
+	 * @return the number of bytes reclaimed
+	 */
+	long collectGarbage() throws IOException;
 
 	default String originTenant(String origin) {
 		return formatOrigin(origin);
@@ -59,6 +64,13 @@ public interface Storage {
 		Iterator<InputStream> list(String pattern) throws IOException;
 	}
 
+	/**
+	 * Stream of a file on the local file system, which can be sent without copying.
+	 */
+	interface LocalFile {
+		Path path();
+	}
+
 	interface PathVisitor {
 		void visit(String filename);
 	}
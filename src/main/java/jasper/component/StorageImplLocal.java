@@ -1,6 +1,8 @@
 package jasper.component;
 
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.micrometer.core.annotation.Timed;
 import jasper.config.Props;
 import jasper.errors.AlreadyExistsException;
@@ -12,6 +14,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StreamUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -24,26 +27,72 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.apache.commons.codec.binary.Hex.encodeHexString;
+
+/**
+ * Stores files in the local file system. With deduplication enabled, file
+ * contents are stored once by SHA-256 hash in the blobs folder, and each
+ * id is a relative symlink to its blob. Blobs are checked against their hash
+ * when read, and only handed out by path once they have been checked.
+ */
 @Profile("storage")
 @Component
 public class StorageImplLocal implements Storage {
 	private final Logger logger = LoggerFactory.getLogger(StorageImplLocal.class);
+	static final String BLOBS = ".blobs";
+	/**
+	 * Unreferenced blobs younger than this may be about to be linked.
+	 */
+	static final Duration GC_GRACE = Duration.ofHours(1);
+	/**
+	 * Number of blobs to remember as verified.
+	 */
+	static final int VERIFIED_BLOBS = 100_000;
 
 	@Autowired
 	Props props;
 
+	/**
+	 * Blobs whose content matched their hash, with the modified time when checked.
+	 */
+	private final Cache<String, Long> verified = Caffeine.newBuilder()
+		.maximumSize(VERIFIED_BLOBS)
+		.build();
+
 	@Timed(value = "jasper.storage", histogram = true)
 	public byte[] get(String origin, String namespace, String id) {
+		var path = path(origin, namespace, id);
 		try {
-			return Files.readAllBytes(path(origin, namespace, id));
+			var data = Files.readAllBytes(path);
+			var hash = blobHash(path);
+			if (hash != null) {
+				var modified = Files.getLastModifiedTime(path).toMillis();
+				if (!hash.equals(encodeHexString(sha256().digest(data)))) {
+					corrupt(path, hash);
+					throw new NotFoundException("Cache " + id);
+				}
+				verified.put(hash, modified);
+			}
+			return data;
 		} catch (IOException e) {
 			throw new NotFoundException("Cache " + id);
 		}
@@ -54,10 +103,17 @@ public class StorageImplLocal implements Storage {
 		return path(origin, namespace, id).toFile().length();
 	}
 
+	/**
+	 * Blobs that have not been verified yet are not returned as a {@link LocalFile},
+	 * so they are read through the hash check instead of served by path.
+	 */
 	@Timed(value = "jasper.storage", histogram = true)
 	public InputStream stream(String origin, String namespace, String id) {
+		var path = path(origin, namespace, id);
 		try {
-			return new FileInputStream(path(origin, namespace, id).toFile());
+			var hash = blobHash(path);
+			if (hash != null && !isVerified(path, hash)) return new VerifiedInputStream(path, hash);
+			return new LocalFileInputStream(path);
 		} catch (IOException e) {
 			throw new NotFoundException("Storage file (" + origin + ", " + namespace + ") " + id);
 		}
@@ -65,8 +121,15 @@ public class StorageImplLocal implements Storage {
 
 	@Timed(value = "jasper.storage", histogram = true)
 	public long stream(String origin, String namespace, String id, OutputStream os) {
+		var path = path(origin, namespace, id);
 		try {
-			return Files.copy(path(origin, namespace, id), os);
+			var hash = blobHash(path);
+			if (hash != null) {
+				try (var is = new VerifiedInputStream(path, hash)) {
+					return is.transferTo(os);
+				}
+			}
+			return Files.copy(path, os);
 		} catch (IOException e) {
 			throw new NotFoundException("Storage file (" + origin + ", " + namespace + ") " + id);
 		}
@@ -85,6 +148,7 @@ public class StorageImplLocal implements Storage {
 			list.forEach(t -> {
 				if (!t.toFile().isDirectory()) return;
 				var tenant = t.getFileName().toString();
+				if (tenant.startsWith(".")) return;
 				v.visit(tenantOrigin(tenant));
 			});
 		} catch (IOException e) {
@@ -97,6 +161,7 @@ public class StorageImplLocal implements Storage {
 		try (var list = Files.list(tenants())) {
 			return list
 				.map(f -> f.getFileName().toString())
+				.filter(f -> !f.startsWith("."))
 				.collect(Collectors.toList());
 		} catch (IOException e) {
 			return Collections.emptyList();
@@ -134,7 +199,12 @@ public class StorageImplLocal implements Storage {
 	public void overwrite(String origin, String namespace, String id, byte[] file) throws IOException {
 		if (!exists(origin, namespace, id)) throw new NotFoundException("Cache " + id);
 		var path = path(origin, namespace, id);
-		Files.write(path, file, StandardOpenOption.TRUNCATE_EXISTING);
+		if (props.isStorageDedup() || Files.isSymbolicLink(path)) {
+			// Never write through a link, other ids may share the blob
+			link(path, storeBlob(new ByteArrayInputStream(file)), true);
+		} else {
+			Files.write(path, file, StandardOpenOption.TRUNCATE_EXISTING);
+		}
 	}
 
 	@Timed(value = "jasper.storage", histogram = true)
@@ -147,11 +217,7 @@ public class StorageImplLocal implements Storage {
 	@Timed(value = "jasper.storage", histogram = true)
 	public String store(String origin, String namespace, InputStream is) throws IOException {
 		var id = UUID.randomUUID().toString();
-		var path = path(origin, namespace, id);
-		Files.createDirectories(path.getParent());
-		try (var fos = new FileOutputStream(path.toFile())) {
-			StreamUtils.copy(is, fos);
-		}
+		storeAt(origin, namespace, id, is);
 		return id;
 	}
 
@@ -164,9 +230,14 @@ public class StorageImplLocal implements Storage {
 
 	@Timed(value = "jasper.storage", histogram = true)
 	public void storeAt(String origin, String namespace, String id, byte[] file) throws IOException {
+		if (props.isStorageDedup()) {
+			storeAt(origin, namespace, id, new ByteArrayInputStream(file));
+			return;
+		}
 		var path = path(origin, namespace, id);
 		if (path.toFile().exists()) throw new AlreadyExistsException();
 		Files.createDirectories(path.getParent());
+		deleteDangling(path);
 		Files.write(path, file, StandardOpenOption.CREATE_NEW);
 	}
 
@@ -175,6 +246,11 @@ public class StorageImplLocal implements Storage {
 		var path = path(origin, namespace, id);
 		if (path.toFile().exists()) throw new AlreadyExistsException();
 		Files.createDirectories(path.getParent());
+		deleteDangling(path);
+		if (props.isStorageDedup()) {
+			link(path, storeBlob(is), false);
+			return;
+		}
 		try (var fos = new FileOutputStream(path.toFile())) {
 			StreamUtils.copy(is, fos);
 		}
@@ -221,6 +297,36 @@ public class StorageImplLocal implements Storage {
 		}
 	}
 
+	@Timed(value = "jasper.storage", histogram = true)
+	public long collectGarbage() throws IOException {
+		var blobs = blobs();
+		if (!Files.isDirectory(blobs)) return 0;
+		var referenced = new HashSet<String>();
+		try (var w = Files.walk(tenants())) {
+			w.filter(Files::isSymbolicLink).forEach(p -> {
+				var hash = blobHash(p);
+				if (hash != null) referenced.add(hash);
+			});
+		}
+		var cutoff = Instant.now().minus(GC_GRACE);
+		var reclaimed = new AtomicLong();
+		try (var w = Files.walk(blobs)) {
+			w.forEach(p -> {
+				try {
+					var attrs = Files.readAttributes(p, BasicFileAttributes.class, NOFOLLOW_LINKS);
+					if (attrs.isDirectory()) return;
+					if (attrs.lastModifiedTime().toInstant().isAfter(cutoff)) return;
+					if (referenced.contains(p.getFileName().toString())) return;
+					Files.delete(p);
+					if (attrs.isRegularFile()) reclaimed.addAndGet(attrs.size());
+				} catch (IOException e) {
+					logger.warn("Cannot delete blob {}", p, e);
+				}
+			});
+		}
+		return reclaimed.get();
+	}
+
 	Path tenants() {
 		return Paths.get(props.getStorage());
 	}
@@ -235,6 +341,160 @@ public class StorageImplLocal implements Storage {
 		return Paths.get(props.getStorage(), originTenant(origin), namespace, id);
 	}
 
+	Path blobs() {
+		return Paths.get(props.getStorage(), BLOBS);
+	}
+
+	Path blob(String hash) {
+		return blobs().resolve(hash.substring(0, 2)).resolve(hash);
+	}
+
+	/**
+	 * The hash of the blob this path links to, or null if it is a plain file.
+	 */
+	String blobHash(Path path) {
+		if (!Files.isSymbolicLink(path)) return null;
+		try {
+			var target = Files.readSymbolicLink(path);
+			var n = target.getNameCount();
+			if (n < 3 || !target.getName(n - 3).toString().equals(BLOBS)) return null;
+			return target.getFileName().toString();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Write the stream to a temp file while hashing it, then move it into place.
+	 */
+	private Path storeBlob(InputStream is) throws IOException {
+		var tmp = blobs().resolve("tmp").resolve(UUID.randomUUID().toString());
+		Files.createDirectories(tmp.getParent());
+		var digest = sha256();
+		try (var os = new DigestOutputStream(Files.newOutputStream(tmp, StandardOpenOption.CREATE_NEW), digest)) {
+			StreamUtils.copy(is, os);
+		} catch (IOException e) {
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+		var hash = encodeHexString(digest.digest());
+		var blob = blob(hash);
+		Files.createDirectories(blob.getParent());
+		// Replacing identical content is safe for readers, and the new copy is known to match its hash.
+		// It also repairs a blob damaged on disk, and keeps garbage collection away until it is linked.
+		Files.move(tmp, blob, ATOMIC_MOVE, REPLACE_EXISTING);
+		verified.put(hash, Files.getLastModifiedTime(blob).toMillis());
+		return blob;
+	}
+
+	private void link(Path path, Path blob, boolean replace) throws IOException {
+		Files.createDirectories(path.getParent());
+		var target = path.getParent().relativize(blob);
+		if (!replace) {
+			Files.createSymbolicLink(path, target);
+			return;
+		}
+		// The target is relative to the final location, so the link dangles until moved
+		var tmp = blobs().resolve("tmp").resolve(UUID.randomUUID().toString());
+		Files.createSymbolicLink(tmp, target);
+		Files.move(tmp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+	}
+
+	private boolean isVerified(Path path, String hash) throws IOException {
+		var modified = verified.getIfPresent(hash);
+		return modified != null && modified == Files.getLastModifiedTime(path).toMillis();
+	}
+
+	private void deleteDangling(Path path) throws IOException {
+		if (Files.isSymbolicLink(path) && !Files.exists(path)) Files.delete(path);
+	}
+
+	/**
+	 * Remove a blob that failed its integrity check. Every id linking to it
+	 * will be missing, so the file cache will fetch it again.
+	 */
+	private void corrupt(Path path, String hash) {
+		logger.error("Integrity check failed for {}, deleting blob {}", path, hash);
+		verified.invalidate(hash);
+		try {
+			Files.deleteIfExists(blob(hash));
+		} catch (IOException e) {
+			logger.error("Cannot delete corrupt blob {}", hash, e);
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class LocalFileInputStream extends FileInputStream implements LocalFile {
+		private final Path path;
+
+		LocalFileInputStream(Path path) throws IOException {
+			super(path.toFile());
+			this.path = path;
+		}
+
+		@Override
+		public Path path() {
+			return path;
+		}
+	}
+
+	/**
+	 * Hashes the blob while it is read and fails at the end of the stream
+	 * if the content does not match. A blob read in full is remembered as verified.
+	 */
+	private class VerifiedInputStream extends DigestInputStream {
+		private final Path path;
+		private final String hash;
+		private final long modified;
+		private boolean checked;
+
+		VerifiedInputStream(Path path, String hash) throws IOException {
+			super(new FileInputStream(path.toFile()), sha256());
+			this.path = path;
+			this.hash = hash;
+			this.modified = Files.getLastModifiedTime(path).toMillis();
+		}
+
+		@Override
+		public int read() throws IOException {
+			var b = super.read();
+			if (b == -1) verify();
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			var n = super.read(b, off, len);
+			if (n == -1) verify();
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			// Skipped bytes are not hashed, so the content cannot be checked
+			checked = true;
+			return super.skip(n);
+		}
+
+		private void verify() throws IOException {
+			if (checked) return;
+			checked = true;
+			if (hash.equals(encodeHexString(getMessageDigest().digest()))) {
+				verified.put(hash, modified);
+				return;
+			}
+			corrupt(path, hash);
+			throw new IOException("Integrity check failed for " + path);
+		}
+	}
+
 	private class ZippedLocal implements Zipped {
 		private final FileSystem zipfs;
 		private final boolean create;
@@ -247,7 +507,10 @@ public class StorageImplLocal implements Storage {
 			this.namespace = namespace;
 			this.id = id;
 			this.create = create;
-			zipfs = FileSystems.newFileSystem(path(origin, namespace, create ? "_" + id : id), Map.of("create", create ? "true" : "false"));
+			zipfs = FileSystems.newFileSystem(path(origin, namespace, create ? "_" + id : id), Map.of(
+				"create", create ? "true" : "false",
+				// Spool new entries to disk so large backups are not held in memory
+				"useTempFile", create ? "true" : "false"));
 		}
 
 		@Override
@@ -0,0 +1,99 @@
+package jasper.component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jasper.config.Props;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static jasper.util.Logging.getMessage;
+
+/**
+ * Bounded pool for generating thumbnails off the request thread.
+ * Each key is only queued once at a time. When the queue is full new work is
+ * dropped, and will be queued again by the next request for the thumbnail.
+ */
+@Profile("file-cache")
+@Component
+public class ThumbnailQueue {
+	private static final Logger logger = LoggerFactory.getLogger(ThumbnailQueue.class);
+
+	@Autowired
+	Props props;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	private final Set<String> pending = ConcurrentHashMap.newKeySet();
+	private ThreadPoolExecutor executor;
+	private Timer latency;
+	private Counter rejected;
+
+	@PostConstruct
+	public void init() {
+		// Scaling is CPU bound, so use platform threads sized to the CPU
+		var workers = props.getThumbnailWorkers() > 0 ? props.getThumbnailWorkers() : Runtime.getRuntime().availableProcessors();
+		executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(props.getThumbnailQueueSize()),
+			Thread.ofPlatform().name("thumbnail-", 0).daemon().factory());
+		Gauge.builder("jasper.thumbnail.queue", executor, e -> e.getQueue().size())
+			.description("Thumbnails waiting to be generated")
+			.register(meterRegistry);
+		Gauge.builder("jasper.thumbnail.active", executor, ThreadPoolExecutor::getActiveCount)
+			.description("Thumbnails being generated")
+			.register(meterRegistry);
+		latency = Timer.builder("jasper.thumbnail.latency")
+			.description("Time from queueing a thumbnail until it is ready")
+			.publishPercentileHistogram()
+			.register(meterRegistry);
+		rejected = Counter.builder("jasper.thumbnail.rejected")
+			.description("Thumbnails dropped because the queue was full")
+			.register(meterRegistry);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Queue a thumbnail unless one for the same key is already pending.
+	 * @return false if the queue is full
+	 */
+	public boolean submit(String key, Runnable task) {
+		if (!pending.add(key)) return true;
+		var sample = Timer.start(meterRegistry);
+		try {
+			executor.execute(() -> {
+				try {
+					task.run();
+				} catch (Exception e) {
+					logger.warn("Error generating thumbnail {}: {}", key, getMessage(e));
+				} finally {
+					pending.remove(key);
+					sample.stop(latency);
+				}
+			});
+			return true;
+		} catch (RejectedExecutionException e) {
+			pending.remove(key);
+			rejected.increment();
+			logger.debug("Thumbnail queue full, dropped {}", key);
+			return false;
+		}
+	}
+}
@@ -9,12 +9,15 @@ import com.jsontypedef.jtd.MaxDepthExceededException;
 import com.jsontypedef.jtd.Schema;
 import com.jsontypedef.jtd.Validator;
 import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jasper.config.Config.SecurityConfig;
 import jasper.config.Config.ServerConfig;
 import jasper.domain.Ext;
 import jasper.domain.Plugin;
 import jasper.domain.Ref;
 import jasper.domain.Template;
+import jasper.domain.proj.RefPublished;
 import jasper.errors.DuplicateTagException;
 import jasper.errors.InvalidPluginException;
 import jasper.errors.InvalidPluginUserUrlException;
@@ -29,8 +32,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.support.ScopeNotActiveException;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static jasper.component.Meta.expandTags;
@@ -59,6 +67,9 @@ public class Validate {
 	@Autowired
 	ConfigCache configs;
 
+	@Autowired
+	MeterRegistry meterRegistry;
+
 	@Timed("jasper.validate")
 	public void ref(String rootOrigin, Ref ref) {
 		ref(rootOrigin, ref, false);
@@ -66,6 +77,16 @@ public class Validate {
 
 	@Timed("jasper.validate")
 	public void ref(String rootOrigin, Ref ref, boolean stripOnError) {
+		ref(rootOrigin, ref, stripOnError, null);
+	}
+
+	/**
+	 * @param sourcesPublished latest published date of each source, as loaded
+	 *                         by {@link #sourcesPublished(String, Collection)}
+	 *                         for a batch, or null to load it for this Ref
+	 */
+	@Timed("jasper.validate")
+	public void ref(String rootOrigin, Ref ref, boolean stripOnError, Map<String, Instant> sourcesPublished) {
 		var root = configs.root();
 		try {
 			if (!auth.hasRole(MOD)) ref.removeTags(root.getModSeals());
@@ -76,10 +97,31 @@ public class Validate {
 		}
 		tags(rootOrigin, ref);
 		plugins(rootOrigin, ref, stripOnError);
-		responses(rootOrigin, ref, true);
-		sources(rootOrigin, ref, true);
-		responses(rootOrigin, ref, false);
-		sources(rootOrigin, ref, false);
+		if (sourcesPublished == null) sourcesPublished = sourcesPublished(rootOrigin, List.of(ref));
+		var firstResponse = refRepository.findFirstResponsePublished(ref.getUrl(), rootOrigin).orElse(null);
+		responses(ref, firstResponse, true);
+		sources(ref, sourcesPublished, true);
+		responses(ref, firstResponse, false);
+		sources(ref, sourcesPublished, false);
+	}
+
+	/**
+	 * Load the latest published date of every source of a batch of Refs in a single query.
+	 */
+	public Map<String, Instant> sourcesPublished(String rootOrigin, Collection<Ref> refs) {
+		var urls = new HashSet<String>();
+		for (var ref : refs) {
+			if (ref.getSources() == null) continue;
+			for (var sourceUrl : ref.getSources()) {
+				if (!sourceUrl.equals(ref.getUrl())) urls.add(sourceUrl);
+			}
+		}
+		if (urls.isEmpty()) return Map.of();
+		var result = new HashMap<String, Instant>();
+		for (var source : refRepository.findAllMaxPublishedByUrlIn(urls, rootOrigin)) {
+			result.put(source.getUrl(), source.getPublished());
+		}
+		return result;
 	}
 
 	@Timed("jasper.validate")
@@ -230,7 +272,10 @@ public class Validate {
 			var aNode = a.get(field);
 			var bNode = b.get(field);
 			if (aNode != null && aNode.isObject() && bNode.isObject()) {
-				merge((ObjectNode) aNode, (ObjectNode) bNode);
+				// Nested objects in a may be shared with the plugin cache, so merge into a shallow copy
+				var copy = objectMapper.createObjectNode();
+				copy.setAll((ObjectNode) aNode);
+				a.set(field, merge(copy, (ObjectNode) bNode));
 			} else {
 				a.set(field, bNode.deepCopy());
 			}
@@ -250,26 +295,24 @@ public class Validate {
 			}
 			return;
 		}
-		var defaults = plugin.map(Plugin::getDefaults).orElse(null);
+		var defaults = plugin.get().getDefaults();
 		if (!ref.hasPlugin(tag)) {
 			ref.setPlugin(tag, defaults);
 			stripOnError = true;
 		}
-		var schema = objectMapper.convertValue(plugin.get().getSchema(), Schema.class);
-		if (stripOnError) {
-			try {
-				plugin(rootOrigin, schema, tag, defaults);
-			} catch (Exception e) {
-				logger.error("{} Defaults for {} Plugin do not pass validation", rootOrigin, tag);
-				// Defaults don't validate anyway,
-				// so cancel stripping plugins to pass validation
-				stripOnError = false;
-			}
-		}
+		// The empty schema accepts anything
+		if (plugin.get().getSchema().isEmpty()) return;
+		var schema = configs.getPluginSchema(plugin.get());
 		try {
 			plugin(rootOrigin, schema, tag, ref.getPlugin(tag));
 		} catch (Exception e) {
 			if (!stripOnError) throw e;
+			try {
+				plugin(rootOrigin, schema, tag, defaults);
+			} catch (Exception d) {
+				logger.error("{} Defaults for {} Plugin do not pass validation", rootOrigin, tag);
+				throw e;
+			}
 			ref.setPlugin(tag, defaults);
 		}
 	}
@@ -292,10 +335,9 @@ public class Validate {
 	public ObjectNode pluginDefaults(String rootOrigin, Ref ref) {
 		var result = objectMapper.getNodeFactory().objectNode();
 		for (var tag : expandTags(ref.getTags())) {
-			var plugin = configs.getPlugin(tag, rootOrigin);
-			plugin.ifPresent(p -> {
-				if (p.getDefaults() != null && (p.getDefaults().isValueNode() || !p.getDefaults().isEmpty())) result.set(tag, p.getDefaults());
-			});
+			configs.getPlugin(tag, rootOrigin)
+				.map(configs::getPluginDefaults)
+				.ifPresent(defaults -> result.set(tag, defaults));
 		}
 		if (ref.getPlugins() != null) return merge(result, ref.getPlugins());
 		return result;
@@ -312,6 +354,7 @@ public class Validate {
 				plugin = NullNode.getInstance();
 			}
 		}
+		var sample = Timer.start(meterRegistry);
 		try {
 			var errors = validator.validate(schema, new JacksonAdapter(plugin));
 			for (var error : errors) {
@@ -322,34 +365,29 @@ public class Validate {
 			}
 		} catch (MaxDepthExceededException e) {
 			throw new InvalidPluginException(tag, e);
+		} finally {
+			sample.stop(meterRegistry.timer("jasper.validate.plugin", "plugin", tag));
 		}
 	}
 
-	private void sources(String rootOrigin, Ref ref, boolean fix) {
+	private void sources(Ref ref, Map<String, Instant> sourcesPublished, boolean fix) {
 		if (ref.getSources() == null) return;
 		for (var sourceUrl : ref.getSources()) {
 			if (sourceUrl.equals(ref.getUrl())) continue;
-			var sources = refRepository.findAllPublishedByUrlAndPublishedGreaterThanEqual(sourceUrl, rootOrigin, ref.getPublished());
-			for (var source : sources) {
-				if (source.getPublished().isAfter(ref.getPublished())) {
-					if (!fix) throw new PublishDateException(source.getUrl(), ref.getUrl());
-					ref.setPublished(source.getPublished().plusMillis(1));
-				}
+			var published = sourcesPublished.get(sourceUrl);
+			if (published != null && published.isAfter(ref.getPublished())) {
+				if (!fix) throw new PublishDateException(sourceUrl, ref.getUrl());
+				ref.setPublished(published.plusMillis(1));
 			}
 		}
 	}
 
-	private void responses(String rootOrigin, Ref ref, boolean fix) {
-		var responses = refRepository.findAllResponsesPublishedBeforeThanEqual(ref.getUrl(), rootOrigin, ref.getPublished());
-		for (var response : responses) {
-			if (response.getPublished().isBefore(ref.getPublished())) {
-				if (response.hasTag("plugin/user")) {
-					response.setPublished(ref.getPublished());
-					continue;
-				}
-				if (!fix) throw new PublishDateException(response.getUrl(), ref.getUrl());
-				ref.setPublished(response.getPublished().minusMillis(1));
-			}
+	private void responses(Ref ref, RefPublished firstResponse, boolean fix) {
+		// Responses tagged plugin/user are exempt
+		if (firstResponse == null) return;
+		if (firstResponse.getPublished().isBefore(ref.getPublished())) {
+			if (!fix) throw new PublishDateException(firstResponse.getUrl(), ref.getUrl());
+			ref.setPublished(firstResponse.getPublished().minusMillis(1));
 		}
 	}
 }
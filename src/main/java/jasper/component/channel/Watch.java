@@ -4,6 +4,7 @@ import jasper.domain.Ref_;
 import jasper.domain.proj.HasTags;
 import jasper.repository.RefRepository;
 import jasper.repository.filter.RefFilter;
+import jasper.repository.filter.TagMatcher;
 import jasper.service.dto.RefDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,12 +17,12 @@ import org.springframework.messaging.Message;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static jasper.domain.proj.HasOrigin.origin;
-import static jasper.domain.proj.HasTags.hasMatchingTag;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.springframework.data.domain.Sort.by;
@@ -34,6 +35,10 @@ public class Watch {
 	RefRepository refRepository;
 
 	Map<String, Map<String, Watcher>> watchers = new ConcurrentHashMap<>();
+	Map<String, TagMatcher> matchers = new ConcurrentHashMap<>();
+	/**
+	 * Tags each Ref was last matched by, so watchers are notified when a Ref stops matching.
+	 */
 	Map<String, Map<String, Set<String>>> watching = new ConcurrentHashMap<>();
 
 	/**
@@ -48,6 +53,7 @@ public class Watch {
 	 */
 	public void addWatch(String origin, String tag, Watcher w) {
 		watchers.computeIfAbsent(origin, o -> new ConcurrentHashMap<>()).put(tag, w);
+		if (isNotBlank(tag)) matchers.computeIfAbsent(origin, o -> new TagMatcher()).add(tag);
 	}
 
 	@EventListener(ApplicationReadyEvent.class)
@@ -82,24 +88,24 @@ public class Watch {
 	@ServiceActivator(inputChannel = "refRxChannel")
 	public void handleRefUpdate(Message<RefDto> message) {
 		var origin = origin(message.getHeaders().get("origin").toString());
-		if (!watchers.containsKey(origin)) return;
+		var originWatchers = watchers.get(origin);
+		if (originWatchers == null) return;
 		var ref = message.getPayload();
-		for (var tag : watchers.get(origin).keySet()) {
-			var set = watching
-				.computeIfAbsent(origin, o -> new ConcurrentHashMap<>())
-				.computeIfAbsent(tag, t -> ConcurrentHashMap.newKeySet());
-			if (isNotBlank(tag)) {
-				if (!set.contains(ref.getUrl())) {
-					if (!hasMatchingTag(ref, tag)) continue;
-					set.add(ref.getUrl());
-				}
-			}
-			try {
-				watchers.get(origin).get(tag).notify(ref);
-			} finally {
-				if (isNotBlank(tag) && !hasMatchingTag(ref, tag)) {
-					set.remove(ref.getUrl());
-				}
+		var urls = watching.computeIfAbsent(origin, o -> new ConcurrentHashMap<>());
+		var matcher = matchers.get(origin);
+		var matched = matcher == null ? Set.<String>of() : matcher.match(ref);
+		var notify = new LinkedHashSet<String>();
+		if (originWatchers.containsKey("")) notify.add("");
+		notify.addAll(matched);
+		var previous = urls.get(ref.getUrl());
+		if (previous != null) notify.addAll(previous);
+		try {
+			for (var tag : notify) originWatchers.get(tag).notify(ref);
+		} finally {
+			if (matched.isEmpty()) {
+				urls.remove(ref.getUrl());
+			} else {
+				urls.put(ref.getUrl(), matched);
 			}
 		}
 	}
@@ -1,10 +1,12 @@
 package jasper.component.cron;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jasper.aop.IdleAspect;
 import jasper.component.ConfigCache;
-import jasper.component.Meta;
 import jasper.config.Props;
-import jasper.repository.RefRepository;
+import jasper.domain.BackfillCursor;
+import jasper.repository.BackfillCursorRepository;
+import jasper.repository.BackfillRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +14,8 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 @Profile("!no-backfill")
@@ -29,33 +33,49 @@ public class Backfill {
 	IdleAspect idle;
 
 	@Autowired
-	RefRepository refRepository;
+	BackfillRepository backfillRepository;
 
 	@Autowired
-	Meta meta;
+	BackfillCursorRepository cursorRepository;
+
+	@Autowired
+	ExecutorService taskExecutor;
+
+	@Autowired
+	MeterRegistry meterRegistry;
 
 	@Scheduled(fixedRate = 60, initialDelay = 10, timeUnit = TimeUnit.SECONDS)
 	public void backfill() {
 		if (!idle.isIdle()) return;
 		if (!configs.root().script("+plugin/backfill")) return;
-		for (var origin : configs.root().scriptOrigins("+plugin/backfill")) {
-			backfillOrigin(origin);
-		}
+		CompletableFuture.allOf(configs.root().scriptOrigins("+plugin/backfill").stream()
+			.map(origin -> CompletableFuture.runAsync(() -> backfillOrigin(origin), taskExecutor))
+			.toArray(CompletableFuture[]::new)).join();
 	}
 
 	private void backfillOrigin(String origin) {
 		if (!configs.root().script("+plugin/backfill", origin)) return;
-		for (var i = 0; i < props.getBackfillBatchSize(); i++) {
-			if (!idle.isIdle()) return;
-			var ref = refRepository.getRefBackfill(origin).orElse(null);
-			if (ref == null) return;
-			logger.trace("{} Backfilling ref ({}) {}: {}",
-				origin, ref.getOrigin(), ref.getTitle(), ref.getUrl());
-			meta.regen(origin, ref);
+		var refs = meterRegistry.counter("jasper.backfill.ref", "origin", origin);
+		var timer = meterRegistry.timer("jasper.backfill", "origin", origin);
+		while (idle.isIdle()) {
 			try {
-				refRepository.save(ref);
+				// Batches walk backwards from the oldest modified date backfilled so far,
+				// so refs that can't be backfilled are not rescanned every batch
+				var cursor = cursorRepository.findById(origin).map(BackfillCursor::getModified).orElse(null);
+				var start = System.nanoTime();
+				var batch = backfillRepository.backfillMetadata(origin, cursor, props.getBackfillBatchSize());
+				timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				refs.increment(batch.count());
+				if (batch.cursor() == null) {
+					// Start over from the newest refs, or stop if there was nothing left to scan
+					if (cursor == null) return;
+					cursorRepository.deleteById(origin);
+				} else {
+					logger.debug("{} Backfilled {} refs up to {}", origin, batch.count(), batch.cursor());
+					cursorRepository.save(new BackfillCursor(origin, batch.cursor()));
+				}
 			} catch (Exception e) {
-				logger.error("{} Error backfilling: {}", origin, ref.getUrl(), e);
+				logger.error("{} Error backfilling", origin, e);
 				return;
 			}
 		}
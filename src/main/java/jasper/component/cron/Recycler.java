@@ -25,5 +25,6 @@ public class Recycler {
 	@Scheduled(fixedDelay = 24, initialDelay = 24, timeUnit = TimeUnit.HOURS)
 	public void clearDeleted() {
 		storage.visitTenants(fileCache::clearDeleted);
+		fileCache.collectGarbage();
 	}
 }
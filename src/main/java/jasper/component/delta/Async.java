@@ -8,6 +8,7 @@ import jasper.domain.proj.HasTags;
 import jasper.errors.NotFoundException;
 import jasper.repository.RefRepository;
 import jasper.repository.filter.RefFilter;
+import jasper.repository.filter.TagMatcher;
 import jasper.repository.spec.QualifiedTag;
 import jasper.service.dto.RefDto;
 import org.slf4j.Logger;
@@ -61,12 +62,14 @@ public class Async {
 
 	Map<String, CompletableFuture<?>> refs = new ConcurrentHashMap<>();
 	Map<String, AsyncRunner> tags = new ConcurrentHashMap<>();
+	TagMatcher matcher = new TagMatcher();
 
 	/**
 	 * Register a runner for a tag.
 	 */
 	public void addAsyncTag(String plugin, AsyncRunner r) {
 		tags.put(plugin, r);
+		matcher.add(plugin);
 	}
 
 	@EventListener(ApplicationReadyEvent.class)
@@ -98,11 +101,11 @@ public class Async {
 			if (isEmpty(configs.root().getScriptSelectors())) throw new RuntimeException();
 			if (ud.getTags() == null) throw new RuntimeException();
 			if (hasMatchingTag(ud, "+plugin/error")) throw new RuntimeException();
-			tags.forEach((tag, v) -> {
+			for (var tag : matcher.match(ud)) {
+				var v = tags.get(tag);
 				logger.trace("{} Checking for Async Tag ({} {}): {} Tags: {} Whitelisted: {}", origin, tag, configs.root().script(tag, ud) ? "☑️" : "🚩️", ud.getUrl(), ud.getTags(), configs.root().getScriptSelectors());
-				if (!hasMatchingTag(ud, tag)) return;
-				if (!configs.root().script(tag, ud)) return;
-				if (isNotBlank(v.signature()) && hasPluginResponse(ud, v.signature())) return;
+				if (!configs.root().script(tag, ud)) continue;
+				if (isNotBlank(v.signature()) && hasPluginResponse(ud, v.signature())) continue;
 				logger.debug("{} Async Tag ({}): {}", origin, tag, ud.getUrl());
 				refs.compute(getKey(ud), (u, existing) -> {
 					if (existing != null && !existing.isDone()) {
@@ -119,7 +122,7 @@ public class Async {
 						}
 					});
 				});
-			});
+			}
 		} catch (Exception e) {
 			refs.computeIfPresent(getKey(ud), (k, existing) -> {
 				if (existing.isDone()) return null;
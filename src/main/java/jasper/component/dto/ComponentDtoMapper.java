@@ -19,7 +19,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 
 @Mapper(componentModel = "spring")
 public abstract class ComponentDtoMapper {
@@ -38,11 +37,6 @@ public abstract class ComponentDtoMapper {
 
 	public abstract TemplateDto domainToDto(Template ref);
 
-	public int countMetadata(List<String> responses) {
-		if (responses == null) return 0;
-		return responses.size();
-	}
-
 	public abstract RefUpdateDto dtoToUpdateDto(RefDto ref);
 
 	@AfterMapping
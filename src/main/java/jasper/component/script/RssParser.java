@@ -13,6 +13,7 @@ import com.rometools.rome.io.XmlReader;
 import feign.FeignException;
 import jasper.client.JasperClient;
 import jasper.client.dto.JasperMapper;
+import jasper.component.FetchScheduler;
 import jasper.component.HttpClientFactory;
 import jasper.component.Ingest;
 import jasper.component.Sanitizer;
@@ -91,6 +92,9 @@ public class RssParser {
 	@Autowired
 	HttpClientFactory httpClientFactory;
 
+	@Autowired
+	FetchScheduler fetchScheduler;
+
 	public void runScript(Ref ref, String scriptTag) {
 		logger.info("{} Scraping {} feed: {}.", ref.getOrigin(), ref.getTitle(), ref.getUrl());
 		try {
@@ -145,7 +149,8 @@ public class RssParser {
 				}
 			}
 			request.setHeader(HttpHeaders.USER_AGENT, "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/100.0.4896.75 Safari/537.36");
-			try (var response = client.execute(request)) {
+			try (var scheduled = fetchScheduler.acquire(request);
+				var response = scheduled.execute(client)) {
 				if (response.getStatusLine().getStatusCode() == 304) {
 					if (lastScrape == null) {
 						logger.info("{} Feed {} not modified", feed.getOrigin(), feed.getTitle());
@@ -1,6 +1,11 @@
 package jasper.component.vm;
 
 import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jasper.component.vm.RunProcess.OutputHandler;
 import jasper.config.Props;
 import jasper.errors.ScriptException;
 import org.slf4j.Logger;
@@ -11,8 +16,11 @@ import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static jasper.component.vm.RunProcess.runProcess;
+import static jasper.component.vm.RunProcess.streamProcess;
 
 @Component
 public class JavaScript {
@@ -21,6 +29,9 @@ public class JavaScript {
 	@Autowired
 	Props props;
 
+	@Autowired
+	MeterRegistry meterRegistry;
+
 	@Value("http://localhost:${server.port}")
 	String api;
 
@@ -56,8 +67,167 @@ public class JavaScript {
 		script.runInContext(context, {timeout});
 	""";
 
+	/**
+	 * Runs each script in a fresh vm context. Node can't fork, so anything a run
+	 * leaves behind (errors, pending timers or handles) retires the worker, and
+	 * workers are pooled per origin.
+	 */
+	// language=JavaScript
+	private final String nodeWorkerScript = """
+		const fs = require('fs');
+		const net = require('node:net');
+		const vm = require('node:vm');
+		const util = require('node:util');
+		const api = process.argv[1];
+		class Exit {
+		  constructor(code) { this.code = code; }
+		}
+		const resources = () => typeof process.getActiveResourcesInfo === 'function' ? process.getActiveResourcesInfo().length : 0;
+		let buffer = Buffer.alloc(0);
+		let busy = false;
+		let fail = null;
+		let leaked = false;
+		process.on('uncaughtException', err => fail ? fail(err) : leaked = true);
+		process.on('unhandledRejection', err => fail ? fail(err) : leaked = true);
+		const conn = net.connect(process.argv[2]);
+		conn.on('close', () => process.exit(0));
+		conn.on('data', chunk => {
+		  buffer = Buffer.concat([buffer, chunk]);
+		  next();
+		});
+		function next() {
+		  if (busy) return;
+		  const eol = buffer.indexOf(10);
+		  if (eol === -1) return;
+		  const [timeout, scriptLength, inputLength] = buffer.subarray(0, eol).toString().split(' ').map(n => parseInt(n, 10));
+		  const start = eol + 1;
+		  const end = start + scriptLength + inputLength;
+		  if (buffer.length < end) return;
+		  const targetScript = buffer.subarray(start, start + scriptLength).toString();
+		  const inputString = buffer.subarray(start + scriptLength, end).toString();
+		  buffer = buffer.subarray(end);
+		  busy = true;
+		  const before = resources();
+		  run(targetScript, inputString, timeout || 30_000).then(([code, out, err, timers]) => {
+		    for (const key of Object.keys(require.cache)) delete require.cache[key];
+		    const reuse = code === 0 && !leaked && timers === 0 && resources() <= before;
+		    const o = Buffer.from(out.join(''));
+		    const e = Buffer.from(err.join(''));
+		    conn.write(code + ' ' + o.length + ' ' + e.length + ' ' + (reuse ? 1 : 0) + '\n');
+		    conn.write(o);
+		    conn.write(e);
+		    busy = false;
+		    next();
+		  });
+		}
+		function run(targetScript, inputString, timeout) {
+		  const out = [];
+		  const err = [];
+		  const timers = new Set();
+		  let done = false;
+		  let resolve;
+		  const result = new Promise(r => resolve = r);
+		  const finish = code => {
+		    if (done) return;
+		    done = true;
+		    fail = null;
+		    clearTimeout(deadline);
+		    resolve([code, out, err, timers.size]);
+		  };
+		  fail = e => {
+		    if (e instanceof Exit) return finish(e.code);
+		    err.push(util.format(e) + '\n');
+		    finish(1);
+		  };
+		  const deadline = setTimeout(() => finish(-1), timeout);
+		  const print = lines => (...args) => lines.push(util.format(...args) + '\n');
+		  const patchedFs = {
+		    ...fs,
+		    readFileSync: (path, options) => {
+		      if (path === 0) return inputString;
+		      return fs.readFileSync(path, options);
+		    }
+		  };
+		  const context = vm.createContext({
+		    console: {
+		      log: print(out),
+		      info: print(out),
+		      debug: print(out),
+		      dir: print(out),
+		      warn: print(err),
+		      error: print(err),
+		      trace: print(err),
+		    },
+		    setTimeout: (fn, ...args) => {
+		      const t = setTimeout((...a) => {
+		        timers.delete(t);
+		        fn(...a);
+		      }, ...args);
+		      timers.add(t);
+		      return t;
+		    },
+		    clearTimeout: t => {
+		      timers.delete(t);
+		      clearTimeout(t);
+		    },
+		    process: {
+		      env: { JASPER_API: api },
+		      exit: code => { throw new Exit(code || 0); },
+		    },
+		    require(mod) {
+		      if (mod === 'fs') return patchedFs;
+		      return require(mod);
+		    }
+		  });
+		  try {
+		    const script = new vm.Script('(async () => {' + targetScript + '\n})()');
+		    script.runInContext(context, {timeout}).then(() => finish(0), fail);
+		  } catch (e) {
+		    fail(e);
+		  }
+		  return result;
+		}
+	""";
+
+	private final ConcurrentHashMap<String, WorkerPool> workers = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void meters() {
+		Gauge.builder("jasper.vm.workers", workers, w -> w.values().stream().mapToInt(WorkerPool::idle).sum())
+			.tag("pool", "node")
+			.tag("state", "idle")
+			.register(meterRegistry);
+		Gauge.builder("jasper.vm.workers", workers, w -> w.values().stream().mapToInt(WorkerPool::active).sum())
+			.tag("pool", "node")
+			.tag("state", "active")
+			.register(meterRegistry);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		workers.values().forEach(WorkerPool::shutdown);
+	}
+
 	@Timed("jasper.vm")
-	public String runJavaScript(String targetScript, String inputString, int timeoutMs) throws ScriptException, IOException {
+	public String runJavaScript(String origin, String targetScript, String inputString, int timeoutMs) throws ScriptException, IOException {
+		if (props.getScriptWorkers() > 0) {
+			return workers.computeIfAbsent(origin, k -> new WorkerPool("node", List.of(props.getNode(), "-e", nodeWorkerScript, api),
+				props.getScriptWorkers(), props.getScriptWorkerMaxRuns()))
+				.run(targetScript, inputString, timeoutMs);
+		}
+		return runProcess(start(targetScript, inputString, timeoutMs), timeoutMs);
+	}
+
+	/**
+	 * Run in a new process, handling stdout while the script is running.
+	 * Workers buffer all output, so they are not used.
+	 */
+	@Timed("jasper.vm")
+	public void streamJavaScript(String targetScript, String inputString, int timeoutMs, OutputHandler handler) throws ScriptException, IOException {
+		streamProcess(start(targetScript, inputString, timeoutMs), timeoutMs, handler);
+	}
+
+	private Process start(String targetScript, String inputString, int timeoutMs) throws IOException {
 		var process = new ProcessBuilder(props.getNode(), "-e", nodeVmWrapperScript, ""+timeoutMs, api).start();
 		try (var writer = new OutputStreamWriter(process.getOutputStream())) {
 			writer.write(targetScript);
@@ -67,6 +237,6 @@ public class JavaScript {
 		} catch (IOException e) {
 			logger.warn("Script terminated before receiving input.");
 		}
-		return runProcess(process, timeoutMs);
+		return process;
 	}
 }
@@ -1,6 +1,11 @@
 package jasper.component.vm;
 
 import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jasper.component.vm.RunProcess.OutputHandler;
 import jasper.config.Props;
 import jasper.errors.ScriptException;
 import org.slf4j.Logger;
@@ -19,12 +24,14 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static jasper.component.vm.RunProcess.runProcess;
+import static jasper.component.vm.RunProcess.streamProcess;
 import static java.lang.System.getProperty;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.exists;
@@ -43,11 +50,15 @@ public class Python {
 	@Autowired
 	Props props;
 
+	@Autowired
+	MeterRegistry meterRegistry;
+
 	@Value("http://localhost:${server.port}")
 	String api;
 
 	private final Map<String, Instant> lastUpdate = new HashMap<>();
 	private final ConcurrentHashMap<String, ReentrantLock> venvLocks = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, WorkerPool> workers = new ConcurrentHashMap<>();
 
 	// language=Python
 	private final String pythonVmWrapperScript = """
@@ -68,8 +79,152 @@ if process.returncode != 0:
 	sys.exit(process.returncode)
 	""";
 
+	/**
+	 * Fork server: each script runs in a fresh child of the warm interpreter, with
+	 * its own stdio pipes and process group, so nothing it changes or leaves
+	 * running outlives the run.
+	 */
+	// language=Python
+	private final String pythonWorkerScript = """
+import sys, os, io, socket, signal, threading, atexit, traceback
+os.environ['JASPER_API'] = sys.argv[1]
+conn = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+conn.connect(sys.argv[2])
+requests, replies = conn.makefile('rb'), conn.makefile('wb')
+def child(target_script, in_r, out_w, err_w):
+	os.close(conn.fileno())
+	os.setpgid(0, 0)
+	os.dup2(in_r, 0)
+	os.dup2(out_w, 1)
+	os.dup2(err_w, 2)
+	sys.stdin = open(0, 'r', encoding='utf-8', closefd=False)
+	sys.stdout = open(1, 'w', encoding='utf-8', closefd=False)
+	sys.stderr = open(2, 'w', encoding='utf-8', closefd=False)
+	code = 0
+	try:
+		exec(compile(target_script, '<script>', 'exec'), {'__name__': '__main__'})
+		for t in threading.enumerate():
+			if t is not threading.current_thread() and not t.daemon:
+				t.join()
+		atexit._run_exitfuncs()
+	except SystemExit as e:
+		if e.code is None or isinstance(e.code, int):
+			code = e.code or 0
+		else:
+			print(e.code, file=sys.stderr)
+			code = 1
+	except BaseException:
+		traceback.print_exc()
+		code = 1
+	sys.stdout.flush()
+	sys.stderr.flush()
+	return code
+def drain(fd, chunks):
+	with os.fdopen(fd, 'rb') as f:
+		chunks.append(f.read())
+def feed(fd, data):
+	try:
+		with os.fdopen(fd, 'wb') as f:
+			f.write(data)
+	except BrokenPipeError:
+		pass
+def run(target_script, input_bytes, timeout_ms):
+	in_r, in_w = os.pipe()
+	out_r, out_w = os.pipe()
+	err_r, err_w = os.pipe()
+	pid = os.fork()
+	if pid == 0:
+		code = 1
+		try:
+			for fd in (in_w, out_r, err_r):
+				os.close(fd)
+			code = child(target_script, in_r, out_w, err_w)
+		finally:
+			os._exit(code)
+	for fd in (in_r, out_w, err_w):
+		os.close(fd)
+	out, err = [], []
+	io_threads = [
+		threading.Thread(target=drain, args=(out_r, out)),
+		threading.Thread(target=drain, args=(err_r, err)),
+		threading.Thread(target=feed, args=(in_w, input_bytes))]
+	for t in io_threads:
+		t.start()
+	status = []
+	waiter = threading.Thread(target=lambda: status.append(os.waitpid(pid, 0)[1]))
+	waiter.start()
+	waiter.join(timeout_ms / 1000)
+	timed_out = waiter.is_alive()
+	try:
+		# Also stops anything the script left running in the background
+		os.killpg(pid, signal.SIGKILL)
+	except (ProcessLookupError, PermissionError):
+		pass
+	waiter.join()
+	for t in io_threads:
+		t.join()
+	code = os.waitstatus_to_exitcode(status[0])
+	if code < 0:
+		# Killed by a signal, report it the way a shell would
+		code = 128 - code
+	if timed_out:
+		code = -1
+	return code, b''.join(out), b''.join(err)
+while True:
+	header = requests.readline()
+	if not header:
+		break
+	timeout_ms, script_length, input_length = map(int, header.split())
+	target_script = requests.read(script_length).decode()
+	input_bytes = requests.read(input_length)
+	code, o, e = run(target_script, input_bytes, timeout_ms)
+	replies.write(b'%d %d %d 1\\n' % (code, len(o), len(e)))
+	replies.write(o)
+	replies.write(e)
+	replies.flush()
+	""";
+
+	@PostConstruct
+	public void meters() {
+		Gauge.builder("jasper.vm.workers", workers, w -> w.values().stream().mapToInt(WorkerPool::idle).sum())
+			.tag("pool", "python")
+			.tag("state", "idle")
+			.register(meterRegistry);
+		Gauge.builder("jasper.vm.workers", workers, w -> w.values().stream().mapToInt(WorkerPool::active).sum())
+			.tag("pool", "python")
+			.tag("state", "active")
+			.register(meterRegistry);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		workers.values().forEach(WorkerPool::shutdown);
+	}
+
 	@Timed("jasper.vm")
 	public String runPython(String requirements, String targetScript, String inputString, int timeoutMs) throws ScriptException, IOException, NoSuchAlgorithmException {
+		var python = interpreter(requirements);
+		if (props.getScriptWorkers() > 0) {
+			return workers.computeIfAbsent(python, k -> new WorkerPool("python", List.of(python, "-c", pythonWorkerScript, api),
+				props.getScriptWorkers(), props.getScriptWorkerMaxRuns()))
+				.run(targetScript, inputString, timeoutMs);
+		}
+		return runProcess(start(python, targetScript, inputString, timeoutMs), timeoutMs);
+	}
+
+	/**
+	 * Run in a new process, handling stdout while the script is running.
+	 * Workers buffer all output, so they are not used.
+	 */
+	@Timed("jasper.vm")
+	public void streamPython(String requirements, String targetScript, String inputString, int timeoutMs, OutputHandler handler) throws ScriptException, IOException, NoSuchAlgorithmException {
+		streamProcess(start(interpreter(requirements), targetScript, inputString, timeoutMs), timeoutMs, handler);
+	}
+
+	/**
+	 * Python interpreter with the requirements installed.
+	 */
+	private String interpreter(String requirements) throws ScriptException, IOException, NoSuchAlgorithmException {
 		var python = props.getPython();
 		if (isNotBlank(requirements)) {
 			var requirementsHash = encodeHexString(getInstance("SHA-256").digest(requirements.getBytes(StandardCharsets.UTF_8)));
@@ -99,11 +254,18 @@ if process.returncode != 0:
 					var pip = venv.resolve("bin/pip").toString();
 					var pipProcess = new ProcessBuilder(pip, "install", "--upgrade", "-r", requirementsFile.toString()).start();
 					runProcess(pipProcess, 300_000);
+					// Don't hand out workers started before the upgrade
+					var stale = workers.remove(python);
+					if (stale != null) stale.shutdown();
 				}
 			} finally {
 				lock.unlock();
 			}
 		}
+		return python;
+	}
+
+	private Process start(String python, String targetScript, String inputString, int timeoutMs) throws IOException {
 		var scriptProcess = new ProcessBuilder(python, "-c", pythonVmWrapperScript, ""+timeoutMs, api).start();
 		try (OutputStreamWriter writer = new OutputStreamWriter(scriptProcess.getOutputStream())) {
 			writer.write(targetScript);
@@ -113,6 +275,6 @@ if process.returncode != 0:
 		} catch (IOException e) {
 			logger.warn("Script terminated before receiving input.");
 		}
-		return runProcess(scriptProcess, timeoutMs);
+		return scriptProcess;
 	}
 }
@@ -6,8 +6,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static jasper.util.Logging.getMessage;
 
 public class RunProcess {
 	private static final Logger logger = LoggerFactory.getLogger(RunProcess.class);
@@ -60,4 +64,68 @@ public class RunProcess {
 		}
 		return output.toString();
 	}
+
+	/**
+	 * Reads stdout as the process is running. Reading blocks the process when the pipe
+	 * fills up, so a slow handler slows the script down instead of buffering its output.
+	 */
+	public static void streamProcess(Process process, int timeoutMs, OutputHandler handler) throws ScriptException {
+		final var errors = new StringBuilder();
+		var errorThread = Thread.ofVirtual().start(() -> {
+			try (var reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					errors.append(line).append("\n");
+				}
+			} catch (IOException e) {
+				logger.error("Error reading error stream: {}", e.getMessage());
+			}
+		});
+		var timedOut = new AtomicBoolean();
+		var watchdog = Thread.ofVirtual().start(() -> {
+			try {
+				if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+					timedOut.set(true);
+					process.destroy();
+				}
+			} catch (InterruptedException e) {
+				// Finished reading output
+			}
+		});
+		try (var output = process.getInputStream()) {
+			handler.accept(output);
+		} catch (IOException | RuntimeException e) {
+			process.destroy();
+			if (timedOut.get()) throw new ScriptException("Script execution timed out", ""+errors);
+			throw new ScriptException("Error reading script output: " + getMessage(e), ""+errors);
+		}
+		boolean finished;
+		try {
+			watchdog.join(timeoutMs);
+			finished = !timedOut.get() && process.waitFor(100, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			process.destroy();
+			Thread.currentThread().interrupt();
+			throw new ScriptException("Script execution interrupted", ""+errors);
+		} finally {
+			watchdog.interrupt();
+		}
+		process.destroy();
+		try {
+			errorThread.join(100);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!finished) {
+			throw new ScriptException("Script execution timed out", ""+errors);
+		}
+		var exitCode = process.exitValue();
+		if (exitCode != 0) {
+			throw new ScriptException("Script execution failed with exit code: " + exitCode, ""+errors);
+		}
+	}
+
+	public interface OutputHandler {
+		void accept(InputStream output) throws IOException;
+	}
 }
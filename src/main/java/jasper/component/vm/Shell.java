@@ -1,6 +1,7 @@
 package jasper.component.vm;
 
 import io.micrometer.core.annotation.Timed;
+import jasper.component.vm.RunProcess.OutputHandler;
 import jasper.config.Props;
 import jasper.errors.ScriptException;
 import org.slf4j.Logger;
@@ -13,6 +14,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 
 import static jasper.component.vm.RunProcess.runProcess;
+import static jasper.component.vm.RunProcess.streamProcess;
 
 @Component
 public class Shell {
@@ -42,6 +44,18 @@ EOF
 
 	@Timed("jasper.vm")
 	public String runShellScript(String targetScript, String inputString, int timeoutMs) throws ScriptException, IOException {
+		return runProcess(start(targetScript, inputString, timeoutMs), timeoutMs);
+	}
+
+	/**
+	 * Handle stdout while the script is running.
+	 */
+	@Timed("jasper.vm")
+	public void streamShellScript(String targetScript, String inputString, int timeoutMs, OutputHandler handler) throws ScriptException, IOException {
+		streamProcess(start(targetScript, inputString, timeoutMs), timeoutMs, handler);
+	}
+
+	private Process start(String targetScript, String inputString, int timeoutMs) throws IOException {
 		var process = new ProcessBuilder(props.getShell(), "-c", wrapperScript, props.getShell(), String.valueOf(timeoutMs), api).start();
 		try (var writer = new OutputStreamWriter(process.getOutputStream())) {
 			writer.write(targetScript);
@@ -52,6 +66,6 @@ EOF
 		} catch (IOException e) {
 			logger.warn("Script terminated before receiving input.");
 		}
-		return runProcess(process, timeoutMs);
+		return process;
 	}
 }
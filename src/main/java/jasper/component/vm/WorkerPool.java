@@ -0,0 +1,239 @@
+package jasper.component.vm;
+
+import jasper.errors.ScriptException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Long-lived interpreter processes that each run one script at a time.
+ * Each worker connects back to a unix socket passed as its last argument. Nothing
+ * a script writes to stdout can reach it, so it is only used for framing.
+ * Requests are a header line {@code <timeoutMs> <scriptBytes> <inputBytes>}
+ * followed by the script and input. Workers reply with a header line
+ * {@code <exitCode> <outputBytes> <errorBytes> <reuse>} followed by the output and errors.
+ * An exit code of -1 means the worker timed the script out, and a reuse of 0 means
+ * the script may have left state behind, so the worker is replaced.
+ * Workers are also replaced after a number of runs, or killed on error.
+ * Concurrency is limited by the script bulkheads, the pool only caps idle workers.
+ */
+class WorkerPool {
+	private static final Logger logger = LoggerFactory.getLogger(WorkerPool.class);
+	/**
+	 * Extra time for the worker to report a timeout before it is killed.
+	 */
+	private static final int TIMEOUT_GRACE_MS = 5_000;
+	private static final int CONNECT_TIMEOUT_MS = 30_000;
+	/**
+	 * Characters of worker output kept for error messages.
+	 */
+	private static final int MAX_ERRORS = 64 * 1024;
+
+	private final String name;
+	private final List<String> command;
+	private final int maxIdle;
+	private final int maxRuns;
+	private final ConcurrentLinkedDeque<Worker> idle = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger active = new AtomicInteger();
+	private volatile boolean closed = false;
+
+	WorkerPool(String name, List<String> command, int maxIdle, int maxRuns) {
+		this.name = name;
+		this.command = command;
+		this.maxIdle = maxIdle;
+		this.maxRuns = maxRuns;
+	}
+
+	int idle() {
+		return idle.size();
+	}
+
+	int active() {
+		return active.get();
+	}
+
+	String run(String targetScript, String inputString, int timeoutMs) throws ScriptException, IOException {
+		var worker = idle.pollFirst();
+		if (worker == null || !worker.process.isAlive()) {
+			if (worker != null) worker.destroy();
+			worker = new Worker(command);
+		}
+		active.incrementAndGet();
+		try {
+			var result = worker.run(targetScript, inputString, timeoutMs);
+			if (result.reuse()) {
+				release(worker);
+			} else {
+				logger.debug("Replacing {} worker after script left state behind", name);
+				worker.destroy();
+			}
+			if (result.exitCode() == -1) {
+				throw new ScriptException("Script execution timed out", result.errors() + result.output());
+			}
+			if (result.exitCode() != 0) {
+				throw new ScriptException("Script execution failed with exit code: " + result.exitCode(), result.errors() + result.output());
+			}
+			return result.output();
+		} catch (TimeoutException e) {
+			worker.destroy();
+			throw new ScriptException("Script execution timed out", worker.errors());
+		} catch (InterruptedException e) {
+			worker.destroy();
+			Thread.currentThread().interrupt();
+			throw new ScriptException("Script execution interrupted", worker.errors());
+		} catch (IOException | ExecutionException e) {
+			worker.destroy();
+			throw new ScriptException("Script worker failed: " + e.getMessage(), worker.errors());
+		} finally {
+			active.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Kill idle workers and stop accepting returned ones. Running scripts finish
+	 * on their current worker, which is then killed.
+	 */
+	void shutdown() {
+		closed = true;
+		Worker worker;
+		while ((worker = idle.pollFirst()) != null) worker.destroy();
+	}
+
+	private void release(Worker worker) {
+		if (closed || worker.runs >= maxRuns || idle.size() >= maxIdle || !worker.process.isAlive()) {
+			logger.debug("Recycling {} worker after {} runs", name, worker.runs);
+			worker.destroy();
+		} else {
+			idle.offerFirst(worker);
+		}
+		// Shutdown may have drained the pool while this worker was being returned
+		if (closed && idle.remove(worker)) worker.destroy();
+	}
+
+	private record Result(int exitCode, String output, String errors, boolean reuse) { }
+
+	private static class Worker {
+		private final Process process;
+		private final SocketChannel channel;
+		private final BufferedOutputStream requests;
+		private final BufferedInputStream replies;
+		private final StringBuffer stderr = new StringBuffer();
+		private int runs = 0;
+
+		Worker(List<String> command) throws IOException {
+			var dir = Files.createTempDirectory("jasper-worker");
+			var socket = dir.resolve("worker.sock");
+			try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+				server.bind(UnixDomainSocketAddress.of(socket));
+				var args = new ArrayList<>(command);
+				args.add(socket.toString());
+				process = new ProcessBuilder(args).redirectErrorStream(true).start();
+				// Only the worker itself and stray writes end up here, scripts have their output returned in the result
+				Thread.ofVirtual().start(() -> {
+					try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8))) {
+						String line;
+						while ((line = reader.readLine()) != null) {
+							// Keep reading past the limit so the worker never blocks on a full pipe
+							if (stderr.length() < MAX_ERRORS) stderr.append(line, 0, Math.min(line.length(), MAX_ERRORS)).append("\n");
+						}
+					} catch (IOException e) {
+						logger.debug("Error reading worker output: {}", e.getMessage());
+					}
+				});
+				var accept = CompletableFuture.supplyAsync(() -> {
+					try {
+						return server.accept();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, Thread::startVirtualThread);
+				try {
+					channel = accept.get(CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					destroy();
+					throw new IOException("Interrupted waiting for worker to connect");
+				} catch (ExecutionException | TimeoutException e) {
+					destroy();
+					throw new IOException("Worker did not connect: " + errors(), e);
+				}
+			} finally {
+				deleteQuietly(dir.toFile());
+			}
+			requests = new BufferedOutputStream(Channels.newOutputStream(channel));
+			replies = new BufferedInputStream(Channels.newInputStream(channel));
+		}
+
+		Result run(String targetScript, String inputString, int timeoutMs) throws IOException, TimeoutException, InterruptedException, ExecutionException {
+			runs++;
+			// Only report output from this run, not from earlier scripts
+			stderr.setLength(0);
+			var script = targetScript.getBytes(UTF_8);
+			var input = inputString.getBytes(UTF_8);
+			requests.write((timeoutMs + " " + script.length + " " + input.length + "\n").getBytes(UTF_8));
+			requests.write(script);
+			requests.write(input);
+			requests.flush();
+			return CompletableFuture.supplyAsync(this::read, Thread::startVirtualThread)
+				.get(timeoutMs + TIMEOUT_GRACE_MS, TimeUnit.MILLISECONDS);
+		}
+
+		private Result read() {
+			try {
+				var header = readLine(replies).split(" ");
+				if (header.length != 4) throw new IOException("Malformed worker response");
+				var exitCode = Integer.parseInt(header[0]);
+				var output = new String(replies.readNBytes(Integer.parseInt(header[1])), UTF_8);
+				var errors = new String(replies.readNBytes(Integer.parseInt(header[2])), UTF_8);
+				return new Result(exitCode, output, errors, header[3].equals("1"));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		String errors() {
+			return stderr.toString();
+		}
+
+		void destroy() {
+			closeQuietly(channel);
+			process.destroyForcibly();
+		}
+
+		private static String readLine(InputStream in) throws IOException {
+			var line = new ByteArrayOutputStream();
+			int b;
+			while ((b = in.read()) != '\n') {
+				if (b == -1) throw new IOException("Worker exited");
+				line.write(b);
+			}
+			return line.toString(UTF_8);
+		}
+	}
+}
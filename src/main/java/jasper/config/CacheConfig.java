@@ -50,6 +50,16 @@ public class CacheConfig {
 			.expireAfterAccess(1, TimeUnit.DAYS)
 			.recordStats()
 			.build());
+		cacheManager.registerCustomCache("plugin-schema-cache", Caffeine.newBuilder()
+			.maximumSize(10_000)
+			.expireAfterAccess(1, TimeUnit.DAYS)
+			.recordStats()
+			.build());
+		cacheManager.registerCustomCache("plugin-defaults-cache", Caffeine.newBuilder()
+			.maximumSize(10_000)
+			.expireAfterAccess(1, TimeUnit.DAYS)
+			.recordStats()
+			.build());
 		cacheManager.registerCustomCache("plugin-config-cache", Caffeine.newBuilder()
 			.maximumSize(10_000)
 			.expireAfterAccess(1, TimeUnit.DAYS)
@@ -72,6 +72,14 @@ public class Props {
 	 * Allow adding additional user permissions via Read-Access, Write-Access, Tag-Read-Access, and Tag-Write-Access headers.
 	 */
 	private boolean allowAuthHeaders = false;
+	/**
+	 * Number of verified JWTs to cache. Set to 0 to verify the signature on every request.
+	 */
+	private int tokenCacheSize = 10_000;
+	/**
+	 * Longest time to cache a verified JWT, even if it expires later.
+	 */
+	private int tokenCacheSec = 300;
 	/**
 	 * Highest role allowed access.
 	 */
@@ -126,10 +134,27 @@ public class Props {
 	 * Size of buffer in bytes used to cache JSON in RAM before flushing to disk during backup.
 	 */
 	private int backupBufferSize = 1000000;
+	/**
+	 * Number of Refs in each ref-N.json file of a backup. Files are written in parallel.
+	 */
+	private int backupChunkSize = 50000;
+	/**
+	 * Number of backup files to write from the database in parallel.
+	 */
+	private int backupThreads = 4;
 	/**
 	 * Number of entities to restore in each transaction.
 	 */
 	private int restoreBatchSize = 500;
+	/**
+	 * Number of ref files to restore in parallel.
+	 */
+	private int restoreThreads = 4;
+	/**
+	 * Drop ref indices while restoring refs and rebuild the enabled ones after.
+	 * Ref queries on all origins are slow until it finishes.
+	 */
+	private boolean restoreDropIndices = false;
 	/**
 	 * Number of entities to generate Metadata for in each transaction when backfilling.
 	 */
@@ -147,11 +172,69 @@ public class Props {
 	 * Number of seconds to throttle pushing after modification.
 	 */
 	private int pushCooldownSec = 1;
+	/**
+	 * Number of milliseconds to coalesce Ref update notifications before sending.
+	 * Set to 0 to send every update immediately.
+	 */
+	private int messageDebounceMs = 100;
+	/**
+	 * Encoding for entities sent over Redis, json or smile.
+	 * Messages in either encoding are read regardless of this setting.
+	 */
+	private String redisCodec = "json";
+	/**
+	 * Gzip Redis messages of at least this many bytes. Set to 0 to disable.
+	 */
+	private int redisCompressBytes = 0;
+	/**
+	 * Maximum number of messages to publish to Redis in one pipeline.
+	 */
+	private int redisBatchSize = 100;
+	/**
+	 * Send messages through a Redis stream per origin instead of pub/sub.
+	 * Each node reads with its own consumer group and catches up on restart.
+	 */
+	private boolean redisStreams = false;
+	/**
+	 * Consumer group for reading Redis streams. Must be unique per node and
+	 * stable across restarts, such as a StatefulSet pod name. Required with Redis streams.
+	 */
+	private String redisStreamGroup = "";
+	/**
+	 * Remove consumer groups and consumers of other nodes after they have been idle this long.
+	 */
+	private int redisStreamGroupExpirySec = 7 * 24 * 60 * 60;
+	/**
+	 * Approximate number of messages to keep in each Redis stream.
+	 */
+	private long redisStreamMaxLen = 100_000;
 
 	/**
 	 * Path to the folder to use for storage. Used by the backup system.
 	 */
 	private String storage = "/var/lib/jasper";
+	/**
+	 * Store identical files once by content hash, shared across ids and origins.
+	 */
+	private boolean storageDedup = false;
+	/**
+	 * Number of threads generating thumbnails. Set to 0 to use one per processor.
+	 */
+	private int thumbnailWorkers = 0;
+	/**
+	 * Number of thumbnails waiting to be generated. Thumbnails are dropped
+	 * while the queue is full and queued again when next requested.
+	 */
+	private int thumbnailQueueSize = 1000;
+	/**
+	 * Maximum concurrent requests to a single host when fetching external resources.
+	 */
+	private int fetchHostConcurrency = 2;
+	/**
+	 * Minimum time between starting requests to the same host when fetching
+	 * external resources.
+	 */
+	private int fetchCrawlDelayMs = 500;
 	/**
 	 * Path to node binary for running javascript deltas.
 	 */
@@ -164,6 +247,21 @@ public class Props {
 	 * Path to shell binary for running shell scripts.
 	 */
 	private String shell = "/usr/bin/bash";
+	/**
+	 * Number of idle node and python workers to keep warm per python interpreter
+	 * or node origin. Python workers fork a fresh child for every script. Node
+	 * workers run one script at a time and are replaced after any error or
+	 * leftover timer. Set to 0 to start a new process for every script.
+	 */
+	private int scriptWorkers = 0;
+	/**
+	 * Number of scripts a worker runs before it is replaced.
+	 */
+	private int scriptWorkerMaxRuns = 100;
+	/**
+	 * Number of entities to ingest at a time from scripts with ndjson output.
+	 */
+	private int scriptBatchSize = 100;
 	/**
 	 * HTTP address of an instance where storage is enabled.
 	 */
@@ -0,0 +1,60 @@
+package jasper.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes entities for the Redis message bus as JSON or Smile, gzipped when large.
+ * Decoding detects the format from the leading bytes, so nodes with different
+ * settings can share a message bus during a rolling upgrade.
+ */
+public class RedisCodec {
+
+	private final ObjectMapper json;
+	private final ObjectMapper smile;
+	private final boolean useSmile;
+	private final int compressBytes;
+
+	public RedisCodec(ObjectMapper objectMapper, String codec, int compressBytes) {
+		this.json = objectMapper;
+		this.smile = objectMapper.copyWith(new SmileFactory());
+		this.useSmile = "smile".equals(codec);
+		this.compressBytes = compressBytes;
+	}
+
+	public byte[] encode(Object value) throws IOException {
+		var data = (useSmile ? smile : json).writeValueAsBytes(value);
+		if (compressBytes <= 0 || data.length < compressBytes) return data;
+		var bo = new ByteArrayOutputStream(data.length / 2);
+		try (var gz = new GZIPOutputStream(bo)) {
+			gz.write(data);
+		}
+		return bo.toByteArray();
+	}
+
+	public <T> T decode(byte[] data, Class<T> type) throws IOException {
+		if (isGzip(data)) {
+			try (var gz = new GZIPInputStream(new ByteArrayInputStream(data))) {
+				data = gz.readAllBytes();
+			}
+		}
+		return (isSmile(data) ? smile : json).readValue(data, type);
+	}
+
+	private static boolean isGzip(byte[] data) {
+		return data.length > 1 && data[0] == (byte) 0x1f && data[1] == (byte) 0x8b;
+	}
+
+	/**
+	 * Smile documents start with the ":)\n" header.
+	 */
+	private static boolean isSmile(byte[] data) {
+		return data.length > 2 && data[0] == ':' && data[1] == ')' && data[2] == '\n';
+	}
+}
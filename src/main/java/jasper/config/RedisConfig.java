@@ -1,7 +1,9 @@
 package jasper.config;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import jasper.service.dto.ExtDto;
 import jasper.service.dto.PluginDto;
 import jasper.service.dto.RefDto;
@@ -10,12 +12,26 @@ import jasper.service.dto.UserDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.boot.data.redis.autoconfigure.DataRedisAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.DefaultMessage;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.integration.channel.DirectChannel;
@@ -27,7 +43,18 @@ import org.springframework.messaging.support.MessageBuilder;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import static jasper.component.Messages.originHeaders;
 import static jasper.component.Messages.refHeaders;
@@ -35,7 +62,9 @@ import static jasper.component.Messages.responseHeaders;
 import static jasper.component.Messages.tagHeaders;
 import static jasper.domain.proj.HasOrigin.formatOrigin;
 import static jasper.domain.proj.HasTags.formatTag;
+import static jasper.util.Logging.getMessage;
 import static java.util.Arrays.copyOfRange;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.springframework.data.redis.listener.PatternTopic.of;
 
 @Profile("redis")
@@ -43,10 +72,20 @@ import static org.springframework.data.redis.listener.PatternTopic.of;
 @Configuration
 public class RedisConfig {
 	private static final Logger logger = LoggerFactory.getLogger(RedisConfig.class);
+	/**
+	 * Set of origins with a change log.
+	 */
+	private static final byte[] CHANGES = "changes".getBytes(StandardCharsets.UTF_8);
 
 	@Autowired
 	ObjectMapper objectMapper;
 
+	@Autowired
+	Props props;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
 	@Autowired
 	RedisConnectionFactory redisConnectionFactory;
 
@@ -98,6 +137,51 @@ public class RedisConfig {
 	@Autowired
 	MessageChannel templateRxChannel;
 
+	/**
+	 * Listeners by topic type, for reading the change log.
+	 */
+	private final Map<String, MessageListener> listeners = new ConcurrentHashMap<>();
+	/**
+	 * Message and byte counters by direction and topic type.
+	 */
+	private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+	private record Meters(Counter messages, Counter bytes) {}
+	private RedisStreamConsumer redisStreamConsumer;
+
+	@Bean
+	public RedisCodec redisCodec() {
+		return new RedisCodec(objectMapper, props.getRedisCodec(), props.getRedisCompressBytes());
+	}
+
+	@Bean
+	public RedisPublisher redisPublisher() {
+		return new RedisPublisher(redisConnectionFactory, props.getRedisBatchSize(), props.isRedisStreams() ? props.getRedisStreamMaxLen() : -1,
+			Counter.builder("jasper.redis.dropped")
+				.description("Messages dropped after publishing to redis failed repeatedly")
+				.register(meterRegistry));
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void startChangeLog() {
+		if (!props.isRedisStreams()) return;
+		redisStreamConsumer = new RedisStreamConsumer(redisConnectionFactory, redisStreamGroup(), props.getRedisBatchSize(), Duration.ofSeconds(props.getRedisStreamGroupExpirySec()), listeners);
+	}
+
+	@PreDestroy
+	public void stopChangeLog() {
+		if (redisStreamConsumer != null) redisStreamConsumer.close();
+	}
+
+	/**
+	 * The group must survive restarts, so it is never derived from the hostname,
+	 * which changes every time a Deployment replaces a pod.
+	 */
+	private String redisStreamGroup() {
+		if (isNotBlank(props.getRedisStreamGroup())) return props.getRedisStreamGroup();
+		throw new IllegalStateException("Set JASPER_REDIS_STREAM_GROUP to a name that is unique per node and stable across restarts to use the redis change log");
+	}
+
 	@Bean
 	public MessageChannel cursorRedisChannel() {
 		return new DirectChannel();
@@ -168,12 +252,12 @@ public class RedisConfig {
 	public RedisMessageListenerContainer redisCursorRxAdapter(RedisConnectionFactory redisConnectionFactory) {
 		var container = new RedisMessageListenerContainer();
 		container.setConnectionFactory(redisConnectionFactory);
-		container.addMessageListener((message, pattern) -> {
+		subscribe(container, counted((message, pattern) -> {
 			var cursor = Instant.parse(new String(message.getBody()));
 			var parts = new String(message.getChannel(), StandardCharsets.UTF_8).split("/");
 			var origin = parts[1];
 			cursorRedisChannel().send(MessageBuilder.createMessage(cursor, originHeaders(origin)));
-		}, of("cursor/*"));
+		}), "cursor");
 		return container;
 	}
 
@@ -190,8 +274,8 @@ public class RedisConfig {
 				@Override
 				protected byte[] getMessage(Message<RefDto> message) {
 					try {
-						return objectMapper.writeValueAsBytes(message.getPayload());
-					} catch (JsonProcessingException e) {
+						return redisCodec().encode(message.getPayload());
+					} catch (IOException e) {
 						logger.error("Cannot serialize RefDto.");
 						throw new RuntimeException(e);
 					}
@@ -212,16 +296,16 @@ public class RedisConfig {
 	public RedisMessageListenerContainer redisRefRxAdapter(RedisConnectionFactory redisConnectionFactory) {
 		var container = new RedisMessageListenerContainer();
 		container.setConnectionFactory(redisConnectionFactory);
-		container.addMessageListener((message, pattern) -> {
+		subscribe(container, counted((message, pattern) -> {
 			try {
-				var ref = objectMapper.readValue(message.getBody(), RefDto.class);
+				var ref = redisCodec().decode(message.getBody(), RefDto.class);
 				var parts = new String(message.getChannel(), StandardCharsets.UTF_8).split("/");
 				var origin = parts[1];
 				refRedisChannel().send(MessageBuilder.createMessage(ref, refHeaders(origin, ref)));
 			} catch (IOException e) {
 				logger.error("Error parsing RefDto from redis.");
 			}
-		}, of("ref/*"));
+		}), "ref");
 		return container;
 	}
 
@@ -255,13 +339,13 @@ public class RedisConfig {
 	public RedisMessageListenerContainer redisTagRxAdapter(RedisConnectionFactory redisConnectionFactory) {
 		var container = new RedisMessageListenerContainer();
 		container.setConnectionFactory(redisConnectionFactory);
-		container.addMessageListener((message, pattern) -> {
+		subscribe(container, counted((message, pattern) -> {
 			var fullTag = new String(message.getBody(), StandardCharsets.UTF_8);
 			var parts = new String(message.getChannel(), StandardCharsets.UTF_8).split("/");
 			var origin = parts[1];
 			var tag = String.join("/", copyOfRange(parts, 2, parts.length));
 			tagRedisChannel().send(MessageBuilder.createMessage(fullTag, tagHeaders(origin, tag)));
-		}, of("tag/*"));
+		}), "tag");
 		return container;
 	}
 
@@ -295,13 +379,13 @@ public class RedisConfig {
 	public RedisMessageListenerContainer redisResponseRxAdapter(RedisConnectionFactory redisConnectionFactory) {
 		var container = new RedisMessageListenerContainer();
 		container.setConnectionFactory(redisConnectionFactory);
-		container.addMessageListener((message, pattern) -> {
+		subscribe(container, counted((message, pattern) -> {
 			var response = new String(message.getBody(), StandardCharsets.UTF_8);
 			var parts = new String(message.getChannel(), StandardCharsets.UTF_8).split("/");
 			var origin = parts[1];
 			var source = String.join("/", copyOfRange(parts, 2, parts.length));
 			responseRedisChannel().send(MessageBuilder.createMessage(response, responseHeaders(origin, source)));
-		}, of("response/*"));
+		}), "response");
 		return container;
 	}
 
@@ -318,8 +402,8 @@ public class RedisConfig {
 				@Override
 				protected byte[] getMessage(Message<UserDto> message) {
 					try {
-						return objectMapper.writeValueAsBytes(message.getPayload());
-					} catch (JsonProcessingException e) {
+						return redisCodec().encode(message.getPayload());
+					} catch (IOException e) {
 						logger.error("Cannot serialize UserDto.");
 						throw new RuntimeException(e);
 					}
@@ -340,9 +424,9 @@ public class RedisConfig {
 	public RedisMessageListenerContainer redisUserRxAdapter(RedisConnectionFactory redisConnectionFactory) {
 		var container = new RedisMessageListenerContainer();
 		container.setConnectionFactory(redisConnectionFactory);
-		container.addMessageListener((message, pattern) -> {
+		subscribe(container, counted((message, pattern) -> {
 			try {
-				var user = objectMapper.readValue(message.getBody(), UserDto.class);
+				var user = redisCodec().decode(message.getBody(), UserDto.class);
 				var parts = new String(message.getChannel(), StandardCharsets.UTF_8).split("/");
 				var origin = parts[1];
 				var tag = String.join("/", copyOfRange(parts, 2, parts.length));
@@ -350,7 +434,7 @@ public class RedisConfig {
 			} catch (IOException e) {
 				logger.error("Error parsing UserDto from redis.");
 			}
-		}, of("user/*"));
+		}), "user");
 		return container;
 	}
 
@@ -367,8 +451,8 @@ public class RedisConfig {
 				@Override
 				protected byte[] getMessage(Message<ExtDto> message) {
 					try {
-						return objectMapper.writeValueAsBytes(message.getPayload());
-					} catch (JsonProcessingException e) {
+						return redisCodec().encode(message.getPayload());
+					} catch (IOException e) {
 						logger.error("Cannot serialize ExtDto.");
 						throw new RuntimeException(e);
 					}
@@ -389,9 +473,9 @@ public class RedisConfig {
 	public RedisMessageListenerContainer redisExtRxAdapter(RedisConnectionFactory redisConnectionFactory) {
 		var container = new RedisMessageListenerContainer();
 		container.setConnectionFactory(redisConnectionFactory);
-		container.addMessageListener((message, pattern) -> {
+		subscribe(container, counted((message, pattern) -> {
 			try {
-				var ext = objectMapper.readValue(message.getBody(), ExtDto.class);
+				var ext = redisCodec().decode(message.getBody(), ExtDto.class);
 				var parts = new String(message.getChannel(), StandardCharsets.UTF_8).split("/");
 				var origin = parts[1];
 				var tag = String.join("/", copyOfRange(parts, 2, parts.length));
@@ -399,7 +483,7 @@ public class RedisConfig {
 			} catch (IOException e) {
 				logger.error("Error parsing ExtDto from redis.");
 			}
-		}, of("ext/*"));
+		}), "ext");
 		return container;
 	}
 
@@ -416,8 +500,8 @@ public class RedisConfig {
 				@Override
 				protected byte[] getMessage(Message<PluginDto> message) {
 					try {
-						return objectMapper.writeValueAsBytes(message.getPayload());
-					} catch (JsonProcessingException e) {
+						return redisCodec().encode(message.getPayload());
+					} catch (IOException e) {
 						logger.error("Cannot serialize PluginDto.");
 						throw new RuntimeException(e);
 					}
@@ -438,9 +522,9 @@ public class RedisConfig {
 	public RedisMessageListenerContainer redisPluginRxAdapter(RedisConnectionFactory redisConnectionFactory) {
 		var container = new RedisMessageListenerContainer();
 		container.setConnectionFactory(redisConnectionFactory);
-		container.addMessageListener((message, pattern) -> {
+		subscribe(container, counted((message, pattern) -> {
 			try {
-				var plugin = objectMapper.readValue(message.getBody(), PluginDto.class);
+				var plugin = redisCodec().decode(message.getBody(), PluginDto.class);
 				var parts = new String(message.getChannel(), StandardCharsets.UTF_8).split("/");
 				var origin = parts[1];
 				var tag = String.join("/", copyOfRange(parts, 2, parts.length));
@@ -448,7 +532,7 @@ public class RedisConfig {
 			} catch (IOException e) {
 				logger.error("Error parsing PluginDto from redis.");
 			}
-		}, of("plugin/*"));
+		}), "plugin");
 		return container;
 	}
 
@@ -465,8 +549,8 @@ public class RedisConfig {
 				@Override
 				protected byte[] getMessage(Message<TemplateDto> message) {
 					try {
-						return objectMapper.writeValueAsBytes(message.getPayload());
-					} catch (JsonProcessingException e) {
+						return redisCodec().encode(message.getPayload());
+					} catch (IOException e) {
 						logger.error("Cannot serialize TemplateDto.");
 						throw new RuntimeException(e);
 					}
@@ -487,9 +571,9 @@ public class RedisConfig {
 	public RedisMessageListenerContainer redisTemplateRxAdapter(RedisConnectionFactory redisConnectionFactory) {
 		var container = new RedisMessageListenerContainer();
 		container.setConnectionFactory(redisConnectionFactory);
-		container.addMessageListener((message, pattern) -> {
+		subscribe(container, counted((message, pattern) -> {
 			try {
-				var template = objectMapper.readValue(message.getBody(), TemplateDto.class);
+				var template = redisCodec().decode(message.getBody(), TemplateDto.class);
 				var parts = new String(message.getChannel(), StandardCharsets.UTF_8).split("/");
 				var origin = parts[1];
 				var tag = String.join("/", copyOfRange(parts, 2, parts.length));
@@ -497,20 +581,58 @@ public class RedisConfig {
 			} catch (IOException e) {
 				logger.error("Error parsing TemplateDto from redis.");
 			}
-		}, of("template/*"));
+		}), "template");
 		return container;
 	}
 
-	private abstract class CustomPublishingMessageHandler<T> extends AbstractMessageHandler {
+	/**
+	 * Subscribe to a topic type. When the change log is enabled messages are
+	 * read from the redis stream instead.
+	 */
+	private void subscribe(RedisMessageListenerContainer container, MessageListener listener, String type) {
+		listeners.put(type, listener);
+		if (!props.isRedisStreams()) container.addMessageListener(listener, of(type + "/*"));
+	}
 
-		private final RedisTemplate<?, ?> template;
+	private MessageListener counted(MessageListener listener) {
+		return (message, pattern) -> {
+			count("rx", new String(message.getChannel(), StandardCharsets.UTF_8), message.getBody().length);
+			listener.onMessage(message, pattern);
+		};
+	}
 
-		public CustomPublishingMessageHandler() {
-			template = new RedisTemplate<>();
-			template.setConnectionFactory(redisConnectionFactory);
-			template.setEnableDefaultSerializer(false);
-			template.afterPropertiesSet();
-		}
+	/**
+	 * Count messages and bytes by topic type, since full topics include URLs and tags.
+	 */
+	private void count(String direction, String topic, int bytes) {
+		var type = topicType(topic);
+		var m = meters.computeIfAbsent(direction + "/" + type, k -> new Meters(
+			Counter.builder("jasper.redis.messages")
+				.tag("type", type)
+				.tag("direction", direction)
+				.register(meterRegistry),
+			Counter.builder("jasper.redis.bytes")
+				.baseUnit("bytes")
+				.tag("type", type)
+				.tag("direction", direction)
+				.register(meterRegistry)));
+		m.messages().increment();
+		m.bytes().increment(bytes);
+	}
+
+	private static String topicType(String topic) {
+		var slash = topic.indexOf('/');
+		return slash == -1 ? topic : topic.substring(0, slash);
+	}
+
+	/**
+	 * Stream key for the change log of an origin.
+	 */
+	private static String changeLog(String origin) {
+		return "changes/" + origin;
+	}
+
+	private abstract class CustomPublishingMessageHandler<T> extends AbstractMessageHandler {
 
 		@Override
 		public String getComponentType() {
@@ -520,10 +642,324 @@ public class RedisConfig {
 		@Override
 		@SuppressWarnings("unchecked")
 		protected void handleMessageInternal(Message<?> message) {
-			template.convertAndSend(getTopic((Message<T>) message), getMessage((Message<T>) message));
+			var topic = getTopic((Message<T>) message);
+			var body = getMessage((Message<T>) message);
+			count("tx", topic, body.length);
+			redisPublisher().publish(topic, body);
 		}
 
 		protected abstract String getTopic(Message<T> message);
 		protected abstract byte[] getMessage(Message<T> message);
 	}
+
+	/**
+	 * Publishes messages from a single thread, so they stay in order. Messages
+	 * queued while a batch is being sent go out together in one pipeline.
+	 * When the change log is enabled messages are appended to a stream per
+	 * origin instead of published.
+	 */
+	static class RedisPublisher implements AutoCloseable {
+		private static final int QUEUE_SIZE = 10_000;
+		private static final int MAX_ATTEMPTS = 6;
+		private static final Duration RETRY_DELAY = Duration.ofMillis(100);
+		private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(5);
+
+		private final RedisTemplate<?, ?> template;
+		private final int batchSize;
+		private final long streamMaxLen;
+		private final Counter dropped;
+		private final Set<String> origins = ConcurrentHashMap.newKeySet();
+		private final BlockingQueue<Publish> queue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+		private final Thread thread;
+
+		private record Publish(byte[] topic, byte[] body) {}
+
+		/**
+		 * @param streamMaxLen approximate length to trim each change log to, or negative to publish
+		 */
+		RedisPublisher(RedisConnectionFactory redisConnectionFactory, int batchSize, long streamMaxLen, Counter dropped) {
+			template = new RedisTemplate<>();
+			template.setConnectionFactory(redisConnectionFactory);
+			template.setEnableDefaultSerializer(false);
+			template.afterPropertiesSet();
+			this.batchSize = Math.max(1, batchSize);
+			this.streamMaxLen = streamMaxLen;
+			this.dropped = dropped;
+			thread = Thread.ofVirtual().name("redis-publisher").start(this::run);
+		}
+
+		void publish(String topic, byte[] body) {
+			try {
+				// Blocks when redis cannot keep up
+				queue.put(new Publish(topic.getBytes(StandardCharsets.UTF_8), body));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void run() {
+			var batch = new ArrayList<Publish>(batchSize);
+			while (!Thread.currentThread().isInterrupted()) {
+				try {
+					batch.add(queue.take());
+					queue.drainTo(batch, batchSize - 1);
+					retry(batch);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					// Interrupted while backing off, make a last attempt on shutdown
+					if (!batch.isEmpty()) sendOrDrop(batch);
+				} finally {
+					batch.clear();
+				}
+			}
+		}
+
+		/**
+		 * Send a batch, retrying with exponential backoff. Senders block on the
+		 * full queue meanwhile. A retried pipeline may deliver some messages twice,
+		 * which subscribers already tolerate since they receive full entities.
+		 */
+		private void retry(List<Publish> batch) throws InterruptedException {
+			var delay = RETRY_DELAY;
+			for (var attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+				try {
+					send(batch);
+					return;
+				} catch (Exception e) {
+					logger.warn("Error publishing {} messages to redis, retrying in {}ms: {}", batch.size(), delay.toMillis(), getMessage(e));
+				}
+				Thread.sleep(delay);
+				delay = delay.multipliedBy(2);
+				if (delay.compareTo(MAX_RETRY_DELAY) > 0) delay = MAX_RETRY_DELAY;
+			}
+			sendOrDrop(batch);
+		}
+
+		private void sendOrDrop(List<Publish> batch) {
+			try {
+				send(batch);
+			} catch (Exception e) {
+				logger.error("Dropping {} messages after failing to publish to redis: {}", batch.size(), getMessage(e));
+				dropped.increment(batch.size());
+			}
+		}
+
+		private void send(List<Publish> batch) {
+			if (streamMaxLen < 0) {
+				template.executePipelined((RedisCallback<Object>) connection -> {
+					for (var p : batch) connection.publish(p.topic(), p.body());
+					return null;
+				});
+				return;
+			}
+			var options = XAddOptions.maxlen(streamMaxLen).approximateTrimming(true);
+			var added = new HashSet<String>();
+			template.executePipelined((RedisCallback<Object>) connection -> {
+				for (var p : batch) {
+					var topic = new String(p.topic(), StandardCharsets.UTF_8);
+					var origin = topic.split("/")[1];
+					if (!origins.contains(origin) && added.add(origin)) connection.setCommands().sAdd(CHANGES, origin.getBytes(StandardCharsets.UTF_8));
+					connection.streamCommands().xAdd(StreamRecords.rawBytes(Map.of(
+						"topic".getBytes(StandardCharsets.UTF_8), p.topic(),
+						"body".getBytes(StandardCharsets.UTF_8), p.body()
+					)).withStreamKey(changeLog(origin).getBytes(StandardCharsets.UTF_8)), options);
+				}
+				return null;
+			});
+			// Only remember origins once they are known to be registered
+			origins.addAll(added);
+		}
+
+		@Override
+		public void close() {
+			thread.interrupt();
+			var rest = new ArrayList<Publish>();
+			queue.drainTo(rest);
+			if (!rest.isEmpty()) sendOrDrop(rest);
+		}
+	}
+
+	/**
+	 * Reads the change log for every origin with a consumer group per node.
+	 * Entries are acknowledged once handled, so a node that restarts picks
+	 * up from its last acknowledged entry instead of missing changes.
+	 * Groups and consumers that have been idle longer than the expiry are
+	 * removed, so nodes that are gone do not pin pending entries forever.
+	 */
+	static class RedisStreamConsumer implements AutoCloseable {
+		private static final Duration BLOCK = Duration.ofSeconds(1);
+		private static final Duration CLEANUP_INTERVAL = Duration.ofMinutes(10);
+
+		private final RedisTemplate<?, ?> template;
+		private final String group;
+		private final int batchSize;
+		private final Duration expiry;
+		private final Map<String, MessageListener> listeners;
+		private final Set<String> streams = new LinkedHashSet<>();
+		private final Thread thread;
+		/**
+		 * Redis time when this node started reading. New groups start here, so
+		 * entries added to a stream before this node discovered it are not lost,
+		 * but history from before this node started is not replayed.
+		 */
+		private ReadOffset start;
+		private Instant nextCleanup = Instant.now();
+
+		RedisStreamConsumer(RedisConnectionFactory redisConnectionFactory, String group, int batchSize, Duration expiry, Map<String, MessageListener> listeners) {
+			template = new RedisTemplate<>();
+			template.setConnectionFactory(redisConnectionFactory);
+			template.setEnableDefaultSerializer(false);
+			template.afterPropertiesSet();
+			this.group = group;
+			this.batchSize = Math.max(1, batchSize);
+			this.expiry = expiry;
+			this.listeners = listeners;
+			thread = Thread.ofVirtual().name("redis-stream-consumer").start(this::run);
+		}
+
+		private void run() {
+			while (!Thread.currentThread().isInterrupted()) {
+				try {
+					if (start == null) {
+						var time = template.execute((RedisCallback<Long>) connection -> connection.serverCommands().time());
+						start = ReadOffset.from(time + "-0");
+					}
+					join();
+					cleanup();
+					if (streams.isEmpty()) {
+						Thread.sleep(BLOCK);
+						continue;
+					}
+					var offsets = streams.stream()
+						.map(key -> StreamOffset.create(key.getBytes(StandardCharsets.UTF_8), ReadOffset.lastConsumed()))
+						.toArray(StreamOffset[]::new);
+					handle(read(StreamReadOptions.empty().count(batchSize).block(BLOCK), offsets));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (Exception e) {
+					if (Thread.currentThread().isInterrupted()) return;
+					logger.error("Error reading change log from redis: {}", getMessage(e));
+					try {
+						Thread.sleep(BLOCK);
+					} catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Create the consumer group for any new origins, then replay entries
+		 * delivered to this node before a restart but never acknowledged.
+		 */
+		private void join() {
+			var members = template.execute((RedisCallback<Set<byte[]>>) connection -> connection.setCommands().sMembers(CHANGES));
+			if (members == null) return;
+			for (var member : members) {
+				var key = changeLog(new String(member, StandardCharsets.UTF_8));
+				if (streams.contains(key)) continue;
+				var bytes = key.getBytes(StandardCharsets.UTF_8);
+				try {
+					template.execute((RedisCallback<String>) connection -> connection.streamCommands().xGroupCreate(bytes, group, start, true));
+				} catch (Exception e) {
+					if (!getMessage(e).contains("BUSYGROUP")) throw e;
+				}
+				List<ByteRecord> pending;
+				do {
+					pending = read(StreamReadOptions.empty().count(batchSize), StreamOffset.create(bytes, ReadOffset.from("0")));
+					handle(pending);
+				} while (!pending.isEmpty() && pending.size() == batchSize);
+				streams.add(key);
+			}
+		}
+
+		/**
+		 * Destroy other groups whose consumers have all been idle longer than the
+		 * expiry, and remove idle consumers from groups that are still in use.
+		 * A group has no consumers until its node first reads, so a group without
+		 * consumers is only destroyed once nothing has been delivered to it for the expiry.
+		 */
+		private void cleanup() {
+			if (Instant.now().isBefore(nextCleanup)) return;
+			nextCleanup = Instant.now().plus(CLEANUP_INTERVAL);
+			var now = template.execute((RedisCallback<Long>) connection -> connection.serverCommands().time());
+			if (now == null) return;
+			for (var key : streams) {
+				var bytes = key.getBytes(StandardCharsets.UTF_8);
+				var groups = template.execute((RedisCallback<StreamInfo.XInfoGroups>) connection -> connection.streamCommands().xInfoGroups(bytes));
+				if (groups == null) continue;
+				groups.forEach(g -> {
+					if (g.groupName().equals(group)) return;
+					var consumers = template.execute((RedisCallback<StreamInfo.XInfoConsumers>) connection -> connection.streamCommands().xInfoConsumers(bytes, g.groupName()));
+					if (consumers == null) return;
+					if (consumers.isEmpty()) {
+						if (now - idTime(g.lastDeliveredId()) <= expiry.toMillis()) return;
+						logger.info("Removing consumer group {} from {} with no consumers after {}", g.groupName(), key, expiry);
+						template.execute((RedisCallback<Boolean>) connection -> connection.streamCommands().xGroupDestroy(bytes, g.groupName()));
+						return;
+					}
+					var idle = consumers.stream()
+						.filter(c -> c.idleTimeMs() > expiry.toMillis())
+						.toList();
+					if (idle.size() == consumers.size()) {
+						logger.info("Removing consumer group {} from {} after {} idle", g.groupName(), key, expiry);
+						template.execute((RedisCallback<Boolean>) connection -> connection.streamCommands().xGroupDestroy(bytes, g.groupName()));
+						return;
+					}
+					for (var c : idle) {
+						logger.info("Removing consumer {} from group {} on {} after {} idle", c.consumerName(), g.groupName(), key, expiry);
+						template.execute((RedisCallback<Boolean>) connection -> connection.streamCommands().xGroupDelConsumer(bytes, Consumer.from(g.groupName(), c.consumerName())));
+					}
+				});
+			}
+		}
+
+		/**
+		 * Milliseconds part of a stream ID.
+		 */
+		private static long idTime(String id) {
+			var dash = id.indexOf('-');
+			return Long.parseLong(dash < 0 ? id : id.substring(0, dash));
+		}
+
+		@SafeVarargs
+		private List<ByteRecord> read(StreamReadOptions options, StreamOffset<byte[]>... offsets) {
+			var records = template.execute((RedisCallback<List<ByteRecord>>) connection ->
+				connection.streamCommands().xReadGroup(Consumer.from(group, group), options, offsets));
+			return records == null ? List.of() : records;
+		}
+
+		private void handle(List<ByteRecord> records) {
+			if (records.isEmpty()) return;
+			var acks = new LinkedHashMap<String, List<RecordId>>();
+			for (var record : records) {
+				byte[] topic = null;
+				byte[] body = null;
+				for (var e : record.getValue().entrySet()) {
+					var field = new String(e.getKey(), StandardCharsets.UTF_8);
+					if (field.equals("topic")) topic = e.getValue();
+					if (field.equals("body")) body = e.getValue();
+				}
+				try {
+					if (topic != null && body != null) {
+						var listener = listeners.get(topicType(new String(topic, StandardCharsets.UTF_8)));
+						if (listener != null) listener.onMessage(new DefaultMessage(topic, body), null);
+					}
+				} catch (Exception e) {
+					logger.error("Error handling change log entry {}: {}", record.getId(), getMessage(e));
+				}
+				// Failed entries are acknowledged too, so they are not replayed forever
+				acks.computeIfAbsent(new String(record.getStream(), StandardCharsets.UTF_8), k -> new ArrayList<>()).add(record.getId());
+			}
+			template.executePipelined((RedisCallback<Object>) connection -> {
+				acks.forEach((key, ids) -> connection.streamCommands().xAck(key.getBytes(StandardCharsets.UTF_8), group, ids.toArray(RecordId[]::new)));
+				return null;
+			});
+		}
+
+		@Override
+		public void close() {
+			thread.interrupt();
+		}
+	}
 }
@@ -1,6 +1,9 @@
 package jasper.config;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.BeansException;
@@ -14,6 +17,7 @@ import org.sqlite.SQLiteConnection;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * Registers custom SQLite functions that emulate PostgreSQL JSONB functions
@@ -68,6 +72,7 @@ public class SQLiteConfig implements BeanPostProcessor {
 	static void registerFunctionsOnConnection(Connection conn) throws SQLException {
 		var sqliteConn = conn.unwrap(SQLiteConnection.class);
 		registerJsonbExists(sqliteConn);
+		registerJsonbConcat(sqliteConn);
 	}
 
 	/**
@@ -111,4 +116,46 @@ public class SQLiteConfig implements BeanPostProcessor {
 			}
 		});
 	}
+
+	/**
+	 * Registers jsonb_concat(a, b) function for SQLite, matching the PostgreSQL || operator.
+	 * Objects are merged one level deep and keep null values, unlike json_patch
+	 * which merges recursively and removes null values.
+	 * Anything else is concatenated as arrays.
+	 */
+	private static void registerJsonbConcat(SQLiteConnection conn) throws SQLException {
+		Function.create(conn, "jsonb_concat", new Function() {
+			@Override
+			protected void xFunc() throws SQLException {
+				var a = value_text(0);
+				var b = value_text(1);
+				if (a == null || b == null) {
+					result();
+					return;
+				}
+				try {
+					result(om.writeValueAsString(concat(om.readTree(a), om.readTree(b))));
+				} catch (Exception e) {
+					throw new SQLException("Invalid JSON in jsonb_concat", e);
+				}
+			}
+		});
+	}
+
+	static JsonNode concat(JsonNode a, JsonNode b) {
+		if (a.isObject() && b.isObject()) {
+			var result = ((ObjectNode) a).deepCopy();
+			result.setAll((ObjectNode) b);
+			return result;
+		}
+		var result = om.createArrayNode();
+		for (var node : List.of(a, b)) {
+			if (node.isArray()) {
+				result.addAll((ArrayNode) node);
+			} else {
+				result.add(node);
+			}
+		}
+		return result;
+	}
 }
@@ -94,8 +94,8 @@ public class SQLiteDialect extends org.hibernate.community.dialect.SQLiteDialect
 		functionRegistry.registerPattern("jsonb_set", "json_set(?1, '$.' || REPLACE(REPLACE(?2, '{', ''), '}', ''), CASE WHEN ?4 IS NOT NULL THEN ?3 ELSE ?3 END)", jsonb);
 		// cast_to_jsonb: cast text to JSON
 		functionRegistry.registerPattern("cast_to_jsonb", "json(?1)", jsonb);
-		// jsonb_concat: merge two JSON objects (like PostgreSQL's || operator for objects)
-		functionRegistry.registerPattern("jsonb_concat", "json_patch(?1, ?2)", jsonb);
+		// jsonb_concat: PostgreSQL's || operator, registered as a function in SQLiteConfig
+		functionRegistry.registerPattern("jsonb_concat", "jsonb_concat(?1, ?2)", jsonb);
 		// cast_to_int / cast_to_numeric
 		functionRegistry.registerPattern("cast_to_int", "CAST((?1) AS INTEGER)", integer);
 		functionRegistry.registerPattern("cast_to_numeric", "CAST((?1) AS REAL)", doubleType);
@@ -136,14 +136,14 @@ public class SQLiteDialect extends org.hibernate.community.dialect.SQLiteDialect
 	 * The fixed-width format ensures correct lexicographic ordering in SQLite
 	 * TEXT columns and correct UNIQUE constraint behavior at nanosecond granularity.
 	 */
-	static class NanoTimestampJdbcType implements JdbcType {
+	public static class NanoTimestampJdbcType implements JdbcType {
 		private final int jdbcTypeCode;
 
 		NanoTimestampJdbcType(int jdbcTypeCode) {
 			this.jdbcTypeCode = jdbcTypeCode;
 		}
 
-		static final DateTimeFormatter NANO_TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder()
+		public static final DateTimeFormatter NANO_TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder()
 			.appendPattern("yyyy-MM-dd'T'HH:mm:ss")
 			.appendFraction(ChronoField.NANO_OF_SECOND, 9, 9, true)
 			.appendLiteral('Z')
@@ -0,0 +1,30 @@
+package jasper.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Progress of the metadata backfill for an origin, so it resumes where it
+ * left off after a restart or on another node.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillCursor {
+
+	@Id
+	private String origin;
+
+	/**
+	 * Modified date of the oldest ref backfilled so far.
+	 */
+	private Instant modified;
+}
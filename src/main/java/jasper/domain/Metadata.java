@@ -1,132 +1,91 @@
 package jasper.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_DEFAULT;
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_EMPTY;
-import static jasper.domain.proj.Tag.matchesTemplate;
 
+/**
+ * Response counts are kept here, the responses themselves are
+ * edges in {@link RefResponse}.
+ */
 @Getter
 @Setter
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 @JsonInclude(NON_EMPTY)
+@JsonIgnoreProperties("userUrls")
 public class Metadata implements Serializable {
 
 	@Builder.Default
 	private String modified = Instant.now().toString();
 	private List<String> expandedTags;
-	private List<String> responses;
-	private List<String> internalResponses;
+	@JsonInclude(NON_DEFAULT)
+	@JsonDeserialize(using = CountDeserializer.class)
+	private int responses;
+	@JsonInclude(NON_DEFAULT)
+	@JsonDeserialize(using = CountDeserializer.class)
+	private int internalResponses;
 	private Map<String, Long> plugins;
-	private Map<String, List<String>> userUrls;
 	@JsonInclude(NON_DEFAULT)
 	private boolean obsolete = false;
 	@JsonInclude(NON_DEFAULT)
 	private boolean regen = false;
 
-	public void addResponse(String url) {
-		if (responses == null) {
-			responses = new ArrayList<>();
-		}
-		if (!responses.contains(url)) {
-			modified = Instant.now().toString();
-			responses.add(url);
-		}
-		if (internalResponses != null && responses.contains(url)) {
-			modified = Instant.now().toString();
-			internalResponses.remove(url);
-		}
-	}
-
-	public void addInternalResponse(String url) {
-		if (internalResponses == null) {
-			internalResponses = new ArrayList<>();
-		}
-		if (!internalResponses.contains(url)) {
-			modified = Instant.now().toString();
-			internalResponses.add(url);
-		}
-		if (responses != null && responses.contains(url)) {
-			modified = Instant.now().toString();
-			responses.remove(url);
+	public void addResponse(RefResponse edge) {
+		if (edge.isInternal()) {
+			internalResponses++;
+		} else {
+			responses++;
 		}
-	}
-
-	public void addPlugins(List<String> add, String url) {
 		if (plugins == null) plugins = new HashMap<>();
-		if (userUrls == null) userUrls = new HashMap<>();
-		for (var plugin : add) {
-			if (plugins.containsKey(plugin)) {
-				plugins.put(plugin, plugins.get(plugin) + 1);
-			} else {
-				plugins.put(plugin, 1L);
-			}
-			if (matchesTemplate("plugin/user", plugin)) {
-				if (userUrls.containsKey(plugin)) {
-					var list = userUrls.get(plugin);
-					if (!list.contains(url)) list.add(url);
-				} else {
-					userUrls.put(plugin, new ArrayList<>(List.of(url)));
-				}
-			}
+		if (edge.getTags() != null) {
+			for (var plugin : edge.getTags()) plugins.merge(plugin, 1L, Long::sum);
 		}
 		modified = Instant.now().toString();
 	}
 
-	public void removePlugins(List<String> remove, String url) {
-		if (plugins == null) plugins = new HashMap<>();
-		if (userUrls == null) userUrls = new HashMap<>();
-		var changed = false;
-		for (var plugin : remove) {
-			if (plugins.containsKey(plugin)) {
-				changed = true;
-				var count = plugins.get(plugin) - 1;
-				if (count > 0) {
-					plugins.put(plugin, plugins.get(plugin) - 1);
-				} else {
-					plugins.remove(plugin);
-				}
-			}
-			if (matchesTemplate("plugin/user", plugin)) {
-				for (var entry : userUrls.entrySet()) {
-					var list = entry.getValue();
-					if (list.contains(url)) {
-						changed = true;
-						try {
-							list.remove(url);
-						} catch (UnsupportedOperationException e) {
-							userUrls.put(entry.getKey(), list = new ArrayList<>(list));
-							list.remove(url);
-						}
-					}
-				}
+	public void removeResponse(RefResponse edge) {
+		if (edge.isInternal()) {
+			internalResponses = Math.max(0, internalResponses - 1);
+		} else {
+			responses = Math.max(0, responses - 1);
+		}
+		if (plugins != null && edge.getTags() != null) {
+			for (var plugin : edge.getTags()) {
+				plugins.computeIfPresent(plugin, (k, count) -> count > 1 ? count - 1 : null);
 			}
 		}
-		if (changed) modified = Instant.now().toString();
+		modified = Instant.now().toString();
 	}
 
-	public void remove(String url) {
-		if (responses != null && responses.contains(url)) {
-			modified = Instant.now().toString();
-			responses.remove(url);
-		}
-		if (internalResponses != null && internalResponses.contains(url)) {
-			modified = Instant.now().toString();
-			internalResponses.remove(url);
+	/**
+	 * Reads response lists written before responses were moved to
+	 * {@link RefResponse} as their count.
+	 */
+	public static class CountDeserializer extends JsonDeserializer<Integer> {
+		@Override
+		public Integer deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+			if (p.isExpectedStartArrayToken()) return ctxt.readTree(p).size();
+			return p.getValueAsInt();
 		}
 	}
 }
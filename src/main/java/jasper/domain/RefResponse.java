@@ -0,0 +1,69 @@
+package jasper.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jasper.domain.proj.RefTags;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.List;
+
+import static jasper.component.Meta.expandTags;
+import static jasper.domain.proj.Tag.matchesTag;
+import static jasper.domain.proj.Tag.matchesTemplate;
+
+/**
+ * Edge from a source Ref (url, origin) to a Ref that lists it in its sources.
+ */
+@Entity
+@Getter
+@Setter
+@IdClass(RefResponseId.class)
+public class RefResponse {
+
+	@Id
+	@Column(updatable = false)
+	private String url;
+
+	@Id
+	@Column(updatable = false)
+	private String origin = "";
+
+	@Id
+	@Column(updatable = false)
+	private String response;
+
+	private boolean internal;
+
+	/**
+	 * Expanded plugin tags of the response.
+	 */
+	@JdbcTypeCode(SqlTypes.JSON)
+	private List<String> tags;
+
+	public static RefResponse from(Ref source, Ref response) {
+		return from(source, response.getUrl(), response.hasTag("internal"), response.getExpandedTags());
+	}
+
+	public static RefResponse from(Ref source, RefTags response) {
+		var tags = response.getTags() == null ? List.<String>of() : response.getTags();
+		return from(source, response.getUrl(), tags.stream().anyMatch(t -> matchesTag("internal", t)), expandTags(tags));
+	}
+
+	private static RefResponse from(Ref source, String response, boolean internal, List<String> expandedTags) {
+		var result = new RefResponse();
+		result.setUrl(source.getUrl());
+		result.setOrigin(source.getOrigin());
+		result.setResponse(response);
+		result.setInternal(internal);
+		result.setTags(expandedTags.stream()
+			.filter(tag -> matchesTemplate("plugin", tag))
+			.distinct()
+			.toList());
+		return result;
+	}
+}
@@ -0,0 +1,32 @@
+package jasper.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefResponseId implements Serializable {
+	private String url;
+	private String origin;
+	private String response;
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		RefResponseId that = (RefResponseId) o;
+		return url.equals(that.url) && origin.equals(that.origin) && response.equals(that.response);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(url, origin, response);
+	}
+}
@@ -0,0 +1,8 @@
+package jasper.domain.proj;
+
+import java.time.Instant;
+
+public interface RefPublished {
+	String getUrl();
+	Instant getPublished();
+}
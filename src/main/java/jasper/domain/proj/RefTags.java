@@ -0,0 +1,8 @@
+package jasper.domain.proj;
+
+import java.util.List;
+
+public interface RefTags {
+	String getUrl();
+	List<String> getTags();
+}
@@ -0,0 +1,12 @@
+package jasper.errors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidKeysetException extends RuntimeException {
+
+	public InvalidKeysetException(String message) {
+		super(message);
+	}
+}
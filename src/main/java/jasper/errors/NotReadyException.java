@@ -0,0 +1,8 @@
+package jasper.errors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.ACCEPTED)
+public class NotReadyException extends RuntimeException {
+}
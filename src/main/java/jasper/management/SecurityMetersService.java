@@ -1,9 +1,14 @@
 package jasper.management;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.TimeUnit;
+
 @Service
 public class SecurityMetersService {
 
@@ -12,6 +17,10 @@ public class SecurityMetersService {
         "Indicates validation error count of the tokens presented by the clients.";
     public static final String INVALID_TOKENS_METER_BASE_UNIT = "errors";
     public static final String INVALID_TOKENS_METER_CAUSE_DIMENSION = "cause";
+    public static final String TOKEN_CACHE_NAME = "token-cache";
+    public static final String JWKS_REFRESH_METER_NAME = "security.jwks.refresh";
+
+    private final MeterRegistry registry;
 
     private final Counter tokenInvalidAudienceCounter;
     private final Counter tokenInvalidSignatureCounter;
@@ -19,14 +28,19 @@ public class SecurityMetersService {
     private final Counter tokenUnsupportedCounter;
     private final Counter tokenMalformedCounter;
     private final Counter unverifiedEmailCounter;
+    private final Timer jwksRefreshTimer;
+    private final Timer jwksRefreshFailureTimer;
 
     public SecurityMetersService(MeterRegistry registry) {
+        this.registry = registry;
         tokenInvalidAudienceCounter = invalidTokensCounterForCauseBuilder("invalid-audience").register(registry);
         tokenInvalidSignatureCounter = invalidTokensCounterForCauseBuilder("invalid-signature").register(registry);
         tokenExpiredCounter = invalidTokensCounterForCauseBuilder("expired").register(registry);
         tokenUnsupportedCounter = invalidTokensCounterForCauseBuilder("unsupported").register(registry);
         tokenMalformedCounter = invalidTokensCounterForCauseBuilder("malformed").register(registry);
         unverifiedEmailCounter = invalidTokensCounterForCauseBuilder("email-not-verified").register(registry);
+        jwksRefreshTimer = jwksRefreshTimerBuilder("success").register(registry);
+        jwksRefreshFailureTimer = jwksRefreshTimerBuilder("failure").register(registry);
     }
 
     private Counter.Builder invalidTokensCounterForCauseBuilder(String cause) {
@@ -37,6 +51,13 @@ public class SecurityMetersService {
             .tag(INVALID_TOKENS_METER_CAUSE_DIMENSION, cause);
     }
 
+    private Timer.Builder jwksRefreshTimerBuilder(String result) {
+        return Timer
+            .builder(JWKS_REFRESH_METER_NAME)
+            .description("Time to fetch the JWKS key set.")
+            .tag("result", result);
+    }
+
     public void trackTokenInvalidAudience() {
         tokenInvalidAudienceCounter.increment();
     }
@@ -60,4 +81,16 @@ public class SecurityMetersService {
     public void trackUnverifiedEmail() {
         unverifiedEmailCounter.increment();
     }
+
+    public void trackJwksRefresh(long nanos) {
+        jwksRefreshTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void trackJwksRefreshFailure(long nanos) {
+        jwksRefreshFailureTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void monitorTokenCache(Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, TOKEN_CACHE_NAME);
+    }
 }
@@ -27,6 +27,11 @@ public class Cache implements Serializable {
 	private boolean noStore;
 	private boolean thumbnail;
 	private Long contentLength;
+	/**
+	 * Validators from the origin server for conditional re-fetching.
+	 */
+	private String etag;
+	private String lastModified;
 
 	public static Cache getCache(HasTags ref) {
 		return ref == null ? null : getPlugin(ref, "_plugin/cache", Cache.class);
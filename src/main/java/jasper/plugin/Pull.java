@@ -19,6 +19,7 @@ import static jasper.domain.proj.HasTags.getPlugin;
 @JsonInclude(Include.NON_NULL)
 public class Pull implements Serializable {
 	private boolean websocket = true;
+	private boolean stream;
 	private boolean cachePrefetch = true;
 	private boolean cacheProxy;
 	private boolean cacheProxyPrefetch;
@@ -0,0 +1,83 @@
+package jasper.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jasper.domain.Ref;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+
+import static jasper.config.JacksonConfiguration.om;
+
+/**
+ * JDBC batch shared by the database-specific {@link RefPushRepository} implementations.
+ * Subclasses supply the upsert statement and how timestamps are bound.
+ */
+@Transactional
+public abstract class AbstractRefPushRepository implements RefPushRepository {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	/**
+	 * INSERT ... ON CONFLICT taking url, origin, title, comment, tags, sources,
+	 * alternate_urls, plugins, metadata, published, created and modified in order.
+	 */
+	protected abstract String upsert();
+
+	/**
+	 * INSERT ... ON CONFLICT with the same parameters as {@link #upsert()},
+	 * overwriting every column of an existing row.
+	 */
+	protected abstract String restore();
+
+	protected abstract void setTimestamp(PreparedStatement ps, int index, Instant instant) throws SQLException;
+
+	@Override
+	public void pushAll(List<Ref> refs) {
+		batch(upsert(), refs);
+	}
+
+	@Override
+	public void restoreAll(List<Ref> refs) {
+		batch(restore(), refs);
+	}
+
+	private void batch(String sql, List<Ref> refs) {
+		if (refs.isEmpty()) return;
+		em.unwrap(Session.class).doWork(connection -> {
+			try (var ps = connection.prepareStatement(sql)) {
+				for (var ref : refs) {
+					ps.setString(1, ref.getUrl());
+					ps.setString(2, ref.getOrigin());
+					ps.setString(3, ref.getTitle());
+					ps.setString(4, ref.getComment());
+					ps.setString(5, json(ref.getTags()));
+					ps.setString(6, json(ref.getSources()));
+					ps.setString(7, json(ref.getAlternateUrls()));
+					ps.setString(8, json(ref.getPlugins()));
+					ps.setString(9, json(ref.getMetadata()));
+					setTimestamp(ps, 10, ref.getPublished());
+					setTimestamp(ps, 11, ref.getCreated());
+					setTimestamp(ps, 12, ref.getModified());
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+		});
+	}
+
+	private static String json(Object value) {
+		if (value == null) return null;
+		try {
+			return om().writeValueAsString(value);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
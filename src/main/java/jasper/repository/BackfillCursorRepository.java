@@ -0,0 +1,9 @@
+package jasper.repository;
+
+import jasper.domain.BackfillCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BackfillCursorRepository extends JpaRepository<BackfillCursor, String> {
+}
@@ -1,9 +1,31 @@
 package jasper.repository;
 
+import java.time.Instant;
+
 /**
  * Database-specific metadata backfill (bulk UPDATE with CTEs/JSON aggregation).
  * Implementations are selected via @Profile.
  */
 public interface BackfillRepository {
-	int backfillMetadata(String origin, int batchSize);
+	/**
+	 * Regenerate metadata for the next batch of refs needing it, newest first,
+	 * modified before the cursor. A null cursor starts from the newest ref.
+	 */
+	Batch backfillMetadata(String origin, Instant before, int batchSize);
+
+	default int backfillMetadata(String origin, int batchSize) {
+		return backfillMetadata(origin, null, batchSize).count();
+	}
+
+	/**
+	 * Replace the response edges of every ref in the origin with those found
+	 * from the sources of its responses. Metadata is left as is.
+	 */
+	void rebuildResponses(String origin);
+
+	/**
+	 * @param count number of refs regenerated
+	 * @param cursor modified date of the oldest ref regenerated, or null if none
+	 */
+	record Batch(int count, Instant cursor) {}
 }
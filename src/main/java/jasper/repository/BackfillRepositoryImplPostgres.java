@@ -2,10 +2,14 @@ package jasper.repository;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+
 @Repository
 @Profile("!sqlite")
 @Transactional
@@ -15,33 +19,153 @@ public class BackfillRepositoryImplPostgres implements BackfillRepository {
 	private EntityManager em;
 
 	@Override
-	public int backfillMetadata(String origin, int batchSize) {
+	public Batch backfillMetadata(String origin, Instant before, int batchSize) {
 		String sql = """
-			WITH rows as (
-				SELECT url, origin from ref
-				WHERE (metadata IS NULL OR metadata->>'regen' = 'true')
-				AND (:origin = '' OR origin = :origin OR origin LIKE concat(:origin, '.%'))
+			WITH rows AS (
+				SELECT url, origin FROM ref
+				WHERE (metadata IS NULL OR NOT jsonb_exists(metadata, 'modified') OR metadata->>'regen' = 'true')
+					AND (:origin = '' OR origin = :origin OR origin LIKE concat(:origin, '.%'))
+					/* before */
+				ORDER BY modified DESC
 				LIMIT :batchSize
+				FOR UPDATE SKIP LOCKED
+			),
+			sources AS (
+				SELECT DISTINCT url FROM rows
+			),
+			resp AS (
+				SELECT s.url AS source, re.url, re.origin, COALESCE(re.metadata->'expandedTags', re.tags) AS tags
+				FROM sources s
+					JOIN ref re ON re.sources @> jsonb_build_array(s.url) AND re.url != s.url
+				WHERE (:origin = '' OR re.origin = :origin OR re.origin LIKE concat(:origin, '.%'))
+			),
+			resp_tags AS (
+				SELECT resp.source, resp.url, resp.origin, t.tag
+				FROM resp
+					CROSS JOIN LATERAL jsonb_array_elements_text(resp.tags) AS t(tag)
+			),
+			edge AS (
+				SELECT rows.url, rows.origin, resp.url AS response, bool_and(jsonb_exists(resp.tags, 'internal')) AS internal, COALESCE((
+					SELECT jsonb_agg(DISTINCT rt.tag) FROM resp_tags rt
+					WHERE rt.source = rows.url AND rt.url = resp.url AND rt.tag ~ '^[_+]?plugin(/|$)'), '[]'::jsonb) AS tags
+				FROM rows
+					JOIN resp ON resp.source = rows.url
+				GROUP BY rows.url, rows.origin, resp.url
+			),
+			stale AS (
+				DELETE FROM ref_response e
+				USING rows
+				WHERE e.url = rows.url AND e.origin = rows.origin
+					AND NOT EXISTS (SELECT 1 FROM edge WHERE edge.url = e.url AND edge.origin = e.origin AND edge.response = e.response)
+			),
+			edges AS (
+				INSERT INTO ref_response (url, origin, response, internal, tags)
+				SELECT url, origin, response, internal, tags FROM edge
+				ON CONFLICT (url, origin, response) DO UPDATE SET
+					internal = excluded.internal,
+					tags = excluded.tags
+			),
+			orphans AS (
+				-- Responses in the batch that no longer list this source
+				DELETE FROM ref_response e
+				USING rows
+				WHERE e.response = rows.url
+					AND (:origin = '' OR e.origin = :origin OR e.origin LIKE concat(:origin, '.%'))
+					AND NOT EXISTS (
+						SELECT 1 FROM ref re
+						WHERE re.url = e.response AND re.sources @> jsonb_build_array(e.url)
+							AND (:origin = '' OR re.origin = :origin OR re.origin LIKE concat(:origin, '.%')))
+				RETURNING e.url, e.origin
+			),
+			cleanup AS (
+				-- Flag the sources so their counts are regenerated by a later batch
+				UPDATE ref s
+				SET metadata = jsonb_set(COALESCE(s.metadata, jsonb_build_object()), ARRAY['regen'], 'true'::jsonb, true)
+				FROM (SELECT DISTINCT url, origin FROM orphans) o
+				WHERE s.url = o.url AND s.origin = o.origin
+					AND NOT EXISTS (SELECT 1 FROM sources WHERE sources.url = s.url)
+			),
+			obsolete AS (
+				UPDATE ref o
+				SET metadata = jsonb_set(COALESCE(o.metadata, jsonb_build_object()), ARRAY['obsolete'], to_jsonb(o.modified < latest.modified), true)
+				FROM (
+					SELECT n.url, MAX(n.modified) AS modified
+					FROM sources s
+						JOIN ref n ON n.url = s.url
+					WHERE (:origin = '' OR n.origin = :origin OR n.origin LIKE concat(:origin, '.%'))
+					GROUP BY n.url
+				) latest
+				WHERE o.url = latest.url
+					AND (:origin = '' OR o.origin = :origin OR o.origin LIKE concat(:origin, '.%'))
+					AND NOT EXISTS (SELECT 1 FROM rows WHERE rows.url = o.url AND rows.origin = o.origin)
+			),
+			updated AS (
+				UPDATE ref r
+				SET metadata = jsonb_strip_nulls(jsonb_build_object(
+					'modified', COALESCE(r.metadata->>'modified', to_char(NOW() AT TIME ZONE 'UTC', 'YYYY-MM-DD"T"HH24:MI:SS.MS"Z"')),
+					'expandedTags', (
+						SELECT jsonb_agg(DISTINCT e.tag) FROM (
+							SELECT t.tag FROM jsonb_array_elements_text(r.tags) AS t(tag)
+							UNION
+							SELECT left(t.tag, i - 1) FROM jsonb_array_elements_text(r.tags) AS t(tag), generate_series(1, length(t.tag)) AS i
+							WHERE substr(t.tag, i, 1) = '/'
+						) e),
+					'responses', (
+						SELECT NULLIF(COUNT(*), 0) FROM edge
+						WHERE edge.url = r.url AND edge.origin = r.origin AND NOT edge.internal),
+					'internalResponses', (
+						SELECT NULLIF(COUNT(*), 0) FROM edge
+						WHERE edge.url = r.url AND edge.origin = r.origin AND edge.internal),
+					'plugins', (
+						SELECT jsonb_object_agg(p.tag, p.count) FROM (
+							SELECT rt.tag, COUNT(DISTINCT rt.url) AS count FROM resp_tags rt
+							WHERE rt.source = r.url AND rt.tag ~ '^[_+]?plugin(/|$)'
+							GROUP BY rt.tag) p),
+					'obsolete', EXISTS (
+						SELECT 1 FROM ref n
+						WHERE n.url = r.url AND n.modified > r.modified
+							AND (:origin = '' OR n.origin = :origin OR n.origin LIKE concat(:origin, '.%')))
+				))
+				FROM rows
+				WHERE r.url = rows.url AND r.origin = rows.origin
+				RETURNING r.modified
 			)
-			UPDATE ref r
-			SET metadata = jsonb_strip_nulls(jsonb_build_object(
-				'modified', COALESCE(r.metadata->>'modified', to_char(NOW(), 'YYYY-MM-DD"T"HH24:MI:SS.MS"Z"')),
-				'responses', (SELECT jsonb_agg(re.url) FROM ref re WHERE jsonb_exists(re.sources, r.url) AND NOT jsonb_exists(re.metadata->'expandedTags', 'internal') = false),
-				'internalResponses', (SELECT jsonb_agg(ire.url) FROM Ref ire WHERE jsonb_exists(ire.sources, r.url) AND jsonb_exists(ire.metadata->'expandedTags', 'internal') = true),
-				'plugins', jsonb_strip_nulls((SELECT jsonb_object_agg(
-					p.tag,
-					(SELECT jsonb_agg(pre.url) FROM ref pre WHERE jsonb_exists(pre.sources, r.url) AND jsonb_exists(pre.metadata->'expandedTags', p.tag) = true)
-				) FROM plugin p WHERE p.origin = :origin)),
-				'obsolete', (SELECT count(*) from ref n WHERE n.url = r.url AND n.modified > r.modified AND (:origin = '' OR n.origin = :origin OR n.origin LIKE concat(:origin, '.%')))
-			))
-			WHERE EXISTS (SELECT * from rows WHERE r.url = rows.url AND r.origin = rows.origin)
-			""";
-		int updated = em.createNativeQuery(sql)
+			SELECT COUNT(*) AS total, MIN(modified) AS oldest FROM updated
+			""".replace("/* before */", before == null ? "" : "AND modified < :before");
+		var query = em.createNativeQuery(sql)
+			.unwrap(NativeQuery.class)
+			.addScalar("total", StandardBasicTypes.INTEGER)
+			.addScalar("oldest", StandardBasicTypes.INSTANT)
+			.setParameter("origin", origin)
+			.setParameter("batchSize", batchSize);
+		if (before != null) query.setParameter("before", before);
+		var result = (Object[]) query.getSingleResult();
+		em.clear();
+		return new Batch((Integer) result[0], (Instant) result[1]);
+	}
+
+	@Override
+	public void rebuildResponses(String origin) {
+		em.createNativeQuery("""
+			DELETE FROM ref_response
+			WHERE (:origin = '' OR origin = :origin OR origin LIKE concat(:origin, '.%'))
+			""")
+			.setParameter("origin", origin)
+			.executeUpdate();
+		em.createNativeQuery("""
+			INSERT INTO ref_response (url, origin, response, internal, tags)
+			SELECT s.url, s.origin, re.url,
+				bool_and(jsonb_exists(COALESCE(re.metadata->'expandedTags', re.tags, '[]'::jsonb), 'internal')),
+				COALESCE(jsonb_agg(DISTINCT t.tag) FILTER (WHERE t.tag ~ '^[_+]?plugin(/|$)'), '[]'::jsonb)
+			FROM ref s
+				JOIN ref re ON re.sources @> jsonb_build_array(s.url) AND re.url != s.url
+				LEFT JOIN LATERAL jsonb_array_elements_text(COALESCE(re.metadata->'expandedTags', re.tags, '[]'::jsonb)) AS t(tag) ON true
+			WHERE (:origin = '' OR s.origin = :origin OR s.origin LIKE concat(:origin, '.%'))
+				AND (:origin = '' OR re.origin = :origin OR re.origin LIKE concat(:origin, '.%'))
+			GROUP BY s.url, s.origin, re.url
+			""")
 			.setParameter("origin", origin)
-			.setParameter("batchSize", batchSize)
 			.executeUpdate();
-		em.flush();
 		em.clear();
-		return updated;
 	}
 }
@@ -1,18 +1,219 @@
 package jasper.repository;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+import static jasper.config.SQLiteDialect.NanoTimestampJdbcType.NANO_TIMESTAMP_FORMATTER;
 
 @Repository
 @Profile("sqlite")
+@Transactional
 public class BackfillRepositoryImplSqlite implements BackfillRepository {
-	private static final Logger logger = LoggerFactory.getLogger(BackfillRepositoryImplSqlite.class);
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Override
+	public Batch backfillMetadata(String origin, Instant before, int batchSize) {
+		var cursor = before == null ? "" : "AND modified < :before";
+		var next = em.createNativeQuery("""
+			SELECT MIN(modified) FROM (
+				SELECT modified FROM ref
+				WHERE (metadata IS NULL OR json_extract(metadata, '$.modified') IS NULL OR json_extract(metadata, '$.regen') = 1)
+					AND (:origin = '' OR origin = :origin OR origin LIKE (:origin || '.%'))
+					/* before */
+				ORDER BY modified DESC
+				LIMIT :batchSize)
+			""".replace("/* before */", cursor))
+			.setParameter("origin", origin)
+			.setParameter("batchSize", batchSize);
+		if (before != null) next.setParameter("before", NANO_TIMESTAMP_FORMATTER.format(before));
+		var after = (String) next.getSingleResult();
+		if (after == null) return new Batch(0, null);
+
+		// SQLite has a single writer, so the batch is the range [after, before) rather than locked rows
+		// Responses in the batch that no longer list a source: flag the source so its counts are
+		// regenerated, then drop the edge
+		var orphan = """
+			ref_response.response IN (
+				SELECT url FROM ref
+				WHERE (metadata IS NULL OR json_extract(metadata, '$.modified') IS NULL OR json_extract(metadata, '$.regen') = 1)
+					AND (:origin = '' OR origin = :origin OR origin LIKE (:origin || '.%'))
+					AND modified >= :after
+					/* before */)
+				AND (:origin = '' OR ref_response.origin = :origin OR ref_response.origin LIKE (:origin || '.%'))
+				AND NOT EXISTS (
+					SELECT 1 FROM ref re, json_each(re.sources) s
+					WHERE re.url = ref_response.response AND s.value = ref_response.url
+						AND (:origin = '' OR re.origin = :origin OR re.origin LIKE (:origin || '.%')))
+			""".replace("/* before */", cursor);
+		var cleanup = em.createNativeQuery("""
+			UPDATE ref
+			SET metadata = json_set(COALESCE(metadata, json_object()), '$.regen', json('true'))
+			WHERE EXISTS (
+				SELECT 1 FROM ref_response
+				WHERE ref_response.url = ref.url AND ref_response.origin = ref.origin
+					AND /* orphan */)
+			""".replace("/* orphan */", orphan))
+			.setParameter("origin", origin)
+			.setParameter("after", after);
+		if (before != null) cleanup.setParameter("before", NANO_TIMESTAMP_FORMATTER.format(before));
+		cleanup.executeUpdate();
+		var orphans = em.createNativeQuery("DELETE FROM ref_response WHERE " + orphan)
+			.setParameter("origin", origin)
+			.setParameter("after", after);
+		if (before != null) orphans.setParameter("before", NANO_TIMESTAMP_FORMATTER.format(before));
+		orphans.executeUpdate();
+
+		var stale = em.createNativeQuery("""
+			DELETE FROM ref_response
+			WHERE EXISTS (
+				SELECT 1 FROM ref
+				WHERE ref.url = ref_response.url AND ref.origin = ref_response.origin
+					AND (ref.metadata IS NULL OR json_extract(ref.metadata, '$.modified') IS NULL OR json_extract(ref.metadata, '$.regen') = 1)
+					AND (:origin = '' OR ref.origin = :origin OR ref.origin LIKE (:origin || '.%'))
+					AND ref.modified >= :after
+					/* before */)
+			""".replace("/* before */", before == null ? "" : "AND ref.modified < :before"))
+			.setParameter("origin", origin)
+			.setParameter("after", after);
+		if (before != null) stale.setParameter("before", NANO_TIMESTAMP_FORMATTER.format(before));
+		stale.executeUpdate();
+
+		var edges = em.createNativeQuery("""
+			INSERT INTO ref_response (url, origin, response, internal, tags)
+			SELECT ref.url, ref.origin, re.url, MIN(EXISTS (
+					SELECT 1 FROM json_each(COALESCE(json_extract(re.metadata, '$.expandedTags'), re.tags)) t WHERE t.value = 'internal')), COALESCE((
+				SELECT json_group_array(DISTINCT t.value)
+				FROM ref rt, json_each(COALESCE(json_extract(rt.metadata, '$.expandedTags'), rt.tags)) t
+				WHERE rt.url = re.url
+					AND EXISTS (SELECT 1 FROM json_each(rt.sources) s WHERE s.value = ref.url)
+					AND (:origin = '' OR rt.origin = :origin OR rt.origin LIKE (:origin || '.%'))
+					AND (t.value LIKE 'plugin/%' OR t.value LIKE '+plugin/%' OR t.value LIKE '\\_plugin/%' ESCAPE '\\' OR t.value = 'plugin' OR t.value = '+plugin' OR t.value = '_plugin')), '[]')
+			FROM ref, ref re, json_each(re.sources) s
+			WHERE s.value = ref.url AND re.url != ref.url
+				AND (:origin = '' OR re.origin = :origin OR re.origin LIKE (:origin || '.%'))
+				AND (ref.metadata IS NULL OR json_extract(ref.metadata, '$.modified') IS NULL OR json_extract(ref.metadata, '$.regen') = 1)
+				AND (:origin = '' OR ref.origin = :origin OR ref.origin LIKE (:origin || '.%'))
+				AND ref.modified >= :after
+				/* before */
+			GROUP BY ref.url, ref.origin, re.url
+			""".replace("/* before */", before == null ? "" : "AND ref.modified < :before"))
+			.setParameter("origin", origin)
+			.setParameter("after", after);
+		if (before != null) edges.setParameter("before", NANO_TIMESTAMP_FORMATTER.format(before));
+		edges.executeUpdate();
+
+		var update = em.createNativeQuery("""
+			WITH RECURSIVE digits(i) AS (
+				SELECT 1 UNION ALL SELECT i + 1 FROM digits WHERE i < 512
+			),
+			resp AS MATERIALIZED (
+				SELECT s.value AS source, re.url, re.origin, COALESCE(json_extract(re.metadata, '$.expandedTags'), re.tags) AS tags
+				FROM ref re, json_each(re.sources) s
+				WHERE s.value != re.url
+					AND s.value IN (
+						SELECT url FROM ref
+						WHERE (:origin = '' OR origin = :origin OR origin LIKE (:origin || '.%'))
+							AND modified >= :after
+							/* before */)
+					AND (:origin = '' OR re.origin = :origin OR re.origin LIKE (:origin || '.%'))
+			),
+			resp_tags AS MATERIALIZED (
+				SELECT resp.source, resp.url, resp.origin, t.value AS tag
+				FROM resp, json_each(resp.tags) t
+			)
+			UPDATE ref
+			SET metadata = json_patch(json_object(), json_object(
+				'modified', COALESCE(json_extract(ref.metadata, '$.modified'), strftime('%Y-%m-%dT%H:%M:%fZ', 'now')),
+				'expandedTags', json((
+					SELECT json_group_array(DISTINCT e.tag) FROM (
+						SELECT t.value AS tag FROM json_each(ref.tags) t
+						UNION
+						SELECT substr(t.value, 1, d.i - 1) FROM json_each(ref.tags) t JOIN digits d ON d.i <= length(t.value)
+						WHERE substr(t.value, d.i, 1) = '/'
+					) e
+					HAVING COUNT(*) > 0)),
+				'responses', (
+					SELECT NULLIF(COUNT(*), 0) FROM ref_response e
+					WHERE e.url = ref.url AND e.origin = ref.origin AND e.internal = 0),
+				'internalResponses', (
+					SELECT NULLIF(COUNT(*), 0) FROM ref_response e
+					WHERE e.url = ref.url AND e.origin = ref.origin AND e.internal = 1),
+				'plugins', json((
+					SELECT json_group_object(p.tag, p.total) FROM (
+						SELECT rt.tag, COUNT(DISTINCT rt.url) AS total FROM resp_tags rt
+						WHERE rt.source = ref.url
+							AND (rt.tag LIKE 'plugin/%' OR rt.tag LIKE '+plugin/%' OR rt.tag LIKE '\\_plugin/%' ESCAPE '\\' OR rt.tag = 'plugin' OR rt.tag = '+plugin' OR rt.tag = '_plugin')
+						GROUP BY rt.tag) p
+					HAVING COUNT(*) > 0)),
+				'obsolete', json(CASE WHEN EXISTS (
+					SELECT 1 FROM ref n
+					WHERE n.url = ref.url AND n.modified > ref.modified
+						AND (:origin = '' OR n.origin = :origin OR n.origin LIKE (:origin || '.%'))) THEN 'true' ELSE 'false' END)
+			))
+			WHERE (metadata IS NULL OR json_extract(metadata, '$.modified') IS NULL OR json_extract(metadata, '$.regen') = 1)
+				AND (:origin = '' OR origin = :origin OR origin LIKE (:origin || '.%'))
+				AND modified >= :after
+				/* before */
+			""".replace("/* before */", cursor))
+			.setParameter("origin", origin)
+			.setParameter("after", after);
+		if (before != null) update.setParameter("before", NANO_TIMESTAMP_FORMATTER.format(before));
+		var count = update.executeUpdate();
+
+		var obsolete = em.createNativeQuery("""
+			UPDATE ref
+			SET metadata = json_set(COALESCE(metadata, json_object()), '$.obsolete', json(CASE WHEN modified < (
+				SELECT MAX(n.modified) FROM ref n
+				WHERE n.url = ref.url
+					AND (:origin = '' OR n.origin = :origin OR n.origin LIKE (:origin || '.%'))) THEN 'true' ELSE 'false' END))
+			WHERE (:origin = '' OR origin = :origin OR origin LIKE (:origin || '.%'))
+				AND url IN (
+					SELECT url FROM ref
+					WHERE (:origin = '' OR origin = :origin OR origin LIKE (:origin || '.%'))
+						AND modified >= :after
+						/* before */)
+			""".replace("/* before */", cursor))
+			.setParameter("origin", origin)
+			.setParameter("after", after);
+		if (before != null) obsolete.setParameter("before", NANO_TIMESTAMP_FORMATTER.format(before));
+		obsolete.executeUpdate();
+		em.clear();
+		return new Batch(count, NANO_TIMESTAMP_FORMATTER.parse(after, Instant::from));
+	}
 
 	@Override
-	public int backfillMetadata(String origin, int batchSize) {
-		logger.warn("{} Bulk backfill disabled for SQLite, metadata will be regenerated by background backfill", origin);
-		return 0;
+	public void rebuildResponses(String origin) {
+		em.createNativeQuery("""
+			DELETE FROM ref_response
+			WHERE (:origin = '' OR origin = :origin OR origin LIKE (:origin || '.%'))
+			""")
+			.setParameter("origin", origin)
+			.executeUpdate();
+		em.createNativeQuery("""
+			INSERT INTO ref_response (url, origin, response, internal, tags)
+			SELECT ref.url, ref.origin, re.url, MIN(EXISTS (
+					SELECT 1 FROM json_each(COALESCE(json_extract(re.metadata, '$.expandedTags'), re.tags, '[]')) t WHERE t.value = 'internal')), COALESCE((
+				SELECT json_group_array(DISTINCT t.value)
+				FROM ref rt, json_each(COALESCE(json_extract(rt.metadata, '$.expandedTags'), rt.tags, '[]')) t
+				WHERE rt.url = re.url
+					AND EXISTS (SELECT 1 FROM json_each(rt.sources) s WHERE s.value = ref.url)
+					AND (:origin = '' OR rt.origin = :origin OR rt.origin LIKE (:origin || '.%'))
+					AND (t.value LIKE 'plugin/%' OR t.value LIKE '+plugin/%' OR t.value LIKE '\\_plugin/%' ESCAPE '\\' OR t.value = 'plugin' OR t.value = '+plugin' OR t.value = '_plugin')), '[]')
+			FROM ref, ref re, json_each(re.sources) s
+			WHERE s.value = ref.url AND re.url != ref.url
+				AND (:origin = '' OR re.origin = :origin OR re.origin LIKE (:origin || '.%'))
+				AND (:origin = '' OR ref.origin = :origin OR ref.origin LIKE (:origin || '.%'))
+			GROUP BY ref.url, ref.origin, re.url
+			""")
+			.setParameter("origin", origin)
+			.executeUpdate();
+		em.clear();
 	}
 }
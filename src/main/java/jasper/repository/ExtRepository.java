@@ -14,7 +14,7 @@ import java.util.List;
 
 @Repository
 @Transactional(readOnly = true)
-public interface ExtRepository extends JpaRepository<Ext, TagId>, QualifiedTagMixin<Ext>, StreamMixin<Ext>, ModifiedCursor, OriginMixin {
+public interface ExtRepository extends JpaRepository<Ext, TagId>, QualifiedTagMixin<Ext>, StreamMixin<Ext>, KeysetMixin<Ext>, ModifiedCursor, OriginMixin {
 
 	@Modifying
 	@Query("""
@@ -40,6 +40,11 @@ public interface ExtRepository extends JpaRepository<Ext, TagId>, QualifiedTagMi
 		WHERE e.origin = :origin""")
 	Instant getCursor(String origin);
 
+	@Query("""
+		SELECT max(e.modified)
+		FROM Ext e""")
+	Instant getCursor();
+
 	@Query(nativeQuery = true, value = "SELECT DISTINCT origin from ext")
 	List<String> origins();
 
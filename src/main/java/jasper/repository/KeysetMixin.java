@@ -0,0 +1,59 @@
+package jasper.repository;
+
+import jasper.domain.Ref_;
+import jasper.domain.proj.Cursor;
+import jasper.repository.spec.Keyset;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static jasper.repository.spec.ReplicationSpec.isAfterCursor;
+import static org.springframework.data.domain.Sort.by;
+
+public interface KeysetMixin<T extends Cursor> extends JpaSpecificationExecutor<T> {
+
+	/**
+	 * Visit every match in (modified, origin) order. Each batch is fetched
+	 * in its own read transaction, so nothing is held open between batches.
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	default void forEachAfter(Specification<T> spec, int batchSize, Consumer<T> consumer) {
+		forEachBatchAfter(spec, batchSize, batch -> batch.forEach(consumer));
+	}
+
+	/**
+	 * Visit every match in (modified, origin) order, one batch at a time.
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	default void forEachBatchAfter(Specification<T> spec, int batchSize, Consumer<List<T>> consumer) {
+		Instant modified = null;
+		String origin = null;
+		while (true) {
+			var batch = findBy(spec.and(isAfterCursor(modified, origin)), q -> q
+				.sortBy(by(Ref_.MODIFIED, Ref_.ORIGIN))
+				.limit(batchSize)
+				.all());
+			consumer.accept(batch);
+			if (batch.size() < batchSize) return;
+			modified = batch.getLast().getModified();
+			origin = batch.getLast().getOrigin();
+		}
+	}
+
+	/**
+	 * Fetch up to limit matches after a keyset position. Unlike a Page
+	 * this does not need a count query.
+	 */
+	@Transactional(readOnly = true)
+	default List<T> findAfter(Specification<T> spec, Keyset keyset, int limit) {
+		return findBy(spec.and(keyset.spec()), q -> q
+			.sortBy(keyset.sort())
+			.limit(limit)
+			.all());
+	}
+}
@@ -7,4 +7,9 @@ import java.time.Instant;
 @Transactional(readOnly = true)
 public interface ModifiedCursor {
 	Instant getCursor(String origin);
+	/**
+	 * Latest modified date in any origin.
+	 */
+	Instant getCursor();
+	long count();
 }
@@ -16,7 +16,7 @@ import java.util.Optional;
 
 @Repository
 @Transactional(readOnly = true)
-public interface PluginRepository extends JpaRepository<Plugin, TagId>, QualifiedTagMixin<Plugin>, StreamMixin<Plugin>, ModifiedCursor, OriginMixin {
+public interface PluginRepository extends JpaRepository<Plugin, TagId>, QualifiedTagMixin<Plugin>, StreamMixin<Plugin>, KeysetMixin<Plugin>, ModifiedCursor, OriginMixin {
 
 	@Modifying
 	@Query("""
@@ -46,6 +46,11 @@ public interface PluginRepository extends JpaRepository<Plugin, TagId>, Qualifie
 		WHERE p.origin = :origin""")
 	Instant getCursor(String origin);
 
+	@Query("""
+		SELECT max(p.modified)
+		FROM Plugin p""")
+	Instant getCursor();
+
 	@Query(nativeQuery = true, value = "SELECT DISTINCT origin from plugin")
 	List<String> origins();
 
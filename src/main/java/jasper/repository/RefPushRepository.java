@@ -0,0 +1,20 @@
+package jasper.repository;
+
+import jasper.domain.Ref;
+
+import java.util.List;
+
+/**
+ * Database-specific bulk upsert of pushed refs (JDBC batched INSERT ... ON CONFLICT).
+ * Metadata of existing rows is merged the same way as {@link RefRepository#pushAsyncMetadata}.
+ * Implementations are selected via @Profile.
+ */
+public interface RefPushRepository {
+	void pushAll(List<Ref> refs);
+
+	/**
+	 * Like {@link #pushAll(List)}, but every column of an existing row is overwritten
+	 * so a restore reproduces the backup exactly.
+	 */
+	void restoreAll(List<Ref> refs);
+}
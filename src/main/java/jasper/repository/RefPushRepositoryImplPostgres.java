@@ -0,0 +1,58 @@
+package jasper.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+
+import static java.time.ZoneOffset.UTC;
+
+@Repository
+@Profile("!sqlite")
+public class RefPushRepositoryImplPostgres extends AbstractRefPushRepository {
+
+	@Override
+	protected String upsert() {
+		return """
+			INSERT INTO ref (url, origin, title, comment, tags, sources, alternate_urls, plugins, metadata, published, created, modified)
+			VALUES (?, ?, ?, ?, ?::jsonb, ?::jsonb, ?::jsonb, ?::jsonb, ?::jsonb, ?, ?, ?)
+			ON CONFLICT (url, origin) DO UPDATE SET
+				title = excluded.title,
+				comment = excluded.comment,
+				tags = excluded.tags,
+				sources = excluded.sources,
+				alternate_urls = excluded.alternate_urls,
+				plugins = excluded.plugins,
+				metadata = jsonb_concat(COALESCE(ref.metadata, '{}'::jsonb), excluded.metadata),
+				published = excluded.published,
+				modified = excluded.modified
+			""";
+	}
+
+	@Override
+	protected String restore() {
+		return """
+			INSERT INTO ref (url, origin, title, comment, tags, sources, alternate_urls, plugins, metadata, published, created, modified)
+			VALUES (?, ?, ?, ?, ?::jsonb, ?::jsonb, ?::jsonb, ?::jsonb, ?::jsonb, ?, ?, ?)
+			ON CONFLICT (url, origin) DO UPDATE SET
+				title = excluded.title,
+				comment = excluded.comment,
+				tags = excluded.tags,
+				sources = excluded.sources,
+				alternate_urls = excluded.alternate_urls,
+				plugins = excluded.plugins,
+				metadata = excluded.metadata,
+				published = excluded.published,
+				created = excluded.created,
+				modified = excluded.modified
+			""";
+	}
+
+	@Override
+	protected void setTimestamp(PreparedStatement ps, int index, Instant instant) throws SQLException {
+		ps.setObject(index, instant == null ? null : instant.atOffset(UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+	}
+}
@@ -0,0 +1,58 @@
+package jasper.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+
+import static jasper.config.SQLiteDialect.NanoTimestampJdbcType.NANO_TIMESTAMP_FORMATTER;
+
+@Repository
+@Profile("sqlite")
+public class RefPushRepositoryImplSqlite extends AbstractRefPushRepository {
+
+	@Override
+	protected String upsert() {
+		// jsonb_concat is registered in SQLiteConfig with the same semantics as PostgreSQL
+		return """
+			INSERT INTO ref (url, origin, title, comment, tags, sources, alternate_urls, plugins, metadata, published, created, modified)
+			VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+			ON CONFLICT (url, origin) DO UPDATE SET
+				title = excluded.title,
+				comment = excluded.comment,
+				tags = excluded.tags,
+				sources = excluded.sources,
+				alternate_urls = excluded.alternate_urls,
+				plugins = excluded.plugins,
+				metadata = jsonb_concat(COALESCE(ref.metadata, '{}'), excluded.metadata),
+				published = excluded.published,
+				modified = excluded.modified
+			""";
+	}
+
+	@Override
+	protected String restore() {
+		return """
+			INSERT INTO ref (url, origin, title, comment, tags, sources, alternate_urls, plugins, metadata, published, created, modified)
+			VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+			ON CONFLICT (url, origin) DO UPDATE SET
+				title = excluded.title,
+				comment = excluded.comment,
+				tags = excluded.tags,
+				sources = excluded.sources,
+				alternate_urls = excluded.alternate_urls,
+				plugins = excluded.plugins,
+				metadata = excluded.metadata,
+				published = excluded.published,
+				created = excluded.created,
+				modified = excluded.modified
+			""";
+	}
+
+	@Override
+	protected void setTimestamp(PreparedStatement ps, int index, Instant instant) throws SQLException {
+		ps.setString(index, instant == null ? null : NANO_TIMESTAMP_FORMATTER.format(instant));
+	}
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import jasper.domain.Metadata;
 import jasper.domain.Ref;
 import jasper.domain.RefId;
+import jasper.domain.proj.RefPublished;
+import jasper.domain.proj.RefTags;
 import jasper.domain.proj.RefUrl;
 import jasper.domain.proj.RefView;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -14,14 +16,16 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 @Transactional(readOnly = true)
-public interface RefRepository extends JpaRepository<Ref, RefId>, JpaSpecificationExecutor<Ref>, StreamMixin<RefView>, ModifiedCursor, OriginMixin {
+public interface RefRepository extends JpaRepository<Ref, RefId>, JpaSpecificationExecutor<Ref>, StreamMixin<RefView>, KeysetMixin<Ref>, ModifiedCursor, OriginMixin {
 
 	Optional<Ref> findOneByUrlAndOrigin(String url, String origin);
+	List<Ref> findAllByOriginAndUrlIn(String origin, Collection<String> urls);
 	void deleteByUrlAndOrigin(String url, String origin);
 	boolean existsByUrlAndOrigin(String url, String origin);
 
@@ -90,6 +94,11 @@ public interface RefRepository extends JpaRepository<Ref, RefId>, JpaSpecificati
 		WHERE r.origin = :origin""")
 	Instant getCursor(String origin);
 
+	@Query("""
+		SELECT max(r.modified)
+		FROM Ref r""")
+	Instant getCursor();
+
 	@Query(nativeQuery = true, value = "SELECT DISTINCT origin from ref")
 	List<String> origins();
 
@@ -101,19 +110,30 @@ public interface RefRepository extends JpaRepository<Ref, RefId>, JpaSpecificati
 	void deleteByOriginAndModifiedLessThanEqual(String origin, Instant olderThan);
 
 	@Query("""
-		FROM Ref ref
-		WHERE ref.url = :url
-			AND ref.published >= :published
-			AND (:origin = '' OR ref.origin = :origin OR ref.origin LIKE concat(:origin, '.%'))""")
-	List<Ref> findAllPublishedByUrlAndPublishedGreaterThanEqual(String url, String origin, Instant published);
+		SELECT r.url AS url, max(r.published) AS published
+		FROM Ref r
+		WHERE r.url IN :urls
+			AND (:origin = '' OR r.origin = :origin OR r.origin LIKE concat(:origin, '.%'))
+		GROUP BY r.url""")
+	List<RefPublished> findAllMaxPublishedByUrlIn(Collection<String> urls, String origin);
 
 	@Query("""
+		SELECT r.url AS url, r.published AS published
 		FROM Ref r
 		WHERE r.url != :url
-			AND r.published <= :published
+			AND jsonb_exists(r.sources, :url) = true
+			AND jsonb_exists(COALESCE(jsonb_object_field(r.metadata, 'expandedTags'), r.tags), 'plugin/user') = false
+			AND (:origin = '' OR r.origin = :origin OR r.origin LIKE concat(:origin, '.%'))
+		ORDER BY r.published
+		FETCH FIRST 1 ROW ONLY""")
+	Optional<RefPublished> findFirstResponsePublished(String url, String origin);
+
+	@Query("""
+		SELECT r.url AS url, r.tags AS tags FROM Ref r
+		WHERE r.url != :url
 			AND jsonb_exists(r.sources, :url) = true
 			AND (:origin = '' OR r.origin = :origin OR r.origin LIKE concat(:origin, '.%'))""")
-	List<Ref> findAllResponsesPublishedBeforeThanEqual(String url, String origin, Instant published);
+	List<RefTags> findAllResponseTags(String url, String origin);
 
 	@Query("""
 		SELECT r.url FROM Ref r
@@ -172,14 +192,6 @@ public interface RefRepository extends JpaRepository<Ref, RefId>, JpaSpecificati
 			AND (:origin = '' OR r.origin = :origin OR r.origin LIKE concat(:origin, '.%'))""")
 	void dropMetadata(String origin);
 
-	@Query("""
-		FROM Ref r
-		WHERE (r.metadata IS NULL OR jsonb_exists(r.metadata, 'modified') = false OR jsonb_object_field_text(r.metadata, 'regen') = 'true')
-			AND (:origin = '' OR r.origin = :origin OR r.origin LIKE concat(:origin, '.%'))
-		ORDER BY r.modified DESC
-		FETCH FIRST 1 ROW ONLY""")
-	Optional<Ref> getRefBackfill(String origin);
-
 	@Query("""
 		SELECT r.url AS url, jsonb_object_field_text(jsonb_object_field(r.plugins, '+plugin/origin'), 'proxy') AS proxy
 		FROM Ref r
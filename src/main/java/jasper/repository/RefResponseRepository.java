@@ -0,0 +1,52 @@
+package jasper.repository;
+
+import jasper.domain.RefResponse;
+import jasper.domain.RefResponseId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public interface RefResponseRepository extends JpaRepository<RefResponse, RefResponseId> {
+
+	@Query("""
+		SELECT e.response FROM RefResponse e
+		WHERE e.url = :url
+			AND e.origin = :origin
+			AND e.internal = false""")
+	List<String> findAllResponses(String url, String origin);
+
+	@Query("""
+		SELECT e.response FROM RefResponse e
+		WHERE e.url = :url
+			AND e.origin = :origin
+			AND e.internal = true""")
+	List<String> findAllInternalResponses(String url, String origin);
+
+	List<RefResponse> findAllByUrlInAndResponseIn(Collection<String> urls, Collection<String> responses);
+
+	@Modifying
+	@Transactional
+	@Query("""
+		DELETE FROM RefResponse e
+		WHERE e.url = :url
+			AND e.origin = :origin""")
+	void deleteAllBySource(String url, String origin);
+
+	/**
+	 * Delete edges whose source Ref no longer exists.
+	 */
+	@Modifying
+	@Transactional
+	@Query("""
+		DELETE FROM RefResponse e
+		WHERE e.origin = :origin
+			AND NOT EXISTS (SELECT 1 FROM Ref r WHERE r.url = e.url AND r.origin = e.origin)""")
+	void deleteAllWithoutSource(String origin);
+}
@@ -16,7 +16,7 @@ import java.util.Optional;
 
 @Repository
 @Transactional(readOnly = true)
-public interface TemplateRepository extends JpaRepository<Template, TagId>, QualifiedTagMixin<Template>, StreamMixin<Template>, ModifiedCursor, OriginMixin {
+public interface TemplateRepository extends JpaRepository<Template, TagId>, QualifiedTagMixin<Template>, StreamMixin<Template>, KeysetMixin<Template>, ModifiedCursor, OriginMixin {
 
 	@Modifying
 	@Query("""
@@ -46,6 +46,11 @@ public interface TemplateRepository extends JpaRepository<Template, TagId>, Qual
 		WHERE t.origin = :origin""")
 	Instant getCursor(String origin);
 
+	@Query("""
+		SELECT max(t.modified)
+		FROM Template t""")
+	Instant getCursor();
+
 	@Query(nativeQuery = true, value = "SELECT DISTINCT origin from template")
 	List<String> origins();
 
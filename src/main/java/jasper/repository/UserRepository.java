@@ -14,7 +14,7 @@ import java.util.List;
 
 @Repository
 @Transactional(readOnly = true)
-public interface UserRepository extends JpaRepository<User, TagId>, QualifiedTagMixin<User>, StreamMixin<User>,
+public interface UserRepository extends JpaRepository<User, TagId>, QualifiedTagMixin<User>, StreamMixin<User>, KeysetMixin<User>,
 	ModifiedCursor, OriginMixin {
 
 	@Modifying
@@ -57,6 +57,11 @@ public interface UserRepository extends JpaRepository<User, TagId>, QualifiedTag
 		WHERE u.origin = :origin""")
 	Instant getCursor(String origin);
 
+	@Query("""
+		SELECT max(u.modified)
+		FROM User u""")
+	Instant getCursor();
+
 	@Query(nativeQuery = true, value = "SELECT DISTINCT origin from users")
 	List<String> origins();
 
@@ -0,0 +1,109 @@
+package jasper.repository.filter;
+
+import jasper.domain.proj.HasTags;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches Refs against many tag queries at once. Queries are indexed in a trie
+ * of tag path segments by the tags a Ref must have to match, so each Ref only
+ * evaluates the queries that share a tag prefix with it.
+ * Safe to match from many threads while queries are added.
+ */
+public class TagMatcher {
+
+	private final Set<String> queries = new LinkedHashSet<>();
+	private volatile Index index = new Index(new Trie(), List.of());
+
+	/**
+	 * Add a query. Adding the same query twice has no effect.
+	 */
+	public synchronized void add(String query) {
+		if (!queries.add(query)) return;
+		index = index(queries);
+	}
+
+	public synchronized void remove(String query) {
+		if (!queries.remove(query)) return;
+		index = index(queries);
+	}
+
+	public boolean isEmpty() {
+		return index.isEmpty();
+	}
+
+	/**
+	 * All added queries matching the Ref, in the order they were added.
+	 */
+	public Set<String> match(HasTags ref) {
+		var index = this.index;
+		var result = new LinkedHashSet<String>();
+		if (index.isEmpty() || ref == null) return result;
+		var candidates = new LinkedHashSet<>(index.always);
+		if (ref.getTags() != null) {
+			for (var tag : ref.getTags()) index.trie.collect(tag, candidates);
+		}
+		for (var query : candidates) {
+			if (TagQuery.of(query).test(ref)) result.add(query);
+		}
+		return result;
+	}
+
+	private static Index index(Set<String> queries) {
+		var trie = new Trie();
+		var always = new ArrayList<String>();
+		for (var query : queries) {
+			var guard = TagQuery.of(query).ast().guard();
+			if (guard == null) {
+				always.add(query);
+			} else {
+				for (var tag : guard) trie.put(tag, query);
+			}
+		}
+		return new Index(trie, List.copyOf(always));
+	}
+
+	private record Index(Trie trie, List<String> always) {
+		boolean isEmpty() {
+			return trie.isEmpty() && always.isEmpty();
+		}
+	}
+
+	private static class Trie {
+		private final Map<String, Trie> children = new HashMap<>();
+		private final List<String> queries = new ArrayList<>();
+
+		boolean isEmpty() {
+			return children.isEmpty() && queries.isEmpty();
+		}
+
+		void put(String tag, String query) {
+			var node = this;
+			for (var segment : tag.split("/")) {
+				node = node.children.computeIfAbsent(segment, s -> new Trie());
+			}
+			node.queries.add(query);
+		}
+
+		/**
+		 * Collect queries guarded by the tag or any of its parent tags.
+		 */
+		void collect(String tag, Set<String> result) {
+			var node = this;
+			var start = 0;
+			while (start <= tag.length()) {
+				var end = tag.indexOf('/', start);
+				if (end == -1) end = tag.length();
+				node = node.children.get(tag.substring(start, end));
+				if (node == null) return;
+				result.addAll(node.queries);
+				start = end + 1;
+			}
+		}
+	}
+}
@@ -1,103 +1,241 @@
 package jasper.repository.filter;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jasper.domain.Ref;
+import jasper.domain.proj.HasTags;
 import jasper.domain.proj.Tag;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import jasper.repository.spec.QualifiedTag;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
-import static jasper.repository.spec.QualifiedTag.atom;
-
+/**
+ * Parsed tag query. Queries are made up of atoms joined by
+ * : (and) or | (or), with parentheses for grouping. And binds
+ * tighter than or.
+ */
 public class TagQuery {
-	private static final Logger logger = LoggerFactory.getLogger(TagQuery.class);
-	private static final ObjectMapper objectMapper = new ObjectMapper();
+	private static final Cache<String, TagQuery> cache = Caffeine.newBuilder()
+		.maximumSize(1000)
+		.build();
+
+	private final Node ast;
+	private final List<String> tags;
+
+	TagQuery(String query) {
+		var tags = new ArrayList<String>();
+		ast = new Parser(query, tags).parse();
+		this.tags = List.copyOf(tags);
+	}
 
-	private ArrayNode ast;
+	/**
+	 * Parse the query or return the cached parse. Throws
+	 * {@link UnsupportedOperationException} for unbalanced parentheses.
+	 */
+	public static TagQuery of(String query) {
+		return cache.get(query, TagQuery::new);
+	}
+
+	public Node ast() {
+		return ast;
+	}
 
-	public TagQuery(String query) {
-		parse(query.replaceAll("\\s", ""));
+	/**
+	 * Atoms in the query with any negation removed.
+	 */
+	public List<String> tags() {
+		return tags;
 	}
 
 	public Specification<Ref> refSpec() {
-		return _refSpec(ast);
+		return ast.refSpec();
 	}
 
-	private Specification<Ref> _refSpec(JsonNode ast) {
-		var result = Specification.<Ref>unrestricted();
-		if (!ast.isArray()) return result;
-		var or = true;
-		var ands = new ArrayList<Specification<Ref>>();
-		for (var i = 0; i < ast.size(); i++) {
-			var n = ast.get(i);
-			if (":".equals(n.textValue())) {
-				or = false;
-			} else if ("|".equals(n.textValue())) {
-				or = true;
-			} else {
-				var value = n.isArray() ? _refSpec(n) : atom(n.textValue()).refSpec();
-				if (or && ands.size() > 0) {
-					result = result.or(ands.stream().reduce(Specification::and).get());
-					ands.clear();
-				}
-				ands.add(value);
-			}
+	public <T extends Tag> Specification<T> spec() {
+		return ast.spec();
+	}
+
+	/**
+	 * In-memory equivalent of {@link #refSpec()}.
+	 */
+	public boolean test(HasTags ref) {
+		return ast.test(ref);
+	}
+
+	public sealed interface Node permits Atom, And, Or {
+		Specification<Ref> refSpec();
+		<T extends Tag> Specification<T> spec();
+		boolean test(HasTags ref);
+		/**
+		 * Tag prefixes a Ref must have at least one of to match,
+		 * or null if it could match without any.
+		 */
+		Set<String> guard();
+	}
+
+	public record Atom(QualifiedTag tag) implements Node {
+		@Override
+		public Specification<Ref> refSpec() {
+			return tag.refSpec();
 		}
-		if (ands.size() > 0) {
-			result = result.or(ands.stream().reduce(Specification::and).get());
+
+		@Override
+		public <T extends Tag> Specification<T> spec() {
+			return tag.spec();
+		}
+
+		@Override
+		public boolean test(HasTags ref) {
+			return tag.test(ref);
+		}
+
+		@Override
+		public Set<String> guard() {
+			if (tag.not || tag.tag.isEmpty()) return null;
+			return Set.of(tag.tag);
 		}
-		return result;
 	}
 
-	public <T extends Tag> Specification<T> spec() {
-		return _spec(ast);
+	public record And(List<Node> nodes) implements Node {
+		@Override
+		public Specification<Ref> refSpec() {
+			return nodes.stream().map(Node::refSpec).reduce(Specification::and).orElse(Specification.unrestricted());
+		}
+
+		@Override
+		public <T extends Tag> Specification<T> spec() {
+			return nodes.stream().map(Node::<T>spec).reduce(Specification::and).orElse(Specification.unrestricted());
+		}
+
+		@Override
+		public boolean test(HasTags ref) {
+			for (var n : nodes) if (!n.test(ref)) return false;
+			return true;
+		}
+
+		@Override
+		public Set<String> guard() {
+			Set<String> result = null;
+			for (var n : nodes) {
+				var g = n.guard();
+				if (g != null && (result == null || g.size() < result.size())) result = g;
+			}
+			return result;
+		}
 	}
 
-	private  <T extends Tag> Specification<T> _spec(JsonNode ast) {
-		var result = Specification.<T>unrestricted();
-		if (!ast.isArray()) return result;
-		var or = true;
-		var ands = new ArrayList<Specification<T>>();
-		for (var i = 0; i < ast.size(); i++) {
-			var n = ast.get(i);
-			if (":".equals(n.textValue())) {
-				or = false;
-			} else if ("|".equals(n.textValue())) {
-				or = true;
-			} else {
-				Specification<T> value = n.isArray() ? _spec(n) : atom(n.textValue()).spec();
-				if (or && ands.size() > 0) {
-					result = result.or(ands.stream().reduce(Specification::and).get());
-					ands.clear();
+	public record Or(List<Node> nodes) implements Node {
+		@Override
+		public Specification<Ref> refSpec() {
+			return nodes.stream().map(Node::refSpec).reduce(Specification::or).orElse(Specification.unrestricted());
+		}
+
+		@Override
+		public <T extends Tag> Specification<T> spec() {
+			return nodes.stream().map(Node::<T>spec).reduce(Specification::or).orElse(Specification.unrestricted());
+		}
+
+		@Override
+		public boolean test(HasTags ref) {
+			for (var n : nodes) if (n.test(ref)) return true;
+			return false;
+		}
+
+		@Override
+		public Set<String> guard() {
+			var result = new HashSet<String>();
+			for (var n : nodes) {
+				var g = n.guard();
+				if (g == null) return null;
+				result.addAll(g);
+			}
+			return result;
+		}
+	}
+
+	private static class Parser {
+		private final String query;
+		private final List<String> tags;
+		private int pos = 0;
+
+		Parser(String query, List<String> tags) {
+			this.query = query;
+			this.tags = tags;
+		}
+
+		Node parse() {
+			var result = group(0);
+			if (pos < query.length()) throw new UnsupportedOperationException("Unbalanced parentheses in query " + query);
+			return result;
+		}
+
+		private Node group(int depth) {
+			var ors = new ArrayList<Node>();
+			var ands = new ArrayList<Node>();
+			var or = true;
+			while (pos < query.length()) {
+				var c = query.charAt(pos);
+				if (c == ')') {
+					// Stray closing parenthesis is reported by parse()
+					if (depth == 0) break;
+					pos++;
+					return node(ors, ands);
+				} else if (c == ':') {
+					pos++;
+					or = false;
+				} else if (c == '|') {
+					pos++;
+					or = true;
+				} else if (Character.isWhitespace(c)) {
+					pos++;
+				} else {
+					Node value;
+					if (c == '(') {
+						pos++;
+						value = group(depth + 1);
+					} else {
+						value = atom();
+					}
+					if (or && !ands.isEmpty()) {
+						ors.add(and(ands));
+						ands = new ArrayList<>();
+					}
+					ands.add(value);
 				}
-				ands.add(value);
 			}
+			if (depth > 0) throw new UnsupportedOperationException("Unbalanced parentheses in query " + query);
+			return node(ors, ands);
 		}
-		if (ands.size() > 0) {
-			result = result.or(ands.stream().reduce(Specification::and).get());
+
+		private Node atom() {
+			var text = new StringBuilder();
+			while (pos < query.length()) {
+				var c = query.charAt(pos);
+				if (c == ':' || c == '|' || c == '(' || c == ')') break;
+				if (!Character.isWhitespace(c)) text.append(c);
+				pos++;
+			}
+			var qt = text.toString();
+			var tag = qt.startsWith("!") ? qt.substring(1) : qt;
+			if (!tag.isEmpty()) tags.add(tag);
+			return new Atom(QualifiedTag.atom(qt));
 		}
-		return result;
-	}
 
-	private void parse(String query) {
-		logger.trace(query);
-		// TODO: compare performance with https://en.wikipedia.org/wiki/Shunting-yard_algorithm
-		var array = ("[\"" + query + "\"]")
-			.replaceAll("[|:()]", "\",\"$0\",\"")
-			.replaceAll(",?\"\\(\",?", "[")
-			.replaceAll(",?\"\\)\",?", "]")
-			.replaceAll("\"\"", "");
-		try {
-			logger.trace(array);
-			ast = (ArrayNode) objectMapper.readTree(array);
-		} catch (JsonProcessingException e) {
-			throw new UnsupportedOperationException(e);
+		private static Node node(List<Node> ors, List<Node> ands) {
+			if (!ands.isEmpty()) ors.add(and(ands));
+			// Empty query or group matches everything
+			if (ors.isEmpty()) return new And(List.of());
+			if (ors.size() == 1) return ors.getFirst();
+			return new Or(List.copyOf(ors));
 		}
-	}
 
+		private static Node and(List<Node> ands) {
+			if (ands.size() == 1) return ands.getFirst();
+			return new And(List.copyOf(ands));
+		}
+	}
 }
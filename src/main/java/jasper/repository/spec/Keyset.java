@@ -0,0 +1,122 @@
+package jasper.repository.spec;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jasper.errors.InvalidKeysetException;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.data.domain.Sort.Direction.ASC;
+import static org.springframework.data.domain.Sort.Direction.DESC;
+
+/**
+ * Keyset pagination over a single column followed by the (id, origin)
+ * primary key. The position is passed between pages as an opaque token,
+ * so each page starts strictly after the last row of the previous one
+ * without an offset or a count query.
+ *
+ * @param property sorted column
+ * @param idProperty url for Refs, tag for tags
+ * @param value property of the last row, or null for the first page
+ */
+public record Keyset(String property, boolean descending, String idProperty, String value, String id, String origin) {
+	public static final int TOKEN_LEN = 8192;
+	private static final Set<String> DATES = Set.of("modified", "created", "published");
+
+	/**
+	 * First page for a sort. Unsorted requests are newest first.
+	 * @param dates date columns of the entity that may be sorted by, besides the id
+	 */
+	public static Keyset start(Sort sort, String idProperty, String... dates) {
+		if (sort.isUnsorted()) return new Keyset("modified", true, idProperty, null, null, null);
+		var orders = sort.toList();
+		if (orders.size() > 1) throw new InvalidKeysetException("Only one sort is supported");
+		var order = orders.getFirst();
+		if (!Set.of(dates).contains(order.getProperty()) && !order.getProperty().equals(idProperty)) {
+			throw new InvalidKeysetException("Cannot scroll by " + order.getProperty());
+		}
+		return new Keyset(order.getProperty(), order.isDescending(), idProperty, null, null, null);
+	}
+
+	/**
+	 * Continue from a token returned with the previous page.
+	 */
+	public Keyset after(String token) {
+		if (token == null || token.isEmpty()) return this;
+		String[] parts;
+		try {
+			parts = new String(Base64.getUrlDecoder().decode(token), UTF_8).split("\n", -1);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidKeysetException("Invalid token");
+		}
+		if (parts.length != 5) throw new InvalidKeysetException("Invalid token");
+		if (!parts[0].equals(property) || !parts[1].equals(descending ? "desc" : "asc")) {
+			throw new InvalidKeysetException("Token does not match sort");
+		}
+		var next = new Keyset(property, descending, idProperty, parts[2], parts[3], parts[4]);
+		if (isDate()) {
+			try {
+				Instant.parse(next.value);
+			} catch (DateTimeParseException e) {
+				throw new InvalidKeysetException("Invalid token");
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Token for the page after this row.
+	 */
+	public String next(Object row) {
+		var bean = new BeanWrapperImpl(row);
+		var key = String.join("\n",
+			property,
+			descending ? "desc" : "asc",
+			// Sorted by id, so the value would be the same as the id
+			property.equals(idProperty) ? "" : String.valueOf(bean.getPropertyValue(property)),
+			String.valueOf(bean.getPropertyValue(idProperty)),
+			String.valueOf(bean.getPropertyValue("origin")));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(UTF_8));
+	}
+
+	public Sort sort() {
+		var direction = descending ? DESC : ASC;
+		if (property.equals(idProperty)) return Sort.by(direction, property, "origin");
+		return Sort.by(direction, property, idProperty, "origin");
+	}
+
+	public <T> Specification<T> spec() {
+		if (value == null) return Specification.unrestricted();
+		return (root, query, cb) -> {
+			var id = root.<String>get(idProperty);
+			var origin = root.<String>get("origin");
+			if (property.equals(idProperty)) {
+				return cb.or(
+					after(cb, id, this.id),
+					cb.and(cb.equal(id, this.id), after(cb, origin, this.origin)));
+			}
+			var sorted = isDate() ? after(cb, root.<Instant>get(property), Instant.parse(value)) : after(cb, root.<String>get(property), value);
+			var equal = cb.equal(root.get(property), isDate() ? Instant.parse(value) : value);
+			return cb.or(
+				sorted,
+				cb.and(equal, after(cb, id, this.id)),
+				cb.and(equal, cb.equal(id, this.id), after(cb, origin, this.origin)));
+		};
+	}
+
+	private boolean isDate() {
+		return DATES.contains(property);
+	}
+
+	private <Y extends Comparable<? super Y>> Predicate after(CriteriaBuilder cb, Expression<? extends Y> x, Y y) {
+		return descending ? cb.lessThan(x, y) : cb.greaterThan(x, y);
+	}
+}
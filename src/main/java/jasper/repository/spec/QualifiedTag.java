@@ -2,12 +2,14 @@ package jasper.repository.spec;
 
 import jasper.domain.Ref;
 import jasper.domain.proj.HasOrigin;
+import jasper.domain.proj.HasTags;
 import jasper.domain.proj.Tag;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static jasper.domain.proj.HasTags.hasMatchingTag;
 import static jasper.repository.spec.OriginSpec.isOrigin;
 import static jasper.repository.spec.RefSpec.hasDownwardTag;
 import static jasper.repository.spec.RefSpec.hasTag;
@@ -87,6 +89,25 @@ public class QualifiedTag {
 		return !not;
 	}
 
+	/**
+	 * In-memory equivalent of {@link #refSpec()}.
+	 */
+	public boolean test(HasTags ref) {
+		if (ref == null) return not;
+		var result = (tag.isEmpty() || hasMatchingTag(ref, tag)) && capturesOrigin(ref.getOrigin());
+		return result != not;
+	}
+
+	private boolean capturesOrigin(String o) {
+		if (o == null) o = "";
+		if (origin.equals("@*")) return true;
+		if (origin.endsWith(".*")) {
+			var root = origin.substring(0, origin.length() - 2);
+			return o.equals(root) || o.startsWith(root + ".");
+		}
+		return origin.equals(o);
+	}
+
 	public Specification<Ref> refSpec() {
 		var spec = Specification.<Ref>unrestricted();
 		if (isNotBlank(tag)) spec = spec.and(hasTag(tag));
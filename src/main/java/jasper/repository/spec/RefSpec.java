@@ -1,10 +1,14 @@
 package jasper.repository.spec;
 
 import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jasper.domain.Ref;
+import jasper.domain.RefResponse;
+import jasper.domain.RefResponse_;
 import jasper.domain.Ref_;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -13,6 +17,7 @@ import org.springframework.data.jpa.domain.Specification;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 import static jasper.domain.proj.Tag.isPublicTag;
 import static jasper.domain.proj.Tag.publicTag;
@@ -105,86 +110,60 @@ public class RefSpec {
 	}
 
 	public static Specification<Ref> hasResponse(String url) {
-		return (root, query, cb) -> cb.isTrue(
-			cb.function("jsonb_exists", Boolean.class,
-				cb.function("jsonb_object_field", Object.class,
-					root.get(Ref_.metadata),
-					cb.literal("responses")),
-				cb.literal(url)));
+		return (root, query, cb) -> hasEdge(root, query, cb, e -> cb.and(
+			cb.equal(e.get(RefResponse_.response), url),
+			cb.isFalse(e.get(RefResponse_.internal))));
 	}
 
 	public static Specification<Ref> hasInternalResponse(String url) {
-		return (root, query, cb) -> cb.isTrue(
-			cb.function("jsonb_exists", Boolean.class,
-				cb.function("jsonb_object_field", Object.class,
-					root.get(Ref_.metadata),
-					cb.literal("internalResponses")),
-				cb.literal(url)));
+		return (root, query, cb) -> hasEdge(root, query, cb, e -> cb.and(
+			cb.equal(e.get(RefResponse_.response), url),
+			cb.isTrue(e.get(RefResponse_.internal))));
 	}
 
 	public static Specification<Ref> hasNoPluginResponses(String plugin) {
-		return (root, query, cb) ->
-			cb.or(
-				cb.isNull(root.get(Ref_.metadata)),
-				cb.isNull(
-					cb.function("jsonb_object_field", Object.class,
-						root.get(Ref_.metadata),
-						cb.literal("plugins"))),
-				cb.isFalse(
-					cb.function("jsonb_exists", Boolean.class,
-						cb.function("jsonb_object_field", Object.class,
-							root.get(Ref_.metadata),
-							cb.literal("plugins")),
-						cb.literal(plugin))));
+		return (root, query, cb) -> cb.not(hasPluginEdge(root, query, cb, plugin));
 	}
 
 	public static Specification<Ref> hasPluginResponses(String plugin) {
-		return (root, query, cb) ->
-			cb.and(
-				cb.isNotNull(root.get(Ref_.metadata)),
-				cb.function("jsonb_exists", Boolean.class,
-					cb.function("jsonb_object_field", Object.class,
-						root.get(Ref_.metadata),
-						cb.literal("plugins")),
-					cb.literal(plugin)));
+		return (root, query, cb) -> hasPluginEdge(root, query, cb, plugin);
 	}
 
 	public static Specification<Ref> hasNoPluginResponses(String user, String plugin) {
-		return (root, query, cb) ->
-			cb.or(
-				cb.isNull(root.get(Ref_.metadata)),
-				cb.isNull(
-					cb.function("jsonb_object_field", Object.class,
-						root.get(Ref_.metadata),
-						cb.literal("userUrls"))),
-				cb.isNull(
-					cb.function("jsonb_object_field", Object.class,
-						cb.function("jsonb_object_field", Object.class,
-							root.get(Ref_.metadata),
-							cb.literal("userUrls")),
-						cb.literal(plugin))),
-				cb.isFalse(
-					cb.function("jsonb_exists", Boolean.class,
-						cb.function("jsonb_object_field", Object.class,
-							cb.function("jsonb_object_field", Object.class,
-								root.get(Ref_.metadata),
-								cb.literal("userUrls")),
-							cb.literal(plugin)),
-						cb.concat("tag:/" + publicTag(user) + "?url=", root.get(Ref_.url)))));
+		return (root, query, cb) -> cb.not(hasUserPluginEdge(root, query, cb, user, plugin));
 	}
 
 	public static Specification<Ref> hasPluginResponses(String user, String plugin) {
-		return (root, query, cb) ->
-			cb.and(
-				cb.isNotNull(root.get(Ref_.metadata)),
-				cb.isTrue(
-					cb.function("jsonb_exists", Boolean.class,
-						cb.function("jsonb_object_field", Object.class,
-							cb.function("jsonb_object_field", Object.class,
-								root.get(Ref_.metadata),
-								cb.literal("userUrls")),
-							cb.literal(plugin)),
-						cb.concat("tag:/" + publicTag(user) + "?url=", root.get(Ref_.url)))));
+		return (root, query, cb) -> hasUserPluginEdge(root, query, cb, user, plugin);
+	}
+
+	private static Predicate hasPluginEdge(Root<Ref> root, CriteriaQuery<?> query, CriteriaBuilder cb, String plugin) {
+		return hasEdge(root, query, cb, e -> cb.isTrue(
+			cb.function("jsonb_exists", Boolean.class,
+				e.get(RefResponse_.tags),
+				cb.literal(plugin))));
+	}
+
+	private static Predicate hasUserPluginEdge(Root<Ref> root, CriteriaQuery<?> query, CriteriaBuilder cb, String user, String plugin) {
+		return hasEdge(root, query, cb, e -> cb.and(
+			cb.equal(e.get(RefResponse_.response), cb.concat("tag:/" + publicTag(user) + "?url=", root.get(Ref_.url))),
+			cb.isTrue(
+				cb.function("jsonb_exists", Boolean.class,
+					e.get(RefResponse_.tags),
+					cb.literal(plugin)))));
+	}
+
+	/**
+	 * Exists a response edge from this Ref matching the filter.
+	 */
+	private static Predicate hasEdge(Root<Ref> root, CriteriaQuery<?> query, CriteriaBuilder cb, Function<Root<RefResponse>, Predicate> filter) {
+		var edges = query.subquery(Integer.class);
+		var e = edges.from(RefResponse.class);
+		edges.select(cb.literal(1)).where(
+			cb.equal(e.get(RefResponse_.url), root.get(Ref_.url)),
+			cb.equal(e.get(RefResponse_.origin), root.get(Ref_.origin)),
+			filter.apply(e));
+		return cb.exists(edges);
 	}
 
 	private static Expression<Object> getTagsExpression(Root<Ref> root, CriteriaBuilder cb) {
@@ -25,4 +25,24 @@ public class ReplicationSpec {
 				root.get(Ref_.MODIFIED),
 				i);
 	}
+
+	/**
+	 * Keyset cursor on the unique (modified, origin) constraint.
+	 */
+	public static <T extends Cursor> Specification<T> isAfterCursor(Instant modified, String origin) {
+		if (modified == null) return unrestricted();
+		if (origin == null) return isModifiedAfter(modified);
+		return (root, query, cb) ->
+			cb.or(
+				cb.greaterThan(
+					root.get(Ref_.MODIFIED),
+					modified),
+				cb.and(
+					cb.equal(
+						root.get(Ref_.MODIFIED),
+						modified),
+					cb.greaterThan(
+						root.get(Ref_.ORIGIN),
+						origin)));
+	}
 }
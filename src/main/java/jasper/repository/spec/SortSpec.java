@@ -29,13 +29,14 @@ public class SortSpec {
 	 * Metadata fields that should automatically use :len suffix (array fields).
 	 */
 	private static final Set<String> METADATA_LEN_FIELDS = Set.of(
-		"expandedTags", "responses", "internalResponses"
+		"expandedTags"
 	);
 
 	/**
 	 * Metadata fields that should automatically use :num suffix (numeric fields).
 	 */
 	private static final Set<String> METADATA_NUM_FIELDS = Set.of(
+		"responses", "internalResponses"
 	);
 
 	/**
@@ -14,10 +14,10 @@ import jasper.domain.proj.Tag;
 import jasper.errors.FreshLoginException;
 import jasper.repository.RefRepository;
 import jasper.repository.filter.Query;
+import jasper.repository.filter.TagQuery;
 import jasper.repository.spec.QualifiedTag;
 import jasper.security.jwt.JwtAuthentication;
 import jasper.service.dto.UserDto;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
@@ -41,7 +41,6 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -613,8 +612,7 @@ public class Auth {
 		if (filter.getQuery() == null) return true;
 		// Mod
 		if (hasRole(MOD)) return true;
-		var tagList = Arrays.stream(filter.getQuery().split("[!:|()\\s]+"))
-			.filter(StringUtils::isNotBlank)
+		var tagList = TagQuery.of(filter.getQuery()).tags().stream()
 			.filter(Auth::isPrivateTag)
 			.filter(qt -> !isUser(qt))
 			.map(QualifiedTag::selector)
@@ -4,6 +4,9 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwsHeader;
 import io.jsonwebtoken.SigningKeyResolver;
 import io.jsonwebtoken.io.Decoders;
+import jasper.management.SecurityMetersService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigInteger;
@@ -13,21 +16,53 @@ import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.RSAPublicKeySpec;
-import java.util.Collections;
-import java.util.HashMap;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import static jasper.util.Logging.getMessage;
+
+/**
+ * Resolves signing keys from a JWKS endpoint. Keys are prefetched and refreshed in the
+ * background once the Cache-Control max-age runs out, serving the stale keys meanwhile.
+ * Unknown key IDs wait for a refresh, but only trigger one once per minimum refresh
+ * interval so a flood of bogus key IDs cannot hammer the endpoint.
+ */
 class JwkSigningKeyResolver implements SigningKeyResolver {
+	private static final Logger logger = LoggerFactory.getLogger(JwkSigningKeyResolver.class);
+
+	private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+	private static final Duration DEFAULT_MAX_AGE = Duration.ofMinutes(15);
+	private static final Duration MAX_MAX_AGE = Duration.ofDays(1);
+	private static final Duration MIN_REFRESH = Duration.ofSeconds(30);
+	private static final long REFRESH_TIMEOUT_SEC = 10;
+
+	private final URI jwkUri;
+	private final RestTemplate restTemplate;
+	private final SecurityMetersService securityMetersService;
+	private final Duration minRefresh;
+	private final AtomicReference<CompletableFuture<Map<String, Key>>> refreshing = new AtomicReference<>();
+	private volatile Map<String, Key> keyMap = Map.of();
+	private volatile Instant staleAt = Instant.MIN;
+	private volatile Instant lastRefresh = Instant.MIN;
 
-	private URI jwkUri;
-	private RestTemplate restTemplate;
-	private Object lock = new Object();
-	private volatile Map<String, Key> keyMap = new HashMap<>();
+	JwkSigningKeyResolver(URI jwkUri, RestTemplate restTemplate, SecurityMetersService securityMetersService) {
+		this(jwkUri, restTemplate, securityMetersService, MIN_REFRESH);
+	}
 
-	JwkSigningKeyResolver(URI jwkUri, RestTemplate restTemplate) {
+	JwkSigningKeyResolver(URI jwkUri, RestTemplate restTemplate, SecurityMetersService securityMetersService, Duration minRefresh) {
 		this.jwkUri = jwkUri;
 		this.restTemplate = restTemplate;
+		this.securityMetersService = securityMetersService;
+		this.minRefresh = minRefresh;
+		refresh();
 	}
 
 	@Override
@@ -40,46 +75,90 @@ class JwkSigningKeyResolver implements SigningKeyResolver {
 		return getKey(header.getKeyId());
 	}
 
-	private Key getKey(String keyId) {
+	Key getKey(String keyId) {
+		if (Instant.now().isAfter(staleAt)) refresh();
+		var result = keyMap.get(keyId);
+		if (result != null) return result;
 
-		// check non synchronized to avoid a lock
-		Key result = keyMap.get(keyId);
-		if (result != null) {
-			return result;
+		var pending = refreshing.get();
+		if (pending == null) {
+			if (Instant.now().isBefore(lastRefresh.plus(minRefresh))) {
+				logger.debug("Unknown JWKS key ID {}, refreshed too recently", keyId);
+				// Check again in case a refresh finished since
+				return keyMap.get(keyId);
+			}
+			pending = refresh();
+		}
+		try {
+			return pending.get(REFRESH_TIMEOUT_SEC, TimeUnit.SECONDS).get(keyId);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException | TimeoutException e) {
+			return null;
 		}
+	}
 
-		synchronized (lock) {
-			// once synchronized, check the map once again the a previously
-			// synchronized thread could have already updated they keys
-			result = keyMap.get(keyId);
-			if (result != null) {
-				return result;
+	/**
+	 * Start a refresh, or join the one in progress.
+	 */
+	private CompletableFuture<Map<String, Key>> refresh() {
+		while (true) {
+			var pending = refreshing.get();
+			if (pending != null) return pending;
+			var future = new CompletableFuture<Map<String, Key>>();
+			if (refreshing.compareAndSet(null, future)) {
+				lastRefresh = Instant.now();
+				Thread.ofVirtual().start(() -> {
+					try {
+						updateKeys();
+					} finally {
+						refreshing.set(null);
+						future.complete(keyMap);
+					}
+				});
+				return future;
 			}
-
-			// finally, fallback to updating the keys, an return a value (or null)
-			updateKeys();
-			return keyMap.get(keyId);
 		}
 	}
 
 	private void updateKeys() {
-		Map<String, Key> newKeys = restTemplate
-			.getForObject(jwkUri, JwkKeys.class)
-			.getKeys().stream()
-			.filter(jwkKey -> "sig".equals(jwkKey.getPublicKeyUse()))
-			.filter(jwkKey -> "RSA".equals(jwkKey.getKeyType()))
-			.collect(Collectors.toMap(JwkKey::getKeyId, jwkKey -> {
-				BigInteger modulus = base64ToBigInteger(jwkKey.getPublicKeyModulus());
-				BigInteger exponent = base64ToBigInteger(jwkKey.getPublicKeyExponent());
-				RSAPublicKeySpec rsaPublicKeySpec = new RSAPublicKeySpec(modulus, exponent);
-				try {
-					KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-					return keyFactory.generatePublic(rsaPublicKeySpec);
-				} catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-					throw new IllegalStateException("Failed to parse public key");
-				}
-			}));
-		keyMap = Collections.unmodifiableMap(newKeys);
+		var start = System.nanoTime();
+		try {
+			var response = restTemplate.getForEntity(jwkUri, JwkKeys.class);
+			keyMap = response.getBody().getKeys().stream()
+				.filter(jwkKey -> "sig".equals(jwkKey.getPublicKeyUse()))
+				.filter(jwkKey -> "RSA".equals(jwkKey.getKeyType()))
+				.collect(Collectors.toUnmodifiableMap(JwkKey::getKeyId, jwkKey -> {
+					BigInteger modulus = base64ToBigInteger(jwkKey.getPublicKeyModulus());
+					BigInteger exponent = base64ToBigInteger(jwkKey.getPublicKeyExponent());
+					RSAPublicKeySpec rsaPublicKeySpec = new RSAPublicKeySpec(modulus, exponent);
+					try {
+						KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+						return keyFactory.generatePublic(rsaPublicKeySpec);
+					} catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+						throw new IllegalStateException("Failed to parse public key");
+					}
+				}));
+			staleAt = Instant.now().plus(maxAge(response.getHeaders().getCacheControl()));
+			if (securityMetersService != null) securityMetersService.trackJwksRefresh(System.nanoTime() - start);
+		} catch (Exception e) {
+			logger.warn("Failed to refresh JWKS from {}: {}", jwkUri, getMessage(e));
+			// Keep serving the stale keys, try again after the minimum refresh interval
+			staleAt = Instant.now().plus(minRefresh);
+			if (securityMetersService != null) securityMetersService.trackJwksRefreshFailure(System.nanoTime() - start);
+		}
+	}
+
+	private Duration maxAge(String cacheControl) {
+		if (cacheControl == null) return DEFAULT_MAX_AGE;
+		if (cacheControl.contains("no-cache") || cacheControl.contains("no-store")) return minRefresh;
+		var matcher = MAX_AGE.matcher(cacheControl);
+		if (!matcher.find()) return DEFAULT_MAX_AGE;
+		var maxAge = Duration.ofSeconds(Long.parseLong(matcher.group(1)));
+		if (maxAge.compareTo(minRefresh) < 0) return minRefresh;
+		if (maxAge.compareTo(MAX_MAX_AGE) > 0) return MAX_MAX_AGE;
+		return maxAge;
 	}
 
 	private BigInteger base64ToBigInteger(String value) {
@@ -1,5 +1,9 @@
 package jasper.security.jwt;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtParser;
@@ -14,8 +18,12 @@ import jasper.domain.User;
 import jasper.domain.proj.Tag;
 import jasper.errors.UserTagInUseException;
 import jasper.management.SecurityMetersService;
+import jasper.service.dto.TemplateDto;
+import jasper.service.dto.UserDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.Message;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -23,24 +31,32 @@ import org.springframework.web.client.RestTemplate;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static jasper.domain.proj.HasOrigin.formatOrigin;
 import static jasper.domain.proj.Tag.localTag;
 import static jasper.domain.proj.Tag.matchesPublic;
 import static jasper.domain.proj.Tag.prefix;
+import static jasper.security.Auth.USER_ROLE_HEADER;
 import static jasper.security.Auth.USER_TAG_HEADER;
 import static jasper.security.Auth.getHeader;
 import static jasper.security.AuthoritiesConstants.ADMIN;
 import static jasper.security.AuthoritiesConstants.MOD;
 import static jasper.security.AuthoritiesConstants.PRIVATE;
 import static jasper.util.Logging.getMessage;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.security.MessageDigest.getInstance;
+import static org.apache.commons.codec.binary.Hex.encodeHexString;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.springframework.util.StringUtils.hasText;
@@ -52,15 +68,57 @@ public class TokenProviderImpl extends AbstractTokenProvider implements TokenPro
 
 	private static final String[] ROOT_ROLES_ALLOWED = new String[]{ MOD, ADMIN };
 
-	Map<String, JwtParser> jwtParsers = new HashMap<>();
+	Map<String, JwtParser> jwtParsers = new ConcurrentHashMap<>();
 
 	private final SecurityMetersService securityMetersService;
 	private final RestTemplate restTemplate;
+	/**
+	 * Tokens that passed validateToken, with the Authentication once resolved.
+	 */
+	private final Cache<TokenKey, VerifiedToken> tokens;
+	/**
+	 * Cached tokens with a resolved Authentication by origin, so user updates
+	 * only need to check the tokens of that origin.
+	 */
+	private final Map<String, Set<VerifiedToken>> resolved = new ConcurrentHashMap<>();
 
 	public TokenProviderImpl(Props props, ConfigCache caches, SecurityMetersService securityMetersService, RestTemplate restTemplate) {
 		super(props, caches);
 		this.securityMetersService = securityMetersService;
 		this.restTemplate = restTemplate;
+		tokens = Caffeine.newBuilder()
+			.maximumSize(props.getTokenCacheSize())
+			.expireAfter(new TokenExpiry(props.getTokenCacheSec()))
+			.removalListener((TokenKey key, VerifiedToken value, RemovalCause cause) -> unresolve(key.origin(), value))
+			.recordStats()
+			.build();
+		if (securityMetersService != null) securityMetersService.monitorTokenCache(tokens);
+	}
+
+	@ServiceActivator(inputChannel = "userRxChannel")
+	public void handleUserUpdate(Message<UserDto> message) {
+		var user = message.getPayload();
+		var origin = Objects.toString(user.getOrigin(), "");
+		var cached = resolved.get(origin);
+		if (cached == null) return;
+		// With external IDs any user may change which user a token resolves to
+		var all = configs.security(origin).isExternalId();
+		var principal = user.getTag() + origin;
+		cached.removeIf(token -> {
+			var authentication = token.authentication;
+			if (authentication != null && !all && !principal.equals(authentication.getName())) return false;
+			// Keep the verified claims, only resolve the user again
+			token.authentication = null;
+			return true;
+		});
+	}
+
+	@ServiceActivator(inputChannel = "templateRxChannel")
+	public void handleTemplateUpdate(Message<TemplateDto> message) {
+		if (!"_config/security".equals(message.getPayload().getTag())) return;
+		jwtParsers.clear();
+		tokens.invalidateAll();
+		resolved.clear();
 	}
 
 	public String createToken(Authentication authentication, int validityInSeconds) {
@@ -82,7 +140,9 @@ public class TokenProviderImpl extends AbstractTokenProvider implements TokenPro
 	}
 
 	public Authentication getAuthentication(String token, String origin) {
-		var claims = getParser(origin).parseSignedClaims(token).getPayload();
+		var verified = tokens.getIfPresent(key(token, origin));
+		if (verified != null && verified.authentication != null) return verified.authentication;
+		var claims = verified != null ? verified.claims : getParser(origin).parseSignedClaims(token).getPayload();
 		var principal = getUsername(claims, origin);
 		User user;
 		try {
@@ -92,7 +152,20 @@ public class TokenProviderImpl extends AbstractTokenProvider implements TokenPro
 			user = getUser(localTag(principal), claims, origin);
 		}
 		logger.debug("{} Token Auth {}", origin, principal);
-		return new JwtAuthentication(principal, user, claims, getAuthorities(claims, user, origin));
+		var authentication = new JwtAuthentication(principal, user, claims, getAuthorities(claims, user, origin));
+		if (verified != null) {
+			verified.authentication = authentication;
+			resolved.computeIfAbsent(origin, o -> ConcurrentHashMap.newKeySet()).add(verified);
+		}
+		return authentication;
+	}
+
+	private void unresolve(String origin, VerifiedToken token) {
+		if (token == null || token.authentication == null) return;
+		resolved.computeIfPresent(origin, (o, tokens) -> {
+			tokens.remove(token);
+			return tokens.isEmpty() ? null : tokens;
+		});
 	}
 
 	JwtParser getParser(String origin) {
@@ -105,7 +178,7 @@ public class TokenProviderImpl extends AbstractTokenProvider implements TokenPro
 					break;
 				case "jwks":
                     try {
-                        jwtParsers.put(origin, Jwts.parser().setSigningKeyResolver(new JwkSigningKeyResolver(new URI(security.getJwksUri()), restTemplate)).build());
+                        jwtParsers.put(origin, Jwts.parser().setSigningKeyResolver(new JwkSigningKeyResolver(new URI(security.getJwksUri()), restTemplate, securityMetersService)).build());
                     } catch (URISyntaxException e) {
 						logger.error("{} Cannot parse JWKS URI {}", origin, security.getJwksUri());
                         throw new RuntimeException(e);
@@ -215,6 +288,8 @@ public class TokenProviderImpl extends AbstractTokenProvider implements TokenPro
 			logger.error("{} No client for origin {} in security settings", origin, formatOrigin(origin));
 			return false;
 		}
+		var key = key(authToken, origin);
+		if (tokens.getIfPresent(key) != null) return true;
 		try {
 			var parser = getParser(origin);
 			if (parser == null) {
@@ -236,6 +311,7 @@ public class TokenProviderImpl extends AbstractTokenProvider implements TokenPro
 				securityMetersService.trackUnverifiedEmail();
 				logger.trace(INVALID_JWT_TOKEN + " Email is not verified");
 			} else {
+				tokens.put(key, new VerifiedToken(claims));
 				return true;
 			}
 		} catch (ExpiredJwtException e) {
@@ -256,4 +332,54 @@ public class TokenProviderImpl extends AbstractTokenProvider implements TokenPro
 		}
         return false;
 	}
+
+	/**
+	 * Headers are part of the key since they can change the resolved Authentication.
+	 */
+	private TokenKey key(String token, String origin) {
+		try {
+			return new TokenKey(
+				encodeHexString(getInstance("SHA-256").digest(token.getBytes(UTF_8))),
+				origin,
+				getHeader(USER_TAG_HEADER),
+				getHeader(USER_ROLE_HEADER));
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private record TokenKey(String digest, String origin, String userTag, String userRole) { }
+
+	private static class VerifiedToken {
+		final Claims claims;
+		volatile Authentication authentication;
+
+		VerifiedToken(Claims claims) {
+			this.claims = claims;
+		}
+	}
+
+	/**
+	 * Cache tokens until they expire, but no longer than the max cache time.
+	 */
+	private record TokenExpiry(int maxSec) implements Expiry<TokenKey, VerifiedToken> {
+		@Override
+		public long expireAfterCreate(TokenKey key, VerifiedToken value, long currentTime) {
+			var max = TimeUnit.SECONDS.toNanos(maxSec);
+			var expiration = value.claims.getExpiration();
+			if (expiration == null) return max;
+			var remaining = TimeUnit.MILLISECONDS.toNanos(expiration.getTime() - System.currentTimeMillis());
+			return Math.max(0, Math.min(max, remaining));
+		}
+
+		@Override
+		public long expireAfterUpdate(TokenKey key, VerifiedToken value, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, value, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(TokenKey key, VerifiedToken value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
 }
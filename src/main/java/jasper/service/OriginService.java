@@ -8,6 +8,7 @@ import jasper.domain.proj.HasOrigin;
 import jasper.repository.ExtRepository;
 import jasper.repository.PluginRepository;
 import jasper.repository.RefRepository;
+import jasper.repository.RefResponseRepository;
 import jasper.repository.TemplateRepository;
 import jasper.repository.UserRepository;
 import jasper.security.Auth;
@@ -39,6 +40,9 @@ public class OriginService {
 	@Autowired
 	RefRepository refRepository;
 
+	@Autowired
+	RefResponseRepository refResponseRepository;
+
 	@Autowired
 	ExtRepository extRepository;
 
@@ -82,6 +86,7 @@ public class OriginService {
 		var start = Instant.now();
 		logger.info("{} Deleting origin {} older than {}", auth.getOrigin(), origin, olderThan);
 		refRepository.deleteByOriginAndModifiedLessThanEqual(origin, olderThan);
+		refResponseRepository.deleteAllWithoutSource(origin);
 		extRepository.deleteByOriginAndModifiedLessThanEqual(origin, olderThan);
 		userRepository.deleteByOriginAndModifiedLessThanEqual(origin, olderThan);
 		if (!auth.local(origin) || auth.hasRole(ADMIN)) {
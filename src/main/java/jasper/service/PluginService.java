@@ -8,23 +8,28 @@ import com.github.fge.jsonpatch.Patch;
 import io.micrometer.core.annotation.Timed;
 import jasper.component.IngestPlugin;
 import jasper.domain.Plugin;
+import jasper.domain.Plugin_;
 import jasper.errors.InvalidPatchException;
 import jasper.errors.NotFoundException;
 import jasper.repository.PluginRepository;
 import jasper.repository.filter.TagFilter;
+import jasper.repository.spec.Keyset;
 import jasper.security.Auth;
 import jasper.service.dto.DtoMapper;
 import jasper.service.dto.PluginDto;
+import jasper.service.dto.ScrollDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.function.Consumer;
 
 import static jasper.domain.proj.Tag.localTag;
 import static jasper.domain.proj.Tag.tagOrigin;
@@ -94,6 +99,37 @@ public class PluginService {
 			.map(mapper::domainToDto);
 	}
 
+	/**
+	 * Page through matches by keyset instead of offset, without counting.
+	 * @param after token from the previous page
+	 */
+	@Transactional(readOnly = true)
+	@PreAuthorize("@auth.minRole()")
+	@Timed(value = "jasper.service", extraTags = {"service", "plugin"}, histogram = true)
+	public ScrollDto<PluginDto> scroll(TagFilter filter, Sort sort, String after, int size) {
+		var keyset = Keyset.start(sort, Plugin_.TAG, Plugin_.MODIFIED).after(after);
+		var rows = pluginRepository.findAfter(
+			auth.<Plugin>tagReadSpec()
+				.and(filter.spec()),
+			keyset,
+			size + 1);
+		var next = rows.size() > size ? keyset.next(rows.get(size - 1)) : null;
+		return new ScrollDto<>(rows.stream()
+			.limit(size)
+			.map(mapper::domainToDto)
+			.toList(), next);
+	}
+
+	@PreAuthorize("@auth.minRole()")
+	@Timed(value = "jasper.service", extraTags = {"service", "plugin"}, histogram = true)
+	public void stream(TagFilter filter, int batchSize, Consumer<PluginDto> consumer) {
+		pluginRepository.forEachAfter(
+			auth.<Plugin>tagReadSpec()
+				.and(filter.spec()),
+			batchSize,
+			plugin -> consumer.accept(mapper.domainToDto(plugin)));
+	}
+
 	@PreAuthorize("@auth.canEditConfig(#plugin)")
 	@Timed(value = "jasper.service", extraTags = {"service", "plugin"}, histogram = true)
 	public Instant update(Plugin plugin) {
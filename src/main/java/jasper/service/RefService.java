@@ -10,20 +10,24 @@ import jasper.component.ConfigCache;
 import jasper.component.Ingest;
 import jasper.component.Validate;
 import jasper.domain.Ref;
+import jasper.domain.Ref_;
 import jasper.errors.InvalidPatchException;
 import jasper.errors.MaxSourcesException;
 import jasper.errors.NotFoundException;
 import jasper.repository.RefRepository;
 import jasper.repository.filter.RefFilter;
+import jasper.repository.spec.Keyset;
 import jasper.security.Auth;
 import jasper.service.dto.DtoMapper;
 import jasper.service.dto.RefDto;
+import jasper.service.dto.ScrollDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PostAuthorize;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -33,6 +37,8 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
 
 import static jasper.component.Meta.expandTags;
 import static jasper.repository.spec.OriginSpec.isOrigin;
@@ -88,6 +94,31 @@ public class RefService {
 		ingest.push(auth.getOrigin(), ref, true, false);
 	}
 
+	/**
+	 * Batch version of {@link #push(Ref)}. Refs the user can't write are skipped,
+	 * the rest are pushed. The first error is thrown after the push.
+	 */
+	@Timed(value = "jasper.service", extraTags = {"service", "ref"}, histogram = true)
+	public void pushAll(List<Ref> refs) {
+		var root = configs.root();
+		RuntimeException first = null;
+		var allowed = new ArrayList<Ref>();
+		for (var ref : refs) {
+			if (!auth.canWriteRef(ref)) {
+				first = first == null ? new AccessDeniedException("Can't write Ref " + ref.getOrigin() + " " + ref.getUrl()) : first;
+				continue;
+			}
+			if (ref.getSources() != null && ref.getSources().size() > root.getMaxSources()) {
+				logger.warn("Ignoring max count for push. Max count is set to {}. Ref contains {} sources.", root.getMaxSources(), ref.getSources().size());
+			}
+			allowed.add(ref);
+		}
+		for (var error : ingest.pushAll(auth.getOrigin(), allowed, true, false)) {
+			first = first == null ? error.error() : first;
+		}
+		if (first != null) throw first;
+	}
+
 	@Transactional(readOnly = true)
 	@PostAuthorize("@auth.canReadRef(returnObject)")
 	@Timed(value = "jasper.service", extraTags = {"service", "ref"}, histogram = true)
@@ -109,14 +140,43 @@ public class RefService {
 	@PreAuthorize("@auth.canReadQuery(#filter)")
 	@Timed(value = "jasper.service", extraTags = {"service", "ref"}, histogram = true)
 	public Page<RefDto> page(RefFilter filter, Pageable pageable) {
-		return refRepository
+		return mapper.domainToDto(refRepository
 			.findAll(
 				sort(
 					auth.refReadSpec()
 						.and(filter.spec(auth.getUserTag())),
 					auth.pageable(pageable)),
-				of(pageable.getPageNumber(), pageable.getPageSize()))
-			.map(mapper::domainToDto);
+				of(pageable.getPageNumber(), pageable.getPageSize())));
+	}
+
+	/**
+	 * Page through matches by keyset instead of offset, without counting.
+	 * @param after token from the previous page
+	 */
+	@Transactional(readOnly = true)
+	@PreAuthorize("@auth.canReadQuery(#filter)")
+	@Timed(value = "jasper.service", extraTags = {"service", "ref"}, histogram = true)
+	public ScrollDto<RefDto> scroll(RefFilter filter, Sort sort, String after, int size) {
+		var keyset = Keyset.start(sort, Ref_.URL, Ref_.MODIFIED, Ref_.CREATED, Ref_.PUBLISHED).after(after);
+		var rows = refRepository.findAfter(
+			auth.refReadSpec()
+				.and(filter.spec(auth.getUserTag())),
+			keyset,
+			size + 1);
+		var next = rows.size() > size ? keyset.next(rows.get(size - 1)) : null;
+		return new ScrollDto<>(mapper.domainToDto(rows.stream()
+			.limit(size)
+			.toList()), next);
+	}
+
+	@PreAuthorize("@auth.canReadQuery(#filter)")
+	@Timed(value = "jasper.service", extraTags = {"service", "ref"}, histogram = true)
+	public void stream(RefFilter filter, int batchSize, Consumer<RefDto> consumer) {
+		refRepository.forEachBatchAfter(
+			auth.refReadSpec()
+				.and(filter.spec(auth.getUserTag())),
+			batchSize,
+			batch -> mapper.domainToDto(batch).forEach(consumer));
 	}
 
 	@Transactional(readOnly = true)
@@ -8,23 +8,28 @@ import com.github.fge.jsonpatch.Patch;
 import io.micrometer.core.annotation.Timed;
 import jasper.component.IngestTemplate;
 import jasper.domain.Template;
+import jasper.domain.Template_;
 import jasper.errors.InvalidPatchException;
 import jasper.errors.NotFoundException;
 import jasper.repository.TemplateRepository;
 import jasper.repository.filter.TagFilter;
+import jasper.repository.spec.Keyset;
 import jasper.security.Auth;
 import jasper.service.dto.DtoMapper;
+import jasper.service.dto.ScrollDto;
 import jasper.service.dto.TemplateDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.function.Consumer;
 
 import static jasper.domain.proj.Tag.localTag;
 import static jasper.domain.proj.Tag.tagOrigin;
@@ -93,6 +98,37 @@ public class TemplateService {
 			.map(mapper::domainToDto);
 	}
 
+	/**
+	 * Page through matches by keyset instead of offset, without counting.
+	 * @param after token from the previous page
+	 */
+	@Transactional(readOnly = true)
+	@PreAuthorize("@auth.minRole()")
+	@Timed(value = "jasper.service", extraTags = {"service", "template"}, histogram = true)
+	public ScrollDto<TemplateDto> scroll(TagFilter filter, Sort sort, String after, int size) {
+		var keyset = Keyset.start(sort, Template_.TAG, Template_.MODIFIED).after(after);
+		var rows = templateRepository.findAfter(
+			auth.<Template>tagReadSpec()
+				.and(filter.spec()),
+			keyset,
+			size + 1);
+		var next = rows.size() > size ? keyset.next(rows.get(size - 1)) : null;
+		return new ScrollDto<>(rows.stream()
+			.limit(size)
+			.map(mapper::domainToDto)
+			.toList(), next);
+	}
+
+	@PreAuthorize("@auth.minRole()")
+	@Timed(value = "jasper.service", extraTags = {"service", "template"}, histogram = true)
+	public void stream(TagFilter filter, int batchSize, Consumer<TemplateDto> consumer) {
+		templateRepository.forEachAfter(
+			auth.<Template>tagReadSpec()
+				.and(filter.spec()),
+			batchSize,
+			template -> consumer.accept(mapper.domainToDto(template)));
+	}
+
 	@PreAuthorize("@auth.canEditConfig(#template)")
 	@Timed(value = "jasper.service", extraTags = {"service", "template"}, histogram = true)
 	public Instant update(Template template) {
@@ -9,19 +9,23 @@ import io.micrometer.core.annotation.Timed;
 import jasper.component.IngestUser;
 import jasper.config.Props;
 import jasper.domain.User;
+import jasper.domain.User_;
 import jasper.errors.InvalidPatchException;
 import jasper.errors.NotFoundException;
 import jasper.repository.UserRepository;
 import jasper.repository.filter.TagFilter;
+import jasper.repository.spec.Keyset;
 import jasper.security.Auth;
 import jasper.service.dto.DtoMapper;
 import jasper.service.dto.RolesDto;
+import jasper.service.dto.ScrollDto;
 import jasper.service.dto.UserDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
@@ -32,6 +36,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.RSAPublicKey;
 import java.time.Instant;
+import java.util.function.Consumer;
 
 import static jasper.domain.proj.Tag.localTag;
 import static jasper.domain.proj.Tag.tagOrigin;
@@ -127,6 +132,38 @@ public class UserService {
 			.map(auth::filterUser);
 	}
 
+	/**
+	 * Page through matches by keyset instead of offset, without counting.
+	 * @param after token from the previous page
+	 */
+	@Transactional(readOnly = true)
+	@PreAuthorize("@auth.minRole()")
+	@Timed(value = "jasper.service", extraTags = {"service", "user"}, histogram = true)
+	public ScrollDto<UserDto> scroll(TagFilter filter, Sort sort, String after, int size) {
+		var keyset = Keyset.start(sort, User_.TAG, User_.MODIFIED).after(after);
+		var rows = userRepository.findAfter(
+			auth.<User>tagReadSpec()
+				.and(filter.spec()),
+			keyset,
+			size + 1);
+		var next = rows.size() > size ? keyset.next(rows.get(size - 1)) : null;
+		return new ScrollDto<>(rows.stream()
+			.limit(size)
+			.map(mapper::domainToDto)
+			.map(auth::filterUser)
+			.toList(), next);
+	}
+
+	@PreAuthorize("@auth.minRole()")
+	@Timed(value = "jasper.service", extraTags = {"service", "user"}, histogram = true)
+	public void stream(TagFilter filter, int batchSize, Consumer<UserDto> consumer) {
+		userRepository.forEachAfter(
+			auth.<User>tagReadSpec()
+				.and(filter.spec()),
+			batchSize,
+			user -> consumer.accept(auth.filterUser(mapper.domainToDto(user))));
+	}
+
 	@PreAuthorize("@auth.canWriteUser(#user)")
 	@Timed(value = "jasper.service", extraTags = {"service", "user"}, histogram = true)
 	public Instant update(User user) {
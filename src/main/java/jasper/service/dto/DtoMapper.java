@@ -4,24 +4,31 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jasper.component.Storage;
 import jasper.domain.Ext;
 import jasper.domain.External;
-import jasper.domain.Metadata;
 import jasper.domain.Plugin;
 import jasper.domain.Ref;
+import jasper.domain.RefResponse;
+import jasper.domain.RefResponseId;
 import jasper.domain.Template;
 import jasper.domain.User;
 import jasper.domain.proj.HasTags;
+import jasper.repository.RefResponseRepository;
 import jasper.security.Auth;
 import org.mapstruct.AfterMapping;
+import org.mapstruct.Context;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
+import static jasper.domain.proj.Tag.matchesTemplate;
 import static jasper.domain.proj.Tag.publicTag;
 
 /**
@@ -36,10 +43,34 @@ public abstract class DtoMapper {
 	@Autowired
 	ObjectMapper objectMapper;
 
+	@Autowired
+	RefResponseRepository refResponseRepository;
+
+	/**
+	 * User response edges preloaded for a batch of Refs.
+	 */
+	public record UserEdges(Map<RefResponseId, RefResponse> edges) { }
+
 	@Mapping(target = "metadata.userUrls", ignore = true)
-	public abstract RefDto domainToDto(Ref ref);
+	protected abstract RefDto domainToDto(Ref ref, @Context UserEdges userEdges);
+
+	public RefDto domainToDto(Ref ref) {
+		return domainToDto(ref, null);
+	}
+
+	/**
+	 * Map a batch of Refs, loading the user responses for all of them in one query.
+	 */
+	public List<RefDto> domainToDto(List<Ref> refs) {
+		var userEdges = new UserEdges(loadUserEdges(refs));
+		return refs.stream().map(ref -> domainToDto(ref, userEdges)).toList();
+	}
+
+	public Page<RefDto> domainToDto(Page<Ref> page) {
+		return new PageImpl<>(domainToDto(page.getContent()), page.getPageable(), page.getTotalElements());
+	}
 
-	@Mapping(target = "responses", source = "metadata.responses")
+	@Mapping(target = "responses", ignore = true)
 	@Mapping(target = "metadata.userUrls", ignore = true)
 	public abstract RefNodeDto domainToNodeDto(Ref ref);
 
@@ -99,20 +130,45 @@ public abstract class DtoMapper {
 	}
 
 	@AfterMapping
-	protected void userUrlsMetadata(Metadata source, @MappingTarget MetadataDto target) {
-		if (source.getUserUrls() == null) return;
-		if (auth.getUserTag() == null) return;
-		var prefix = "tag:/" + publicTag(auth.getUserTag().tag) + "?url=";
-		target.setUserUrls(source.getUserUrls().entrySet().stream()
-			// TODO: how is null getting in here
-			.filter(e -> e.getValue().stream().anyMatch(url -> url != null && url.startsWith(prefix)))
-			.map(Map.Entry::getKey)
-			.toList()
-		);
+	protected void userUrlsMetadata(Ref source, @MappingTarget RefDto target, @Context UserEdges userEdges) {
+		if (target.getMetadata() == null) return;
+		target.getMetadata().setUserUrls(userUrls(source, userEdges));
 	}
 
-	public int countMetadata(List<String> responses) {
-		if (responses == null) return 0;
-		return responses.size();
+	@AfterMapping
+	protected void userUrlsMetadata(Ref source, @MappingTarget RefNodeDto target) {
+		if (target.getMetadata() != null) target.getMetadata().setUserUrls(userUrls(source, null));
+		target.setResponses(refResponseRepository.findAllResponses(source.getUrl(), source.getOrigin()));
+	}
+
+	/**
+	 * User plugins the current user has responded to the Ref with.
+	 * Looked up in the preloaded edges if given.
+	 */
+	private List<String> userUrls(Ref source, UserEdges userEdges) {
+		if (source.getMetadata() == null || source.getMetadata().getPlugins() == null) return null;
+		if (source.getMetadata().getPlugins().keySet().stream().noneMatch(p -> matchesTemplate("plugin/user", p))) return null;
+		if (auth.getUserTag() == null) return null;
+		var id = new RefResponseId(source.getUrl(), source.getOrigin(), userResponse(source.getUrl()));
+		return (userEdges != null ? Optional.ofNullable(userEdges.edges().get(id)) : refResponseRepository.findById(id))
+			.map(edge -> edge.getTags().stream()
+				.filter(p -> matchesTemplate("plugin/user", p))
+				.toList())
+			.orElse(null);
+	}
+
+	private String userResponse(String url) {
+		return "tag:/" + publicTag(auth.getUserTag().tag) + "?url=" + url;
+	}
+
+	private Map<RefResponseId, RefResponse> loadUserEdges(List<Ref> refs) {
+		if (auth.getUserTag() == null || refs.isEmpty()) return Map.of();
+		var urls = refs.stream().map(Ref::getUrl).distinct().toList();
+		var responses = urls.stream().map(this::userResponse).toList();
+		var result = new HashMap<RefResponseId, RefResponse>();
+		for (var edge : refResponseRepository.findAllByUrlInAndResponseIn(urls, responses)) {
+			result.put(new RefResponseId(edge.getUrl(), edge.getOrigin(), edge.getResponse()), edge);
+		}
+		return result;
 	}
 }
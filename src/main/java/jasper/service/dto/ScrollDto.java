@@ -0,0 +1,17 @@
+package jasper.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class ScrollDto<T> implements Serializable {
+	private List<T> content;
+	/**
+	 * Token for the next page, or null if this is the last page.
+	 */
+	private String next;
+}
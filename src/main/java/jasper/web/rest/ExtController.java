@@ -16,6 +16,7 @@ import jasper.errors.NotFoundException;
 import jasper.repository.filter.TagFilter;
 import jasper.service.ExtService;
 import jasper.service.dto.ExtDto;
+import jasper.service.dto.ScrollDto;
 import org.hibernate.validator.constraints.Length;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +34,7 @@ import java.time.Instant;
 import static jasper.domain.proj.Tag.QTAG_LEN;
 import static jasper.repository.filter.Query.QUERY_LEN;
 import static jasper.repository.filter.Query.SEARCH_LEN;
+import static jasper.repository.spec.Keyset.TOKEN_LEN;
 
 @ClearIdle
 @RestController
@@ -95,7 +97,7 @@ public class ExtController {
 		@RequestParam(required = false) Instant modifiedBefore,
 		@RequestParam(required = false) @Length(max = SEARCH_LEN) String search
 	) {
-		return httpCache.ifNotModifiedPage(extService.page(
+		return httpCache.ifNotModifiedPage(Ext.class, () -> extService.page(
 			TagFilter.builder()
 				.query(query)
 				.nesting(nesting)
@@ -104,7 +106,38 @@ public class ExtController {
 				.search(search)
 				.modifiedBefore(modifiedBefore)
 				.modifiedAfter(modifiedAfter).build(),
-			pageable));
+			pageable)));
+	}
+
+	@ApiResponses({
+		@ApiResponse(responseCode = "200"),
+		@ApiResponse(responseCode = "304", content = @Content()),
+		@ApiResponse(responseCode = "400", content = @Content(schema = @Schema(ref = "https://opensource.zalando.com/problem/schema.yaml#/Problem"))),
+	})
+	@GetMapping("scroll")
+	HttpEntity<ScrollDto<ExtDto>> getExtScroll(
+		@PageableDefault(sort = "tag") @ParameterObject Pageable pageable,
+		@RequestParam(required = false) @Length(max = TOKEN_LEN) String after,
+		@RequestParam(required = false) @Length(max = QUERY_LEN) @Pattern(regexp = TagFilter.QUERY) String query,
+		@RequestParam(required = false) Integer nesting,
+		@RequestParam(required = false) Integer level,
+		@RequestParam(required = false) Boolean deleted,
+		@RequestParam(required = false) Instant modifiedAfter,
+		@RequestParam(required = false) Instant modifiedBefore,
+		@RequestParam(required = false) @Length(max = SEARCH_LEN) String search
+	) {
+		return httpCache.ifNotModifiedPage(Ext.class, () -> extService.scroll(
+			TagFilter.builder()
+				.query(query)
+				.nesting(nesting)
+				.level(level)
+				.deleted(deleted)
+				.search(search)
+				.modifiedBefore(modifiedBefore)
+				.modifiedAfter(modifiedAfter).build(),
+			pageable.getSort(),
+			after,
+			pageable.getPageSize())));
 	}
 
 	@ApiResponses({
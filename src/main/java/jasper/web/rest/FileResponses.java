@@ -0,0 +1,185 @@
+package jasper.web.rest;
+
+import jasper.component.Storage.LocalFile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Long.parseLong;
+import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.springframework.web.context.request.RequestAttributes.SCOPE_REQUEST;
+
+/**
+ * Serves cached files with Range, If-Range and conditional request support.
+ * Files in local storage are handed to Tomcat sendfile when the connector
+ * supports it, or transferred from a FileChannel at the requested position.
+ */
+class FileResponses {
+	private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+	/**
+	 * Smaller files are cheaper to write from the response buffer, same as the Tomcat default servlet.
+	 */
+	private static final long SENDFILE_MIN = 48 * 1024;
+
+	static ResponseEntity<StreamingResponseBody> serve(WebRequest request, InputStream is, Long contentLength, MediaType contentType, String contentDisposition) {
+		var cacheControl = CacheControl.maxAge(100, TimeUnit.DAYS).cachePrivate();
+		var file = is instanceof LocalFile local ? local.path() : null;
+		String etag = null;
+		var lastModified = -1L;
+		if (file != null) {
+			try {
+				var attrs = Files.readAttributes(file, BasicFileAttributes.class);
+				contentLength = attrs.size();
+				lastModified = attrs.lastModifiedTime().toMillis();
+				etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(contentLength) + "\"";
+			} catch (IOException e) {
+				file = null;
+			}
+		}
+		// Adds the ETag and Last-Modified headers to the response
+		if (etag != null && request.checkNotModified(etag, lastModified)) {
+			closeQuietly(is);
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+				.cacheControl(cacheControl)
+				.build();
+		}
+		var rangeHeader = request.getHeader(HttpHeaders.RANGE);
+		if (rangeHeader != null && contentLength != null && rangeHeader.startsWith("bytes=") && ifRange(request, etag, lastModified)) {
+			try {
+				return handleRangeRequest(request, is, file, rangeHeader, contentLength, contentType, contentDisposition, cacheControl);
+			} catch (NumberFormatException e) {
+				// RFC 7233 Section 3.1: Ignore syntactically invalid range headers and return full content
+				// Fall through to return full content below
+			}
+		}
+		var responseBuilder = ResponseEntity.ok();
+		if (contentLength != null) {
+			responseBuilder.header(HttpHeaders.ACCEPT_RANGES, "bytes");
+			responseBuilder.contentLength(contentLength);
+		} else {
+			responseBuilder.header(HttpHeaders.ACCEPT_RANGES, "none");
+		}
+		responseBuilder
+			.header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+			.contentType(contentType)
+			.cacheControl(cacheControl);
+		return body(request, responseBuilder, is, file, 0, contentLength);
+	}
+
+	/**
+	 * RFC 7233 Section 3.2: Only send a range if the validator matches the current file.
+	 */
+	private static boolean ifRange(WebRequest request, String etag, long lastModified) {
+		var ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (ifRange == null) return true;
+		if (etag == null) return false;
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) return ifRange.equals(etag);
+		try {
+			return ZonedDateTime.parse(ifRange, RFC_1123_DATE_TIME).toInstant().getEpochSecond() == lastModified / 1000;
+		} catch (DateTimeParseException e) {
+			return false;
+		}
+	}
+
+	private static ResponseEntity<StreamingResponseBody> handleRangeRequest(WebRequest request, InputStream is, Path file, String rangeHeader, long contentLength, MediaType contentType, String contentDisposition, CacheControl cacheControl) throws NumberFormatException {
+		// Parse "bytes=start-end" (end is optional)
+		var rangeValue = rangeHeader.substring("bytes=".length());
+		var ranges = rangeValue.split("-");
+		var start = isBlank(ranges[0])
+			? contentLength - parseLong(ranges[1])
+			: parseLong(ranges[0]);
+		var end = ranges.length > 1 && isNotBlank(ranges[0]) && isNotBlank(ranges[1])
+			? parseLong(ranges[1])
+			: contentLength - 1;
+
+		// RFC 7233: If end >= contentLength, adjust to contentLength - 1
+		if (end >= contentLength) {
+			end = contentLength - 1;
+		}
+		// RFC 7233: If suffix-byte-range-spec exceeds content length, clamp start to 0
+		if (start < 0) {
+			start = 0;
+		}
+		// Only return 416 if start is beyond content or start > end after adjustment
+		if (start >= contentLength || start > end) {
+			closeQuietly(is);
+			return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+				.header(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength)
+				.build();
+		}
+		var rangeLength = end - start + 1;
+		var responseBuilder = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+			.header(HttpHeaders.ACCEPT_RANGES, "bytes")
+			.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + contentLength)
+			.header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+			.contentLength(rangeLength)
+			.contentType(contentType)
+			.cacheControl(cacheControl);
+		return body(request, responseBuilder, is, file, start, rangeLength);
+	}
+
+	private static ResponseEntity<StreamingResponseBody> body(WebRequest request, ResponseEntity.BodyBuilder responseBuilder, InputStream is, Path file, long start, Long length) {
+		if (file == null) {
+			return responseBuilder.body(outputStream -> streamContent(is, outputStream, start, length));
+		}
+		closeQuietly(is);
+		if (length >= SENDFILE_MIN && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT, SCOPE_REQUEST))) {
+			// Tomcat writes the file after the headers are committed
+			request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString(), SCOPE_REQUEST);
+			request.setAttribute(SENDFILE_START, start, SCOPE_REQUEST);
+			request.setAttribute(SENDFILE_END, start + length, SCOPE_REQUEST);
+			return responseBuilder.build();
+		}
+		return responseBuilder.body(outputStream -> transferContent(file, outputStream, start, length));
+	}
+
+	private static void transferContent(Path file, OutputStream outputStream, long start, long length) throws IOException {
+		try (var channel = FileChannel.open(file)) {
+			var out = Channels.newChannel(outputStream);
+			var position = start;
+			var end = start + length;
+			while (position < end) {
+				var transferred = channel.transferTo(position, end - position, out);
+				if (transferred <= 0) break;
+				position += transferred;
+			}
+		}
+	}
+
+	private static void streamContent(InputStream is, OutputStream outputStream, long skip, Long length) throws IOException {
+		try (is) {
+			if (skip > 0) {
+				is.skipNBytes(skip);
+			}
+			var buffer = new byte[64 * 1024];
+			int bytesRead;
+			var remaining = length != null ? length : Long.MAX_VALUE;
+			while (remaining > 0 && (bytesRead = is.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+				outputStream.write(buffer, 0, bytesRead);
+				remaining -= bytesRead;
+			}
+		}
+	}
+}
@@ -15,6 +15,7 @@ import jasper.domain.Plugin;
 import jasper.repository.filter.TagFilter;
 import jasper.service.PluginService;
 import jasper.service.dto.PluginDto;
+import jasper.service.dto.ScrollDto;
 import org.hibernate.validator.constraints.Length;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +32,7 @@ import java.time.Instant;
 import static jasper.domain.proj.Tag.QTAG_LEN;
 import static jasper.repository.filter.Query.QUERY_LEN;
 import static jasper.repository.filter.Query.SEARCH_LEN;
+import static jasper.repository.spec.Keyset.TOKEN_LEN;
 
 @ClearIdle
 @RestController
@@ -90,7 +92,7 @@ public class PluginController {
 		@RequestParam(required = false) Instant modifiedAfter,
 		@RequestParam(required = false) @Length(max = SEARCH_LEN) String search
 	) {
-		return httpCache.ifNotModifiedPage(pluginService.page(
+		return httpCache.ifNotModifiedPage(Plugin.class, () -> pluginService.page(
 			TagFilter.builder()
 				.query(query)
 				.nesting(nesting)
@@ -100,7 +102,40 @@ public class PluginController {
 				.modifiedBefore(modifiedBefore)
 				.modifiedAfter(modifiedAfter)
 				.build(),
-			pageable));
+			pageable)));
+	}
+
+	@ApiResponses({
+		@ApiResponse(responseCode = "200"),
+		@ApiResponse(responseCode = "304", content = @Content()),
+		@ApiResponse(responseCode = "400", content = @Content(schema = @Schema(ref = "https://opensource.zalando.com/problem/schema.yaml#/Problem"))),
+		@ApiResponse(responseCode = "403", content = @Content(schema = @Schema(ref = "https://opensource.zalando.com/problem/schema.yaml#/Problem"))),
+	})
+	@GetMapping("scroll")
+	HttpEntity<ScrollDto<PluginDto>> getPluginScroll(
+		@PageableDefault(sort = "tag") @ParameterObject Pageable pageable,
+		@RequestParam(required = false) @Length(max = TOKEN_LEN) String after,
+		@RequestParam(required = false) @Length(max = QUERY_LEN) @Pattern(regexp = TagFilter.QUERY) String query,
+		@RequestParam(required = false) Integer nesting,
+		@RequestParam(required = false) Integer level,
+		@RequestParam(required = false) Boolean deleted,
+		@RequestParam(required = false) Instant modifiedBefore,
+		@RequestParam(required = false) Instant modifiedAfter,
+		@RequestParam(required = false) @Length(max = SEARCH_LEN) String search
+	) {
+		return httpCache.ifNotModifiedPage(Plugin.class, () -> pluginService.scroll(
+			TagFilter.builder()
+				.query(query)
+				.nesting(nesting)
+				.level(level)
+				.deleted(deleted)
+				.search(search)
+				.modifiedBefore(modifiedBefore)
+				.modifiedAfter(modifiedAfter)
+				.build(),
+			pageable.getSort(),
+			after,
+			pageable.getPageSize())));
 	}
 
 	@ApiResponses({
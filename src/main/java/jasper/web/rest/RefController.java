@@ -20,6 +20,7 @@ import jasper.domain.proj.HasOrigin;
 import jasper.repository.filter.RefFilter;
 import jasper.service.RefService;
 import jasper.service.dto.RefDto;
+import jasper.service.dto.ScrollDto;
 import org.hibernate.validator.constraints.Length;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,6 +44,7 @@ import static jasper.domain.proj.HasOrigin.ORIGIN_LEN;
 import static jasper.domain.proj.Tag.TAG_LEN;
 import static jasper.repository.filter.Query.QUERY_LEN;
 import static jasper.repository.filter.Query.SEARCH_LEN;
+import static jasper.repository.spec.Keyset.TOKEN_LEN;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.springframework.data.domain.Sort.Order.desc;
 import static org.springframework.data.domain.Sort.by;
@@ -126,53 +128,112 @@ public class RefController {
 				.cacheControl(CacheControl.maxAge(100, TimeUnit.DAYS).cachePublic())
 				.body(Page.empty(pageable));
 		}
-		var rankedSort = false;
-		if (pageable.getSort().isUnsorted() || pageable.getSort().getOrderFor("rank") != null) {
-			if (isNotBlank(search)) {
-				rankedSort = true;
-			}
-			if (pageable.getSort().isUnsorted()) {
-				pageable = PageRequest.of(
-					pageable.getPageNumber(),
-					pageable.getPageSize(),
-					by(desc(Ref_.MODIFIED)));
-			} else {
-				// Remove rank order
-				pageable = PageRequest.of(
-					pageable.getPageNumber(),
-					pageable.getPageSize(),
-					by(pageable.getSort()
-						.stream()
-						.filter(o -> !o.getProperty().equals("rank"))
-						.toList()));
-			}
+		var rankedSort = isNotBlank(search)
+			&& (pageable.getSort().isUnsorted() || pageable.getSort().getOrderFor("rank") != null);
+		var filter = RefFilter.builder()
+			.url(url)
+			.obsolete(obsolete)
+			.scheme(scheme)
+			.query(query)
+			.noDescendents(noDescendents)
+			.search(search)
+			.rankedOrder(rankedSort)
+			.sources(sources)
+			.noSources(noSources)
+			.responses(responses)
+			.noResponses(noResponses)
+			.pluginResponse(pluginResponse)
+			.noPluginResponse(noPluginResponse)
+			.userResponse(userResponse)
+			.noUserResponse(noUserResponse)
+			.modifiedBefore(modifiedBefore)
+			.modifiedAfter(modifiedAfter)
+			.publishedBefore(publishedBefore)
+			.publishedAfter(publishedAfter)
+			.createdBefore(createdBefore)
+			.createdAfter(createdAfter)
+			.responseBefore(responseBefore)
+			.responseAfter(responseAfter).build();
+		return httpCache.ifNotModifiedRefPage(filter, () -> refService.page(filter, withoutRank(pageable)));
+	}
+
+	/**
+	 * Sort by modified if unsorted, and remove the rank order which is applied by the filter.
+	 */
+	private static Pageable withoutRank(Pageable pageable) {
+		if (pageable.getSort().isUnsorted()) {
+			return PageRequest.of(
+				pageable.getPageNumber(),
+				pageable.getPageSize(),
+				by(desc(Ref_.MODIFIED)));
 		}
-		return httpCache.ifNotModifiedPage(refService.page(
-			RefFilter.builder()
-				.url(url)
-				.obsolete(obsolete)
-				.scheme(scheme)
-				.query(query)
-				.noDescendents(noDescendents)
-				.search(search)
-				.rankedOrder(rankedSort)
-				.sources(sources)
-				.noSources(noSources)
-				.responses(responses)
-				.noResponses(noResponses)
-				.pluginResponse(pluginResponse)
-				.noPluginResponse(noPluginResponse)
-				.userResponse(userResponse)
-				.noUserResponse(noUserResponse)
-				.modifiedBefore(modifiedBefore)
-				.modifiedAfter(modifiedAfter)
-				.publishedBefore(publishedBefore)
-				.publishedAfter(publishedAfter)
-				.createdBefore(createdBefore)
-				.createdAfter(createdAfter)
-				.responseBefore(responseBefore)
-				.responseAfter(responseAfter).build(),
-			pageable));
+		if (pageable.getSort().getOrderFor("rank") == null) return pageable;
+		return PageRequest.of(
+			pageable.getPageNumber(),
+			pageable.getPageSize(),
+			by(pageable.getSort()
+				.stream()
+				.filter(o -> !o.getProperty().equals("rank"))
+				.toList()));
+	}
+
+	@ApiResponses({
+		@ApiResponse(responseCode = "200"),
+		@ApiResponse(responseCode = "304", content = @Content()),
+		@ApiResponse(responseCode = "400", content = @Content(schema = @Schema(ref = "https://opensource.zalando.com/problem/schema.yaml#/Problem"))),
+		@ApiResponse(responseCode = "403", content = @Content(schema = @Schema(ref = "https://opensource.zalando.com/problem/schema.yaml#/Problem"))),
+	})
+	@GetMapping("scroll")
+	HttpEntity<ScrollDto<RefDto>> getRefScroll(
+		@PageableDefault @ParameterObject Pageable pageable,
+		@RequestParam(required = false) @Length(max = TOKEN_LEN) String after,
+		@RequestParam(required = false) @Length(max = QUERY_LEN) @Pattern(regexp = RefFilter.QUERY) String query,
+		@RequestParam(required = false) @Length(max = TAG_LEN) @Pattern(regexp = jasper.domain.proj.Tag.REGEX) String noDescendents,
+		@RequestParam(required = false) @Length(max = URL_LEN) @Pattern(regexp = Ref.REGEX) String url,
+		@RequestParam(required = false) Boolean obsolete,
+		@RequestParam(required = false) @Length(max = URL_LEN) @Pattern(regexp = Ref.SCHEME_REGEX) String scheme,
+		@RequestParam(required = false) @Length(max = URL_LEN) @Pattern(regexp = Ref.REGEX) String sources,
+		@RequestParam(required = false) @Length(max = URL_LEN) @Pattern(regexp = Ref.REGEX) String noSources,
+		@RequestParam(required = false) @Length(max = URL_LEN) @Pattern(regexp = Ref.REGEX) String responses,
+		@RequestParam(required = false) @Length(max = URL_LEN) @Pattern(regexp = Ref.REGEX) String noResponses,
+		@RequestParam(required = false) Instant modifiedBefore,
+		@RequestParam(required = false) Instant modifiedAfter,
+		@RequestParam(required = false) Instant publishedBefore,
+		@RequestParam(required = false) Instant publishedAfter,
+		@RequestParam(required = false) Instant createdBefore,
+		@RequestParam(required = false) Instant createdAfter,
+		@RequestParam(required = false) Instant responseBefore,
+		@RequestParam(required = false) Instant responseAfter,
+		@RequestParam(required = false) @Size(max = 100) List<@NotBlank @Length(max = TAG_LEN) @Pattern(regexp = Plugin.REGEX) String> pluginResponse,
+		@RequestParam(required = false) @Size(max = 100) List<@NotBlank @Length(max = TAG_LEN) @Pattern(regexp = Plugin.REGEX) String> noPluginResponse,
+		@RequestParam(required = false) @Size(max = 100) List<@NotBlank @Length(max = TAG_LEN) @Pattern(regexp = Plugin.REGEX) String> userResponse,
+		@RequestParam(required = false) @Size(max = 100) List<@NotBlank @Length(max = TAG_LEN) @Pattern(regexp = Plugin.REGEX) String> noUserResponse,
+		@RequestParam(required = false) @Length(max = SEARCH_LEN) String search
+	) {
+		var filter = RefFilter.builder()
+			.url(url)
+			.obsolete(obsolete)
+			.scheme(scheme)
+			.query(query)
+			.noDescendents(noDescendents)
+			.search(search)
+			.sources(sources)
+			.noSources(noSources)
+			.responses(responses)
+			.noResponses(noResponses)
+			.pluginResponse(pluginResponse)
+			.noPluginResponse(noPluginResponse)
+			.userResponse(userResponse)
+			.noUserResponse(noUserResponse)
+			.modifiedBefore(modifiedBefore)
+			.modifiedAfter(modifiedAfter)
+			.publishedBefore(publishedBefore)
+			.publishedAfter(publishedAfter)
+			.createdBefore(createdBefore)
+			.createdAfter(createdAfter)
+			.responseBefore(responseBefore)
+			.responseAfter(responseAfter).build();
+		return httpCache.ifNotModifiedRefPage(filter, () -> refService.scroll(filter, pageable.getSort(), after, pageable.getPageSize()));
 	}
 
 	@ApiResponses({
@@ -1,10 +1,14 @@
 package jasper.web.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
 import jasper.client.JasperClient;
@@ -37,9 +41,6 @@ import org.hibernate.validator.constraints.Length;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.http.CacheControl;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -58,13 +59,13 @@ import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBo
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 import static jasper.client.JasperClient.jasperHeaders;
 import static jasper.domain.Ref.URL_LEN;
@@ -98,6 +99,9 @@ public class ReplicateController {
 	@Autowired
 	DtoMapper mapper;
 
+	@Autowired
+	ObjectMapper objectMapper;
+
 	@Autowired
 	RefService refService;
 
@@ -127,15 +131,39 @@ public class ReplicateController {
 		@RequestParam(defaultValue = "500") int size
 	) {
 		if (size > configs.root().getMaxReplEntityBatch()) throw new TooLargeException(size, configs.root().getMaxReplEntityBatch());
-		return refService.page(
+		return refService.scroll(
 				RefFilter.builder()
 					.origin(origin)
 					.query(query)
 					.modifiedAfter(modifiedAfter)
 					.build(),
-				PageRequest.of(0, size, by(Ref_.MODIFIED)))
+				by(Ref_.MODIFIED), null, size)
+			.getContent()
+			.stream()
 			.map(mapper::dtoToRepl)
-			.getContent();
+			.toList();
+	}
+
+	@ApiResponses({
+		@ApiResponse(responseCode = "200"),
+	})
+	@GetMapping(value = "ref", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	void refStream(
+		@RequestParam(defaultValue = "") @Length(max = ORIGIN_LEN) @Pattern(regexp = HasOrigin.REGEX) String origin,
+		@RequestParam(required = false) @Length(max = QUERY_LEN) @Pattern(regexp = RefFilter.QUERY) String query,
+		@RequestParam(required = false) Instant modifiedAfter,
+		HttpServletResponse response
+	) throws IOException {
+		try (var out = ndjson(response)) {
+			refService.stream(
+				RefFilter.builder()
+					.origin(origin)
+					.query(query)
+					.modifiedAfter(modifiedAfter)
+					.build(),
+				configs.root().getMaxReplEntityBatch(),
+				ref -> write(out, mapper.dtoToRepl(ref)));
+		}
 	}
 
 	@ApiResponses({
@@ -157,17 +185,9 @@ public class ReplicateController {
 		@RequestBody @Valid List<Ref> refs
 	) {
 		logger.debug("Receiving push of {} refs", refs.size());
-		RuntimeException first = null;
-		for (var ref : refs) {
-			try {
-				ref.setOrigin(origin);
-				refService.push(ref);
-			} catch (RuntimeException e) {
-				// TODO: Ignore auth errors?
-				first = first == null ? e : first;
-			}
-		}
-		if (first != null) throw first;
+		for (var ref : refs) ref.setOrigin(origin);
+		// TODO: Ignore auth errors?
+		refService.pushAll(refs);
 	}
 
 	@ApiResponses({
@@ -181,16 +201,38 @@ public class ReplicateController {
 		@RequestParam(defaultValue = "500") int size
 	) {
 		if (size > configs.root().getMaxReplEntityBatch()) throw new TooLargeException(size, configs.root().getMaxReplEntityBatch());
-		return extService.page(
+		return extService.scroll(
 				TagFilter.builder()
 					.origin(origin)
 					.query(query)
 					.modifiedAfter(modifiedAfter)
 					.build(),
-				PageRequest.of(0, size, by(Ref_.MODIFIED)))
+				by(Ref_.MODIFIED), null, size)
 			.getContent();
 	}
 
+	@ApiResponses({
+		@ApiResponse(responseCode = "200"),
+	})
+	@GetMapping(value = "ext", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	void extStream(
+		@RequestParam(defaultValue = "") @Length(max = ORIGIN_LEN) @Pattern(regexp = HasOrigin.REGEX) String origin,
+		@RequestParam(required = false) @Length(max = QUERY_LEN) @Pattern(regexp = RefFilter.QUERY) String query,
+		@RequestParam(required = false) Instant modifiedAfter,
+		HttpServletResponse response
+	) throws IOException {
+		try (var out = ndjson(response)) {
+			extService.stream(
+				TagFilter.builder()
+					.origin(origin)
+					.query(query)
+					.modifiedAfter(modifiedAfter)
+					.build(),
+				configs.root().getMaxReplEntityBatch(),
+				ext -> write(out, ext));
+		}
+	}
+
 	@ApiResponses({
 		@ApiResponse(responseCode = "200"),
 	})
@@ -234,16 +276,38 @@ public class ReplicateController {
 		@RequestParam(defaultValue = "500") int size
 	) {
 		if (size > configs.root().getMaxReplEntityBatch()) throw new TooLargeException(size, configs.root().getMaxReplEntityBatch());
-		return userService.page(
+		return userService.scroll(
 				TagFilter.builder()
 					.origin(origin)
 					.query(query)
 					.modifiedAfter(modifiedAfter)
 					.build(),
-				PageRequest.of(0, size, by(Ref_.MODIFIED)))
+				by(Ref_.MODIFIED), null, size)
 			.getContent();
 	}
 
+	@ApiResponses({
+		@ApiResponse(responseCode = "200"),
+	})
+	@GetMapping(value = "user", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	void userStream(
+		@RequestParam(defaultValue = "") @Length(max = ORIGIN_LEN) @Pattern(regexp = HasOrigin.REGEX) String origin,
+		@RequestParam(required = false) @Length(max = QUERY_LEN) @Pattern(regexp = RefFilter.QUERY) String query,
+		@RequestParam(required = false) Instant modifiedAfter,
+		HttpServletResponse response
+	) throws IOException {
+		try (var out = ndjson(response)) {
+			userService.stream(
+				TagFilter.builder()
+					.origin(origin)
+					.query(query)
+					.modifiedAfter(modifiedAfter)
+					.build(),
+				configs.root().getMaxReplEntityBatch(),
+				user -> write(out, user));
+		}
+	}
+
 	@ApiResponses({
 		@ApiResponse(responseCode = "200"),
 	})
@@ -287,16 +351,38 @@ public class ReplicateController {
 		@RequestParam(defaultValue = "500") int size
 	) {
 		if (size > configs.root().getMaxReplEntityBatch()) throw new TooLargeException(size, configs.root().getMaxReplEntityBatch());
-		return pluginService.page(
+		return pluginService.scroll(
 				TagFilter.builder()
 					.origin(origin)
 					.query(query)
 					.modifiedAfter(modifiedAfter)
 					.build(),
-				PageRequest.of(0, size, by(Ref_.MODIFIED)))
+				by(Ref_.MODIFIED), null, size)
 			.getContent();
 	}
 
+	@ApiResponses({
+		@ApiResponse(responseCode = "200"),
+	})
+	@GetMapping(value = "plugin", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	void pluginStream(
+		@RequestParam(defaultValue = "") @Length(max = ORIGIN_LEN) @Pattern(regexp = HasOrigin.REGEX) String origin,
+		@RequestParam(required = false) @Length(max = QUERY_LEN) @Pattern(regexp = RefFilter.QUERY) String query,
+		@RequestParam(required = false) Instant modifiedAfter,
+		HttpServletResponse response
+	) throws IOException {
+		try (var out = ndjson(response)) {
+			pluginService.stream(
+				TagFilter.builder()
+					.origin(origin)
+					.query(query)
+					.modifiedAfter(modifiedAfter)
+					.build(),
+				configs.root().getMaxReplEntityBatch(),
+				plugin -> write(out, plugin));
+		}
+	}
+
 	@ApiResponses({
 		@ApiResponse(responseCode = "200"),
 	})
@@ -340,16 +426,38 @@ public class ReplicateController {
 		@RequestParam(defaultValue = "500") int size
 	) {
 		if (size > configs.root().getMaxReplEntityBatch()) throw new TooLargeException(size, configs.root().getMaxReplEntityBatch());
-		return templateService.page(
+		return templateService.scroll(
 				TagFilter.builder()
 					.origin(origin)
 					.query(query)
 					.modifiedAfter(modifiedAfter)
 					.build(),
-				PageRequest.of(0, size, by(Ref_.MODIFIED)))
+				by(Ref_.MODIFIED), null, size)
 			.getContent();
 	}
 
+	@ApiResponses({
+		@ApiResponse(responseCode = "200"),
+	})
+	@GetMapping(value = "template", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	void templateStream(
+		@RequestParam(defaultValue = "") @Length(max = ORIGIN_LEN) @Pattern(regexp = HasOrigin.REGEX) String origin,
+		@RequestParam(required = false) @Length(max = QUERY_LEN) @Pattern(regexp = RefFilter.QUERY) String query,
+		@RequestParam(required = false) Instant modifiedAfter,
+		HttpServletResponse response
+	) throws IOException {
+		try (var out = ndjson(response)) {
+			templateService.stream(
+				TagFilter.builder()
+					.origin(origin)
+					.query(query)
+					.modifiedAfter(modifiedAfter)
+					.build(),
+				configs.root().getMaxReplEntityBatch(),
+				template -> write(out, template));
+		}
+	}
+
 	@ApiResponses({
 		@ApiResponse(responseCode = "200"),
 	})
@@ -384,7 +492,10 @@ public class ReplicateController {
 
 	@ApiResponses({
 		@ApiResponse(responseCode = "200"),
+		@ApiResponse(responseCode = "206"),
+		@ApiResponse(responseCode = "304"),
 		@ApiResponse(responseCode = "404"),
+		@ApiResponse(responseCode = "416", content = @Content(schema = @Schema(ref = "https://opensource.zalando.com/problem/schema.yaml#/Problem"))),
 		@ApiResponse(responseCode = "500", content = @Content(schema = @Schema(ref = "https://opensource.zalando.com/problem/schema.yaml#/Problem"))),
 	})
 	@GetMapping("cache")
@@ -408,22 +519,11 @@ public class ReplicateController {
 				: ref != null && isNotBlank(ref.getTitle()) ? ref.getTitle()
 				: filename;
 		} catch (URISyntaxException ignored) { }
-		var response = ResponseEntity.ok();
 		var cache = proxyService.cache(url, origin, false);
-		if (cache != null && cache.getContentLength() != null) response.contentLength(cache.getContentLength());
-		return response
-			.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''" + URLEncoder.encode(filename, StandardCharsets.UTF_8).replace("+", "%20"))
-			.contentType(cache != null && isNotBlank(cache.getMimeType()) ? MediaType.parseMediaType(cache.getMimeType()) : MediaType.APPLICATION_OCTET_STREAM)
-			.cacheControl(CacheControl.maxAge(100, TimeUnit.DAYS).cachePrivate())
-			.body(outputStream -> {
-				try (is) {
-					byte[] buffer = new byte[64 * 1024];
-					int bytesRead;
-					while ((bytesRead = is.read(buffer)) != -1) {
-						outputStream.write(buffer, 0, bytesRead);
-					}
-				}
-			});
+		return FileResponses.serve(request, is,
+			cache != null ? cache.getContentLength() : null,
+			cache != null && isNotBlank(cache.getMimeType()) ? MediaType.parseMediaType(cache.getMimeType()) : MediaType.APPLICATION_OCTET_STREAM,
+			"attachment; filename*=UTF-8''" + URLEncoder.encode(filename, StandardCharsets.UTF_8).replace("+", "%20"));
 	}
 
 	@ApiResponses({
@@ -464,4 +564,20 @@ public class ReplicateController {
 			return mapper.dtoToRepl(proxyService.save(origin, title, data, mime));
 		}
 	}
+
+	private SequenceWriter ndjson(HttpServletResponse response) throws IOException {
+		response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+		return objectMapper.writer()
+			.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+			.withRootValueSeparator("\n")
+			.writeValues(response.getOutputStream());
+	}
+
+	private static void write(SequenceWriter out, Object value) {
+		try {
+			out.write(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
 }
@@ -16,6 +16,7 @@ import jasper.errors.NotFoundException;
 import jasper.repository.filter.TagFilter;
 import jasper.service.UserService;
 import jasper.service.dto.RolesDto;
+import jasper.service.dto.ScrollDto;
 import jasper.service.dto.UserDto;
 import org.hibernate.validator.constraints.Length;
 import org.springdoc.core.annotations.ParameterObject;
@@ -36,6 +37,7 @@ import java.time.Instant;
 import static jasper.domain.proj.Tag.QTAG_LEN;
 import static jasper.repository.filter.Query.QUERY_LEN;
 import static jasper.repository.filter.Query.SEARCH_LEN;
+import static jasper.repository.spec.Keyset.TOKEN_LEN;
 
 @ClearIdle
 @RestController
@@ -98,7 +100,7 @@ public class UserController {
 		@RequestParam(required = false) Instant modifiedAfter,
 		@RequestParam(required = false) @Length(max = SEARCH_LEN) String search
 	) {
-		return httpCache.ifNotModifiedPage(userService.page(
+		return httpCache.ifNotModifiedPage(User.class, () -> userService.page(
 			TagFilter.builder()
 				.query(query)
 				.nesting(nesting)
@@ -108,7 +110,39 @@ public class UserController {
 				.modifiedBefore(modifiedBefore)
 				.modifiedAfter(modifiedAfter)
 				.build(),
-			pageable));
+			pageable)));
+	}
+
+	@ApiResponses({
+		@ApiResponse(responseCode = "200"),
+		@ApiResponse(responseCode = "304", content = @Content()),
+		@ApiResponse(responseCode = "400", content = @Content(schema = @Schema(ref = "https://opensource.zalando.com/problem/schema.yaml#/Problem"))),
+	})
+	@GetMapping("scroll")
+	HttpEntity<ScrollDto<UserDto>> getUserScroll(
+		@PageableDefault(sort = "tag") @ParameterObject Pageable pageable,
+		@RequestParam(required = false) @Length(max = TOKEN_LEN) String after,
+		@RequestParam(required = false) @Length(max = QUERY_LEN) @Pattern(regexp = TagFilter.QUERY) String query,
+		@RequestParam(required = false) Integer nesting,
+		@RequestParam(required = false) Integer level,
+		@RequestParam(required = false) Boolean deleted,
+		@RequestParam(required = false) Instant modifiedBefore,
+		@RequestParam(required = false) Instant modifiedAfter,
+		@RequestParam(required = false) @Length(max = SEARCH_LEN) String search
+	) {
+		return httpCache.ifNotModifiedPage(User.class, () -> userService.scroll(
+			TagFilter.builder()
+				.query(query)
+				.nesting(nesting)
+				.level(level)
+				.deleted(deleted)
+				.search(search)
+				.modifiedBefore(modifiedBefore)
+				.modifiedAfter(modifiedAfter)
+				.build(),
+			pageable.getSort(),
+			after,
+			pageable.getPageSize())));
 	}
 
 	@ApiResponses({
@@ -0,0 +1,36 @@
+package jasper;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings shared by the benchmarks, which may override any of them.
+ *
+ * Run a single benchmark with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=<class>},
+ * or all of them with {@link Benchmarks}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractBenchmark {
+
+	protected static void run(Class<? extends AbstractBenchmark> benchmark) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(benchmark.getName())
+			.build()).run();
+	}
+}
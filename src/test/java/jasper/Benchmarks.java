@@ -0,0 +1,152 @@
+package jasper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Runs the JMH benchmarks and compares them against the checked in baseline.
+ * Writes the results to target/jmh/result.json and a markdown report to target/jmh/report.md.
+ * Without a baseline every result is reported as new.
+ *
+ * Run with {@code ./mvnw -Pjmh}, optionally with:
+ * <ul>
+ *     <li>{@code -Djmh.include=<regex>} to run a subset of benchmarks</li>
+ *     <li>{@code -Djmh.update=true} to replace the baseline with the results</li>
+ *     <li>{@code -Djmh.threshold=<percent>} change to report as a regression, default 10</li>
+ *     <li>{@code -Djmh.failOnRegression=true} to fail the build on regressions</li>
+ * </ul>
+ */
+public class Benchmarks {
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+	private static final Path BASELINE = Path.of("src/test/resources/jmh/baseline.json");
+	private static final Path RESULT = Path.of("target/jmh/result.json");
+	private static final Path REPORT = Path.of("target/jmh/report.md");
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		Files.createDirectories(RESULT.getParent());
+		new Runner(new OptionsBuilder()
+			.include(System.getProperty("jmh.include", "jasper\\..*Benchmark"))
+			.resultFormat(ResultFormatType.JSON)
+			.result(RESULT.toString())
+			.build()).run();
+		if (Boolean.getBoolean("jmh.update")) {
+			Files.createDirectories(BASELINE.getParent());
+			Files.copy(RESULT, BASELINE, REPLACE_EXISTING);
+			System.out.println("Updated baseline " + BASELINE);
+			return;
+		}
+		var baseline = Map.<String, Score>of();
+		if (Files.exists(BASELINE)) {
+			baseline = read(BASELINE);
+		} else {
+			System.out.println("No baseline at " + BASELINE + ", reporting all results as new. " +
+				"Run with -Djmh.update=true on the reference machine to record one.");
+		}
+		var threshold = Double.parseDouble(System.getProperty("jmh.threshold", "10"));
+		var report = new Report(baseline, read(RESULT), threshold);
+		Files.writeString(REPORT, report.markdown());
+		System.out.println(report.markdown());
+		if (report.regressions > 0 && Boolean.getBoolean("jmh.failOnRegression")) {
+			throw new IllegalStateException(report.regressions + " benchmarks regressed more than " + threshold + "%");
+		}
+	}
+
+	record Score(String mode, double score, double error, String unit) {
+		/**
+		 * Change from the baseline in percent, positive is slower.
+		 */
+		double slowdown(Score baseline) {
+			var change = (score - baseline.score) / baseline.score * 100;
+			return mode.equals("thrpt") ? -change : change;
+		}
+
+		/**
+		 * Differences inside the error margins are noise.
+		 */
+		boolean significant(Score baseline) {
+			return Math.abs(score - baseline.score) > error + baseline.error;
+		}
+	}
+
+	static Map<String, Score> read(Path path) throws IOException {
+		var result = new LinkedHashMap<String, Score>();
+		for (var run : objectMapper.readTree(path.toFile())) {
+			var metric = run.get("primaryMetric");
+			// Error is NaN with a single measurement iteration
+			var error = metric.get("scoreError").asDouble();
+			result.put(key(run), new Score(
+				run.get("mode").asText(),
+				metric.get("score").asDouble(),
+				Double.isNaN(error) ? 0 : error,
+				metric.get("scoreUnit").asText()));
+		}
+		return result;
+	}
+
+	private static String key(JsonNode run) {
+		var benchmark = run.get("benchmark").asText().replaceFirst("^jasper\\.", "");
+		if (!run.has("params")) return benchmark;
+		var params = run.get("params").properties().stream()
+			.map(e -> e.getKey() + "=" + e.getValue().asText())
+			.collect(Collectors.joining(", "));
+		return benchmark + " (" + params + ")";
+	}
+
+	static class Report {
+		private final StringBuilder markdown = new StringBuilder();
+		int regressions = 0;
+
+		Report(Map<String, Score> baseline, Map<String, Score> result, double threshold) {
+			markdown.append("| Benchmark | Baseline | Result | Change |  |\n");
+			markdown.append("|---|---:|---:|---:|---|\n");
+			for (var e : result.entrySet()) {
+				var score = e.getValue();
+				var base = baseline.get(e.getKey());
+				if (base == null) {
+					row(e.getKey(), "", format(score), "", "new");
+					continue;
+				}
+				var slowdown = score.slowdown(base);
+				var verdict = "";
+				if (score.significant(base) && Math.abs(slowdown) > threshold) {
+					if (slowdown > 0) {
+						regressions++;
+						verdict = "regression";
+					} else {
+						verdict = "improvement";
+					}
+				}
+				row(e.getKey(), format(base), format(score), String.format("%+.1f%%", slowdown), verdict);
+			}
+			for (var key : baseline.keySet()) {
+				if (!result.containsKey(key)) row(key, format(baseline.get(key)), "", "", "missing");
+			}
+			markdown.append("\n").append(regressions).append(" regressions over ").append(threshold).append("%\n");
+		}
+
+		String markdown() {
+			return markdown.toString();
+		}
+
+		private void row(String... cells) {
+			markdown.append("| ").append(String.join(" | ", cells)).append(" |\n");
+		}
+
+		private static String format(Score score) {
+			return String.format("%.3f ± %.3f %s", score.score, score.error, score.unit);
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package jasper.component;
 
 import jasper.IntegrationTest;
+import jasper.config.Props;
 import jasper.domain.Ext;
+import jasper.domain.Metadata;
 import jasper.domain.Plugin;
 import jasper.domain.Ref;
 import jasper.domain.Template;
@@ -9,6 +11,7 @@ import jasper.domain.User;
 import jasper.repository.ExtRepository;
 import jasper.repository.PluginRepository;
 import jasper.repository.RefRepository;
+import jasper.repository.RefResponseRepository;
 import jasper.repository.TemplateRepository;
 import jasper.repository.UserRepository;
 import jasper.service.dto.BackupOptionsDto;
@@ -20,6 +23,8 @@ import org.springframework.test.context.ActiveProfiles;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -33,6 +38,9 @@ public class BackupRestoreIT {
 	@Autowired
 	RefRepository refRepository;
 
+	@Autowired
+	RefResponseRepository refResponseRepository;
+
 	@Autowired
 	ExtRepository extRepository;
 
@@ -48,6 +56,9 @@ public class BackupRestoreIT {
 	@Autowired
 	Storage storage;
 
+	@Autowired
+	Props props;
+
 	private static final String ORIGIN = "";
 	private static final String BACKUP_ID = "test-backup";
 
@@ -55,6 +66,7 @@ public class BackupRestoreIT {
 	void setup() {
 		// Clean up before each test
 		refRepository.deleteAll();
+		refResponseRepository.deleteAll();
 		extRepository.deleteAll();
 		userRepository.deleteAll();
 		pluginRepository.deleteAll();
@@ -115,6 +127,74 @@ public class BackupRestoreIT {
 		assertThat(refRepository.existsByUrlAndOrigin("https://example.com/2", ORIGIN)).isTrue();
 	}
 
+	@Test
+	void testRestoreRebuildsResponses() throws IOException {
+		var source = new Ref();
+		source.setUrl("https://example.com/source");
+		source.setOrigin(ORIGIN);
+		source.setMetadata(Metadata.builder().responses(1).build());
+		refRepository.save(source);
+
+		var response = new Ref();
+		response.setUrl("https://example.com/response");
+		response.setOrigin(ORIGIN);
+		response.setSources(List.of(source.getUrl()));
+		refRepository.save(response);
+
+		var options = new BackupOptionsDto();
+		options.setRef(true);
+		options.setExt(false);
+		options.setUser(false);
+		options.setPlugin(false);
+		options.setTemplate(false);
+		options.setCache(false);
+		backup.createBackup(ORIGIN, BACKUP_ID, options);
+		waitForBackup();
+
+		refRepository.deleteAll();
+		refResponseRepository.deleteAll();
+
+		backup.restore(ORIGIN, BACKUP_ID, options);
+		waitForRestore();
+
+		assertThat(refResponseRepository.findAllResponses(source.getUrl(), ORIGIN))
+			.containsExactly(response.getUrl());
+		assertThat(refRepository.findOneByUrlAndOrigin(source.getUrl(), ORIGIN).orElseThrow().getMetadata().getResponses())
+			.isEqualTo(1);
+	}
+
+	@Test
+	void testRestoreOverwritesExistingRefs() throws IOException {
+		var ref = new Ref();
+		ref.setUrl("https://example.com/1");
+		ref.setOrigin(ORIGIN);
+		ref.setTitle("Backed Up");
+		ref.setMetadata(Metadata.builder().build());
+		refRepository.save(ref);
+
+		var options = new BackupOptionsDto();
+		options.setRef(true);
+		options.setExt(false);
+		options.setUser(false);
+		options.setPlugin(false);
+		options.setTemplate(false);
+		options.setCache(false);
+		backup.createBackup(ORIGIN, BACKUP_ID, options);
+		waitForBackup();
+
+		var existing = refRepository.findOneByUrlAndOrigin(ref.getUrl(), ORIGIN).orElseThrow();
+		existing.setTitle("Changed");
+		existing.setMetadata(Metadata.builder().obsolete(true).build());
+		refRepository.save(existing);
+
+		backup.restore(ORIGIN, BACKUP_ID, options);
+		waitForRestore();
+
+		var restored = refRepository.findOneByUrlAndOrigin(ref.getUrl(), ORIGIN).orElseThrow();
+		assertThat(restored.getTitle()).isEqualTo("Backed Up");
+		assertThat(restored.getMetadata().isObsolete()).isFalse();
+	}
+
 	@Test
 	void testBackupAndRestoreExts() throws IOException {
 		// Create test data
@@ -467,7 +547,114 @@ public class BackupRestoreIT {
 		assertThat(refRepository.existsByUrlAndOrigin("https://example.com/inc2", ORIGIN)).isTrue();
 	}
 
-	private void waitForBackup() {
+	@Test
+	void testBackupAndRestoreRefsInChunks() throws IOException {
+		var chunkSize = props.getBackupChunkSize();
+		props.setBackupChunkSize(2);
+		try {
+			for (var i = 0; i < 5; i++) {
+				var ref = new Ref();
+				ref.setUrl("https://example.com/chunk" + i);
+				ref.setOrigin(ORIGIN);
+				ref.setModified(Instant.now().minusSeconds(i));
+				refRepository.save(ref);
+			}
+
+			var options = new BackupOptionsDto();
+			options.setRef(true);
+			options.setExt(false);
+			options.setUser(false);
+			options.setPlugin(false);
+			options.setTemplate(false);
+			options.setCache(false);
+			backup.createBackup(ORIGIN, BACKUP_ID, options);
+			waitForBackup();
+
+			try (var zipped = storage.streamZip(ORIGIN, "backups", BACKUP_ID + ".zip")) {
+				var files = 0;
+				for (var it = zipped.list("ref.*\\.json"); it.hasNext(); files++) it.next().close();
+				assertThat(files).isEqualTo(3);
+			}
+
+			refRepository.deleteAll();
+			backup.restore(ORIGIN, BACKUP_ID, options);
+			waitForRestore();
+
+			assertThat(refRepository.count()).isEqualTo(5);
+		} finally {
+			props.setBackupChunkSize(chunkSize);
+		}
+	}
+
+	@Test
+	void testBackupExcludesRefsModifiedAfterStart() throws IOException {
+		var ref = new Ref();
+		ref.setUrl("https://example.com/before");
+		ref.setOrigin(ORIGIN);
+		ref.setModified(Instant.now().minusSeconds(60));
+		refRepository.save(ref);
+		var later = new Ref();
+		later.setUrl("https://example.com/after");
+		later.setOrigin(ORIGIN);
+		later.setModified(Instant.now().plusSeconds(60));
+		refRepository.save(later);
+
+		var options = new BackupOptionsDto();
+		options.setRef(true);
+		options.setExt(false);
+		options.setUser(false);
+		options.setPlugin(false);
+		options.setTemplate(false);
+		options.setCache(false);
+		backup.createBackup(ORIGIN, BACKUP_ID, options);
+		waitForBackup();
+
+		refRepository.deleteAll();
+		backup.restore(ORIGIN, BACKUP_ID, options);
+		waitForRestore();
+
+		assertThat(refRepository.existsByUrlAndOrigin("https://example.com/before", ORIGIN)).isTrue();
+		assertThat(refRepository.existsByUrlAndOrigin("https://example.com/after", ORIGIN)).isFalse();
+	}
+
+	@Test
+	void testRestoreRefsDroppingIndices() throws IOException {
+		var dropIndices = props.isRestoreDropIndices();
+		props.setRestoreDropIndices(true);
+		try {
+			for (var i = 0; i < 3; i++) {
+				var ref = new Ref();
+				ref.setUrl("https://example.com/index" + i);
+				ref.setOrigin(ORIGIN);
+				ref.setTags(new ArrayList<>(List.of("public", "restore")));
+				refRepository.save(ref);
+			}
+
+			var options = new BackupOptionsDto();
+			options.setRef(true);
+			options.setExt(false);
+			options.setUser(false);
+			options.setPlugin(false);
+			options.setTemplate(false);
+			options.setCache(false);
+			backup.createBackup(ORIGIN, BACKUP_ID, options);
+			waitForBackup();
+
+			refRepository.deleteAll();
+			backup.restore(ORIGIN, BACKUP_ID, options);
+			waitForRestore();
+
+			assertThat(refRepository.count()).isEqualTo(3);
+			assertThat(refRepository.findOneByUrlAndOrigin("https://example.com/index1", ORIGIN))
+				.isPresent()
+				.get()
+				.satisfies(ref -> assertThat(ref.getTags()).containsExactly("public", "restore"));
+		} finally {
+			props.setRestoreDropIndices(dropIndices);
+		}
+	}
+
+		private void waitForBackup() {
 		// Wait for async backup operation to complete
 		try {
 			Thread.sleep(5000);
@@ -0,0 +1,135 @@
+package jasper.component;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jasper.config.Props;
+import jasper.plugin.Cache;
+import jasper.security.HostCheck;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FetchImplHttpTest {
+
+	FetchImplHttp fetch = new FetchImplHttp();
+	CloseableHttpClient client = mock(CloseableHttpClient.class);
+	List<HttpGet> requests = new ArrayList<>();
+
+	@BeforeEach
+	void init() throws IOException {
+		fetch.hostCheck = mock(HostCheck.class);
+		when(fetch.hostCheck.validHost(any())).thenReturn(true);
+		fetch.configs = mock(ConfigCache.class);
+		fetch.httpClientFactory = mock(HttpClientFactory.class);
+		when(fetch.httpClientFactory.getClient()).thenReturn(client);
+		fetch.fetchScheduler = new FetchScheduler();
+		fetch.fetchScheduler.props = new Props();
+		fetch.fetchScheduler.props.setFetchHostConcurrency(1);
+		fetch.fetchScheduler.props.setFetchCrawlDelayMs(0);
+		fetch.fetchScheduler.meterRegistry = new SimpleMeterRegistry();
+	}
+
+	CloseableHttpResponse response(int status, String body, BasicHeader... headers) {
+		var response = mock(CloseableHttpResponse.class);
+		when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, status, ""));
+		when(response.getEntity()).thenReturn(new ByteArrayEntity(body.getBytes()));
+		for (var header : headers) {
+			when(response.getFirstHeader(header.getName())).thenReturn(header);
+		}
+		return response;
+	}
+
+	void respond(CloseableHttpResponse... responses) throws IOException {
+		var next = List.of(responses).iterator();
+		when(client.execute(any(HttpGet.class))).thenAnswer(inv -> {
+			requests.add(inv.getArgument(0));
+			return next.next();
+		});
+	}
+
+	@Test
+	void testNotModified() throws IOException {
+		respond(response(304, ""));
+		var validators = Cache.builder()
+			.id("cached")
+			.etag("\"abc\"")
+			.lastModified("Wed, 21 Oct 2015 07:28:00 GMT")
+			.build();
+
+		try (var res = fetch.doScrape("https://www.example.com/", "", validators)) {
+			assertThat(res.isNotModified()).isTrue();
+		}
+
+		assertThat(requests).hasSize(1);
+		assertThat(requests.getFirst().getFirstHeader(HttpHeaders.IF_NONE_MATCH).getValue()).isEqualTo("\"abc\"");
+		assertThat(requests.getFirst().getFirstHeader(HttpHeaders.IF_MODIFIED_SINCE).getValue()).isEqualTo("Wed, 21 Oct 2015 07:28:00 GMT");
+	}
+
+	@Test
+	void testNotModifiedReleasesHost() throws IOException {
+		respond(response(304, ""), response(200, "Hello"));
+		var validators = Cache.builder()
+			.id("cached")
+			.etag("\"abc\"")
+			.build();
+
+		var start = System.currentTimeMillis();
+		fetch.doScrape("https://www.example.com/", "", validators).close();
+		try (var res = fetch.doScrape("https://www.example.com/", "")) {
+			assertThat(res.isNotModified()).isFalse();
+			try (var is = res.getInputStream()) {
+				assertThat(new String(is.readAllBytes())).isEqualTo("Hello");
+			}
+		}
+
+		assertThat(System.currentTimeMillis() - start).isLessThan(10_000);
+	}
+
+	@Test
+	void testUnconditionalNotModifiedFollowsLocation() throws IOException {
+		respond(
+			response(304, "", new BasicHeader("Location", "https://www.example.com/other")),
+			response(200, "Hello"));
+
+		try (var res = fetch.doScrape("https://www.example.com/", "")) {
+			assertThat(res.isNotModified()).isFalse();
+		}
+
+		assertThat(requests).hasSize(2);
+		assertThat(requests.get(1).getURI().toString()).isEqualTo("https://www.example.com/other");
+	}
+
+	@Test
+	void testRedirectSameHost() throws IOException {
+		respond(
+			response(301, "", new BasicHeader("Location", "https://www.example.com/")),
+			response(200, "Hello"));
+
+		var start = System.currentTimeMillis();
+		try (var res = fetch.doScrape("http://www.example.com/", "")) {
+			assertThat(res).isNotNull();
+			try (var is = res.getInputStream()) {
+				assertThat(new String(is.readAllBytes())).isEqualTo("Hello");
+			}
+		}
+
+		assertThat(System.currentTimeMillis() - start).isLessThan(10_000);
+		assertThat(requests).extracting(r -> r.getURI().toString())
+			.containsExactly("http://www.example.com/", "https://www.example.com/");
+	}
+}
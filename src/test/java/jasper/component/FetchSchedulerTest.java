@@ -0,0 +1,157 @@
+package jasper.component;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jasper.config.Props;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FetchSchedulerTest {
+
+	FetchScheduler scheduler = new FetchScheduler();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@BeforeEach
+	void init() {
+		scheduler.props = new Props();
+		scheduler.props.setFetchHostConcurrency(1);
+		scheduler.props.setFetchCrawlDelayMs(0);
+		scheduler.meterRegistry = meterRegistry;
+	}
+
+	CloseableHttpClient client(int status, byte[] body) throws IOException {
+		var response = mock(CloseableHttpResponse.class);
+		var entity = new AtomicReference<HttpEntity>(new ByteArrayEntity(body));
+		when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, status, ""));
+		when(response.getEntity()).thenAnswer(inv -> entity.get());
+		doAnswer(inv -> {
+			entity.set(inv.getArgument(0));
+			return null;
+		}).when(response).setEntity(any());
+		var client = mock(CloseableHttpClient.class);
+		when(client.execute(any(HttpGet.class))).thenReturn(response);
+		return client;
+	}
+
+	@Test
+	void testCrawlDelay() throws IOException {
+		scheduler.props.setFetchHostConcurrency(2);
+		scheduler.props.setFetchCrawlDelayMs(200);
+
+		var start = System.currentTimeMillis();
+		scheduler.acquire(new HttpGet("https://www.example.com/1")).close();
+		scheduler.acquire(new HttpGet("https://www.example.com/2")).close();
+
+		assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(200);
+	}
+
+	@Test
+	void testCrawlDelayPerHost() throws IOException {
+		scheduler.props.setFetchCrawlDelayMs(10_000);
+
+		var start = System.currentTimeMillis();
+		scheduler.acquire(new HttpGet("https://www.example.com/")).close();
+		scheduler.acquire(new HttpGet("https://www.example.org/")).close();
+
+		assertThat(System.currentTimeMillis() - start).isLessThan(10_000);
+	}
+
+	@Test
+	void testHostConcurrency() throws Exception {
+		var first = scheduler.acquire(new HttpGet("https://www.example.com/1"));
+		var waiting = Thread.ofVirtual().start(() -> {
+			try {
+				scheduler.acquire(new HttpGet("https://www.example.com/2")).close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+
+		waiting.join(200);
+		assertThat(waiting.isAlive()).isTrue();
+
+		first.close();
+		waiting.join(5_000);
+		assertThat(waiting.isAlive()).isFalse();
+	}
+
+	@Test
+	void testCloseTwiceReleasesOnce() throws Exception {
+		var first = scheduler.acquire(new HttpGet("https://www.example.com/1"));
+		first.close();
+		first.close();
+
+		var second = scheduler.acquire(new HttpGet("https://www.example.com/2"));
+		var waiting = Thread.ofVirtual().start(() -> {
+			try {
+				scheduler.acquire(new HttpGet("https://www.example.com/3")).close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+
+		waiting.join(200);
+		assertThat(waiting.isAlive()).isTrue();
+		second.close();
+		waiting.join(5_000);
+		assertThat(waiting.isAlive()).isFalse();
+	}
+
+	@Test
+	void testMetrics() throws IOException {
+		var client = client(200, "Hello".getBytes());
+
+		try (var request = scheduler.acquire(new HttpGet("https://www.example.com/"))) {
+			var response = request.execute(client);
+			response.getEntity().getContent().readAllBytes();
+		}
+
+		assertThat(meterRegistry.get("jasper.fetch.latency").tag("host", "www.example.com").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("jasper.fetch.responses").tag("status", "200").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("jasper.fetch.bytes").tag("host", "www.example.com").summary().totalAmount()).isEqualTo(5);
+	}
+
+	@Test
+	void testEvictIdleHostRemovesMetrics() throws Exception {
+		var client = client(200, "Hello".getBytes());
+		try (var request = scheduler.acquire(new HttpGet("https://www.example.com/"))) {
+			request.execute(client);
+		}
+		try (var request = scheduler.acquire(new HttpGet("https://www.example.org/"))) {
+			request.execute(client);
+			Thread.sleep(5);
+			scheduler.evictIdleHosts();
+		}
+
+		assertThat(meterRegistry.find("jasper.fetch.latency").tag("host", "www.example.com").timer()).isNull();
+		assertThat(meterRegistry.find("jasper.fetch.responses").tag("host", "www.example.com").counter()).isNull();
+		assertThat(meterRegistry.find("jasper.fetch.bytes").tag("host", "www.example.com").summary()).isNull();
+		assertThat(meterRegistry.find("jasper.fetch.latency").tag("host", "www.example.org").timer()).isNotNull();
+	}
+
+	@Test
+	void testNotModifiedMetrics() throws IOException {
+		var client = client(304, new byte[0]);
+
+		try (var request = scheduler.acquire(new HttpGet("https://www.example.com/"))) {
+			request.execute(client);
+		}
+
+		assertThat(meterRegistry.get("jasper.fetch.responses").tag("host", "www.example.com").tag("status", "304").counter().count()).isEqualTo(1);
+	}
+}
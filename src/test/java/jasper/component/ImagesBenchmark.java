@@ -0,0 +1,65 @@
+package jasper.component;
+
+import jasper.AbstractBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates thumbnails from generated photos of common sizes.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=jasper.component.ImagesBenchmark}
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+public class ImagesBenchmark extends AbstractBenchmark {
+
+	@Param({"640x480", "4000x3000"})
+	String size;
+
+	@Param({"jpg", "png"})
+	String format;
+
+	Images images = new Images();
+	byte[] image;
+
+	@Setup
+	public void setup() throws IOException {
+		var dimensions = size.split("x");
+		var width = Integer.parseInt(dimensions[0]);
+		var height = Integer.parseInt(dimensions[1]);
+		var buffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		var g = buffer.createGraphics();
+		g.setPaint(new GradientPaint(0, 0, Color.BLUE, width, height, Color.ORANGE));
+		g.fillRect(0, 0, width, height);
+		g.setColor(Color.WHITE);
+		for (var i = 0; i < 50; i++) g.fillOval(i * width / 50, i * height / 50, width / 10, height / 10);
+		g.dispose();
+		var out = new ByteArrayOutputStream();
+		ImageIO.write(buffer, format, out);
+		image = out.toByteArray();
+	}
+
+	@Benchmark
+	public Images.Scaled thumbnail() {
+		return images.thumbnail(image);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		run(ImagesBenchmark.class);
+	}
+}
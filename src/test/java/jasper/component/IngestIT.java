@@ -2,10 +2,12 @@ package jasper.component;
 
 import jasper.IntegrationTest;
 import jasper.domain.Ref;
+import jasper.domain.RefResponse;
 import jasper.errors.AlreadyExistsException;
 import jasper.errors.DuplicateModifiedDateException;
 import jasper.errors.ModifiedException;
 import jasper.repository.RefRepository;
+import jasper.repository.RefResponseRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -39,12 +41,16 @@ public class IngestIT {
 	@Autowired
 	RefRepository refRepository;
 
+	@Autowired
+	RefResponseRepository refResponseRepository;
+
 	static final String URL = "https://www.example.com/";
 	static final String OTHER_URL = "https://www.example.com/other";
 
 	@BeforeEach
 	void init() {
 		refRepository.deleteAll();
+		refResponseRepository.deleteAll();
 	}
 
 	@Test
@@ -73,6 +79,25 @@ public class IngestIT {
 			.isTrue();
 	}
 
+	@Test
+	void testCreateDuplicateRefKeepsEdges() {
+		var existing = new Ref();
+		existing.setUrl(URL);
+		refRepository.save(existing);
+		var response = new Ref();
+		response.setUrl(OTHER_URL);
+		response.setTags(List.of("plugin/comment"));
+		refResponseRepository.save(RefResponse.from(existing, response));
+		var ref = new Ref();
+		ref.setUrl(URL);
+
+		assertThatThrownBy(() -> ingest.create("", ref))
+			.isInstanceOf(AlreadyExistsException.class);
+
+		assertThat(refResponseRepository.findAllResponses(URL, ""))
+			.containsExactly(OTHER_URL);
+	}
+
 	@Test
 	void testDoubleIngestRefFails() {
 		var ref1 = new Ref();
@@ -82,8 +107,8 @@ public class IngestIT {
 		ref2.setUrl(URL);
 		ref2.setTitle("Second");
 
-		ingest.ensureCreateUniqueModified(ref1);
-		assertThatThrownBy(() -> ingest.ensureCreateUniqueModified(ref2))
+		ingest.ensureCreateUniqueModified(ref1, null);
+		assertThatThrownBy(() -> ingest.ensureCreateUniqueModified(ref2, null))
 			.isInstanceOf(AlreadyExistsException.class);
 
 		assertThat(refRepository.existsByUrlAndOrigin(URL, ""))
@@ -479,6 +504,50 @@ public class IngestIT {
 		assertEquals(1, activeRefs, "There should be exactly one non-obsolete Ref after concurrent updates.");
 	}
 
+	@Test
+	void testPushAll() {
+		var existing = new Ref();
+		existing.setUrl(URL);
+		existing.setTitle("First");
+		refRepository.save(existing);
+		var parent = refRepository.findOneByUrlAndOrigin(URL, "").get();
+		parent.setTitle("Second");
+		var child = new Ref();
+		child.setUrl(OTHER_URL);
+		child.setTitle("Child");
+		child.setSources(new ArrayList<>(List.of(URL)));
+		child.setModified(Instant.now().plusSeconds(1));
+
+		var errors = ingest.pushAll("", List.of(parent, child), false, false);
+
+		assertThat(errors).isEmpty();
+		assertThat(refRepository.findOneByUrlAndOrigin(URL, "").get().getTitle())
+			.isEqualTo("Second");
+		assertThat(refRepository.existsByUrlAndOrigin(OTHER_URL, ""))
+			.isTrue();
+		assertThat(refResponseRepository.findAllResponses(URL, ""))
+			.containsExactly(OTHER_URL);
+	}
+
+	@Test
+	void testPushAllDuplicateModified() {
+		var modified = Instant.now();
+		var ref1 = new Ref();
+		ref1.setUrl(URL);
+		ref1.setModified(modified);
+		var ref2 = new Ref();
+		ref2.setUrl(OTHER_URL);
+		ref2.setModified(modified);
+
+		var errors = ingest.pushAll("", List.of(ref1, ref2), false, false);
+
+		assertThat(errors).hasSize(1);
+		assertThat(errors.getFirst().error())
+			.isInstanceOf(DuplicateModifiedDateException.class);
+		assertThat(refRepository.count())
+			.isEqualTo(1);
+	}
+
 	@Test
 	void testUpdateResponse() {
 		var existing = new Ref();
@@ -0,0 +1,150 @@
+package jasper.component;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jasper.component.dto.ComponentDtoMapper;
+import jasper.config.Props;
+import jasper.domain.Ref;
+import jasper.service.dto.RefDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MessagesTest {
+
+	Messages messages = new Messages();
+	List<Runnable> scheduled = new ArrayList<>();
+	List<RefDto> sent = new ArrayList<>();
+
+	@BeforeEach
+	void init() {
+		messages.props = new Props();
+		messages.props.setMessageDebounceMs(100);
+		messages.meterRegistry = new SimpleMeterRegistry();
+		messages.meters();
+		messages.ready = true;
+		messages.taskScheduler = mock(TaskScheduler.class);
+		when(messages.taskScheduler.schedule(any(Runnable.class), any(Instant.class))).thenAnswer(inv -> {
+			scheduled.add(inv.getArgument(0));
+			return null;
+		});
+		messages.mapper = mock(ComponentDtoMapper.class);
+		when(messages.mapper.domainToDto(any(Ref.class))).thenAnswer(inv -> {
+			Ref ref = inv.getArgument(0);
+			var dto = new RefDto();
+			dto.setUrl(ref.getUrl());
+			dto.setOrigin(ref.getOrigin());
+			dto.setTitle(ref.getTitle());
+			dto.setModified(ref.getModified());
+			return dto;
+		});
+		messages.refTxChannel = mock(MessageChannel.class);
+		when(messages.refTxChannel.send(any())).thenAnswer(inv -> {
+			Message<?> message = inv.getArgument(0);
+			sent.add((RefDto) message.getPayload());
+			return true;
+		});
+		messages.cursorTxChannel = mock(MessageChannel.class);
+		messages.tagTxChannel = mock(MessageChannel.class);
+		messages.responseTxChannel = mock(MessageChannel.class);
+	}
+
+	Ref ref(String url, String title, Instant modified) {
+		var ref = new Ref();
+		ref.setUrl(url);
+		ref.setTitle(title);
+		ref.setModified(modified);
+		return ref;
+	}
+
+	void flush() {
+		assertThat(scheduled).hasSize(1);
+		scheduled.removeFirst().run();
+	}
+
+	@Test
+	void testCoalesceUpdates() {
+		var now = Instant.now();
+		messages.updateRef(ref("https://www.example.com/", "First", now));
+		messages.updateRef(ref("https://www.example.com/", "Second", now.plusSeconds(1)));
+		messages.updateRef(ref("https://www.example.org/", "Other", now));
+
+		assertThat(sent).isEmpty();
+		flush();
+
+		assertThat(sent)
+			.extracting(RefDto::getTitle)
+			.containsExactlyInAnyOrder("Second", "Other");
+	}
+
+	@Test
+	void testCoalesceKeepsNewest() {
+		var now = Instant.now();
+		messages.updateRef(ref("https://www.example.com/", "Newer", now.plusSeconds(1)));
+		messages.updateRef(ref("https://www.example.com/", "Older", now));
+		flush();
+
+		assertThat(sent)
+			.extracting(RefDto::getTitle)
+			.containsExactly("Newer");
+	}
+
+	@Test
+	void testMapOnQueue() {
+		var ref = ref("https://www.example.com/", "First", Instant.now());
+		messages.updateRef(ref);
+		ref.setTitle("Changed");
+		flush();
+
+		assertThat(sent)
+			.extracting(RefDto::getTitle)
+			.containsExactly("First");
+	}
+
+	@Test
+	void testDeleteNoticeReplaces() {
+		messages.updateRef(ref("https://www.example.com/", "First", Instant.now()));
+		messages.updateRef(ref("https://www.example.com/", "Deleted", null));
+		flush();
+
+		assertThat(sent)
+			.extracting(RefDto::getTitle)
+			.containsExactly("Deleted");
+	}
+
+	@Test
+	void testNextWindowSentSeparately() {
+		var now = Instant.now();
+		messages.updateRef(ref("https://www.example.com/", "First", now));
+		flush();
+		messages.updateRef(ref("https://www.example.com/", "Second", now.plusSeconds(1)));
+		flush();
+
+		assertThat(sent)
+			.extracting(RefDto::getTitle)
+			.containsExactly("First", "Second");
+	}
+
+	@Test
+	void testNoDebounce() {
+		messages.props.setMessageDebounceMs(0);
+		var now = Instant.now();
+		messages.updateRef(ref("https://www.example.com/", "First", now));
+		messages.updateRef(ref("https://www.example.com/", "Second", now.plusSeconds(1)));
+
+		assertThat(scheduled).isEmpty();
+		assertThat(sent)
+			.extracting(RefDto::getTitle)
+			.containsExactly("First", "Second");
+	}
+}
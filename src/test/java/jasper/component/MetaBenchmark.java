@@ -0,0 +1,66 @@
+package jasper.component;
+
+import jasper.AbstractBenchmark;
+import jasper.domain.Metadata;
+import jasper.domain.RefResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static jasper.component.Meta.expandTags;
+
+/**
+ * Metadata updates done for every Ref write: expanding tags, and adding and
+ * removing a response on a source that already has many responses and plugins.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=jasper.component.MetaBenchmark}
+ */
+public class MetaBenchmark extends AbstractBenchmark {
+
+	@Param({"5", "50"})
+	int tags;
+
+	@Param({"10", "1000"})
+	int plugins;
+
+	List<String> tagList;
+	Metadata metadata;
+	RefResponse edge;
+
+	@Setup
+	public void setup() {
+		tagList = new ArrayList<>();
+		for (var i = 0; i < tags; i++) tagList.add("plugin/topic/" + (i % 5) + "/sub/" + i);
+		var counts = new HashMap<String, Long>();
+		for (var i = 0; i < plugins; i++) counts.put("plugin/test/" + i, 100L);
+		metadata = Metadata.builder()
+			.responses(10_000)
+			.plugins(counts)
+			.build();
+		edge = new RefResponse();
+		edge.setUrl("https://www.example.com/");
+		edge.setResponse("comment:1");
+		edge.setTags(List.of("plugin", "plugin/comment", "plugin/test/0"));
+	}
+
+	@Benchmark
+	public Object expand() {
+		return expandTags(tagList);
+	}
+
+	@Benchmark
+	public Object addAndRemoveResponse() {
+		metadata.addResponse(edge);
+		metadata.removeResponse(edge);
+		return metadata;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		run(MetaBenchmark.class);
+	}
+}
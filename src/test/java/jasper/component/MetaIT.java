@@ -1,17 +1,25 @@
 package jasper.component;
 
 import jasper.IntegrationTest;
+import jasper.domain.Metadata;
 import jasper.domain.Plugin;
 import jasper.domain.Ref;
+import jasper.domain.RefResponse;
 import jasper.repository.PluginRepository;
 import jasper.repository.RefRepository;
+import jasper.repository.RefResponseRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import static jasper.repository.spec.RefSpec.hasNoPluginResponses;
+import static jasper.repository.spec.RefSpec.hasPluginResponses;
+import static jasper.repository.spec.RefSpec.hasResponse;
 import static org.assertj.core.api.Assertions.assertThat;
 
 @IntegrationTest
@@ -27,11 +35,15 @@ public class MetaIT {
 	@Autowired
 	PluginRepository pluginRepository;
 
+	@Autowired
+	RefResponseRepository refResponseRepository;
+
 	static final String URL = "https://www.example.com/";
 
 	@BeforeEach
 	void init() {
 		refRepository.deleteAll();
+		refResponseRepository.deleteAll();
 		pluginRepository.deleteAll();
 	}
 
@@ -44,10 +56,9 @@ public class MetaIT {
 
 		meta.ref("", ref);
 
-		assertThat(ref.getMetadata().getResponses()).isEmpty();
-		assertThat(ref.getMetadata().getInternalResponses()).isEmpty();
+		assertThat(ref.getMetadata().getResponses()).isZero();
+		assertThat(ref.getMetadata().getInternalResponses()).isZero();
 		assertThat(ref.getMetadata().getPlugins()).isEmpty();
-		assertThat(ref.getMetadata().getUserUrls()).isEmpty();
 	}
 
 	@Test
@@ -67,10 +78,10 @@ public class MetaIT {
 
 		var parent = refRepository.findOneByUrlAndOrigin(URL, "");
 		assertThat(parent).isNotEmpty();
-		assertThat(parent.get().getMetadata().getResponses()).containsExactly(URL+2);
-		assertThat(parent.get().getMetadata().getInternalResponses()).isNullOrEmpty();
+		assertThat(parent.get().getMetadata().getResponses()).isEqualTo(1);
+		assertThat(parent.get().getMetadata().getInternalResponses()).isZero();
 		assertThat(parent.get().getMetadata().getPlugins()).isNullOrEmpty();
-		assertThat(parent.get().getMetadata().getUserUrls()).isNullOrEmpty();
+		assertThat(refResponseRepository.findAllResponses(URL, "")).containsExactly(URL + 2);
 	}
 
 	@Test
@@ -90,10 +101,10 @@ public class MetaIT {
 
 		var parent = refRepository.findOneByUrlAndOrigin(URL, "");
 		assertThat(parent).isNotEmpty();
-		assertThat(parent.get().getMetadata().getResponses()).isNullOrEmpty();
-		assertThat(parent.get().getMetadata().getInternalResponses()).containsExactly(URL+2);
+		assertThat(parent.get().getMetadata().getResponses()).isZero();
+		assertThat(parent.get().getMetadata().getInternalResponses()).isEqualTo(1);
 		assertThat(parent.get().getMetadata().getPlugins()).isNullOrEmpty();
-		assertThat(parent.get().getMetadata().getUserUrls()).isNullOrEmpty();
+		assertThat(refResponseRepository.findAllInternalResponses(URL, "")).containsExactly(URL + 2);
 	}
 
 	@Test
@@ -116,9 +127,92 @@ public class MetaIT {
 
 		var parent = refRepository.findOneByUrlAndOrigin(URL, "");
 		assertThat(parent).isNotEmpty();
-		assertThat(parent.get().getMetadata().getResponses()).isEmpty();
-		assertThat(parent.get().getMetadata().getInternalResponses()).containsExactly(URL+2);
+		assertThat(parent.get().getMetadata().getResponses()).isZero();
+		assertThat(parent.get().getMetadata().getInternalResponses()).isEqualTo(1);
 		assertThat(parent.get().getMetadata().getPlugins().get("plugin/comment")).isEqualTo(1);
+		assertThat(refRepository.count(hasPluginResponses("plugin/comment"))).isEqualTo(1);
+		assertThat(refRepository.count(hasNoPluginResponses("plugin/comment"))).isZero();
+	}
+
+	@Test
+	void testRemoveMetadataResponse() {
+		var ref = new Ref();
+		ref.setUrl(URL);
+		ref.setTitle("First");
+		ref.setTags(List.of("+user/tester"));
+		refRepository.save(ref);
+		var child = new Ref();
+		child.setUrl(URL + 2);
+		child.setTitle("Child");
+		child.setSources(List.of(URL));
+		child.setTags(List.of("+user/tester", "plugin/comment"));
+		meta.sources("", child, null);
+		var update = new Ref();
+		update.setUrl(URL + 2);
+		update.setTitle("Child");
+		update.setTags(List.of("+user/tester", "plugin/comment"));
+
+		meta.sources("", update, child);
+
+		var parent = refRepository.findOneByUrlAndOrigin(URL, "");
+		assertThat(parent).isNotEmpty();
+		assertThat(parent.get().getMetadata().getResponses()).isZero();
+		assertThat(parent.get().getMetadata().getPlugins()).isNullOrEmpty();
+		assertThat(refResponseRepository.findAllResponses(URL, "")).isEmpty();
+		assertThat(refRepository.count(hasResponse(URL + 2))).isZero();
+	}
+
+	@Test
+	void testUpdateMetadataKeepsResponses() {
+		var existing = new Ref();
+		existing.setUrl(URL);
+		existing.setTitle("First");
+		existing.setTags(List.of("+user/tester"));
+		existing.setMetadata(Metadata
+			.builder()
+			.responses(1)
+			.internalResponses(1)
+			.plugins(new HashMap<>(Map.of("plugin/comment", 1L)))
+			.build());
+		var ref = new Ref();
+		ref.setUrl(URL);
+		ref.setTitle("Second");
+		ref.setTags(List.of("+user/tester", "plugin/comment"));
+
+		meta.ref("", ref, existing);
+
+		assertThat(ref.getMetadata().getExpandedTags()).containsExactlyInAnyOrder("+user/tester", "plugin/comment", "+user", "plugin");
+		assertThat(ref.getMetadata().getResponses()).isEqualTo(1);
+		assertThat(ref.getMetadata().getInternalResponses()).isEqualTo(1);
+		assertThat(ref.getMetadata().getPlugins().get("plugin/comment")).isEqualTo(1);
+		var response = new Ref();
+		response.setUrl(URL + 5);
+		response.setTags(List.of("plugin/comment"));
+		ref.getMetadata().addResponse(RefResponse.from(ref, response));
+		assertThat(existing.getMetadata().getResponses()).isEqualTo(1);
+		assertThat(existing.getMetadata().getPlugins().get("plugin/comment")).isEqualTo(1);
+	}
+
+	@Test
+	void testUpdateMetadataRegen() {
+		var existing = new Ref();
+		existing.setUrl(URL);
+		existing.setTitle("First");
+		existing.setTags(List.of("+user/tester"));
+		existing.setMetadata(Metadata
+			.builder()
+			.responses(1)
+			.regen(true)
+			.build());
+		var ref = new Ref();
+		ref.setUrl(URL);
+		ref.setTitle("Second");
+		ref.setTags(List.of("+user/tester"));
+
+		meta.ref("", ref, existing);
+
+		assertThat(ref.getMetadata().isRegen()).isFalse();
+		assertThat(ref.getMetadata().getResponses()).isZero();
 	}
 
 	@Test
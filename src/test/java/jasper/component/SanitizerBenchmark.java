@@ -0,0 +1,55 @@
+package jasper.component;
+
+import jasper.AbstractBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cleans scraped HTML with inline SVG, images and scripts.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=jasper.component.SanitizerBenchmark}
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SanitizerBenchmark extends AbstractBenchmark {
+	private static final String SECTION = """
+		<section class="post" onclick="alert(1)">
+			<h2>Heading</h2>
+			<p>Lorem <b>ipsum</b> dolor <a href="/relative" target="_blank">sit amet</a>, consectetur adipiscing elit.</p>
+			<figure><img src="image.png" alt="Image" width="100" height="100"><figcaption>Caption</figcaption></figure>
+			<svg viewBox="0 0 10 10"><g><path d="M0 0L10 10" fill="none" stroke="black"/></g></svg>
+			<script>document.cookie</script>
+			<iframe src="https://www.example.com/embed"></iframe>
+			<ul><li>One</li><li>Two</li><li><time>2024-01-01</time></li></ul>
+		</section>
+		""";
+
+	@Param({"1", "100"})
+	int sections;
+
+	Sanitizer sanitizer = new Sanitizer();
+	String html;
+
+	@Setup
+	public void setup() {
+		html = "<html><body>" + SECTION.repeat(sections) + "</body></html>";
+	}
+
+	@Benchmark
+	public String clean() {
+		return sanitizer.clean(html);
+	}
+
+	@Benchmark
+	public String cleanWithBaseUrl() {
+		return sanitizer.clean(html, "https://www.example.com/");
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		run(SanitizerBenchmark.class);
+	}
+}
@@ -220,4 +220,57 @@ print(yaml.dump({
 		assertThat(output.getComment()).isEqualTo("TEST");
 	}
 
+	@Test
+	void testJavaScriptNdjson() throws UntrustedScriptException {
+		// language=JavaScript
+		var manyScript = """
+			const fs = require('fs');
+			const ref = JSON.parse(fs.readFileSync(0, 'utf-8'));
+			for (let i = 0; i < 250; i++) {
+			  console.log(JSON.stringify({
+			    ref: [{
+			      url: ref.url + '/' + i,
+			      sources: [ref.url],
+			      title: 'Re: ' + ref.title,
+			      tags: ['public', '+needle'],
+			    }],
+			  }));
+			}
+		""";
+		var script = Script.builder()
+			.timeoutMs(30_000)
+			.language("javascript")
+			.format("ndjson")
+			.script(manyScript)
+			.build();
+		var url = "comment:" + UUID.randomUUID();
+		var input = getRef(url, "My Ref", "test", "public");
+
+		scriptRunner.runScripts(input, "plugin/script/many", script);
+
+		assertThat(refRepository.count(hasSource(url).and(hasTag("+needle")))).isEqualTo(250);
+	}
+
+	@Test
+	void testPythonNdjsonKeepsEntitiesBeforeError() throws UntrustedScriptException {
+		// language=Python
+		var failingScript = """
+import sys, json
+ref = json.load(sys.stdin)
+print(json.dumps({'ref': [{'url': ref['url'] + '/1', 'sources': [ref['url']], 'tags': ['+needle']}]}), flush=True)
+print('not json', flush=True)
+		""";
+		var script = Script.builder()
+			.timeoutMs(30_000)
+			.language("python")
+			.format("ndjson")
+			.script(failingScript)
+			.build();
+		var url = "comment:" + UUID.randomUUID();
+		var input = getRef(url, "My Ref", "test", "public");
+
+		scriptRunner.runScripts(input, "plugin/script/failing", script);
+
+		assertThat(refRepository.count(hasSource(url).and(hasTag("+needle")))).isEqualTo(1);
+	}
 }
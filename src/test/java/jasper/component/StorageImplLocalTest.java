@@ -0,0 +1,152 @@
+package jasper.component;
+
+import jasper.config.Props;
+import jasper.errors.NotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StorageImplLocalTest {
+
+	@TempDir
+	Path dir;
+
+	StorageImplLocal storage = new StorageImplLocal();
+
+	@BeforeEach
+	void init() {
+		storage.props = new Props();
+		storage.props.setStorage(dir.toString());
+		storage.props.setStorageDedup(true);
+	}
+
+	long blobCount() throws IOException {
+		if (!Files.exists(storage.blobs())) return 0;
+		try (var w = Files.walk(storage.blobs())) {
+			return w.filter(Files::isRegularFile).count();
+		}
+	}
+
+	void expire() throws IOException {
+		try (var w = Files.walk(storage.blobs())) {
+			for (var p : w.toList()) {
+				Files.setLastModifiedTime(p, FileTime.from(Instant.now().minus(StorageImplLocal.GC_GRACE).minusSeconds(60)));
+			}
+		}
+	}
+
+	void corruptBlobs() throws IOException {
+		try (var w = Files.walk(storage.blobs())) {
+			for (var p : w.filter(Files::isRegularFile).toList()) {
+				Files.writeString(p, "junk");
+				Files.setLastModifiedTime(p, FileTime.from(Instant.now().plusSeconds(60)));
+			}
+		}
+	}
+
+	@Test
+	void testStoreDeduplicates() throws IOException {
+		var a = storage.store("", "cache", new ByteArrayInputStream("test".getBytes()));
+		var b = storage.store("@other", "cache", "test".getBytes());
+
+		assertThat(a).isNotEqualTo(b);
+		assertThat(storage.get("", "cache", a)).isEqualTo("test".getBytes());
+		assertThat(storage.get("@other", "cache", b)).isEqualTo("test".getBytes());
+		assertThat(storage.size("", "cache", a)).isEqualTo(4);
+		assertThat(blobCount()).isEqualTo(1);
+		assertThat(storage.listTenants()).containsExactlyInAnyOrder("default", "@other");
+	}
+
+	@Test
+	void testOverwriteDoesNotChangeSharedContent() throws IOException {
+		var a = storage.store("", "cache", "test".getBytes());
+		var b = storage.store("", "cache", "test".getBytes());
+
+		storage.overwrite("", "cache", a, "changed".getBytes());
+
+		assertThat(storage.get("", "cache", a)).isEqualTo("changed".getBytes());
+		assertThat(storage.get("", "cache", b)).isEqualTo("test".getBytes());
+	}
+
+	@Test
+	void testCorruptBlobIsDeleted() throws IOException {
+		var id = storage.store("", "cache", "test".getBytes());
+		corruptBlobs();
+
+		var os = new ByteArrayOutputStream();
+		assertThatThrownBy(() -> storage.stream("", "cache", id, os))
+			.isInstanceOf(NotFoundException.class);
+		assertThat(storage.exists("", "cache", id)).isFalse();
+
+		storage.storeAt("", "cache", id, "test".getBytes());
+		assertThat(storage.get("", "cache", id)).isEqualTo("test".getBytes());
+	}
+
+	@Test
+	void testServeByPathOnceVerified() throws IOException {
+		var id = storage.store("", "cache", "test".getBytes());
+		corruptBlobs();
+
+		try (var is = storage.stream("", "cache", id)) {
+			assertThat(is).isNotInstanceOf(Storage.LocalFile.class);
+			assertThatThrownBy(is::readAllBytes)
+				.isInstanceOf(IOException.class);
+		}
+		assertThat(storage.exists("", "cache", id)).isFalse();
+
+		storage.storeAt("", "cache", id, "test".getBytes());
+		try (var is = storage.stream("", "cache", id)) {
+			assertThat(is).isInstanceOf(Storage.LocalFile.class);
+		}
+	}
+
+	@Test
+	void testVerifyBeforeServingByPath() throws IOException {
+		var id = storage.store("", "cache", "test".getBytes());
+		var other = new StorageImplLocal();
+		other.props = storage.props;
+
+		try (var is = other.stream("", "cache", id)) {
+			assertThat(is).isNotInstanceOf(Storage.LocalFile.class);
+			assertThat(is.readAllBytes()).isEqualTo("test".getBytes());
+		}
+		try (var is = other.stream("", "cache", id)) {
+			assertThat(is).isInstanceOf(Storage.LocalFile.class);
+		}
+	}
+
+	@Test
+	void testCollectGarbage() throws IOException {
+		var a = storage.store("", "cache", "test".getBytes());
+		var b = storage.store("", "cache", "test".getBytes());
+		var c = storage.store("", "cache", "other".getBytes());
+		expire();
+
+		storage.delete("", "cache", a);
+		storage.delete("", "cache", c);
+
+		assertThat(storage.collectGarbage()).isEqualTo(5);
+		assertThat(blobCount()).isEqualTo(1);
+		assertThat(storage.get("", "cache", b)).isEqualTo("test".getBytes());
+	}
+
+	@Test
+	void testCollectGarbageSkipsNewBlobs() throws IOException {
+		var id = storage.store("", "cache", "test".getBytes());
+		storage.delete("", "cache", id);
+
+		assertThat(storage.collectGarbage()).isZero();
+		assertThat(blobCount()).isEqualTo(1);
+	}
+}
@@ -6,6 +6,7 @@ import jasper.IntegrationTest;
 import jasper.domain.Plugin;
 import jasper.domain.Ref;
 import jasper.errors.InvalidPluginException;
+import jasper.errors.PublishDateException;
 import jasper.repository.PluginRepository;
 import jasper.repository.RefRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,8 +16,10 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -288,6 +291,29 @@ public class ValidateRefIT {
 			.isInstanceOf(InvalidPluginException.class);
 	}
 
+	@Test
+	void testValidateRefWithEmptySchemaPlugin() throws IOException {
+		var mapper = new ObjectMapper();
+		var plugin = new Plugin();
+		plugin.setTag("plugin/test");
+		plugin.setSchema(mapper.createObjectNode());
+		pluginRepository.save(plugin);
+		var ref = new Ref();
+		ref.setUrl(URL);
+		ref.setTitle("First");
+		ref.setTags(Arrays.asList("+user/tester", "plugin/test"));
+		ref.setPlugins((ObjectNode) mapper.readTree("""
+		{
+			"plugin/test": {
+				"anything": ["goes", 1]
+			}
+		}"""));
+
+		validate.ref("", ref, false);
+
+		assertThat(ref.getPlugin("plugin/test").get("anything")).hasSize(2);
+	}
+
 	@Test
 	void testValidateRefWithPluginDefaults() throws IOException {
 		var plugin = new Plugin();
@@ -314,6 +340,87 @@ public class ValidateRefIT {
 		validate.ref("", ref, false);
 	}
 
+	@Test
+	void testValidateRefPublishedAfterSources() {
+		var source = new Ref();
+		source.setUrl(URL + "source");
+		source.setPublished(Instant.parse("2020-01-02T00:00:00Z"));
+		refRepository.save(source);
+		var older = new Ref();
+		older.setUrl(URL + "older");
+		older.setPublished(Instant.parse("2020-01-01T00:00:00Z"));
+		refRepository.save(older);
+		var ref = new Ref();
+		ref.setUrl(URL);
+		ref.setSources(List.of(URL + "older", URL + "source"));
+		ref.setPublished(Instant.parse("2019-01-01T00:00:00Z"));
+
+		validate.ref("", ref, false);
+
+		assertThat(ref.getPublished()).isEqualTo(Instant.parse("2020-01-02T00:00:00.001Z"));
+	}
+
+	@Test
+	void testValidateRefPublishedBeforeResponses() {
+		var response = new Ref();
+		response.setUrl(URL + "response");
+		response.setSources(List.of(URL));
+		response.setPublished(Instant.parse("2020-01-01T00:00:00Z"));
+		refRepository.save(response);
+		var user = new Ref();
+		user.setUrl(URL + "user");
+		user.setSources(List.of(URL));
+		user.setTags(List.of("plugin/user"));
+		user.setPublished(Instant.parse("2000-01-01T00:00:00Z"));
+		refRepository.save(user);
+		var ref = new Ref();
+		ref.setUrl(URL);
+		ref.setPublished(Instant.parse("2021-01-01T00:00:00Z"));
+
+		validate.ref("", ref, false);
+
+		assertThat(ref.getPublished()).isEqualTo(Instant.parse("2019-12-31T23:59:59.999Z"));
+	}
+
+	@Test
+	void testValidateRefPublishedBetweenSourceAndResponse() {
+		var source = new Ref();
+		source.setUrl(URL + "source");
+		source.setPublished(Instant.parse("2020-01-02T00:00:00Z"));
+		refRepository.save(source);
+		var response = new Ref();
+		response.setUrl(URL + "response");
+		response.setSources(List.of(URL));
+		response.setPublished(Instant.parse("2020-01-01T00:00:00Z"));
+		refRepository.save(response);
+		var ref = new Ref();
+		ref.setUrl(URL);
+		ref.setSources(List.of(URL + "source"));
+
+		assertThatThrownBy(() -> validate.ref("", ref, false))
+			.isInstanceOf(PublishDateException.class);
+	}
+
+	@Test
+	void testSourcesPublishedBatch() {
+		var source = new Ref();
+		source.setUrl(URL + "source");
+		source.setPublished(Instant.parse("2020-01-02T00:00:00Z"));
+		refRepository.save(source);
+		var a = new Ref();
+		a.setUrl(URL + "a");
+		a.setSources(List.of(URL + "source"));
+		var b = new Ref();
+		b.setUrl(URL + "b");
+		b.setSources(List.of(URL + "b", URL + "missing"));
+
+		var published = validate.sourcesPublished("", List.of(a, b));
+
+		assertThat(published)
+			.containsOnlyKeys(URL + "source")
+			.containsEntry(URL + "source", Instant.parse("2020-01-02T00:00:00Z"));
+	}
+
 	@Test
 	void testResponseValidationWithNoRoles() {
 		var ref = new Ref();
@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 public class ValidateRefTest {
@@ -30,6 +31,7 @@ public class ValidateRefTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
         validate.objectMapper = mapper;
+        when(configs.getPluginDefaults(any())).thenCallRealMethod();
     }
 
     @Test
@@ -96,6 +98,65 @@ public class ValidateRefTest {
         assertThat(defaults.get("plugin/test").get("list").get(0).asText()).isEqualTo("c");
     }
 
+    @Test
+    void testPluginDefaultsDoesNotModifyPlugin() throws Exception {
+        var ref = new Ref();
+        ref.setTags(List.of("plugin/test"));
+        ref.setPlugins((ObjectNode) mapper.readTree("""
+        {
+            "plugin/test": {
+                "name": "overridden"
+            }
+        }"""));
+
+        var pluginTest = new Plugin();
+        pluginTest.setTag("plugin/test");
+        pluginTest.setDefaults((ObjectNode) mapper.readTree("""
+        {
+            "name": "test"
+        }"""));
+
+        when(configs.getPlugin("plugin/test", "")).thenReturn(Optional.of(pluginTest));
+
+        validate.pluginDefaults("", ref);
+
+        assertThat(pluginTest.getDefaults().get("name").asText()).isEqualTo("test");
+    }
+
+    @Test
+    void testPluginDefaultsDoesNotModifyNestedDefaults() throws Exception {
+        var ref = new Ref();
+        ref.setTags(List.of("plugin/test"));
+        ref.setPlugins((ObjectNode) mapper.readTree("""
+        {
+            "plugin/test": {
+                "nested": {
+                    "name": "overridden"
+                }
+            }
+        }"""));
+
+        var pluginTest = new Plugin();
+        pluginTest.setTag("plugin/test");
+        pluginTest.setDefaults((ObjectNode) mapper.readTree("""
+        {
+            "nested": {
+                "name": "test",
+                "other": "kept"
+            }
+        }"""));
+        var cached = configs.getPluginDefaults(pluginTest);
+        when(configs.getPluginDefaults(pluginTest)).thenReturn(cached);
+
+        when(configs.getPlugin("plugin/test", "")).thenReturn(Optional.of(pluginTest));
+
+        var defaults = validate.pluginDefaults("", ref);
+
+        assertThat(defaults.get("plugin/test").get("nested").get("name").asText()).isEqualTo("overridden");
+        assertThat(defaults.get("plugin/test").get("nested").get("other").asText()).isEqualTo("kept");
+        assertThat(cached.get("nested").get("name").asText()).isEqualTo("test");
+    }
+
     @Test
     void testPluginDefaultsExpandTags() throws Exception {
         var ref = new Ref();
@@ -0,0 +1,73 @@
+package jasper.component.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jasper.AbstractBenchmark;
+import jasper.domain.Metadata;
+import jasper.domain.Ref;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import static jasper.component.Meta.expandTags;
+
+/**
+ * Maps a Ref to the DTOs sent to websocket subscribers and replicas.
+ * Half of the tags and plugins are private to exercise the filtering.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=jasper.component.dto.ComponentDtoMapperBenchmark}
+ */
+public class ComponentDtoMapperBenchmark extends AbstractBenchmark {
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Param({"5", "50"})
+	int tags;
+
+	ComponentDtoMapper mapper;
+	Ref ref;
+
+	@Setup
+	public void setup() {
+		var impl = new ComponentDtoMapperImpl();
+		impl.objectMapper = objectMapper;
+		mapper = impl;
+
+		var tagList = new ArrayList<String>();
+		var plugins = objectMapper.createObjectNode();
+		var counts = new HashMap<String, Long>();
+		for (var i = 0; i < tags; i++) {
+			var tag = (i % 2 == 0 ? "_plugin/test/" : "plugin/test/") + i;
+			tagList.add(tag);
+			plugins.putObject(tag).put("value", i).put("text", "Lorem ipsum dolor sit amet");
+			counts.put(tag, (long) i);
+		}
+		ref = new Ref();
+		ref.setUrl("https://www.example.com/");
+		ref.setTitle("Title");
+		ref.setComment("Lorem ipsum dolor sit amet, consectetur adipiscing elit.");
+		ref.setTags(tagList);
+		ref.setPlugins(plugins);
+		ref.setMetadata(Metadata.builder()
+			.expandedTags(expandTags(tagList))
+			.plugins(counts)
+			.responses(100)
+			.build());
+	}
+
+	@Benchmark
+	public Object domainToDto() {
+		return mapper.domainToDto(ref);
+	}
+
+	@Benchmark
+	public Object domainToUpdateDto() {
+		return mapper.dtoToUpdateDto(mapper.domainToDto(ref));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		run(ComponentDtoMapperBenchmark.class);
+	}
+}
@@ -3,12 +3,15 @@ package jasper.component.script;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import feign.FeignException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jasper.client.JasperClient;
 import jasper.client.dto.JasperMapper;
+import jasper.component.FetchScheduler;
 import jasper.component.HttpClientFactory;
 import jasper.component.Ingest;
 import jasper.component.Tagger;
 import jasper.config.JacksonConfiguration;
+import jasper.config.Props;
 import jasper.domain.Ref;
 import jasper.plugin.Feed;
 import jasper.repository.RefRepository;
@@ -109,6 +112,10 @@ public class RssParserTest {
 	void setUp() throws Exception {
 		MockitoAnnotations.openMocks(this);
 		ReflectionTestUtils.setField(rssParser, "api", "http://localhost:8081");
+		var fetchScheduler = new FetchScheduler();
+		ReflectionTestUtils.setField(fetchScheduler, "props", new Props());
+		ReflectionTestUtils.setField(fetchScheduler, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(rssParser, "fetchScheduler", fetchScheduler);
 		when(httpClientFactory.getClient()).thenReturn(httpClient);
 		when(mapper.domainToDto(any(Ref.class))).thenReturn(new RefReplDto());
 	}
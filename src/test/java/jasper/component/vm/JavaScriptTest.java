@@ -45,7 +45,7 @@ class JavaScriptTest {
 		""";
 		var input = "test";
 
-		var output = vm.runJavaScript(targetScript, input, 30_000);
+		var output = vm.runJavaScript("", targetScript, input, 30_000);
 
 		assertThat(output).isEqualToIgnoringWhitespace("TEST");
 	}
@@ -58,7 +58,7 @@ class JavaScriptTest {
         """;
 		var input = "test";
 
-		assertThatThrownBy(() -> vm.runJavaScript(targetScript, input, 1_000))
+		assertThatThrownBy(() -> vm.runJavaScript("", targetScript, input, 1_000))
 			.isInstanceOf(ScriptException.class)
 			.hasMessageContaining("Script execution timed out");
 	}
@@ -71,7 +71,7 @@ class JavaScriptTest {
         """;
 		var input = "test";
 
-		assertThatThrownBy(() -> vm.runJavaScript(targetScript, input, 30_000))
+		assertThatThrownBy(() -> vm.runJavaScript("", targetScript, input, 30_000))
 			.isInstanceOf(ScriptException.class)
 			.hasMessageContaining("Script execution failed with exit code:");
 	}
@@ -86,7 +86,7 @@ class JavaScriptTest {
 
 		var future = CompletableFuture.supplyAsync(() -> {
 			try {
-				return vm.runJavaScript(targetScript, input, 30_000);
+				return vm.runJavaScript("", targetScript, input, 30_000);
 			} catch (Exception e) {
 				throw new RuntimeException(e);
 			}
@@ -95,4 +95,72 @@ class JavaScriptTest {
 			.succeedsWithin(Duration.ofSeconds(2));
 	}
 
+	@Test
+	void testRunJavaScriptWorker() throws IOException, ScriptException {
+		vm.props.setScriptWorkers(1);
+		// language=JavaScript
+		var targetScript = """
+			console.log(require('fs').readFileSync(0, 'utf-8').toUpperCase());
+		""";
+
+		try {
+			assertThat(vm.runJavaScript("", targetScript, "one", 30_000)).isEqualToIgnoringWhitespace("ONE");
+			assertThat(vm.runJavaScript("", targetScript, "two", 30_000)).isEqualToIgnoringWhitespace("TWO");
+		} finally {
+			vm.shutdown();
+		}
+	}
+
+	@Test
+	void testRunJavaScriptWorkerTimeout() throws IOException, ScriptException {
+		vm.props.setScriptWorkers(1);
+		// language=JavaScript
+		var targetScript = """
+			await new Promise(r => setTimeout(r, 2000));
+		""";
+
+		try {
+			assertThatThrownBy(() -> vm.runJavaScript("", targetScript, "", 1_000))
+				.isInstanceOf(ScriptException.class)
+				.hasMessageContaining("Script execution timed out");
+			assertThat(vm.runJavaScript("", "console.log('ok')", "", 30_000)).isEqualToIgnoringWhitespace("ok");
+		} finally {
+			vm.shutdown();
+		}
+	}
+
+	@Test
+	void testRunJavaScriptWorkerLeftoverTimer() throws IOException, ScriptException {
+		vm.props.setScriptWorkers(1);
+		// language=JavaScript
+		var targetScript = """
+			setTimeout(() => { throw new Error('late'); }, 100);
+			console.log('first');
+		""";
+
+		try {
+			assertThat(vm.runJavaScript("", targetScript, "", 30_000)).isEqualToIgnoringWhitespace("first");
+			assertThat(vm.runJavaScript("", "await new Promise(r => setTimeout(r, 200)); console.log('second')", "", 30_000))
+				.isEqualToIgnoringWhitespace("second");
+		} finally {
+			vm.shutdown();
+		}
+	}
+
+	@Test
+	void testRunJavaScriptWorkerStdout() throws IOException, ScriptException {
+		vm.props.setScriptWorkers(1);
+		// language=JavaScript
+		var targetScript = """
+			require('fs').writeSync(1, 'raw\\n');
+			console.log('ok');
+		""";
+
+		try {
+			assertThat(vm.runJavaScript("", targetScript, "", 30_000)).isEqualToIgnoringWhitespace("ok");
+			assertThat(vm.runJavaScript("", targetScript, "", 30_000)).isEqualToIgnoringWhitespace("ok");
+		} finally {
+			vm.shutdown();
+		}
+	}
 }
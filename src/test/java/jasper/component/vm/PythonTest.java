@@ -113,4 +113,82 @@ print("a" * 65_536)
 			.succeedsWithin(Duration.ofSeconds(2));
 	}
 
+	@Test
+	void testRunPythonWorker() throws IOException, ScriptException, NoSuchAlgorithmException {
+		vm.props.setScriptWorkers(1);
+		// language=Python
+		var targetScript = """
+import sys
+print(sys.stdin.read().upper())
+		""";
+
+		try {
+			assertThat(vm.runPython("", targetScript, "one", 30_000)).isEqualToIgnoringWhitespace("ONE");
+			assertThat(vm.runPython("", targetScript, "two", 30_000)).isEqualToIgnoringWhitespace("TWO");
+		} finally {
+			vm.shutdown();
+		}
+	}
+
+	@Test
+	void testRunPythonWorkerError() {
+		vm.props.setScriptWorkers(1);
+		// language=Python
+		var targetScript = """
+import sys
+sys.exit(2)
+		""";
+
+		try {
+			assertThatThrownBy(() -> vm.runPython("", targetScript, "", 30_000))
+				.isInstanceOf(ScriptException.class)
+				.hasMessageContaining("Script execution failed with exit code: 2");
+		} finally {
+			vm.shutdown();
+		}
+	}
+
+	@Test
+	void testRunPythonWorkerIsolation() throws IOException, ScriptException, NoSuchAlgorithmException {
+		vm.props.setScriptWorkers(1);
+		// language=Python
+		var leakScript = """
+import os, sys
+sys.modules['leaked'] = sys
+os.environ['LEAKED'] = '1'
+os.write(1, b'raw\\n')
+print('ok')
+		""";
+		// language=Python
+		var checkScript = """
+import os, sys
+print('leaked' in sys.modules, os.environ.get('LEAKED'))
+		""";
+
+		try {
+			assertThat(vm.runPython("", leakScript, "", 30_000)).isEqualToIgnoringWhitespace("raw ok");
+			assertThat(vm.runPython("", checkScript, "", 30_000)).isEqualToIgnoringWhitespace("False None");
+		} finally {
+			vm.shutdown();
+		}
+	}
+
+	@Test
+	void testRunPythonWorkerTimeout() throws IOException, ScriptException, NoSuchAlgorithmException {
+		vm.props.setScriptWorkers(1);
+		// language=Python
+		var targetScript = """
+import time
+time.sleep(5)
+		""";
+
+		try {
+			assertThatThrownBy(() -> vm.runPython("", targetScript, "", 1_000))
+				.isInstanceOf(ScriptException.class)
+				.hasMessageContaining("Script execution timed out");
+			assertThat(vm.runPython("", "print('ok')", "", 30_000)).isEqualToIgnoringWhitespace("ok");
+		} finally {
+			vm.shutdown();
+		}
+	}
 }
@@ -0,0 +1,64 @@
+package jasper.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisCodecTest {
+	ObjectMapper objectMapper = new ObjectMapper();
+	Map<String, Object> ref = Map.of(
+		"url", "https://www.example.com/",
+		"title", "Title",
+		"tags", "public ".repeat(100).trim().split(" "));
+
+	@Test
+	void testJson() throws IOException {
+		var codec = new RedisCodec(objectMapper, "json", 0);
+
+		var data = codec.encode(ref);
+
+		assertThat(data[0]).isEqualTo((byte) '{');
+		assertThat(codec.decode(data, Map.class)).containsEntry("title", "Title");
+	}
+
+	@Test
+	void testSmileIsSmaller() throws IOException {
+		var json = new RedisCodec(objectMapper, "json", 0);
+		var smile = new RedisCodec(objectMapper, "smile", 0);
+
+		var data = smile.encode(ref);
+
+		assertThat(data.length).isLessThan(json.encode(ref).length);
+		assertThat(smile.decode(data, Map.class)).containsEntry("title", "Title");
+	}
+
+	@Test
+	void testCompress() throws IOException {
+		var codec = new RedisCodec(objectMapper, "smile", 100);
+
+		var data = codec.encode(ref);
+
+		assertThat(data[0]).isEqualTo((byte) 0x1f);
+		assertThat(codec.decode(data, Map.class)).containsEntry("title", "Title");
+	}
+
+	@Test
+	void testCompressSkipsSmallMessages() throws IOException {
+		var codec = new RedisCodec(objectMapper, "json", 100_000);
+
+		assertThat(codec.encode(ref)[0]).isEqualTo((byte) '{');
+	}
+
+	@Test
+	void testDecodesAnyEncoding() throws IOException {
+		var json = new RedisCodec(objectMapper, "json", 0);
+		var smile = new RedisCodec(objectMapper, "smile", 100);
+
+		assertThat(json.decode(smile.encode(ref), Map.class)).containsEntry("url", "https://www.example.com/");
+		assertThat(smile.decode(json.encode(ref), Map.class)).containsEntry("url", "https://www.example.com/");
+	}
+}
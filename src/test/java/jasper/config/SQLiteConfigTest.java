@@ -0,0 +1,38 @@
+package jasper.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SQLiteConfigTest {
+	ObjectMapper om = new ObjectMapper();
+
+	@Test
+	void testConcatObjectsIsShallow() throws IOException {
+		var result = SQLiteConfig.concat(
+			om.readTree("{\"plugins\":{\"plugin/a\":1,\"plugin/b\":2},\"regen\":true}"),
+			om.readTree("{\"plugins\":{\"plugin/a\":3}}"));
+
+		assertThat(result).isEqualTo(om.readTree("{\"plugins\":{\"plugin/a\":3},\"regen\":true}"));
+	}
+
+	@Test
+	void testConcatKeepsNulls() throws IOException {
+		var result = SQLiteConfig.concat(
+			om.readTree("{\"modified\":\"2020-01-01T00:00:00Z\"}"),
+			om.readTree("{\"modified\":null}"));
+
+		assertThat(result.has("modified")).isTrue();
+		assertThat(result.get("modified").isNull()).isTrue();
+	}
+
+	@Test
+	void testConcatArrays() throws IOException {
+		var result = SQLiteConfig.concat(om.readTree("[1,2]"), om.readTree("3"));
+
+		assertThat(result).isEqualTo(om.readTree("[1,2,3]"));
+	}
+}
@@ -2,16 +2,18 @@ package jasper.repository;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jasper.DisabledOnSqlite;
 import jasper.IntegrationTest;
 import jasper.component.ConfigCache;
 import jasper.domain.Metadata;
 import jasper.domain.Plugin;
 import jasper.domain.Ref;
+import jasper.domain.RefResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -28,6 +30,9 @@ public class BackfillRepositoryIT {
 	@Autowired
 	BackfillRepository backfillRepository;
 
+	@Autowired
+	RefResponseRepository refResponseRepository;
+
 	@Autowired
 	ConfigCache configCache;
 
@@ -37,12 +42,12 @@ public class BackfillRepositoryIT {
 	@BeforeEach
 	void init() {
 		refRepository.deleteAllInBatch();
+		refResponseRepository.deleteAllInBatch();
 		pluginRepository.deleteAllInBatch();
 		configCache.clearPluginCache();
 	}
 
 	@Test
-	@DisabledOnSqlite
 	void testBackfillMetadata_BackfillsNullMetadata() {
 		var plugin = new Plugin();
 		plugin.setTag("plugin/comment");
@@ -81,7 +86,62 @@ public class BackfillRepositoryIT {
 	}
 
 	@Test
-	@DisabledOnSqlite
+	void testBackfillMetadata_BuildsResponseEdges() {
+		var parent = new Ref();
+		parent.setUrl("http://example.com/parent");
+		parent.setOrigin("");
+		parent.setMetadata(null);
+		refRepository.save(parent);
+
+		var response = new Ref();
+		response.setUrl("http://example.com/response");
+		response.setOrigin("");
+		response.setSources(List.of("http://example.com/parent"));
+		response.setTags(List.of("internal"));
+		response.setMetadata(Metadata.builder().build());
+		refRepository.save(response);
+
+		backfillRepository.backfillMetadata("", 10);
+
+		var metadata = refRepository.findOneByUrlAndOrigin(parent.getUrl(), "").orElseThrow().getMetadata();
+		assertThat(metadata.getResponses()).isZero();
+		assertThat(metadata.getInternalResponses()).isEqualTo(1);
+		assertThat(refResponseRepository.findAllInternalResponses(parent.getUrl(), ""))
+			.containsExactly(response.getUrl());
+	}
+
+	@Test
+	void testBackfillMetadata_RemovesStaleSourceEdges() {
+		var parent = new Ref();
+		parent.setUrl("http://example.com/parent");
+		parent.setOrigin("");
+		parent.setMetadata(Metadata.builder().responses(1).build());
+		refRepository.save(parent);
+
+		var response = new Ref();
+		response.setUrl("http://example.com/response");
+		response.setOrigin("");
+		response.setMetadata(null);
+		refRepository.save(response);
+
+		var edge = new RefResponse();
+		edge.setUrl(parent.getUrl());
+		edge.setOrigin("");
+		edge.setResponse(response.getUrl());
+		edge.setTags(List.of());
+		refResponseRepository.save(edge);
+
+		backfillRepository.backfillMetadata("", 10);
+
+		assertThat(refResponseRepository.findAllResponses(parent.getUrl(), "")).isEmpty();
+		assertThat(refRepository.findOneByUrlAndOrigin(parent.getUrl(), "").orElseThrow().getMetadata().isRegen()).isTrue();
+
+		backfillRepository.backfillMetadata("", 10);
+
+		assertThat(refRepository.findOneByUrlAndOrigin(parent.getUrl(), "").orElseThrow().getMetadata().getResponses()).isZero();
+	}
+
+	@Test
 	void testBackfillMetadata_BackfillsRegenFlag() {
 		var parent = new Ref();
 		parent.setUrl("http://example.com/parent");
@@ -95,7 +155,6 @@ public class BackfillRepositoryIT {
 	}
 
 	@Test
-	@DisabledOnSqlite
 	void testBackfillMetadata_RespectsOriginFilter() {
 		var ref1 = new Ref();
 		ref1.setUrl("http://example.com/ref1");
@@ -126,4 +185,74 @@ public class BackfillRepositoryIT {
 
 		assertThat(updated).isEqualTo(0);
 	}
+
+	@Test
+	void testBackfillMetadata_ExpandsTags() {
+		var ref = new Ref();
+		ref.setUrl("http://example.com/ref");
+		ref.setOrigin("");
+		ref.setTags(List.of("people/alice"));
+		ref.setMetadata(null);
+		refRepository.save(ref);
+
+		backfillRepository.backfillMetadata("", 10);
+
+		var metadata = refRepository.findOneByUrlAndOrigin(ref.getUrl(), "").orElseThrow().getMetadata();
+		assertThat(metadata.getExpandedTags()).containsExactlyInAnyOrder("people/alice", "people");
+	}
+
+	@Test
+	void testBackfillMetadata_WalksBackwardsFromCursor() {
+		var now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+		for (var i = 0; i < 3; i++) {
+			var ref = new Ref();
+			ref.setUrl("http://example.com/ref" + i);
+			ref.setOrigin("");
+			ref.setModified(now.minusSeconds(i));
+			ref.setMetadata(null);
+			refRepository.save(ref);
+		}
+
+		var first = backfillRepository.backfillMetadata("", null, 2);
+		var second = backfillRepository.backfillMetadata("", first.cursor(), 2);
+		var third = backfillRepository.backfillMetadata("", second.cursor(), 2);
+
+		assertThat(first.count()).isEqualTo(2);
+		assertThat(first.cursor()).isEqualTo(now.minusSeconds(1));
+		assertThat(second.count()).isEqualTo(1);
+		assertThat(second.cursor()).isEqualTo(now.minusSeconds(2));
+		assertThat(third.count()).isEqualTo(0);
+		assertThat(third.cursor()).isNull();
+	}
+
+	@Test
+	void testRebuildResponses_KeepsMetadata() {
+		var parent = new Ref();
+		parent.setUrl("http://example.com/parent");
+		parent.setOrigin("");
+		parent.setMetadata(Metadata.builder()
+			.responses(1)
+			.build());
+		refRepository.save(parent);
+
+		var response = new Ref();
+		response.setUrl("http://example.com/response");
+		response.setOrigin("");
+		response.setSources(List.of("http://example.com/parent"));
+		response.setTags(List.of("plugin/comment", "internal"));
+		refRepository.save(response);
+
+		var stale = new Ref();
+		stale.setUrl("http://example.com/stale");
+		refResponseRepository.save(RefResponse.from(parent, stale));
+
+		backfillRepository.rebuildResponses("");
+
+		assertThat(refResponseRepository.findAllResponses(parent.getUrl(), "")).isEmpty();
+		assertThat(refResponseRepository.findAllInternalResponses(parent.getUrl(), "")).containsExactly(response.getUrl());
+		var edge = refResponseRepository.findAll().getFirst();
+		assertThat(edge.getTags()).containsExactlyInAnyOrder("plugin/comment", "plugin");
+		assertThat(refRepository.findOneByUrlAndOrigin(parent.getUrl(), "").orElseThrow().getMetadata().getResponses())
+			.isEqualTo(1);
+	}
 }
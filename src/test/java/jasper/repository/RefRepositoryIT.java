@@ -8,10 +8,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
 import static jasper.config.JacksonConfiguration.om;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.data.jpa.domain.Specification.unrestricted;
 
 @IntegrationTest
 public class RefRepositoryIT {
@@ -454,4 +458,32 @@ public class RefRepositoryIT {
 		assertThat(result2).isPresent();
 		assertThat(result2.get().getUrl()).isEqualTo("http://example.com/origin");
 	}
+
+	// --- forEachAfter ---
+
+	@Test
+	void testForEachAfter_WalksKeysetAcrossOrigins() {
+		var modified = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+		for (var origin : List.of("", "@a", "@b")) {
+			var ref = new Ref();
+			ref.setUrl("http://example.com/same");
+			ref.setOrigin(origin);
+			ref.setModified(modified);
+			refRepository.save(ref);
+		}
+		var later = new Ref();
+		later.setUrl("http://example.com/later");
+		later.setOrigin("");
+		later.setModified(modified.plusSeconds(1));
+		refRepository.save(later);
+
+		var visited = new ArrayList<String>();
+		refRepository.forEachAfter(unrestricted(), 1, ref -> visited.add(ref.getUrl() + ref.getOrigin()));
+
+		assertThat(visited).containsExactly(
+			"http://example.com/same",
+			"http://example.com/same@a",
+			"http://example.com/same@b",
+			"http://example.com/later");
+	}
 }
@@ -0,0 +1,59 @@
+package jasper.repository.filter;
+
+import jasper.AbstractBenchmark;
+import jasper.service.dto.RefDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static jasper.domain.proj.HasTags.hasMatchingTag;
+
+/**
+ * Compares matching a Ref against every selector in a loop, as the
+ * refRxChannel subscribers used to, against {@link TagMatcher}.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=jasper.repository.filter.TagMatcherBenchmark}
+ */
+public class TagMatcherBenchmark extends AbstractBenchmark {
+
+	@Param({"10", "100", "1000"})
+	int selectors;
+
+	List<String> tags;
+	TagMatcher matcher;
+	RefDto ref;
+
+	@Setup
+	public void setup() {
+		tags = new ArrayList<>();
+		matcher = new TagMatcher();
+		for (var i = 0; i < selectors; i++) {
+			var tag = "plugin/delta/script" + i;
+			tags.add(tag);
+			matcher.add(tag);
+		}
+		ref = new RefDto();
+		ref.setUrl("comment:test");
+		ref.setTags(List.of("public", "+user/alice", "science/physics", "plugin/comment", "plugin/delta/script7/run"));
+	}
+
+	@Benchmark
+	public Object loop() {
+		var result = new ArrayList<String>();
+		for (var tag : tags) if (hasMatchingTag(ref, tag)) result.add(tag);
+		return result;
+	}
+
+	@Benchmark
+	public Object matcher() {
+		return matcher.match(ref);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		run(TagMatcherBenchmark.class);
+	}
+}
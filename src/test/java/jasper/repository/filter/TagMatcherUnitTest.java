@@ -0,0 +1,70 @@
+package jasper.repository.filter;
+
+import jasper.service.dto.RefDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TagMatcherUnitTest {
+
+	RefDto ref(String origin, String ...tags) {
+		var ref = new RefDto();
+		ref.setUrl("comment:test");
+		ref.setOrigin(origin);
+		ref.setTags(List.of(tags));
+		return ref;
+	}
+
+	@Test
+	void testMatch_Prefix() {
+		var matcher = new TagMatcher();
+		matcher.add("plugin/delta");
+		matcher.add("plugin/delta/ai");
+		matcher.add("science");
+
+		assertThat(matcher.match(ref("", "plugin/delta/ai/summary")))
+			.containsExactly("plugin/delta", "plugin/delta/ai");
+		assertThat(matcher.match(ref("", "plugin/deltas")))
+			.isEmpty();
+	}
+
+	@Test
+	void testMatch_Query() {
+		var matcher = new TagMatcher();
+		matcher.add("science:!_secret");
+		matcher.add("news|science");
+
+		assertThat(matcher.match(ref("", "science")))
+			.containsExactly("science:!_secret", "news|science");
+		assertThat(matcher.match(ref("", "science", "_secret")))
+			.containsExactly("news|science");
+	}
+
+	@Test
+	void testMatch_Unguarded() {
+		var matcher = new TagMatcher();
+		matcher.add("!plugin/error");
+
+		assertThat(matcher.match(ref("", "public")))
+			.containsExactly("!plugin/error");
+		assertThat(matcher.match(ref("", "plugin/error")))
+			.isEmpty();
+	}
+
+	@Test
+	void testMatch_Origin() {
+		var matcher = new TagMatcher();
+		matcher.add("science@other");
+		matcher.add("science@other.*");
+		matcher.add("science@");
+
+		assertThat(matcher.match(ref("@other", "science")))
+			.containsExactly("science@other", "science@other.*");
+		assertThat(matcher.match(ref("@other.sub", "science")))
+			.containsExactly("science@other.*");
+		assertThat(matcher.match(ref("", "science")))
+			.containsExactly("science@");
+	}
+}
@@ -0,0 +1,70 @@
+package jasper.repository.filter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jasper.AbstractBenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the regex based {@link TagQuery} parser it replaced against the
+ * single pass parser, with and without the parse cache, and building
+ * specs from the parsed query.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=jasper.repository.filter.TagQueryBenchmark}
+ */
+public class TagQueryBenchmark extends AbstractBenchmark {
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Param({
+		"public",
+		"science:!_secret|+user/alice@other",
+		"(news|science):(public|+user/bob):!plugin/delete|(_a:(b|c@x.*))",
+	})
+	String query;
+
+	@Benchmark
+	public Object legacy() throws JsonProcessingException {
+		var array = ("[\"" + query.replaceAll("\\s", "") + "\"]")
+			.replaceAll("[|:()]", "\",\"$0\",\"")
+			.replaceAll(",?\"\\(\",?", "[")
+			.replaceAll(",?\"\\)\",?", "]")
+			.replaceAll("\"\"", "");
+		JsonNode ast = objectMapper.readTree(array);
+		List<String> tags = Arrays.stream(query.split("[!:|()\\s]+"))
+			.filter(t -> !t.isBlank())
+			.toList();
+		return List.of(ast, tags);
+	}
+
+	@Benchmark
+	public Object parse() {
+		var q = new TagQuery(query);
+		return List.of(q.ast(), q.tags());
+	}
+
+	@Benchmark
+	public Object cached() {
+		var q = TagQuery.of(query);
+		return List.of(q.ast(), q.tags());
+	}
+
+	@Benchmark
+	public Object refSpec() {
+		return new TagQuery(query).refSpec();
+	}
+
+	@Benchmark
+	public Object cachedRefSpec() {
+		return TagQuery.of(query).refSpec();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		run(TagQueryBenchmark.class);
+	}
+}
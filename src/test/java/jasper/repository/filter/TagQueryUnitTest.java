@@ -0,0 +1,66 @@
+package jasper.repository.filter;
+
+import jasper.repository.filter.TagQuery.And;
+import jasper.repository.filter.TagQuery.Atom;
+import jasper.repository.filter.TagQuery.Or;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TagQueryUnitTest {
+
+	@Test
+	void testParse_Atom() {
+		var q = TagQuery.of("science");
+
+		assertThat(q.ast()).isInstanceOf(Atom.class);
+		assertThat(((Atom) q.ast()).tag().tag).isEqualTo("science");
+		assertThat(q.tags()).containsExactly("science");
+	}
+
+	@Test
+	void testParse_AndBindsTighterThanOr() {
+		var q = TagQuery.of("a:b|c");
+
+		assertThat(q.ast()).isInstanceOf(Or.class);
+		var or = (Or) q.ast();
+		assertThat(or.nodes()).hasSize(2);
+		assertThat(or.nodes().get(0)).isInstanceOf(And.class);
+		assertThat(or.nodes().get(1)).isInstanceOf(Atom.class);
+	}
+
+	@Test
+	void testParse_Groups() {
+		var q = TagQuery.of("a:(b|c)");
+
+		assertThat(q.ast()).isInstanceOf(And.class);
+		var and = (And) q.ast();
+		assertThat(and.nodes().get(1)).isInstanceOf(Or.class);
+		assertThat(q.tags()).containsExactly("a", "b", "c");
+	}
+
+	@Test
+	void testParse_NegationAndWhitespace() {
+		var q = TagQuery.of(" !_secret : +user/alice@other ");
+
+		var and = (And) q.ast();
+		var not = ((Atom) and.nodes().get(0)).tag();
+		assertThat(not.not).isTrue();
+		assertThat(not.tag).isEqualTo("_secret");
+		assertThat(q.tags()).containsExactly("_secret", "+user/alice@other");
+	}
+
+	@Test
+	void testParse_Cached() {
+		assertThat(TagQuery.of("a|b")).isSameAs(TagQuery.of("a|b"));
+	}
+
+	@Test
+	void testParse_Unbalanced() {
+		assertThatThrownBy(() -> TagQuery.of("(a|b"))
+			.isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> TagQuery.of("a|b)"))
+			.isInstanceOf(UnsupportedOperationException.class);
+	}
+}
@@ -0,0 +1,70 @@
+package jasper.security;
+
+import jasper.AbstractBenchmark;
+import jasper.repository.spec.QualifiedTag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static jasper.repository.spec.QualifiedTag.qtList;
+import static jasper.repository.spec.QualifiedTag.selector;
+import static jasper.repository.spec.QualifiedTag.selectors;
+
+/**
+ * Checks a Ref's tags against a user's access list, as done for every Ref
+ * read or written. The last access tag is the only one that captures.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=jasper.security.AuthBenchmark}
+ */
+public class AuthBenchmark extends AbstractBenchmark {
+
+	@Param({"10", "100"})
+	int access;
+
+	@Param({"5", "50"})
+	int tags;
+
+	List<String> accessTags;
+	List<QualifiedTag> accessSelectors;
+	List<QualifiedTag> refTags;
+	String lastRefTag;
+
+	@Setup
+	public void setup() {
+		accessTags = new ArrayList<>();
+		for (var i = 1; i < access; i++) accessTags.add((i % 2 == 0 ? "_team/" : "+project/") + i + "/notes");
+		accessTags.add("science");
+		accessSelectors = selectors("@other", accessTags);
+		var refTagList = new ArrayList<String>();
+		for (var i = 1; i < tags; i++) refTagList.add("topic/" + i + "/subtopic");
+		refTagList.add("science/physics");
+		refTags = qtList("@other", refTagList);
+		lastRefTag = refTagList.getLast() + "@other";
+	}
+
+	@Benchmark
+	public boolean authCaptures() {
+		return Auth.captures(accessSelectors, refTags);
+	}
+
+	@Benchmark
+	public boolean parseAndCapture() {
+		return Auth.captures(selectors("@other", accessTags), refTags);
+	}
+
+	@Benchmark
+	public boolean qualifiedTagCaptures() {
+		for (var tag : accessTags) {
+			if (selector(tag + "@other").captures(lastRefTag)) return true;
+		}
+		return false;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		run(AuthBenchmark.class);
+	}
+}
@@ -0,0 +1,119 @@
+package jasper.security.jwt;
+
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.io.Encoders;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwkSigningKeyResolverTest {
+
+	HttpServer server;
+	URI uri;
+	AtomicInteger requests = new AtomicInteger();
+	volatile int status = 200;
+	volatile String cacheControl = "max-age=3600";
+	volatile String jwks;
+
+	@BeforeEach
+	void init() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/jwks", exchange -> {
+			requests.incrementAndGet();
+			var body = jwks.getBytes(UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+			exchange.sendResponseHeaders(status, body.length);
+			try (var os = exchange.getResponseBody()) {
+				os.write(body);
+			}
+		});
+		server.start();
+		uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/jwks");
+	}
+
+	@AfterEach
+	void shutdown() {
+		server.stop(0);
+	}
+
+	String jwk(String kid) throws NoSuchAlgorithmException {
+		var generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		var key = (RSAPublicKey) generator.generateKeyPair().getPublic();
+		return """
+			{"kty":"RSA","use":"sig","alg":"RS256","kid":"%s","n":"%s","e":"%s"}
+			""".formatted(kid, base64(key.getModulus()), base64(key.getPublicExponent()));
+	}
+
+	String base64(BigInteger value) {
+		var bytes = value.toByteArray();
+		if (bytes[0] == 0) bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+		return Encoders.BASE64URL.encode(bytes);
+	}
+
+	@Test
+	void testPrefetchesKeys() throws NoSuchAlgorithmException {
+		jwks = "{\"keys\":[" + jwk("a") + "]}";
+		var resolver = new JwkSigningKeyResolver(uri, new RestTemplate(), null);
+
+		assertThat(resolver.getKey("a")).isNotNull();
+		assertThat(resolver.getKey("a")).isNotNull();
+
+		assertThat(requests.get()).isEqualTo(1);
+	}
+
+	@Test
+	void testRateLimitsUnknownKeyIds() throws NoSuchAlgorithmException {
+		jwks = "{\"keys\":[" + jwk("a") + "]}";
+		var resolver = new JwkSigningKeyResolver(uri, new RestTemplate(), null, Duration.ofMinutes(1));
+		assertThat(resolver.getKey("a")).isNotNull();
+
+		for (var i = 0; i < 10; i++) {
+			assertThat(resolver.getKey("bogus" + i)).isNull();
+		}
+
+		assertThat(requests.get()).isEqualTo(1);
+	}
+
+	@Test
+	void testRotatesKeys() throws NoSuchAlgorithmException {
+		jwks = "{\"keys\":[" + jwk("a") + "]}";
+		var resolver = new JwkSigningKeyResolver(uri, new RestTemplate(), null, Duration.ZERO);
+		assertThat(resolver.getKey("a")).isNotNull();
+
+		jwks = "{\"keys\":[" + jwk("b") + "]}";
+
+		assertThat(resolver.getKey("b")).isNotNull();
+		assertThat(requests.get()).isEqualTo(2);
+	}
+
+	@Test
+	void testServesStaleKeysWhenRefreshFails() throws NoSuchAlgorithmException {
+		cacheControl = "no-cache";
+		jwks = "{\"keys\":[" + jwk("a") + "]}";
+		var resolver = new JwkSigningKeyResolver(uri, new RestTemplate(), null, Duration.ZERO);
+		assertThat(resolver.getKey("a")).isNotNull();
+
+		status = 500;
+		jwks = "{}";
+
+		assertThat(resolver.getKey("a")).isNotNull();
+		assertThat(resolver.getKey("a")).isNotNull();
+	}
+}
@@ -14,8 +14,10 @@ import jasper.config.Props;
 import jasper.domain.User;
 import jasper.management.SecurityMetersService;
 import jasper.security.AuthoritiesConstants;
+import jasper.service.dto.UserDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -154,6 +156,78 @@ class TokenProviderImplTest {
         assertThat(isTokenValid).isFalse();
     }
 
+	@Test
+	void testCachesVerifiedToken() {
+		configCache.security("").setClientId("test");
+		var token = tokenProvider.createToken(createAuthentication(), 1800);
+
+		assertThat(tokenProvider.validateToken(token, "")).isTrue();
+		var first = tokenProvider.getAuthentication(token, "");
+		assertThat(tokenProvider.validateToken(token, "")).isTrue();
+		var second = tokenProvider.getAuthentication(token, "");
+
+		assertThat(first.getName()).isEqualTo("+user/anonymous");
+		assertThat(second).isSameAs(first);
+	}
+
+	@Test
+	void testDoesNotCacheUnvalidatedToken() {
+		configCache.security("").setClientId("test");
+		var token = tokenProvider.createToken(createAuthentication(), 1800);
+
+		var first = tokenProvider.getAuthentication(token, "");
+		var second = tokenProvider.getAuthentication(token, "");
+
+		assertThat(second).isNotSameAs(first);
+	}
+
+	@Test
+	void testClearsCachedTokensOnUserUpdate() {
+		configCache.security("").setClientId("test");
+		var token = tokenProvider.createToken(createAuthentication(), 1800);
+		tokenProvider.validateToken(token, "");
+		var first = tokenProvider.getAuthentication(token, "");
+
+		tokenProvider.handleUserUpdate(MessageBuilder.withPayload(userDto("+user/anonymous", "")).build());
+
+		assertThat(tokenProvider.validateToken(token, "")).isTrue();
+		assertThat(tokenProvider.getAuthentication(token, "")).isNotSameAs(first);
+	}
+
+	@Test
+	void testKeepsCachedTokensOnOtherUserUpdate() {
+		configCache.security("").setClientId("test");
+		var token = tokenProvider.createToken(createAuthentication(), 1800);
+		tokenProvider.validateToken(token, "");
+		var first = tokenProvider.getAuthentication(token, "");
+
+		tokenProvider.handleUserUpdate(MessageBuilder.withPayload(userDto("+user/other", "")).build());
+		tokenProvider.handleUserUpdate(MessageBuilder.withPayload(userDto("+user/anonymous", "@other")).build());
+
+		assertThat(tokenProvider.validateToken(token, "")).isTrue();
+		assertThat(tokenProvider.getAuthentication(token, "")).isSameAs(first);
+	}
+
+	@Test
+	void testClearsCachedTokensInOriginWithExternalIds() {
+		configCache.security("").setClientId("test");
+		configCache.security("").setExternalId(true);
+		var token = tokenProvider.createToken(createAuthentication(), 1800);
+		tokenProvider.validateToken(token, "");
+		var first = tokenProvider.getAuthentication(token, "");
+
+		tokenProvider.handleUserUpdate(MessageBuilder.withPayload(userDto("+user/other", "")).build());
+
+		assertThat(tokenProvider.getAuthentication(token, "")).isNotSameAs(first);
+	}
+
+	UserDto userDto(String tag, String origin) {
+		var user = new UserDto();
+		user.setTag(tag);
+		user.setOrigin(origin);
+		return user;
+	}
+
     private Authentication createAuthentication() {
         Collection<GrantedAuthority> authorities = new ArrayList<>();
         authorities.add(new SimpleGrantedAuthority(AuthoritiesConstants.ANONYMOUS));
@@ -13,9 +13,11 @@ import jasper.errors.AlreadyExistsException;
 import jasper.errors.ModifiedException;
 import jasper.repository.PluginRepository;
 import jasper.repository.RefRepository;
+import jasper.repository.RefResponseRepository;
 import jasper.repository.UserRepository;
 import jasper.repository.filter.RefFilter;
 import jasper.repository.spec.RefSpec;
+import jasper.service.dto.RefDto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +43,9 @@ public class RefServiceIT {
 	@Autowired
 	RefRepository refRepository;
 
+	@Autowired
+	RefResponseRepository refResponseRepository;
+
 	@Autowired
 	Ingest ingest;
 
@@ -81,6 +86,7 @@ public class RefServiceIT {
 	@BeforeEach
 	void init() {
 		refRepository.deleteAll();
+		refResponseRepository.deleteAll();
 		pluginRepository.deleteAll();
 		userRepository.deleteAll();
 		configCache.clearUserCache();
@@ -1347,7 +1353,7 @@ public class RefServiceIT {
 		var fetched = refRepository.findOneByUrlAndOrigin(URL + "source", "").get();
 		assertThat(fetched.getTitle())
 			.isEqualTo("Source");
-		assertThat(fetched.getMetadata().getResponses())
+		assertThat(refResponseRepository.findAllResponses(fetched.getUrl(), fetched.getOrigin()))
 			.containsExactly(URL);
 	}
 
@@ -1377,8 +1383,8 @@ public class RefServiceIT {
 		var fetched = refRepository.findOneByUrlAndOrigin(URL + "source", "").get();
 		assertThat(fetched.getTitle())
 			.isEqualTo("Source");
-		assertThat(fetched.getMetadata().getResponses())
-			.isNull();
+		assertThat(refResponseRepository.findAllResponses(fetched.getUrl(), fetched.getOrigin()))
+			.isEmpty();
 	}
 
 	@Test
@@ -1407,8 +1413,8 @@ public class RefServiceIT {
 		var fetched = refRepository.findOneByUrlAndOrigin(URL + "source", "").get();
 		assertThat(fetched.getTitle())
 			.isEqualTo("Source");
-		assertThat(fetched.getMetadata().getResponses())
-			.isNull();
+		assertThat(refResponseRepository.findAllResponses(fetched.getUrl(), fetched.getOrigin()))
+			.isEmpty();
 	}
 
 	@Test
@@ -1440,7 +1446,7 @@ public class RefServiceIT {
 		var fetched = refRepository.findOneByUrlAndOrigin(URL + "source", "").get();
 		assertThat(fetched.getTitle())
 			.isEqualTo("Source");
-		assertThat(fetched.getMetadata().getResponses())
+		assertThat(refResponseRepository.findAllResponses(fetched.getUrl(), fetched.getOrigin()))
 			.containsExactly(URL);
 		assertThat(fetched.getMetadata().getPlugins().get("plugin/comment"))
 			.isEqualTo(1);
@@ -1472,8 +1478,8 @@ public class RefServiceIT {
 		var fetched = refRepository.findOneByUrlAndOrigin(URL + "source", "").get();
 		assertThat(fetched.getTitle())
 			.isEqualTo("Source");
-		assertThat(fetched.getMetadata().getResponses())
-			.isNull();
+		assertThat(refResponseRepository.findAllResponses(fetched.getUrl(), fetched.getOrigin()))
+			.isEmpty();
 		assertThat(fetched.getMetadata().getPlugins())
 			.isNullOrEmpty();
 	}
@@ -1729,4 +1735,33 @@ public class RefServiceIT {
 		assertThat(result.getContent().get(1).getUrl()).isEqualTo("https://example.com/1");
 	}
 
+	@Test
+	void testPageUserUrls() {
+		var ref = new Ref();
+		ref.setUrl(URL);
+		ref.setTags(new ArrayList<>(List.of("public")));
+		refService.create(ref);
+		var other = new Ref();
+		other.setUrl(URL + "other");
+		other.setTags(new ArrayList<>(List.of("public")));
+		refService.create(other);
+		var vote = new Ref();
+		vote.setUrl("tag:/user/tester?url=" + URL);
+		vote.setSources(List.of(URL));
+		vote.setTags(new ArrayList<>(List.of("+user/tester", "plugin/user/vote/up")));
+		refService.create(vote);
+
+		var page = refService.page(
+			RefFilter.builder().query("public").build(),
+			PageRequest.of(0, 10, Sort.by(Sort.Order.asc("url"))));
+
+		assertThat(page.getContent())
+			.extracting(RefDto::getUrl)
+			.containsExactly(URL, URL + "other");
+		assertThat(page.getContent().get(0).getMetadata().getUserUrls())
+			.containsExactly("plugin/user/vote/up");
+		assertThat(page.getContent().get(1).getMetadata() == null ? null : page.getContent().get(1).getMetadata().getUserUrls())
+			.isNull();
+	}
+
 }
@@ -11,6 +11,7 @@ import jasper.errors.AlreadyExistsException;
 import jasper.errors.ModifiedException;
 import jasper.repository.PluginRepository;
 import jasper.repository.RefRepository;
+import jasper.repository.RefResponseRepository;
 import jasper.repository.UserRepository;
 import jasper.repository.filter.RefFilter;
 import org.junit.jupiter.api.BeforeEach;
@@ -43,6 +44,9 @@ public class RefServiceMTIT {
 	@Autowired
 	RefRepository refRepository;
 
+	@Autowired
+	RefResponseRepository refResponseRepository;
+
 	@Autowired
 	PluginRepository pluginRepository;
 
@@ -84,6 +88,7 @@ public class RefServiceMTIT {
 	@BeforeEach
 	void init() {
 		refRepository.deleteAll();
+		refResponseRepository.deleteAll();
 		pluginRepository.deleteAll();
 		userRepository.deleteAll();
 		configCache.clearUserCache();
@@ -1167,7 +1172,7 @@ public class RefServiceMTIT {
 		var fetched = refRepository.findOneByUrlAndOrigin(URL + "source", "@other").get();
 		assertThat(fetched.getTitle())
 			.isEqualTo("Source");
-		assertThat(fetched.getMetadata().getResponses())
+		assertThat(refResponseRepository.findAllResponses(fetched.getUrl(), fetched.getOrigin()))
 			.containsExactly(URL);
 	}
 
@@ -1197,8 +1202,8 @@ public class RefServiceMTIT {
 		var fetched = refRepository.findOneByUrlAndOrigin(URL + "source", "@other").get();
 		assertThat(fetched.getTitle())
 			.isEqualTo("Source");
-		assertThat(fetched.getMetadata().getResponses())
-			.isNull();
+		assertThat(refResponseRepository.findAllResponses(fetched.getUrl(), fetched.getOrigin()))
+			.isEmpty();
 	}
 
 	@Test
@@ -1227,8 +1232,8 @@ public class RefServiceMTIT {
 		var fetched = refRepository.findOneByUrlAndOrigin(URL + "source", "@other").get();
 		assertThat(fetched.getTitle())
 			.isEqualTo("Source");
-		assertThat(fetched.getMetadata().getResponses())
-			.isNull();
+		assertThat(refResponseRepository.findAllResponses(fetched.getUrl(), fetched.getOrigin()))
+			.isEmpty();
 	}
 
 	@Test
@@ -1260,7 +1265,7 @@ public class RefServiceMTIT {
 		var fetched = refRepository.findOneByUrlAndOrigin(URL + "source", "@other").get();
 		assertThat(fetched.getTitle())
 			.isEqualTo("Source");
-		assertThat(fetched.getMetadata().getResponses())
+		assertThat(refResponseRepository.findAllResponses(fetched.getUrl(), fetched.getOrigin()))
 			.containsExactly(URL);
 		assertThat(fetched.getMetadata().getPlugins().get("plugin/comment"))
 			.isEqualTo(1);
@@ -1295,8 +1300,8 @@ public class RefServiceMTIT {
 		var fetched = refRepository.findOneByUrlAndOrigin(URL + "source", "@other").get();
 		assertThat(fetched.getTitle())
 			.isEqualTo("Source");
-		assertThat(fetched.getMetadata().getResponses())
-			.isNullOrEmpty();
+		assertThat(refResponseRepository.findAllResponses(fetched.getUrl(), fetched.getOrigin()))
+			.isEmpty();
 		assertThat(fetched.getMetadata().getPlugins())
 			.isNullOrEmpty();
 	}
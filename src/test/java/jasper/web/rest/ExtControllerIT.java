@@ -102,4 +102,24 @@ class ExtControllerIT {
 		assertThat(existing).isPresent();
 		assertThat(existing.get().getName()).isNull();
 	}
+
+	@Test
+	void testScrollRejectsDateMissingOnExt() throws Exception {
+		mockMvc
+			.perform(get("/api/v1/ext/scroll")
+				.param("sort", "published"))
+			.andExpect(status().isBadRequest());
+		mockMvc
+			.perform(get("/api/v1/ext/scroll")
+				.param("sort", "created"))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testScrollByModified() throws Exception {
+		mockMvc
+			.perform(get("/api/v1/ext/scroll")
+				.param("sort", "modified,desc"))
+			.andExpect(status().isOk());
+	}
 }
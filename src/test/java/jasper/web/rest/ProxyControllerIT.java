@@ -17,9 +17,13 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -302,6 +306,85 @@ class ProxyControllerIT {
 			.andExpect(content().bytes(TEST_CONTENT));
 	}
 
+	@Test
+	void testNotModified() throws Exception {
+		var etag = mockMvc
+			.perform(get("/api/v1/proxy")
+				.param("url", testUrl)
+				.param("origin", ""))
+			.andExpect(header().exists("ETag"))
+			.andExpect(header().exists("Last-Modified"))
+			.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc
+			.perform(get("/api/v1/proxy")
+				.param("url", testUrl)
+				.param("origin", "")
+				.header("If-None-Match", etag))
+			.andExpect(status().isNotModified())
+			.andExpect(header().string("ETag", etag));
+	}
+
+	@Test
+	void testIfRangeMatch() throws Exception {
+		var etag = mockMvc
+			.perform(get("/api/v1/proxy")
+				.param("url", testUrl)
+				.param("origin", ""))
+			.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc
+			.perform(get("/api/v1/proxy")
+				.param("url", testUrl)
+				.param("origin", "")
+				.header("Range", "bytes=0-9")
+				.header("If-Range", etag))
+			.andExpect(status().isPartialContent())
+			.andExpect(header().string("Content-Range", "bytes 0-9/" + TEST_CONTENT.length));
+	}
+
+	@Test
+	void testIfRangeMismatchReturnsFullContent() throws Exception {
+		// RFC 7233 Section 3.2: A stale validator means the whole file has changed
+		mockMvc
+			.perform(get("/api/v1/proxy")
+				.param("url", testUrl)
+				.param("origin", "")
+				.header("Range", "bytes=0-9")
+				.header("If-Range", "\"stale\""))
+			.andExpect(status().isOk())
+			.andExpect(header().doesNotExist("Content-Range"))
+			.andExpect(header().string("Content-Length", String.valueOf(TEST_CONTENT.length)));
+	}
+
+	@Test
+	void testThumbnailIsGeneratedInBackground() throws Exception {
+		var image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+		var out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		var url = proxyService.save("", "image.png", new ByteArrayInputStream(out.toByteArray()), "image/png").getUrl();
+
+		var status = 0;
+		for (var i = 0; i < 100 && status != 200; i++) {
+			var res = mockMvc
+				.perform(get("/api/v1/proxy")
+					.param("url", url)
+					.param("origin", "")
+					.param("thumbnail", "true"))
+				.andReturn().getResponse();
+			status = res.getStatus();
+			if (status == 202) {
+				assertThat(res.getHeader("Retry-After")).isEqualTo("1");
+				Thread.sleep(100);
+			}
+		}
+
+		assertThat(status).isEqualTo(200);
+		var thumbnail = proxyService.cache(url, "", true);
+		assertThat(thumbnail.isThumbnail()).isTrue();
+		assertThat(thumbnail.getMimeType()).isEqualTo("image/jpeg");
+	}
+
 	@Test
 	void testFetchNotFound() throws Exception {
 		// Test: URL that doesn't exist in cache
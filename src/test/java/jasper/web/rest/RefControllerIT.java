@@ -13,12 +13,14 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -278,4 +280,97 @@ class RefControllerIT {
 			.andExpect(status().isOk())
 			.andExpect(jsonPath("$.content[0].url").value("http://repl-web"));
 	}
+
+	@Test
+	void testPageNotModified() throws Exception {
+		var etag = mockMvc
+			.perform(get("/api/v1/ref/page"))
+			.andExpect(status().isOk())
+			.andExpect(header().exists("ETag"))
+			.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc
+			.perform(get("/api/v1/ref/page")
+				.header("If-None-Match", etag))
+			.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void testPageModifiedAfterCreate() throws Exception {
+		var etag = mockMvc
+			.perform(get("/api/v1/ref/page"))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getHeader("ETag");
+		var ref = new Ref();
+		ref.setUrl(URL);
+		mockMvc
+			.perform(post("/api/v1/ref")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(ref))
+				.with(csrf().asHeader()))
+			.andExpect(status().isCreated());
+
+		mockMvc
+			.perform(get("/api/v1/ref/page")
+				.header("If-None-Match", etag))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.content[0].url").value(URL));
+	}
+
+	@Test
+	void testPageETagDependsOnQuery() throws Exception {
+		var etag = mockMvc
+			.perform(get("/api/v1/ref/page"))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc
+			.perform(get("/api/v1/ref/page")
+				.param("query", "test")
+				.header("If-None-Match", etag))
+			.andExpect(status().isOk());
+	}
+
+	@Test
+	@WithMockUser(value = "+user/tester", roles = {"MOD"})
+	void testScrollVisitsEveryRefOnce() throws Exception {
+		var now = Instant.now();
+		for (var i = 0; i < 5; i++) {
+			var ref = new Ref();
+			ref.setUrl(URL + i);
+			ref.setModified(now.minusSeconds(i));
+			refRepository.save(ref);
+		}
+
+		var urls = new ArrayList<String>();
+		String after = null;
+		do {
+			var request = get("/api/v1/ref/scroll").param("size", "2");
+			if (after != null) request.param("after", after);
+			var json = objectMapper.readTree(mockMvc
+				.perform(request)
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+			json.get("content").forEach(ref -> urls.add(ref.get("url").asText()));
+			after = json.get("next").isNull() ? null : json.get("next").asText();
+		} while (after != null);
+
+		assertThat(urls).containsExactly(URL + 0, URL + 1, URL + 2, URL + 3, URL + 4);
+	}
+
+	@Test
+	void testScrollRejectsUnsupportedSort() throws Exception {
+		mockMvc
+			.perform(get("/api/v1/ref/scroll")
+				.param("sort", "title"))
+			.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testScrollRejectsInvalidToken() throws Exception {
+		mockMvc
+			.perform(get("/api/v1/ref/scroll")
+				.param("after", "not a token"))
+			.andExpect(status().isBadRequest());
+	}
 }